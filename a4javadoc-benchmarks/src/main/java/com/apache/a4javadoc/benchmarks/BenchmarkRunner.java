@@ -0,0 +1,45 @@
+package com.apache.a4javadoc.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * Runs benchmarks with the {@link GCProfiler} and writes the results in the JMH JSON format,
+ * so a release can be checked against limits of nanoseconds and bytes per operation.
+ * The bytes are the {@code gc.alloc.rate.norm} secondary results.
+ *
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.apache.a4javadoc.benchmarks.BenchmarkRunner [regexp] [result file]},
+ * for example {@code ... BenchmarkRunner InterceptorBenchmark target/interceptor.json}.
+ * By default all benchmarks are run and the results are written to the {@link #DEFAULT_RESULT_FILE}.
+ * @author Kyrylo Semenko
+ */
+public final class BenchmarkRunner {
+
+    /** The default result file */
+    public static final String DEFAULT_RESULT_FILE = "target/benchmark-results.json";
+
+    /** The class with the {@link #main(String[])} method only */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * @param args the optional regular expression of benchmark names and the optional result file
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ".*")
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(args.length > 1 ? args[1] : DEFAULT_RESULT_FILE)
+                .build();
+        new Runner(options).run();
+    }
+
+}
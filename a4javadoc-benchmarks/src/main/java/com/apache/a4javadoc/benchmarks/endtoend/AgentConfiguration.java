@@ -0,0 +1,87 @@
+package com.apache.a4javadoc.benchmarks.endtoend;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.apache.a4javadoc.benchmarks.endtoend.app.OrderService;
+
+/**
+ * The JVM configurations compared by the {@link EndToEndHarness}. Each one adds a cost to the previous ones,
+ * so the differences of adjacent results show the cost of the matching, of the interception and of a recorder.
+ * @author Kyrylo Semenko
+ */
+public enum AgentConfiguration {
+
+    /** The baseline, the workload without the agent */
+    NO_AGENT(false, null, false),
+
+    /** The agent matches all loaded classes against an include filter, that does not match the workload */
+    FILTER_ONLY(true, "com.apache.a4javadoc.benchmarks.endtoend.none.*", false),
+
+    /**
+     * The workload is instrumented, but no recorder is installed, so the interceptors only assign ids,
+     * take timestamps and stack traces and pass them to an empty list of recorders
+     */
+    TIMING_ONLY(true, workloadFilter(), false),
+
+    /** Full capture by the recorder-to-a-log plugin in its default text format */
+    LOG_TEXT(true, workloadFilter(), true),
+
+    /** Full capture by the recorder-to-a-log plugin in the JSON Lines format */
+    LOG_JSONL(true, workloadFilter(), true, "a4javadoc.recorder.format=jsonl"),
+
+    /** Full capture by the recorder-to-a-log plugin with snapshots rendered in a background thread */
+    LOG_SNAPSHOT(true, workloadFilter(), true, "a4javadoc.recorder.captureMode=snapshot");
+
+    /** 'true' if the JVM is launched with the {@code -javaagent} option */
+    private final boolean agent;
+
+    /** The {@code a4javadoc.include} property of the agent, 'null' without the agent */
+    private final String include;
+
+    /** 'true' if the recorder plugin is installed to the plugins directory */
+    private final boolean recorder;
+
+    /** System properties of the recorder in the {@code name=value} form */
+    private final List<String> recorderProperties;
+
+    /**
+     * @param agent see the {@link #agent} field
+     * @param include see the {@link #include} field
+     * @param recorder see the {@link #recorder} field
+     * @param recorderProperties see the {@link #recorderProperties} field
+     */
+    AgentConfiguration(boolean agent, String include, boolean recorder, String... recorderProperties) {
+        this.agent = agent;
+        this.include = include;
+        this.recorder = recorder;
+        this.recorderProperties = Collections.unmodifiableList(Arrays.asList(recorderProperties));
+    }
+
+    /** @return the include filter of all methods of the workload application */
+    private static String workloadFilter() {
+        return OrderService.class.getPackage().getName() + ".*";
+    }
+
+    /** @return The {@link AgentConfiguration#agent} field */
+    public boolean isAgent() {
+        return agent;
+    }
+
+    /** @return The {@link AgentConfiguration#include} field */
+    public String getInclude() {
+        return include;
+    }
+
+    /** @return The {@link AgentConfiguration#recorder} field */
+    public boolean isRecorder() {
+        return recorder;
+    }
+
+    /** @return The {@link AgentConfiguration#recorderProperties} field */
+    public List<String> getRecorderProperties() {
+        return recorderProperties;
+    }
+
+}
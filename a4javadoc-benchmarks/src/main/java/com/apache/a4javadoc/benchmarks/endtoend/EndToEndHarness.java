@@ -0,0 +1,231 @@
+package com.apache.a4javadoc.benchmarks.endtoend;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.apache.a4javadoc.benchmarks.endtoend.app.Order;
+import com.apache.a4javadoc.benchmarks.endtoend.app.OrderService;
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * <p>
+ * Answers the question what turning the agent on costs a running application, including the class loading,
+ * the JIT and the GC effects, which the microbenchmarks do not show. The {@link WorkloadMain} is launched
+ * in a forked JVM for each {@link AgentConfiguration}, and its startup time, throughput, latencies, allocation rate
+ * and GC time are reported next to the {@link AgentConfiguration#NO_AGENT} baseline.
+ *
+ * <p>
+ * The forked JVM gets a jar with the workload classes only. The benchmarks jar contains the recorder classes
+ * and their extension index, so with that jar on the class path the plugin manager would load the recorder
+ * in every configuration.
+ *
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.apache.a4javadoc.benchmarks.endtoend.EndToEndHarness
+ * <agent jar> <recorder plugin jar> [threads] [warmup seconds] [measurement seconds] [work directory]},
+ * for example {@code ... EndToEndHarness ../a4javadoc-javaagent/target/a4javadoc-javaagent-0.0.1.jar
+ * ../a4javadoc-plugins/a4javadoc-plugins-recorder-to-a-log/target/a4javadoc-plugins-recorder-to-a-log-0.0.1-plugin.jar 4}.
+ * The agent jar name has to contain {@code a4javadoc-javaagent}, see the {@code Agent#findJavaagentDir} method.
+ * The forked JVMs use the Java installation of the harness, so run the harness by a Java version
+ * supported by the agent.
+ * Outputs, records and results of the forked JVMs are kept in subdirectories of the work directory,
+ * {@link #DEFAULT_WORK_DIRECTORY} by default.
+ * @author Kyrylo Semenko
+ */
+public final class EndToEndHarness {
+
+    /** The default work directory */
+    public static final String DEFAULT_WORK_DIRECTORY = "target/end-to-end";
+
+    /** Heap options of the forked JVMs, the heap is fixed, so the GC results are comparable */
+    private static final String[] HEAP_OPTIONS = {"-Xms512m", "-Xmx512m"};
+
+    /** Classes of the workload jar, see the class description */
+    private static final Class<?>[] WORKLOAD_CLASSES = {WorkloadMain.class, WorkloadMain.Worker.class,
+        WorkloadResult.class, LatencyHistogram.class, Order.class, OrderService.class};
+
+    /** The agent jar */
+    private final File agentJar;
+
+    /** The recorder plugin jar */
+    private final File pluginJar;
+
+    /** The work directory */
+    private final File workDirectory;
+
+    /**
+     * @param agentJar see the {@link #agentJar} field
+     * @param pluginJar see the {@link #pluginJar} field
+     * @param workDirectory see the {@link #workDirectory} field
+     */
+    EndToEndHarness(File agentJar, File pluginJar, File workDirectory) {
+        this.agentJar = agentJar.getAbsoluteFile();
+        this.pluginJar = pluginJar.getAbsoluteFile();
+        this.workDirectory = workDirectory.getAbsoluteFile();
+    }
+
+    /**
+     * @param args see the class description
+     * @throws IOException if a file cannot be written
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new AppRuntimeException("Expected arguments: <agent jar> <recorder plugin jar> [threads] "
+                    + "[warmup seconds] [measurement seconds] [work directory]");
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int measurementSeconds = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        File workDirectory = new File(args.length > 5 ? args[5] : DEFAULT_WORK_DIRECTORY);
+        EndToEndHarness harness = new EndToEndHarness(new File(args[0]), new File(args[1]), workDirectory);
+        Map<AgentConfiguration, WorkloadResult> results = harness.run(threads, warmupSeconds, measurementSeconds);
+        printReport(results, System.out);
+    }
+
+    /**
+     * Launch the workload for each {@link AgentConfiguration} one after another.
+     * @param threads number of worker threads
+     * @param warmupSeconds the warmup time
+     * @param measurementSeconds the measurement time
+     * @return results in the order of the configurations
+     * @throws IOException if a file cannot be written
+     * @throws InterruptedException if the thread is interrupted
+     */
+    Map<AgentConfiguration, WorkloadResult> run(int threads, int warmupSeconds, int measurementSeconds)
+            throws IOException, InterruptedException {
+        checkFile(agentJar);
+        checkFile(pluginJar);
+        FileUtils.forceMkdir(workDirectory);
+        File workloadJar = new File(workDirectory, "workload.jar");
+        writeClassesJar(workloadJar, WORKLOAD_CLASSES);
+        Map<AgentConfiguration, WorkloadResult> results = new EnumMap<>(AgentConfiguration.class);
+        for (AgentConfiguration configuration : AgentConfiguration.values()) {
+            File directory = new File(workDirectory, configuration.name().toLowerCase());
+            FileUtils.deleteDirectory(directory);
+            FileUtils.forceMkdir(directory);
+            File resultFile = new File(directory, "result.properties");
+            List<String> command = createCommand(configuration, directory, workloadJar);
+            command.add(Integer.toString(threads));
+            command.add(Integer.toString(warmupSeconds));
+            command.add(Integer.toString(measurementSeconds));
+            command.add(resultFile.getPath());
+            File output = new File(directory, "output.log");
+            Process process = new ProcessBuilder(command)
+                    .directory(directory)
+                    .redirectErrorStream(true)
+                    .redirectOutput(output)
+                    .start();
+            int exitCode = process.waitFor();
+            if (exitCode != 0 || !resultFile.exists()) {
+                throw new AppRuntimeException("The " + configuration + " run failed with the exit code " + exitCode
+                        + ", see " + output);
+            }
+            results.put(configuration, WorkloadResult.load(resultFile));
+        }
+        return results;
+    }
+
+    /**
+     * Create the JVM command line without the {@link WorkloadMain} arguments.
+     * @param configuration the JVM configuration
+     * @param directory the work directory of the JVM
+     * @param workloadJar the class path
+     * @return the command
+     * @throws IOException if the agent configuration cannot be written
+     */
+    List<String> createCommand(AgentConfiguration configuration, File directory, File workloadJar) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        for (String option : HEAP_OPTIONS) {
+            command.add(option);
+        }
+        if (configuration.isAgent()) {
+            File agentProperties = new File(directory, "a4javadoc.properties");
+            Properties properties = new Properties();
+            properties.setProperty("a4javadoc.include", configuration.getInclude());
+            try (OutputStream outputStream = new FileOutputStream(agentProperties)) {
+                properties.store(outputStream, configuration.name());
+            }
+            File pluginsDirectory = new File(directory, "plugins");
+            FileUtils.forceMkdir(pluginsDirectory);
+            if (configuration.isRecorder()) {
+                FileUtils.copyFileToDirectory(pluginJar, pluginsDirectory);
+            }
+            command.add("-javaagent:" + agentJar.getPath() + "=" + agentProperties.getPath());
+            command.add("-Dpf4j.pluginsDir=" + pluginsDirectory.getPath());
+            command.add("-Da4javadoc.recorder.file=" + new File(directory, "records.log").getPath());
+            for (String property : configuration.getRecorderProperties()) {
+                command.add("-D" + property);
+            }
+        }
+        command.add("-cp");
+        command.add(workloadJar.getPath());
+        command.add(WorkloadMain.class.getName());
+        return command;
+    }
+
+    /**
+     * Print the results as a table.
+     * @param results results of the {@link #run(int, int, int)} method
+     * @param printStream the target
+     */
+    static void printReport(Map<AgentConfiguration, WorkloadResult> results, PrintStream printStream) {
+        WorkloadResult baseline = results.get(AgentConfiguration.NO_AGENT);
+        printStream.printf("%-14s %10s %14s %12s %10s %10s %12s %8s %8s%n", "Configuration", "startup ms",
+                "ops/s", "degradation", "p50 us", "p99 us", "alloc MB/s", "GC ms", "GCs");
+        for (Map.Entry<AgentConfiguration, WorkloadResult> entry : results.entrySet()) {
+            WorkloadResult result = entry.getValue();
+            double degradation = 100 * (1 - result.getThroughput() / baseline.getThroughput());
+            printStream.printf("%-14s %10d %14.0f %11.1f%% %10.2f %10.2f %12.1f %8d %8d%n", entry.getKey(),
+                    result.getStartupMillis(), result.getThroughput(), degradation, result.getP50Nanos() / 1e3, result.getP99Nanos() / 1e3,
+                    result.getAllocationRate(), result.getGcMillis(), result.getGcCount());
+        }
+    }
+
+    /**
+     * Copy classes from the class path to a new jar, for example the {@link #WORKLOAD_CLASSES}.
+     * @param jar the target
+     * @param classes the top-level and nested classes to be copied
+     * @throws IOException if the jar cannot be written
+     */
+    public static void writeClassesJar(File jar, Class<?>... classes) throws IOException {
+        try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jar))) {
+            for (Class<?> copiedClass : classes) {
+                String name = copiedClass.getName().replace('.', '/') + ".class";
+                try (InputStream inputStream = EndToEndHarness.class.getClassLoader().getResourceAsStream(name)) {
+                    if (inputStream == null) {
+                        throw new AppRuntimeException("Cannot find the class file " + name);
+                    }
+                    jarOutputStream.putNextEntry(new JarEntry(name));
+                    IOUtils.copy(inputStream, jarOutputStream);
+                    jarOutputStream.closeEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file an input of the harness
+     * @throws AppRuntimeException if the file does not exist
+     */
+    private static void checkFile(File file) {
+        if (!file.isFile()) {
+            throw new AppRuntimeException("The file '" + file + "' does not exist");
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.apache.a4javadoc.benchmarks.endtoend;
+
+/**
+ * <p>
+ * Counts latencies in log-linear buckets without allocation, so recording does not disturb
+ * the measured allocation rate. Each power of two is divided to {@link #SUB_BUCKETS} buckets,
+ * so a percentile is reported with a relative error below 1/{@link #SUB_BUCKETS}.
+ *
+ * <p>
+ * An instance is used by a single thread, instances of threads are combined by the {@link #add(LatencyHistogram)}
+ * method after the measurement.
+ * @author Kyrylo Semenko
+ */
+public class LatencyHistogram {
+
+    /** Number of buckets of each power of two */
+    static final int SUB_BUCKETS = 16;
+
+    /** The bit length of the {@link #SUB_BUCKETS} */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** Bucket counts */
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+
+    /** Sum of the {@link #counts} */
+    private long total;
+
+    /**
+     * Count the value.
+     * @param nanos the latency, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        counts[indexOf(Math.max(0, nanos))]++;
+        total++;
+    }
+
+    /**
+     * Add counts of the other histogram to this one.
+     * @param other the source
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * @param percentile for example 0.99
+     * @return the lower bound of the bucket containing the percentile or 0 if nothing has been recorded
+     */
+    public long valueAt(double percentile) {
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return lowerBoundOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /** @return number of recorded values */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param value not negative value
+     * @return the bucket index
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param index the bucket index
+     * @return the least value of the bucket
+     */
+    static long lowerBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.apache.a4javadoc.benchmarks.endtoend;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+
+import com.apache.a4javadoc.benchmarks.endtoend.app.OrderService;
+
+/**
+ * <p>
+ * The multi-threaded application launched by the {@link EndToEndHarness} in a forked JVM,
+ * with or without the agent. Each worker thread calls the {@link OrderService#process(long)} method
+ * in a loop. The JVM uptime at the end of the first operation of each worker includes the class loading,
+ * the instrumentation and the initialization of the recorders. After this startup and the warmup,
+ * which includes the JIT compilation, the operations, their latencies, the allocated bytes
+ * and the garbage collections are measured for the measurement time.
+ *
+ * <p>
+ * Usage: {@code java -cp ... WorkloadMain <threads> <warmup seconds> <measurement seconds> <result file>},
+ * the result is written by the {@link WorkloadResult#store(File)} method.
+ * @author Kyrylo Semenko
+ */
+public final class WorkloadMain {
+
+    /** Set to 'false' to stop the workers */
+    private static volatile boolean running = true;
+
+    /** The workers count operations only when it is 'true' */
+    private static volatile boolean measuring;
+
+    /** Counted down by each worker after its first operation */
+    private static CountDownLatch started;
+
+    /** The class with the {@link #main(String[])} method only */
+    private WorkloadMain() {
+    }
+
+    /**
+     * @param args see the class description
+     * @throws InterruptedException if the main thread is interrupted
+     * @throws IOException if the result cannot be written
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int threads = Integer.parseInt(args[0]);
+        long warmupMillis = Long.parseLong(args[1]) * 1000;
+        long measurementMillis = Long.parseLong(args[2]) * 1000;
+        File resultFile = new File(args[3]);
+
+        started = new CountDownLatch(threads);
+        Worker[] workers = new Worker[threads];
+        Thread[] workerThreads = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+            workerThreads[i] = new Thread(workers[i], "worker-" + i);
+            workerThreads[i].start();
+        }
+        started.await();
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        Thread.sleep(warmupMillis);
+
+        long allocatedBefore = allocatedBytes();
+        long gcMillisBefore = gcMillis();
+        long gcCountBefore = gcCount();
+        long start = System.nanoTime();
+        measuring = true;
+        Thread.sleep(measurementMillis);
+        measuring = false;
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+        long gcMillisAfter = gcMillis();
+        long gcCountAfter = gcCount();
+
+        running = false;
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < threads; i++) {
+            workerThreads[i].join();
+            histogram.add(workers[i].histogram);
+        }
+        WorkloadResult result = new WorkloadResult();
+        result.setStartupMillis(startupMillis);
+        result.setOperations(histogram.getTotal());
+        result.setElapsedNanos(elapsed);
+        result.setP50Nanos(histogram.valueAt(0.5));
+        result.setP99Nanos(histogram.valueAt(0.99));
+        result.setAllocatedBytes(allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore);
+        result.setGcMillis(gcMillisAfter - gcMillisBefore);
+        result.setGcCount(gcCountAfter - gcCountBefore);
+        result.store(resultFile);
+    }
+
+    /**
+     * Sum of bytes allocated by the live threads, including the threads of the agent and the recorders.
+     * @return the bytes or -1 if the JVM does not support the measurement
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMxBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunThreadMxBean = (com.sun.management.ThreadMXBean) threadMxBean;
+        if (!sunThreadMxBean.isThreadAllocatedMemorySupported() || !sunThreadMxBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long result = 0;
+        for (long bytes : sunThreadMxBean.getThreadAllocatedBytes(threadMxBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                result += bytes;
+            }
+        }
+        return result;
+    }
+
+    /** @return the accumulated time of all collectors */
+    private static long gcMillis() {
+        long result = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += Math.max(0, collector.getCollectionTime());
+        }
+        return result;
+    }
+
+    /** @return the accumulated number of collections of all collectors */
+    private static long gcCount() {
+        long result = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += Math.max(0, collector.getCollectionCount());
+        }
+        return result;
+    }
+
+    /** Calls the {@link OrderService} until the {@link WorkloadMain#running} is 'false' */
+    static final class Worker implements Runnable {
+
+        /** Latencies measured while the {@link WorkloadMain#measuring} is 'true' */
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        /** The application service of the thread */
+        private final OrderService orderService = new OrderService();
+
+        /** The first order number, workers use distinct ranges */
+        private final long firstOrderId;
+
+        /** Consumes the results, so the calls cannot be eliminated */
+        private double sum;
+
+        /**
+         * @param index the worker number
+         */
+        Worker(int index) {
+            this.firstOrderId = (long) index << 40;
+        }
+
+        @Override
+        public void run() {
+            long orderId = firstOrderId;
+            try {
+                sum += orderService.process(orderId++);
+            } finally {
+                started.countDown();
+            }
+            while (running) {
+                long start = System.nanoTime();
+                sum += orderService.process(orderId++);
+                long latency = System.nanoTime() - start;
+                if (measuring) {
+                    histogram.record(latency);
+                }
+            }
+            if (sum < 0) {
+                throw new IllegalStateException("Negative sum " + sum);
+            }
+        }
+    }
+
+}
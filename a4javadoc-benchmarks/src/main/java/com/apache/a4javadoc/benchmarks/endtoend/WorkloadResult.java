@@ -0,0 +1,175 @@
+package com.apache.a4javadoc.benchmarks.endtoend;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Measurements of a single {@link WorkloadMain} run, passed from the forked JVM
+ * to the {@link EndToEndHarness} in a properties file.
+ * @author Kyrylo Semenko
+ */
+public class WorkloadResult {
+
+    /** The JVM uptime when all workers have completed their first operation */
+    private long startupMillis;
+
+    /** Number of operations completed during the measurement */
+    private long operations;
+
+    /** The length of the measurement */
+    private long elapsedNanos;
+
+    /** The median latency of an operation */
+    private long p50Nanos;
+
+    /** The 99th percentile of the latency of an operation */
+    private long p99Nanos;
+
+    /** Bytes allocated by all threads of the JVM during the measurement, -1 if the JVM does not support it */
+    private long allocatedBytes;
+
+    /** The accumulated time of garbage collections during the measurement */
+    private long gcMillis;
+
+    /** Number of garbage collections during the measurement */
+    private long gcCount;
+
+    /** @return operations per second */
+    public double getThroughput() {
+        return operations * 1e9 / elapsedNanos;
+    }
+
+    /** @return allocated megabytes per second or -1 if unknown */
+    public double getAllocationRate() {
+        return allocatedBytes < 0 ? -1 : allocatedBytes * 1e9 / elapsedNanos / (1024 * 1024);
+    }
+
+    /**
+     * Write the fields to a properties file.
+     * @param file the target
+     * @throws IOException if the file cannot be written
+     */
+    public void store(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("startupMillis", Long.toString(startupMillis));
+        properties.setProperty("operations", Long.toString(operations));
+        properties.setProperty("elapsedNanos", Long.toString(elapsedNanos));
+        properties.setProperty("p50Nanos", Long.toString(p50Nanos));
+        properties.setProperty("p99Nanos", Long.toString(p99Nanos));
+        properties.setProperty("allocatedBytes", Long.toString(allocatedBytes));
+        properties.setProperty("gcMillis", Long.toString(gcMillis));
+        properties.setProperty("gcCount", Long.toString(gcCount));
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            properties.store(outputStream, WorkloadMain.class.getName());
+        }
+    }
+
+    /**
+     * Read a file written by the {@link #store(File)} method.
+     * @param file the source
+     * @return the new instance
+     * @throws IOException if the file cannot be read
+     */
+    public static WorkloadResult load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            properties.load(inputStream);
+        }
+        WorkloadResult result = new WorkloadResult();
+        result.startupMillis = Long.parseLong(properties.getProperty("startupMillis"));
+        result.operations = Long.parseLong(properties.getProperty("operations"));
+        result.elapsedNanos = Long.parseLong(properties.getProperty("elapsedNanos"));
+        result.p50Nanos = Long.parseLong(properties.getProperty("p50Nanos"));
+        result.p99Nanos = Long.parseLong(properties.getProperty("p99Nanos"));
+        result.allocatedBytes = Long.parseLong(properties.getProperty("allocatedBytes"));
+        result.gcMillis = Long.parseLong(properties.getProperty("gcMillis"));
+        result.gcCount = Long.parseLong(properties.getProperty("gcCount"));
+        return result;
+    }
+
+    /** @return The {@link WorkloadResult#startupMillis} field */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /** @param startupMillis see the {@link WorkloadResult#startupMillis} field */
+    public void setStartupMillis(long startupMillis) {
+        this.startupMillis = startupMillis;
+    }
+
+    /** @return The {@link WorkloadResult#operations} field */
+    public long getOperations() {
+        return operations;
+    }
+
+    /** @param operations see the {@link WorkloadResult#operations} field */
+    public void setOperations(long operations) {
+        this.operations = operations;
+    }
+
+    /** @return The {@link WorkloadResult#elapsedNanos} field */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** @param elapsedNanos see the {@link WorkloadResult#elapsedNanos} field */
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** @return The {@link WorkloadResult#p50Nanos} field */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    /** @param p50Nanos see the {@link WorkloadResult#p50Nanos} field */
+    public void setP50Nanos(long p50Nanos) {
+        this.p50Nanos = p50Nanos;
+    }
+
+    /** @return The {@link WorkloadResult#p99Nanos} field */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /** @param p99Nanos see the {@link WorkloadResult#p99Nanos} field */
+    public void setP99Nanos(long p99Nanos) {
+        this.p99Nanos = p99Nanos;
+    }
+
+    /** @return The {@link WorkloadResult#allocatedBytes} field */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /** @param allocatedBytes see the {@link WorkloadResult#allocatedBytes} field */
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /** @return The {@link WorkloadResult#gcMillis} field */
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    /** @param gcMillis see the {@link WorkloadResult#gcMillis} field */
+    public void setGcMillis(long gcMillis) {
+        this.gcMillis = gcMillis;
+    }
+
+    /** @return The {@link WorkloadResult#gcCount} field */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /** @param gcCount see the {@link WorkloadResult#gcCount} field */
+    public void setGcCount(long gcCount) {
+        this.gcCount = gcCount;
+    }
+
+}
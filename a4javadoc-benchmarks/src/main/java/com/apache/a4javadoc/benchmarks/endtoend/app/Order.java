@@ -0,0 +1,71 @@
+package com.apache.a4javadoc.benchmarks.endtoend.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bean passed between the {@link OrderService} methods, its fields are captured by the recorders.
+ * @author Kyrylo Semenko
+ */
+public class Order {
+
+    /** The order number */
+    private long id;
+
+    /** The name of the customer */
+    private String customer;
+
+    /** Names of the ordered items */
+    private List<String> items = new ArrayList<>();
+
+    /** Quantities of the {@link #items} */
+    private int[] quantities;
+
+    /** The computed price or 'null' before the pricing */
+    private Double total;
+
+    /**
+     * @param id see the {@link #id} field
+     * @param customer see the {@link #customer} field
+     */
+    public Order(long id, String customer) {
+        this.id = id;
+        this.customer = customer;
+    }
+
+    /** @return The {@link Order#id} field */
+    public long getId() {
+        return id;
+    }
+
+    /** @return The {@link Order#customer} field */
+    public String getCustomer() {
+        return customer;
+    }
+
+    /** @return The {@link Order#items} field */
+    public List<String> getItems() {
+        return items;
+    }
+
+    /** @return The {@link Order#quantities} field */
+    public int[] getQuantities() {
+        return quantities;
+    }
+
+    /** @param quantities see the {@link Order#quantities} field */
+    public void setQuantities(int[] quantities) {
+        this.quantities = quantities;
+    }
+
+    /** @return The {@link Order#total} field */
+    public Double getTotal() {
+        return total;
+    }
+
+    /** @param total see the {@link Order#total} field */
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+
+}
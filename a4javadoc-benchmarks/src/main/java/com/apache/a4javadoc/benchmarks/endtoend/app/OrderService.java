@@ -0,0 +1,133 @@
+package com.apache.a4javadoc.benchmarks.endtoend.app;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * The application code of the end-to-end workload, instrumented by the agent. A single
+ * {@link #process(long)} call invokes a few nested methods with primitives, strings, collections
+ * and beans as arguments, like an ordinary service layer. Every {@link #INVALID_EVERY}-th order
+ * is rejected by an exception caught by the caller, so thrown exceptions are recorded as well.
+ *
+ * <p>
+ * Each worker thread has its own instance.
+ * @author Kyrylo Semenko
+ */
+public class OrderService {
+
+    /** Each n-th order is invalid */
+    static final int INVALID_EVERY = 100;
+
+    /** Number of distinct customers and items */
+    private static final int CATALOG_SIZE = 64;
+
+    /** Prices of the items by their names */
+    private final Map<String, Double> prices = new HashMap<>();
+
+    /** Number of processed orders */
+    private int counter;
+
+    /** Fill the {@link #prices} */
+    public OrderService() {
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            prices.put(itemName(i), 1.0 + i % 10);
+        }
+    }
+
+    /**
+     * Create, validate and price an order.
+     * @param orderId the order number
+     * @return the price or 0 if the order has been rejected
+     */
+    public double process(long orderId) {
+        Order order = createOrder(orderId, "customer" + orderId % CATALOG_SIZE);
+        try {
+            validate(order);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+        order.setTotal(price(order));
+        return finish(order, formatSummary(order.getId(), order.getTotal()));
+    }
+
+    /**
+     * @param orderId see the {@link Order#getId()}
+     * @param customer see the {@link Order#getCustomer()}
+     * @return the new order with a few items
+     */
+    Order createOrder(long orderId, String customer) {
+        Order order = new Order(orderId, customer);
+        int size = 1 + (int) (orderId % 4);
+        int[] quantities = new int[size];
+        for (int i = 0; i < size; i++) {
+            order.getItems().add(itemName((int) ((orderId + i) % CATALOG_SIZE)));
+            quantities[i] = 1 + i;
+        }
+        order.setQuantities(quantities);
+        return order;
+    }
+
+    /**
+     * @param order the checked order
+     * @throws IllegalArgumentException for each {@link #INVALID_EVERY}-th order
+     */
+    void validate(Order order) {
+        if (order.getId() % INVALID_EVERY == 0) {
+            throw new IllegalArgumentException("Rejected order " + order.getId());
+        }
+    }
+
+    /**
+     * @param order the priced order
+     * @return sum of the item prices multiplied by their quantities
+     */
+    double price(Order order) {
+        double result = 0;
+        for (int i = 0; i < order.getItems().size(); i++) {
+            result += unitPrice(order.getItems().get(i)) * order.getQuantities()[i];
+        }
+        return result;
+    }
+
+    /**
+     * @param item the item name
+     * @return its price
+     */
+    double unitPrice(String item) {
+        return prices.get(item);
+    }
+
+    /**
+     * @param orderId the order number
+     * @param total the price
+     * @return the text for a receipt
+     */
+    static String formatSummary(long orderId, Double total) {
+        return "Order " + orderId + ": " + total;
+    }
+
+    /**
+     * @param order the processed order
+     * @param summary its text
+     * @return the price of the order
+     */
+    private double finish(Order order, String summary) {
+        counter += summary.length() > 0 ? 1 : 0;
+        return order.getTotal();
+    }
+
+    /**
+     * @param index the catalog position
+     * @return the item name
+     */
+    private static String itemName(int index) {
+        return "item" + index;
+    }
+
+    /** @return The {@link OrderService#counter} field */
+    public int getCounter() {
+        return counter;
+    }
+
+}
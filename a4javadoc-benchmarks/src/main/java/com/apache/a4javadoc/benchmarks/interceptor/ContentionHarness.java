@@ -0,0 +1,347 @@
+package com.apache.a4javadoc.benchmarks.interceptor;
+
+import java.io.PrintStream;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.plugin.AgentPluginManager;
+
+/**
+ * <p>
+ * Scalability of the interception path. The instrumented {@link SyntheticWorkload} of the {@link InterceptorBenchmark}
+ * is called by 1 to 128 threads and the throughput of each thread count is reported with its scaling efficiency,
+ * the ratio to the single thread throughput multiplied by the thread count.
+ *
+ * <p>
+ * Monitors and locks shared by the threads, for example the SLF4J appenders or a lazily created singleton,
+ * are identified by the {@link ThreadMXBean}. The blocked and waited counts and times of the workers
+ * come from the contention monitoring, and the {@link #SAMPLE_INTERVAL_MILLIS sampling} of the worker states
+ * names the lock class and the frame where the workers were blocked or parked, sorted by the share of samples.
+ * Atomic variables like the {@code MethodInterceptor#methodInvocationCounter} do not block, their cost
+ * is visible in the throughput only.
+ *
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.apache.a4javadoc.benchmarks.interceptor.ContentionHarness
+ * [recorder configurations] [thread counts] [warmup seconds] [measurement seconds]}, for example
+ * {@code ... ContentionHarness noop,logger 1,8,64 1 3}. The configurations are the {@link InterceptorBenchmark}
+ * recorder values except the plain one and the {@link InterceptorBenchmark#LOGGER},
+ * by default the {@link #DEFAULT_CONFIGURATIONS} run on the {@link #DEFAULT_THREAD_COUNTS}.
+ * Compare the reports before and after a concurrency change on the same machine.
+ * @author Kyrylo Semenko
+ */
+public final class ContentionHarness {
+
+    /** The default recorder configurations */
+    public static final String DEFAULT_CONFIGURATIONS = InterceptorBenchmark.NONE + "," + InterceptorBenchmark.NO_OP
+            + "," + InterceptorBenchmark.LOG + "," + InterceptorBenchmark.JSON_LINES + "," + InterceptorBenchmark.LOGGER;
+
+    /** The default thread counts */
+    public static final String DEFAULT_THREAD_COUNTS = "1,2,4,8,16,32,64,128";
+
+    /** The interval of the sampling, the sampling stops the threads, so it is not shorter */
+    static final long SAMPLE_INTERVAL_MILLIS = 10;
+
+    /** Number of sampled frames, enough to find the caller of a lock of the JDK */
+    private static final int SAMPLED_FRAMES = 8;
+
+    /** Number of reported contention points of a thread count */
+    private static final int REPORTED_CONTENTION_POINTS = 3;
+
+    /** Set to 'false' to stop the workers */
+    private volatile boolean running;
+
+    /** The workers count operations only when it is 'true' */
+    private volatile boolean measuring;
+
+    /**
+     * @param args see the class description
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String configurations = args.length > 0 ? args[0] : DEFAULT_CONFIGURATIONS;
+        String threadCounts = args.length > 1 ? args[1] : DEFAULT_THREAD_COUNTS;
+        long warmupMillis = (args.length > 2 ? Long.parseLong(args[2]) : 1) * 1000;
+        long measurementMillis = (args.length > 3 ? Long.parseLong(args[3]) : 3) * 1000;
+        ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+        if (threadMxBean.isThreadContentionMonitoringSupported()) {
+            threadMxBean.setThreadContentionMonitoringEnabled(true);
+        }
+        PrintStream out = System.out;
+        for (String configuration : configurations.split(",")) {
+            AgentPluginManager.getInstance().setMethodStateRecorders(
+                    InterceptorBenchmark.createRecorders(configuration.trim()));
+            Workload workload = InterceptorBenchmark.weave();
+            out.println("Recorder configuration: " + configuration.trim());
+            printHeader(out);
+            double singleThreadThroughput = 0;
+            for (String threadCount : threadCounts.split(",")) {
+                int threads = Integer.parseInt(threadCount.trim());
+                Result result = new ContentionHarness().measure(workload, threads, warmupMillis, measurementMillis);
+                if (singleThreadThroughput == 0) {
+                    singleThreadThroughput = result.getThroughput() / threads;
+                }
+                printResult(result, singleThreadThroughput, out);
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Run the workers, sample their states and collect their contention statistics.
+     * @param workload the instrumented workload
+     * @param threads number of worker threads
+     * @param warmupMillis the warmup time
+     * @param measurementMillis the measurement time
+     * @return the result
+     * @throws InterruptedException if the thread is interrupted
+     */
+    Result measure(Workload workload, int threads, long warmupMillis, long measurementMillis)
+            throws InterruptedException {
+        ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+        running = true;
+        Worker[] workers = new Worker[threads];
+        Thread[] workerThreads = new Thread[threads];
+        long[] threadIds = new long[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(workload);
+            workerThreads[i] = new Thread(workers[i], "contention-worker-" + i);
+            workerThreads[i].start();
+            threadIds[i] = workerThreads[i].getId();
+        }
+        Thread.sleep(warmupMillis);
+
+        Result result = new Result(threads);
+        ThreadInfo[] before = threadMxBean.getThreadInfo(threadIds, 0);
+        long start = System.nanoTime();
+        long end = start + measurementMillis * 1000000;
+        measuring = true;
+        while (System.nanoTime() < end) {
+            Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            result.sample(threadMxBean.getThreadInfo(threadIds, SAMPLED_FRAMES));
+        }
+        measuring = false;
+        result.elapsedNanos = System.nanoTime() - start;
+        result.addContention(before, threadMxBean.getThreadInfo(threadIds, 0));
+
+        running = false;
+        for (int i = 0; i < threads; i++) {
+            workerThreads[i].join();
+            result.operations += workers[i].operations;
+        }
+        return result;
+    }
+
+    /** @param out the target */
+    private static void printHeader(PrintStream out) {
+        out.printf("%7s %14s %14s %8s %12s %12s %12s %12s  %s%n", "threads", "ops/s", "ops/s/thread", "scaling",
+                "blocked/kop", "blocked ms", "waited/kop", "waited ms", "contention points (share of samples)");
+    }
+
+    /**
+     * @param result the measured thread count
+     * @param singleThreadThroughput the throughput of a single thread, the base of the scaling
+     * @param out the target
+     */
+    private static void printResult(Result result, double singleThreadThroughput, PrintStream out) {
+        double throughput = result.getThroughput();
+        out.printf("%7d %14.0f %14.0f %7.0f%% %12.2f %12s %12.2f %12s  %s%n", result.threads, throughput,
+                throughput / result.threads, 100 * throughput / (singleThreadThroughput * result.threads),
+                perThousandOperations(result.blockedCount, result.operations), millis(result.blockedMillis),
+                perThousandOperations(result.waitedCount, result.operations), millis(result.waitedMillis),
+                result.getContentionPoints(REPORTED_CONTENTION_POINTS));
+    }
+
+    /**
+     * @param count a count of events
+     * @param operations the operations
+     * @return the events per thousand operations
+     */
+    private static double perThousandOperations(long count, long operations) {
+        return operations == 0 ? 0 : count * 1000.0 / operations;
+    }
+
+    /**
+     * @param millis a time or -1 if the contention monitoring is not supported
+     * @return the formatted value
+     */
+    private static String millis(long millis) {
+        return millis < 0 ? "n/a" : Long.toString(millis);
+    }
+
+    /** Calls the {@link Workload#threeObjects(String, Integer, List)} until the {@link #running} is 'false' */
+    private final class Worker implements Runnable {
+
+        /** The called object */
+        private final Workload workload;
+
+        /** An argument */
+        private final List<String> items = new ArrayList<>(Arrays.asList("one", "two"));
+
+        /** Operations completed while the {@link #measuring} was 'true' */
+        private long operations;
+
+        /**
+         * @param workload see the {@link #workload} field
+         */
+        Worker(Workload workload) {
+            this.workload = workload;
+        }
+
+        @Override
+        public void run() {
+            Integer number = 42;
+            while (running) {
+                if (workload.threeObjects("text", number, items) == null) {
+                    throw new AppRuntimeException("Unexpected result");
+                }
+                if (measuring) {
+                    operations++;
+                }
+            }
+        }
+    }
+
+    /** Measurements of a thread count */
+    static final class Result {
+
+        /** Number of worker threads */
+        private final int threads;
+
+        /** Number of operations completed during the measurement */
+        private long operations;
+
+        /** The length of the measurement */
+        private long elapsedNanos;
+
+        /** Number of times the workers entered a monitor after a contention */
+        private long blockedCount;
+
+        /** The time the workers were blocked on monitors, -1 if not supported */
+        private long blockedMillis;
+
+        /** Number of times the workers waited or parked */
+        private long waitedCount;
+
+        /** The time the workers waited or parked, -1 if not supported */
+        private long waitedMillis;
+
+        /** Number of samples of worker states */
+        private long samples;
+
+        /** Numbers of samples of a blocked or parked worker by the state, the lock class and the frame */
+        private final Map<String, long[]> contentionPoints = new HashMap<>();
+
+        /**
+         * @param threads see the {@link #threads} field
+         */
+        Result(int threads) {
+            this.threads = threads;
+        }
+
+        /** @return operations per second */
+        double getThroughput() {
+            return operations * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Count the blocked and parked workers.
+         * @param threadInfos states of the workers with the top frames
+         */
+        void sample(ThreadInfo[] threadInfos) {
+            for (ThreadInfo threadInfo : threadInfos) {
+                if (threadInfo == null) {
+                    continue;
+                }
+                samples++;
+                LockInfo lockInfo = threadInfo.getLockInfo();
+                Thread.State state = threadInfo.getThreadState();
+                if (lockInfo == null || state == Thread.State.RUNNABLE || state == Thread.State.NEW) {
+                    continue;
+                }
+                String key = state + " " + lockInfo.getClassName() + " at " + findFrame(threadInfo.getStackTrace());
+                long[] count = contentionPoints.get(key);
+                if (count == null) {
+                    count = new long[1];
+                    contentionPoints.put(key, count);
+                }
+                count[0]++;
+            }
+        }
+
+        /**
+         * @param stackTrace the sampled frames
+         * @return the first frame outside the JDK, for example the caller of a {@code ReentrantLock},
+         * or the top frame
+         */
+        private static String findFrame(StackTraceElement[] stackTrace) {
+            if (stackTrace.length == 0) {
+                return "unknown";
+            }
+            StackTraceElement result = stackTrace[0];
+            for (StackTraceElement element : stackTrace) {
+                String className = element.getClassName();
+                if (!className.startsWith("java.") && !className.startsWith("sun.") && !className.startsWith("jdk.")) {
+                    result = element;
+                    break;
+                }
+            }
+            return result.getClassName() + "." + result.getMethodName();
+        }
+
+        /**
+         * Add the differences of the contention statistics of the workers.
+         * @param before the statistics at the start of the measurement
+         * @param after the statistics at the end of the measurement
+         */
+        void addContention(ThreadInfo[] before, ThreadInfo[] after) {
+            for (int i = 0; i < before.length; i++) {
+                if (before[i] == null || after[i] == null) {
+                    continue;
+                }
+                blockedCount += after[i].getBlockedCount() - before[i].getBlockedCount();
+                waitedCount += after[i].getWaitedCount() - before[i].getWaitedCount();
+                if (after[i].getBlockedTime() < 0) {
+                    blockedMillis = -1;
+                    waitedMillis = -1;
+                } else if (blockedMillis >= 0) {
+                    blockedMillis += after[i].getBlockedTime() - before[i].getBlockedTime();
+                    waitedMillis += after[i].getWaitedTime() - before[i].getWaitedTime();
+                }
+            }
+        }
+
+        /**
+         * @param limit maximal number of the contention points
+         * @return the most frequent contention points with their share of samples or 'none'
+         */
+        String getContentionPoints(int limit) {
+            List<Map.Entry<String, long[]>> entries = new ArrayList<>(contentionPoints.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+                @Override
+                public int compare(Map.Entry<String, long[]> first, Map.Entry<String, long[]> second) {
+                    return Long.compare(second.getValue()[0], first.getValue()[0]);
+                }
+            });
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i < entries.size() && i < limit; i++) {
+                if (result.length() > 0) {
+                    result.append("; ");
+                }
+                result.append(entries.get(i).getKey())
+                    .append(String.format(" (%.1f%%)", 100.0 * entries.get(i).getValue()[0] / samples));
+            }
+            return result.length() == 0 ? "none" : result.toString();
+        }
+    }
+
+}
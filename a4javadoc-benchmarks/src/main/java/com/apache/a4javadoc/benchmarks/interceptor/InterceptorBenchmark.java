@@ -0,0 +1,219 @@
+package com.apache.a4javadoc.benchmarks.interceptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.agent.ConstructorInterceptor;
+import com.apache.a4javadoc.javaagent.agent.MethodInterceptor;
+import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
+import com.apache.a4javadoc.javaagent.recorder.MethodStateToLogFileRecorder;
+import com.apache.a4javadoc.plugin.AgentPluginManager;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * <p>
+ * Cost of a single call of an instrumented method. The {@link SyntheticWorkload} and the {@link Payload}
+ * are woven with the {@link MethodInterceptor} and the {@link ConstructorInterceptor} the same way
+ * as the {@link com.apache.a4javadoc.javaagent.agent.Agent} does, and loaded by a child-first class loader.
+ *
+ * <p>
+ * The {@link #recorder} parameter compares the plain class with the instrumented one without recorders,
+ * with the {@link NoOpRecorder} and with the {@link MethodStateToLogFileRecorder} writing free-form lines
+ * or JSON Lines to a temporary file. The file sink drops records it cannot write in time,
+ * so the scores show the cost on the application thread.
+ *
+ * <p>
+ * Run it by the {@link com.apache.a4javadoc.benchmarks.BenchmarkRunner}, that adds the allocated bytes per call
+ * and writes the results as JSON.
+ * @author Kyrylo Semenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorBenchmark {
+
+    /** The plain {@link SyntheticWorkload} */
+    static final String PLAIN = "plain";
+
+    /** Instrumented without recorders */
+    static final String NONE = "none";
+
+    /** Instrumented with the {@link NoOpRecorder} */
+    static final String NO_OP = "noop";
+
+    /** Instrumented with the {@link MethodStateToLogFileRecorder} writing free-form lines */
+    static final String LOG = "log";
+
+    /** Instrumented with the {@link MethodStateToLogFileRecorder} writing JSON Lines */
+    static final String JSON_LINES = "jsonl";
+
+    /**
+     * Instrumented with the {@link MethodStateToLogFileRecorder} writing free-form lines to its SLF4J logger,
+     * used by the {@link ContentionHarness}, where the appender lock is shared by all threads
+     */
+    static final String LOGGER = "logger";
+
+    /** The recorder configuration */
+    @Param({PLAIN, NONE, NO_OP, LOG, JSON_LINES})
+    private String recorder;
+
+    /** The called object */
+    private Workload workload;
+
+    /** An argument */
+    private String text = "text";
+
+    /** An argument */
+    private Integer number = 42;
+
+    /** An argument */
+    private List<String> items = new ArrayList<>(Arrays.asList("one", "two"));
+
+    /** An argument */
+    private int small = 7;
+
+    /** An argument */
+    private long large = 1L << 40;
+
+    /** An argument */
+    private double fraction = 0.5;
+
+    /** Configure the recorders and create the {@link #workload} */
+    @Setup
+    public void setUp() {
+        if (PLAIN.equals(recorder)) {
+            workload = new SyntheticWorkload();
+            return;
+        }
+        AgentPluginManager.getInstance().setMethodStateRecorders(createRecorders(recorder));
+        workload = weave();
+    }
+
+    /**
+     * @param configuration one of the {@link #recorder} values or the {@link #LOGGER}
+     * @return the recorders of the configuration
+     */
+    static List<MethodStateRecorder> createRecorders(String configuration) {
+        if (NONE.equals(configuration)) {
+            return Collections.emptyList();
+        }
+        if (NO_OP.equals(configuration)) {
+            return Collections.<MethodStateRecorder>singletonList(new NoOpRecorder());
+        }
+        try {
+            File file = File.createTempFile("a4javadoc-benchmark", ".log");
+            file.deleteOnExit();
+            System.setProperty("a4javadoc.recorder.file", file.getAbsolutePath());
+        } catch (IOException e) {
+            throw new AppRuntimeException(e);
+        }
+        if (JSON_LINES.equals(configuration)) {
+            System.setProperty("a4javadoc.recorder.format", JSON_LINES);
+        } else {
+            System.clearProperty("a4javadoc.recorder.format");
+        }
+        if (LOGGER.equals(configuration)) {
+            System.setProperty("a4javadoc.recorder.sink", LOGGER);
+        } else {
+            System.clearProperty("a4javadoc.recorder.sink");
+        }
+        return Collections.<MethodStateRecorder>singletonList(new MethodStateToLogFileRecorder());
+    }
+
+    /**
+     * Weave the interceptors into copies of the {@link SyntheticWorkload} and {@link Payload} classes.
+     * @return an instance of the instrumented {@link SyntheticWorkload}
+     */
+    static Workload weave() {
+        DynamicType.Unloaded<Payload> payload = new ByteBuddy()
+                .redefine(Payload.class)
+                .visit(Advice.to(ConstructorInterceptor.class).on(ElementMatchers.isConstructor()))
+                .make();
+        Class<? extends SyntheticWorkload> type = new ByteBuddy()
+                .redefine(SyntheticWorkload.class)
+                .visit(Advice.to(MethodInterceptor.class).on(ElementMatchers.isMethod()))
+                .visit(Advice.to(ConstructorInterceptor.class).on(ElementMatchers.isConstructor()))
+                .make()
+                .include(payload)
+                .load(InterceptorBenchmark.class.getClassLoader(), ClassLoadingStrategy.Default.CHILD_FIRST)
+                .getLoaded();
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /** @return the result, consumed by JMH */
+    @Benchmark
+    public int noArgs() {
+        return workload.noArgs();
+    }
+
+    /** @return the result, consumed by JMH */
+    @Benchmark
+    public long threePrimitives() {
+        return workload.threePrimitives(small, large, fraction);
+    }
+
+    /** @return the result, consumed by JMH */
+    @Benchmark
+    public Object threeObjects() {
+        return workload.threeObjects(text, number, items);
+    }
+
+    /** @return the result, consumed by JMH */
+    @Benchmark
+    public long tenPrimitives() {
+        return workload.tenPrimitives(small, small, small, small, small, large, large, large, large, large);
+    }
+
+    /** @return the result, consumed by JMH */
+    @Benchmark
+    public Object tenObjects() {
+        return workload.tenObjects(text, text, text, text, text, number, number, number, number, number);
+    }
+
+    /** @return the caught exception, consumed by JMH */
+    @Benchmark
+    public Object throwing() {
+        try {
+            return workload.throwing(text);
+        } catch (IllegalStateException e) {
+            return e;
+        }
+    }
+
+    /** @return the created object, consumed by JMH */
+    @Benchmark
+    public Object constructor() {
+        return workload.newPayload(small);
+    }
+
+}
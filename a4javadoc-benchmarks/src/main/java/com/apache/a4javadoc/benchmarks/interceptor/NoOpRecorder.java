@@ -0,0 +1,24 @@
+package com.apache.a4javadoc.benchmarks.interceptor;
+
+import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
+import com.apache.a4javadoc.javaagent.api.StateAfterInvocation;
+import com.apache.a4javadoc.javaagent.api.StateBeforeInvocation;
+
+/**
+ * The {@link MethodStateRecorder} ignoring all states, it shows the cost of the interceptors
+ * including creation of the states.
+ * @author Kyrylo Semenko
+ */
+public class NoOpRecorder implements MethodStateRecorder {
+
+    @Override
+    public void recordBefore(StateBeforeInvocation stateBeforeInvocation) {
+        // nothing to do
+    }
+
+    @Override
+    public void recordAfter(StateAfterInvocation stateAfterInvocation) {
+        // nothing to do
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.apache.a4javadoc.benchmarks.interceptor;
+
+/**
+ * A value object created by the {@link Workload#newPayload(int)} method, its constructor
+ * is woven with the {@link com.apache.a4javadoc.javaagent.agent.ConstructorInterceptor}.
+ * @author Kyrylo Semenko
+ */
+public class Payload {
+
+    /** The value */
+    private final int value;
+
+    /**
+     * @param value see the {@link #value} field
+     */
+    public Payload(int value) {
+        this.value = value;
+    }
+
+    /** @return The {@link Payload#value} field */
+    public int getValue() {
+        return value;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.apache.a4javadoc.benchmarks.interceptor;
+
+import java.util.List;
+
+/**
+ * The {@link Workload} with trivial bodies, so a benchmark of its instrumented copy
+ * measures the interceptors and recorders only.
+ * @author Kyrylo Semenko
+ */
+public class SyntheticWorkload implements Workload {
+
+    @Override
+    public int noArgs() {
+        return 1;
+    }
+
+    @Override
+    public long threePrimitives(int a, long b, double c) {
+        return a + b + (long) c;
+    }
+
+    @Override
+    public Object threeObjects(String text, Integer number, List<String> items) {
+        return text;
+    }
+
+    @Override
+    public long tenPrimitives(int a0, int a1, int a2, int a3, int a4, long a5, long a6, long a7, long a8, long a9) {
+        return a0 + a1 + a2 + a3 + a4 + a5 + a6 + a7 + a8 + a9;
+    }
+
+    @Override
+    public Object tenObjects(String a0, String a1, String a2, String a3, String a4, Integer a5, Integer a6,
+            Integer a7, Integer a8, Integer a9) {
+        return a9;
+    }
+
+    @Override
+    public int throwing(String value) {
+        throw new IllegalStateException(value);
+    }
+
+    @Override
+    public Object newPayload(int value) {
+        return new Payload(value);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.apache.a4javadoc.benchmarks.interceptor;
+
+import java.util.List;
+
+/**
+ * Synthetic methods measured by the {@link InterceptorBenchmark}. The benchmark calls them through
+ * this interface, so the plain and the instrumented {@link SyntheticWorkload} are called the same way.
+ * @author Kyrylo Semenko
+ */
+public interface Workload {
+
+    /** @return a constant */
+    int noArgs();
+
+    /**
+     * @param a the first value
+     * @param b the second value
+     * @param c the third value
+     * @return a combination of the values
+     */
+    long threePrimitives(int a, long b, double c);
+
+    /**
+     * @param text the first value
+     * @param number the second value
+     * @param items the third value
+     * @return the first value
+     */
+    Object threeObjects(String text, Integer number, List<String> items);
+
+    /**
+     * @param a0 value 0
+     * @param a1 value 1
+     * @param a2 value 2
+     * @param a3 value 3
+     * @param a4 value 4
+     * @param a5 value 5
+     * @param a6 value 6
+     * @param a7 value 7
+     * @param a8 value 8
+     * @param a9 value 9
+     * @return the sum of the values
+     */
+    long tenPrimitives(int a0, int a1, int a2, int a3, int a4, long a5, long a6, long a7, long a8, long a9);
+
+    /**
+     * @param a0 value 0
+     * @param a1 value 1
+     * @param a2 value 2
+     * @param a3 value 3
+     * @param a4 value 4
+     * @param a5 value 5
+     * @param a6 value 6
+     * @param a7 value 7
+     * @param a8 value 8
+     * @param a9 value 9
+     * @return the last value
+     */
+    Object tenObjects(String a0, String a1, String a2, String a3, String a4, Integer a5, Integer a6, Integer a7,
+            Integer a8, Integer a9);
+
+    /**
+     * @param value the message of the thrown exception
+     * @return never returns
+     */
+    int throwing(String value);
+
+    /**
+     * @param value see the {@link Payload#getValue()}
+     * @return a new {@link Payload}, its constructor is instrumented as well. The return type is not
+     * the {@link Payload}, because the instrumented method returns the {@link Payload} of another class loader.
+     */
+    Object newPayload(int value);
+
+}
@@ -0,0 +1,65 @@
+package com.apache.a4javadoc.benchmarks.mapper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apache.a4javadoc.javaagent.mapper.AccessorService;
+import com.apache.a4javadoc.javaagent.mapper.AccessorType;
+import com.apache.a4javadoc.javaagent.mapper.ObjectAccessor;
+
+/**
+ * Reading of all serializable fields of a {@link Customer} by {@link ObjectAccessor}s
+ * of each {@link AccessorType}: reflection, method handles and the generated reader.
+ * 
+ * @author Kyrylo Semenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccessorBenchmark {
+    
+    /** The kind of the {@link #accessor} */
+    @Param({"REFLECTION", "METHOD_HANDLE", "GENERATED"})
+    private AccessorType accessorType;
+    
+    /** The accessor under test */
+    private ObjectAccessor accessor;
+    
+    /** The data source */
+    private Customer customer;
+    
+    /** The preallocated buffer for field values */
+    private Object[] values;
+    
+    /** Create the {@link #accessor} and the fixture */
+    @Setup
+    public void setUp() {
+        accessor = AccessorService.getInstance().createAccessor(Customer.class, accessorType);
+        customer = new Customer(42, new Customer(1, null));
+        values = new Object[accessor.getFields().size()];
+    }
+    
+    /**
+     * Read all fields of the {@link #customer}
+     * @return the buffer with values
+     */
+    @Benchmark
+    public Object[] readValues() {
+        accessor.readValues(customer, values);
+        return values;
+    }
+}
@@ -0,0 +1,105 @@
+package com.apache.a4javadoc.benchmarks.mapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apache.a4javadoc.javaagent.mapper.ClassService;
+import com.apache.a4javadoc.javaagent.mapper.ContainerType;
+import com.apache.a4javadoc.javaagent.mapper.IdentifierService;
+
+/**
+ * Type inference of heterogeneous collections. Their items have unrelated classes,
+ * so each item requires the common class computation of the {@link ClassService}.
+ * Run with the <b>-prof gc</b> option to see allocations per operation.
+ * 
+ * @author Kyrylo Semenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommonClassBenchmark {
+    
+    /** Number of items of the {@link #numbers} and the {@link #mixed} lists */
+    @Param({"16", "256"})
+    private int size;
+    
+    /** Items of different {@link Number} subclasses */
+    private List<Object> numbers;
+    
+    /** Items without a common class except of the {@link Object} */
+    private List<Object> mixed;
+    
+    /** Create the fixtures */
+    @Setup
+    public void setUp() {
+        numbers = new ArrayList<>();
+        mixed = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            switch (i % 4) {
+            case 0:
+                numbers.add(i);
+                mixed.add(Integer.toString(i));
+                break;
+            case 1:
+                numbers.add((long) i);
+                mixed.add(new LinkedList<>());
+                break;
+            case 2:
+                numbers.add(BigDecimal.valueOf(i));
+                mixed.add(new AtomicInteger(i));
+                break;
+            default:
+                numbers.add(BigInteger.valueOf(i));
+                mixed.add(new StringBuilder());
+                break;
+            }
+        }
+    }
+    
+    /**
+     * The common class of the {@link #numbers} items
+     * @return the {@link Number} class
+     */
+    @Benchmark
+    public Class<?> commonClassOfNumbers() {
+        return ClassService.getInstance().findCommonClass(numbers);
+    }
+    
+    /**
+     * The common class of the {@link #mixed} items
+     * @return the {@link Object} class
+     */
+    @Benchmark
+    public Class<?> commonClassOfMixed() {
+        return ClassService.getInstance().findCommonClass(mixed);
+    }
+    
+    /**
+     * The {@link ContainerType} of the {@link #numbers} list
+     * @return the canonical {@link ContainerType}
+     */
+    @Benchmark
+    public ContainerType containerTypeOfNumbers() {
+        return IdentifierService.getInstance().findContainerType(numbers, 1);
+    }
+}
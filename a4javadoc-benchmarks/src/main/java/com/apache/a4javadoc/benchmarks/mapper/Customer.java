@@ -0,0 +1,96 @@
+package com.apache.a4javadoc.benchmarks.mapper;
+
+import java.util.Date;
+
+/**
+ * A typical bean with getters and a field without getter, used as a benchmark fixture.
+ * @author Kyrylo Semenko
+ */
+public class Customer {
+
+    /** The primary key */
+    private long id;
+
+    /** The first name */
+    private String firstName;
+
+    /** The last name */
+    private String lastName;
+
+    /** The age in years */
+    private int age;
+
+    /** The account balance */
+    private double balance;
+
+    /** The registration date */
+    private Date registered;
+
+    /** The referring customer or 'null' */
+    private Customer referrer;
+
+    /** The private field without getter */
+    private String note;
+
+    /** The constructor for mappers that instantiate beans before setting their fields */
+    @SuppressWarnings("unused")
+    private Customer() {
+        // an empty
+    }
+
+    /**
+     * @param id see the {@link #id} field
+     * @param referrer see the {@link #referrer} field
+     */
+    public Customer(long id, Customer referrer) {
+        this.id = id;
+        this.firstName = "First" + id;
+        this.lastName = "Last" + id;
+        this.age = (int) (id % 100);
+        this.balance = id * 1.5;
+        this.registered = new Date(id);
+        this.referrer = referrer;
+        this.note = "Note" + id;
+    }
+
+    /** @return The {@link Customer#id} field */
+    public long getId() {
+        return id;
+    }
+
+    /** @return The {@link Customer#firstName} field */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /** @return The {@link Customer#lastName} field */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /** @return The {@link Customer#age} field */
+    public int getAge() {
+        return age;
+    }
+
+    /** @return The {@link Customer#balance} field */
+    public double getBalance() {
+        return balance;
+    }
+
+    /** @return The {@link Customer#registered} field */
+    public Date getRegistered() {
+        return registered;
+    }
+
+    /** @return The {@link Customer#referrer} field */
+    public Customer getReferrer() {
+        return referrer;
+    }
+
+    /** @return the first and last names, used by logs and debuggers */
+    @Override
+    public String toString() {
+        return firstName + " " + lastName + " (" + note + ")";
+    }
+}
@@ -0,0 +1,54 @@
+package com.apache.a4javadoc.benchmarks.mapper;
+
+/**
+ * A node of a singly or doubly linked structure, used as a benchmark fixture.
+ * @author Kyrylo Semenko
+ */
+public class LinkedNode {
+    
+    /** Payload of the node */
+    private int value;
+    
+    /** The following node or 'null' */
+    private LinkedNode next;
+    
+    /** The preceding node or 'null' for singly linked structures */
+    private LinkedNode previous;
+
+    /**
+     * @param value see the {@link #value} field
+     */
+    public LinkedNode(int value) {
+        this.value = value;
+    }
+
+    /** @return The {@link LinkedNode#value} field */
+    public int getValue() {
+        return value;
+    }
+
+    /** @param value see the {@link LinkedNode#value} field */
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    /** @return The {@link LinkedNode#next} field */
+    public LinkedNode getNext() {
+        return next;
+    }
+
+    /** @param next see the {@link LinkedNode#next} field */
+    public void setNext(LinkedNode next) {
+        this.next = next;
+    }
+
+    /** @return The {@link LinkedNode#previous} field */
+    public LinkedNode getPrevious() {
+        return previous;
+    }
+
+    /** @param previous see the {@link LinkedNode#previous} field */
+    public void setPrevious(LinkedNode previous) {
+        this.previous = previous;
+    }
+}
@@ -0,0 +1,111 @@
+package com.apache.a4javadoc.benchmarks.mapper;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apache.a4javadoc.javaagent.mapper.ConfigService;
+import com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j;
+
+/**
+ * Serialization of long linked structures by the {@link ObjectMapperA4j}.
+ * The depth of the singly and doubly linked chains equals to their size,
+ * so they are serialized only by an engine that does not use the thread stack
+ * for the graph traversal. The {@link #maxObjectDepth} parameter shows the cost
+ * of the same structures truncated by the {@link ConfigService#getMaxObjectDepth()} budget.
+ * 
+ * @author Kyrylo Semenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LinkedStructuresBenchmark {
+    
+    /** Number of nodes of each structure */
+    @Param({"100000"})
+    private int size;
+    
+    /** See the {@link ConfigService#getMaxObjectDepth()} */
+    @Param({"2147483647", "1000"})
+    private int maxObjectDepth;
+    
+    /** The head of {@link LinkedNode}s linked by the {@link LinkedNode#getNext()} references only */
+    private LinkedNode singlyLinked;
+    
+    /** The head of {@link LinkedNode}s linked by the next and previous references */
+    private LinkedNode doublyLinked;
+    
+    /** The {@link LinkedList} of {@link Integer}s, it is wide, but not deep */
+    private List<Integer> linkedList;
+    
+    /** Build the fixtures and set up the depth budget */
+    @Setup
+    public void setUp() {
+        singlyLinked = createChain(false);
+        doublyLinked = createChain(true);
+        linkedList = new LinkedList<>();
+        for (int i = 0; i < size; i++) {
+            linkedList.add(i);
+        }
+        ConfigService.getInstance().setMaxObjectDepth(maxObjectDepth);
+    }
+    
+    /** Restore the default depth budget */
+    @TearDown
+    public void tearDown() {
+        ConfigService.getInstance().setMaxObjectDepth(Integer.MAX_VALUE);
+    }
+    
+    /** Serialize the {@link #singlyLinked} chain */
+    @Benchmark
+    public void singlyLinkedNodes() {
+        ObjectMapperA4j.getInstance().writeValue(NullWriter.NULL_WRITER, singlyLinked);
+    }
+    
+    /** Serialize the {@link #doublyLinked} chain, each previous reference is a circular one */
+    @Benchmark
+    public void doublyLinkedNodes() {
+        ObjectMapperA4j.getInstance().writeValue(NullWriter.NULL_WRITER, doublyLinked);
+    }
+    
+    /** Serialize the {@link #linkedList} */
+    @Benchmark
+    public void linkedListOfIntegers() {
+        ObjectMapperA4j.getInstance().writeValue(NullWriter.NULL_WRITER, linkedList);
+    }
+    
+    /**
+     * @param doubly if 'true', set the {@link LinkedNode#getPrevious()} references as well
+     * @return the head of a chain of {@link #size} nodes
+     */
+    private LinkedNode createChain(boolean doubly) {
+        LinkedNode head = new LinkedNode(0);
+        LinkedNode last = head;
+        for (int i = 1; i < size; i++) {
+            LinkedNode next = new LinkedNode(i);
+            last.setNext(next);
+            if (doubly) {
+                next.setPrevious(last);
+            }
+            last = next;
+        }
+        return head;
+    }
+}
@@ -0,0 +1,277 @@
+package com.apache.a4javadoc.benchmarks.mapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.mapper.Container;
+import com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j;
+import com.apache.a4javadoc.javaagent.mapper.VarArgsClass;
+import com.apache.a4javadoc.javaagent.mapper.WrapperClass;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * <p>
+ * The {@link ObjectMapperA4j#writeValue(java.io.Writer, Object)} and {@link ObjectMapperA4j#readValue(String)}
+ * methods compared with a plain Jackson {@link ObjectMapper} on the same {@link Graph}s.
+ *
+ * <p>
+ * The baseline is configured to be as close to the {@link ObjectMapperA4j} as plain Jackson allows.
+ * It reads and writes fields instead of accessors and handles the circular references of the
+ * {@link WrapperClass} by the {@link JsonIdentityInfo}. It does not write types of the values,
+ * so it reads the JSON to a known {@link JavaType} of the root. The {@link ObjectMapperA4j} reads
+ * types from the JSON, so the baseline is a lower bound rather than an equivalent.
+ *
+ * @author Kyrylo Semenko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MapperComparisonBenchmark {
+
+    /** Number of elements of each collection or array in the {@link #graph} */
+    private static final int SIZE = 1000;
+
+    /** Number of entries of the {@link Graph#LARGE_MAP} */
+    private static final int LARGE_MAP_SIZE = 10000;
+
+    /** The serialized structure */
+    @Param({"FLAT_BEANS", "FIXTURES", "LARGE_MAP", "NESTED_GENERICS", "CYCLIC", "PRIMITIVE_ARRAYS"})
+    private Graph graphKind;
+
+    /** The serialized object */
+    private Object graph;
+
+    /** The type of the {@link #graph} for the {@link #jackson} deserializer */
+    private JavaType javaType;
+
+    /** The tested mapper */
+    private ObjectMapperA4j objectMapperA4j;
+
+    /** The baseline mapper */
+    private ObjectMapper jackson;
+
+    /** The {@link #graph} serialized by the {@link #objectMapperA4j} */
+    private String a4jJson;
+
+    /** The {@link #graph} serialized by the {@link #jackson} */
+    private String jacksonJson;
+
+    /** Structures of the {@link #graph} */
+    public enum Graph {
+        /** A list of {@link Customer}s without references between them */
+        FLAT_BEANS,
+        /** A list of {@link Container}s with lists and a {@link VarArgsClass} in their fields */
+        FIXTURES,
+        /** A map of strings to longs */
+        LARGE_MAP,
+        /** A map of lists of maps */
+        NESTED_GENERICS,
+        /** A ring of {@link WrapperClass}es, the last one is the parent of the first one */
+        CYCLIC,
+        /** An array of primitive arrays */
+        PRIMITIVE_ARRAYS
+    }
+
+    /** Build the {@link #graph} and serialize it by both mappers */
+    @Setup
+    public void setUp() {
+        objectMapperA4j = ObjectMapperA4j.getInstance();
+        jackson = new ObjectMapper();
+        jackson.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
+        jackson.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        jackson.addMixIn(WrapperClass.class, IdentityMixIn.class);
+        TypeFactory typeFactory = jackson.getTypeFactory();
+        switch (graphKind) {
+        case FLAT_BEANS:
+            graph = createCustomers();
+            javaType = typeFactory.constructCollectionType(List.class, Customer.class);
+            break;
+        case FIXTURES:
+            graph = createContainers();
+            javaType = typeFactory.constructCollectionType(List.class, Container.class);
+            break;
+        case LARGE_MAP:
+            graph = createLargeMap();
+            javaType = typeFactory.constructMapType(HashMap.class, String.class, Long.class);
+            break;
+        case NESTED_GENERICS:
+            graph = createNestedGenerics();
+            javaType = typeFactory.constructMapType(HashMap.class, typeFactory.constructType(String.class),
+                    typeFactory.constructCollectionType(List.class,
+                            typeFactory.constructMapType(HashMap.class, String.class, Integer.class)));
+            break;
+        case CYCLIC:
+            graph = createRing();
+            javaType = typeFactory.constructType(WrapperClass.class);
+            break;
+        case PRIMITIVE_ARRAYS:
+            graph = createPrimitiveArrays();
+            javaType = typeFactory.constructType(Object[].class);
+            break;
+        default:
+            throw new AppRuntimeException("Unknown graph " + graphKind);
+        }
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, graph);
+        a4jJson = stringWriter.toString();
+        try {
+            jacksonJson = jackson.writeValueAsString(graph);
+        } catch (IOException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /** Serialize the {@link #graph} by the {@link ObjectMapperA4j} to a writer that discards the output */
+    @Benchmark
+    public void a4jWrite() {
+        objectMapperA4j.writeValue(NullWriter.NULL_WRITER, graph);
+    }
+
+    /**
+     * Serialize the {@link #graph} by the baseline to a writer that discards the output
+     * @throws IOException in case of a serialization failure
+     */
+    @Benchmark
+    public void jacksonWrite() throws IOException {
+        jackson.writeValue(NullWriter.NULL_WRITER, graph);
+    }
+
+    /**
+     * Deserialize the {@link #a4jJson}
+     * @return the deserialized graph, consumed by JMH
+     */
+    @Benchmark
+    public Object a4jRead() {
+        return objectMapperA4j.readValue(a4jJson);
+    }
+
+    /**
+     * Deserialize the {@link #jacksonJson} to the {@link #javaType}
+     * @return the deserialized graph, consumed by JMH
+     * @throws IOException in case of a deserialization failure
+     */
+    @Benchmark
+    public Object jacksonRead() throws IOException {
+        return jackson.readValue(jacksonJson, javaType);
+    }
+
+    /** @return the {@link Graph#FLAT_BEANS} */
+    private static List<Customer> createCustomers() {
+        List<Customer> customers = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            customers.add(new Customer(i, null));
+        }
+        return customers;
+    }
+
+    /** @return the {@link Graph#FIXTURES} */
+    private static List<Container> createContainers() {
+        List<Container> containers = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            Container container = new Container();
+            container.setString("string" + i);
+            container.setIntField(i);
+            container.setListOfStrings(Arrays.asList("first" + i, "second" + i));
+            container.setListWithoutGenericType(new ArrayList<>(Arrays.asList(i, i + 1)));
+            VarArgsClass varArgsClass = new VarArgsClass();
+            varArgsClass.setString("varArgs" + i);
+            varArgsClass.setIntegers(new int[] {i, i + 1, i + 2});
+            container.setObjectField(varArgsClass);
+            containers.add(container);
+        }
+        return containers;
+    }
+
+    /** @return the {@link Graph#LARGE_MAP} */
+    private static Map<String, Long> createLargeMap() {
+        Map<String, Long> map = new HashMap<>();
+        for (long i = 0; i < LARGE_MAP_SIZE; i++) {
+            map.put("key" + i, i);
+        }
+        return map;
+    }
+
+    /** @return the {@link Graph#NESTED_GENERICS} */
+    private static Map<String, List<Map<String, Integer>>> createNestedGenerics() {
+        int width = (int) Math.sqrt(SIZE);
+        Map<String, List<Map<String, Integer>>> result = new HashMap<>();
+        for (int i = 0; i < width; i++) {
+            List<Map<String, Integer>> list = new ArrayList<>(width);
+            for (int k = 0; k < width; k++) {
+                Map<String, Integer> map = new HashMap<>();
+                map.put("a" + k, k);
+                map.put("b" + k, i);
+                list.add(map);
+            }
+            result.put("list" + i, list);
+        }
+        return result;
+    }
+
+    /** @return the first element of the {@link Graph#CYCLIC} ring */
+    private static WrapperClass createRing() {
+        WrapperClass first = new WrapperClass();
+        first.setId(0);
+        WrapperClass last = first;
+        for (int i = 1; i < SIZE; i++) {
+            WrapperClass next = new WrapperClass();
+            next.setId(i);
+            next.setBooleanValue(i % 2 == 0);
+            next.setParent(last);
+            last = next;
+        }
+        first.setParent(last);
+        return first;
+    }
+
+    /** @return the {@link Graph#PRIMITIVE_ARRAYS} */
+    private static Object[] createPrimitiveArrays() {
+        int[] ints = new int[SIZE];
+        long[] longs = new long[SIZE];
+        double[] doubles = new double[SIZE];
+        boolean[] booleans = new boolean[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            ints[i] = i;
+            longs[i] = i * 1000000007L;
+            doubles[i] = i / 3.0;
+            booleans[i] = i % 2 == 0;
+        }
+        return new Object[] {ints, longs, doubles, booleans};
+    }
+
+    /** Adds object ids to the {@link WrapperClass} serialized by the baseline, so its cycles are written as ids */
+    @JsonIdentityInfo(generator = ObjectIdGenerators.IntSequenceGenerator.class, property = "@id")
+    private abstract static class IdentityMixIn {
+        // an empty
+    }
+
+}
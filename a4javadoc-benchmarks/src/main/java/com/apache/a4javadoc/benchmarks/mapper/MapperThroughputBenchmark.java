@@ -0,0 +1,91 @@
+package com.apache.a4javadoc.benchmarks.mapper;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j;
+
+/**
+ * Throughput of the shared {@link ObjectMapperA4j} instance called by many threads.
+ * Each thread has its own graph, so the score shows the contention inside of the mapper only.
+ * Run it with the JMH '-t' option, for example {@code -t 1,2,4,8}, and compare the scores
+ * of the thread counts, they should grow with the number of available cores.
+ *
+ * @author Kyrylo Semenko
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MapperThroughputBenchmark {
+
+    /** Number of {@link Customer}s in the graph */
+    @Param({"16"})
+    private int size;
+
+    /** The serialized graph, a list of {@link Customer}s and a map of them by their names */
+    private Object graph;
+
+    /** The {@link #graph} serialized once during setup */
+    private String json;
+
+    /** The tested mapper, it is shared by all threads */
+    private ObjectMapperA4j objectMapperA4j;
+
+    /** Build the per-thread fixtures */
+    @Setup
+    public void setUp() {
+        objectMapperA4j = ObjectMapperA4j.getInstance();
+        List<Customer> customers = new ArrayList<>(size);
+        Map<String, Customer> byName = new HashMap<>();
+        Customer referrer = null;
+        for (int i = 0; i < size; i++) {
+            Customer customer = new Customer(i, referrer);
+            customers.add(customer);
+            byName.put(customer.getFirstName(), customer);
+            referrer = customer;
+        }
+        List<Object> root = new ArrayList<>();
+        root.add(customers);
+        root.add(byName);
+        graph = root;
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, graph);
+        json = stringWriter.toString();
+    }
+
+    /** Serialize the {@link #graph} to a writer that discards the output */
+    @Benchmark
+    public void write() {
+        objectMapperA4j.writeValue(NullWriter.NULL_WRITER, graph);
+    }
+
+    /**
+     * Deserialize the {@link #json}
+     * @return the deserialized graph, consumed by JMH
+     */
+    @Benchmark
+    public Object read() {
+        return objectMapperA4j.readValue(json);
+    }
+
+}
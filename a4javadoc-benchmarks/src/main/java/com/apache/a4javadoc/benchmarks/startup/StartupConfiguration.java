@@ -0,0 +1,102 @@
+package com.apache.a4javadoc.benchmarks.startup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A JVM configuration compared by the {@link StartupHarness}. The rule sets contain the rule of the synthetic classes
+ * and additional rules, that do not match them, so the number of transformed classes is the same for all sizes,
+ * and the differences show the cost of the rule evaluation only.
+ * @author Kyrylo Semenko
+ */
+public class StartupConfiguration {
+
+    /** Separates the rules, see the {@code NameFilterService} */
+    private static final String RULE_SEPARATOR = "|";
+
+    /** The configuration name */
+    private final String name;
+
+    /** 'true' if the JVM is launched with the {@code -javaagent} option */
+    private final boolean agent;
+
+    /** Number of the include and of the exclude rules */
+    private final int rules;
+
+    /** The {@code a4javadoc.include} property of the agent, 'null' without the agent */
+    private final String include;
+
+    /** The {@code a4javadoc.exclude} property of the agent, 'null' if not defined */
+    private final String exclude;
+
+    /**
+     * @param name see the {@link #name} field
+     * @param agent see the {@link #agent} field
+     * @param rules see the {@link #rules} field
+     * @param include see the {@link #include} field
+     * @param exclude see the {@link #exclude} field
+     */
+    private StartupConfiguration(String name, boolean agent, int rules, String include, String exclude) {
+        this.name = name;
+        this.agent = agent;
+        this.rules = rules;
+        this.include = include;
+        this.exclude = exclude;
+    }
+
+    /** @return the baseline, the loading without the agent */
+    public static StartupConfiguration noAgent() {
+        return new StartupConfiguration("NO_AGENT", false, 0, null, null);
+    }
+
+    /** @return the agent with a rule that does not match the synthetic classes, so no method is instrumented */
+    public static StartupConfiguration noMatch() {
+        return new StartupConfiguration("NO_MATCH", true, 1, "com.example.none.*", null);
+    }
+
+    /**
+     * @param size number of the include and of the exclude rules
+     * @return the agent instrumenting all synthetic classes
+     */
+    public static StartupConfiguration ruleSet(int size) {
+        List<String> includes = new ArrayList<>();
+        List<String> excludes = new ArrayList<>();
+        for (int i = 1; i < size; i++) {
+            includes.add("com.example.module" + i + ".*");
+        }
+        includes.add(SyntheticClasspath.ROOT_PACKAGE + ".*");
+        for (int i = 0; i < size; i++) {
+            excludes.add("*.Class*.secret" + i + "(*");
+        }
+        return new StartupConfiguration("RULES_" + size, true, size, StringUtils.join(includes, RULE_SEPARATOR),
+                StringUtils.join(excludes, RULE_SEPARATOR));
+    }
+
+    /** @return The {@link StartupConfiguration#name} field */
+    public String getName() {
+        return name;
+    }
+
+    /** @return The {@link StartupConfiguration#agent} field */
+    public boolean isAgent() {
+        return agent;
+    }
+
+    /** @return The {@link StartupConfiguration#rules} field */
+    public int getRules() {
+        return rules;
+    }
+
+    /** @return The {@link StartupConfiguration#include} field */
+    public String getInclude() {
+        return include;
+    }
+
+    /** @return The {@link StartupConfiguration#exclude} field */
+    public String getExclude() {
+        return exclude;
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.apache.a4javadoc.benchmarks.startup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+
+import com.apache.a4javadoc.benchmarks.endtoend.EndToEndHarness;
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * <p>
+ * Answers the question what the agent adds to the startup of an application with a large class path.
+ * A jar of synthetic classes is generated by the {@link SyntheticClasspath} and loaded by the {@link StartupMain}
+ * in a forked JVM without the agent, with the agent and a rule that matches none of the classes
+ * and with the agent and rule sets of different sizes, see the {@link StartupConfiguration}. The report contains
+ * the JVM startup including the {@code premain} method, the total and per-class loading time, the transformation
+ * and the {@code MethodsMatcher} time measured by the agent and the used heap and non-heap memory.
+ *
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.apache.a4javadoc.benchmarks.startup.StartupHarness
+ * <agent jar> [classes] [rule set sizes] [work directory]}, for example {@code ... StartupHarness
+ * ../a4javadoc-javaagent/target/a4javadoc-javaagent-0.0.1.jar 100000 1,10,100}.
+ * By default {@link #DEFAULT_CLASSES} classes are loaded with the {@link #DEFAULT_RULE_SET_SIZES}.
+ * As with the {@link EndToEndHarness}, the forked JVMs use the Java installation of the harness.
+ * Outputs and results of the forked JVMs are kept in subdirectories of the work directory,
+ * {@link #DEFAULT_WORK_DIRECTORY} by default, the generated jar is reused by subsequent runs.
+ * @author Kyrylo Semenko
+ */
+public final class StartupHarness {
+
+    /** The default work directory */
+    public static final String DEFAULT_WORK_DIRECTORY = "target/startup";
+
+    /** The default number of synthetic classes */
+    public static final int DEFAULT_CLASSES = 50000;
+
+    /** The default sizes of the rule sets */
+    public static final String DEFAULT_RULE_SET_SIZES = "1,10,100";
+
+    /** The heap option of the forked JVMs */
+    private static final String HEAP_OPTION = "-Xmx1g";
+
+    /** Classes of the jar of the forked JVMs, the synthetic classes are in a separate jar */
+    private static final Class<?>[] STARTUP_CLASSES = {StartupMain.class, StartupResult.class,
+        AppRuntimeException.class};
+
+    /** The agent jar */
+    private final File agentJar;
+
+    /** The work directory */
+    private final File workDirectory;
+
+    /**
+     * @param agentJar see the {@link #agentJar} field
+     * @param workDirectory see the {@link #workDirectory} field
+     */
+    StartupHarness(File agentJar, File workDirectory) {
+        this.agentJar = agentJar.getAbsoluteFile();
+        this.workDirectory = workDirectory.getAbsoluteFile();
+    }
+
+    /**
+     * @param args see the class description
+     * @throws IOException if a file cannot be written
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            throw new AppRuntimeException("Expected arguments: <agent jar> [classes] [rule set sizes] [work directory]");
+        }
+        int classes = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLASSES;
+        String ruleSetSizes = args.length > 2 ? args[2] : DEFAULT_RULE_SET_SIZES;
+        File workDirectory = new File(args.length > 3 ? args[3] : DEFAULT_WORK_DIRECTORY);
+        List<StartupConfiguration> configurations = new ArrayList<>();
+        configurations.add(StartupConfiguration.noAgent());
+        configurations.add(StartupConfiguration.noMatch());
+        for (String size : ruleSetSizes.split(",")) {
+            configurations.add(StartupConfiguration.ruleSet(Integer.parseInt(size.trim())));
+        }
+        StartupHarness harness = new StartupHarness(new File(args[0]), workDirectory);
+        Map<StartupConfiguration, StartupResult> results = harness.run(classes, configurations);
+        printReport(results, System.out);
+    }
+
+    /**
+     * Launch the {@link StartupMain} for each configuration one after another.
+     * @param classes number of synthetic classes
+     * @param configurations the compared configurations
+     * @return results in the order of the configurations
+     * @throws IOException if a file cannot be written
+     * @throws InterruptedException if the thread is interrupted
+     */
+    Map<StartupConfiguration, StartupResult> run(int classes, List<StartupConfiguration> configurations)
+            throws IOException, InterruptedException {
+        if (!agentJar.isFile()) {
+            throw new AppRuntimeException("The file '" + agentJar + "' does not exist");
+        }
+        FileUtils.forceMkdir(workDirectory);
+        File startupJar = new File(workDirectory, "startup.jar");
+        EndToEndHarness.writeClassesJar(startupJar, STARTUP_CLASSES);
+        File syntheticJar = new SyntheticClasspath(classes).getJar(workDirectory);
+        Map<StartupConfiguration, StartupResult> results = new LinkedHashMap<>();
+        for (StartupConfiguration configuration : configurations) {
+            File directory = new File(workDirectory, configuration.getName().toLowerCase());
+            FileUtils.deleteDirectory(directory);
+            FileUtils.forceMkdir(directory);
+            File resultFile = new File(directory, "result.properties");
+            List<String> command = createCommand(configuration, directory);
+            command.add("-cp");
+            command.add(startupJar.getPath() + File.pathSeparator + syntheticJar.getPath());
+            command.add(StartupMain.class.getName());
+            command.add(syntheticJar.getPath());
+            command.add(resultFile.getPath());
+            File output = new File(directory, "output.log");
+            Process process = new ProcessBuilder(command)
+                    .directory(directory)
+                    .redirectErrorStream(true)
+                    .redirectOutput(output)
+                    .start();
+            int exitCode = process.waitFor();
+            if (exitCode != 0 || !resultFile.exists()) {
+                throw new AppRuntimeException("The " + configuration.getName() + " run failed with the exit code "
+                        + exitCode + ", see " + output);
+            }
+            results.put(configuration, StartupResult.load(resultFile));
+        }
+        return results;
+    }
+
+    /**
+     * Create the JVM command line without the class path and the {@link StartupMain} arguments.
+     * @param configuration the JVM configuration
+     * @param directory the work directory of the JVM
+     * @return the command
+     * @throws IOException if the agent configuration cannot be written
+     */
+    List<String> createCommand(StartupConfiguration configuration, File directory) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.add(HEAP_OPTION);
+        if (configuration.isAgent()) {
+            File agentProperties = new File(directory, "a4javadoc.properties");
+            Properties properties = new Properties();
+            properties.setProperty("a4javadoc.include", configuration.getInclude());
+            if (configuration.getExclude() != null) {
+                properties.setProperty("a4javadoc.exclude", configuration.getExclude());
+            }
+            try (OutputStream outputStream = new FileOutputStream(agentProperties)) {
+                properties.store(outputStream, configuration.getName());
+            }
+            File pluginsDirectory = new File(directory, "plugins");
+            FileUtils.forceMkdir(pluginsDirectory);
+            command.add("-javaagent:" + agentJar.getPath() + "=" + agentProperties.getPath());
+            command.add("-Dpf4j.pluginsDir=" + pluginsDirectory.getPath());
+        }
+        return command;
+    }
+
+    /**
+     * Print the results as a table.
+     * @param results results of the {@link #run(int, List)} method
+     * @param printStream the target
+     */
+    static void printReport(Map<StartupConfiguration, StartupResult> results, PrintStream printStream) {
+        printStream.printf("%-12s %6s %8s %10s %9s %10s %12s %9s %12s %9s %20s %9s %11s%n", "Configuration", "rules",
+                "classes", "startup ms", "load ms", "load us/cl", "transformed", "trans ms", "trans us/cl",
+                "match ms", "methods matched", "heap MB", "non-heap MB");
+        for (Map.Entry<StartupConfiguration, StartupResult> entry : results.entrySet()) {
+            StartupResult result = entry.getValue();
+            printStream.printf("%-12s %6d %8d %10d %9.0f %10.1f %12d %9.0f %12.1f %9.0f %20s %9.1f %11.1f%n",
+                    entry.getKey().getName(), entry.getKey().getRules(), result.getClasses(), result.getStartupMillis(),
+                    result.getLoadNanos() / 1e6, result.perClassMicros(result.getLoadNanos()), result.getTransformed(),
+                    millis(result.getTransformationNanos()), result.perClassMicros(result.getTransformationNanos()),
+                    millis(result.getMatcherNanos()), result.getMatchedMethods() + " / " + result.getExaminedMethods(),
+                    result.getHeapBytes() / 1048576.0, result.getNonHeapBytes() / 1048576.0);
+        }
+    }
+
+    /**
+     * @param nanos a time or -1
+     * @return milliseconds or -1
+     */
+    private static double millis(long nanos) {
+        return nanos < 0 ? -1 : nanos / 1e6;
+    }
+
+}
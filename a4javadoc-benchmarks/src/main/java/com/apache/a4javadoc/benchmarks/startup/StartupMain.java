@@ -0,0 +1,142 @@
+package com.apache.a4javadoc.benchmarks.startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * <p>
+ * The application launched by the {@link StartupHarness} in a forked JVM, with or without the agent.
+ * It loads all classes of the jar generated by the {@link SyntheticClasspath} and measures the time
+ * of the loading, the memory used afterwards and, with the agent, the difference of the counters
+ * of the {@code TransformationStatistics} of the agent.
+ *
+ * <p>
+ * The agent counters are read by reflection, because the {@code TransformationStatistics} class
+ * is loaded from the agent jar and it is missing in the JVM without the agent.
+ *
+ * <p>
+ * Usage: {@code java -cp ... StartupMain <synthetic jar> <result file>}, the synthetic jar has to be on the class path,
+ * the result is written by the {@link StartupResult#store(File)} method.
+ * @author Kyrylo Semenko
+ */
+public final class StartupMain {
+
+    /** The counters of the agent */
+    private static final String STATISTICS_CLASS = "com.apache.a4javadoc.javaagent.agent.TransformationStatistics";
+
+    /** The class with the {@link #main(String[])} method only */
+    private StartupMain() {
+    }
+
+    /**
+     * @param args see the class description
+     * @throws IOException if the synthetic jar cannot be read or the result cannot be written
+     * @throws ClassNotFoundException if a synthetic class is not on the class path
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        List<String> classNames = readClassNames(new File(args[0]));
+        File resultFile = new File(args[1]);
+        Object statistics = findStatistics();
+        long[] countersBefore = readCounters(statistics);
+
+        ClassLoader classLoader = StartupMain.class.getClassLoader();
+        long start = System.nanoTime();
+        for (String className : classNames) {
+            Class.forName(className, false, classLoader);
+        }
+        long loadNanos = System.nanoTime() - start;
+
+        long[] countersAfter = readCounters(statistics);
+        System.gc();
+        System.gc();
+        MemoryMXBean memoryMxBean = ManagementFactory.getMemoryMXBean();
+
+        StartupResult result = new StartupResult();
+        result.setStartupMillis(startupMillis);
+        result.setClasses(classNames.size());
+        result.setLoadNanos(loadNanos);
+        result.setTransformed(difference(countersBefore, countersAfter, 0));
+        result.setTransformationNanos(difference(countersBefore, countersAfter, 1));
+        result.setExaminedMethods(difference(countersBefore, countersAfter, 2));
+        result.setMatchedMethods(difference(countersBefore, countersAfter, 3));
+        result.setMatcherNanos(difference(countersBefore, countersAfter, 4));
+        result.setHeapBytes(memoryMxBean.getHeapMemoryUsage().getUsed());
+        result.setNonHeapBytes(memoryMxBean.getNonHeapMemoryUsage().getUsed());
+        result.store(resultFile);
+    }
+
+    /**
+     * @param jar the synthetic jar
+     * @return names of the classes of the jar
+     * @throws IOException if the jar cannot be read
+     */
+    private static List<String> readClassNames(File jar) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class")) {
+                    result.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** @return the {@code TransformationStatistics} instance or 'null' without the agent */
+    private static Object findStatistics() {
+        try {
+            return Class.forName(STATISTICS_CLASS).getMethod("getInstance").invoke(null);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * @param statistics the {@code TransformationStatistics} or 'null'
+     * @return the transformed classes, the transformation time, the examined methods, the matched methods
+     * and the matcher time, or 'null' without the agent
+     */
+    private static long[] readCounters(Object statistics) {
+        if (statistics == null) {
+            return null;
+        }
+        String[] getters = {"getTransformed", "getTransformationNanos", "getExaminedMethods", "getMatchedMethods",
+            "getMatcherNanos"};
+        long[] result = new long[getters.length];
+        try {
+            for (int i = 0; i < getters.length; i++) {
+                Method getter = statistics.getClass().getMethod(getters[i]);
+                result[i] = (Long) getter.invoke(statistics);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new AppRuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * @param before counters before the loading
+     * @param after counters after the loading
+     * @param index the counter
+     * @return the difference or -1 without the agent
+     */
+    private static long difference(long[] before, long[] after, int index) {
+        return before == null ? -1 : after[index] - before[index];
+    }
+
+}
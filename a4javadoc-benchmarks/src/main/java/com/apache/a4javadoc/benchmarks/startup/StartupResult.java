@@ -0,0 +1,203 @@
+package com.apache.a4javadoc.benchmarks.startup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Measurements of a single {@link StartupMain} run, passed from the forked JVM
+ * to the {@link StartupHarness} in a properties file. The agent counters are -1 without the agent.
+ * @author Kyrylo Semenko
+ */
+public class StartupResult {
+
+    /** The JVM uptime at the start of the main method, it contains the premain method of the agent */
+    private long startupMillis;
+
+    /** Number of loaded synthetic classes */
+    private long classes;
+
+    /** The time of the loading of the synthetic classes */
+    private long loadNanos;
+
+    /** Number of classes transformed by the agent during the loading */
+    private long transformed;
+
+    /** The time of the transformations during the loading */
+    private long transformationNanos;
+
+    /** Number of methods examined by the {@code MethodsMatcher} during the loading */
+    private long examinedMethods;
+
+    /** Number of methods accepted by the {@code MethodsMatcher} during the loading */
+    private long matchedMethods;
+
+    /** The time spent in the {@code MethodsMatcher} during the loading */
+    private long matcherNanos;
+
+    /** Used heap after the loading and a garbage collection */
+    private long heapBytes;
+
+    /** Used non-heap memory after the loading, the metaspace and the code cache */
+    private long nonHeapBytes;
+
+    /**
+     * @param nanos a time of the loading
+     * @return microseconds per loaded class
+     */
+    public double perClassMicros(long nanos) {
+        return nanos < 0 || classes == 0 ? -1 : nanos / 1e3 / classes;
+    }
+
+    /**
+     * Write the fields to a properties file.
+     * @param file the target
+     * @throws IOException if the file cannot be written
+     */
+    public void store(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("startupMillis", Long.toString(startupMillis));
+        properties.setProperty("classes", Long.toString(classes));
+        properties.setProperty("loadNanos", Long.toString(loadNanos));
+        properties.setProperty("transformed", Long.toString(transformed));
+        properties.setProperty("transformationNanos", Long.toString(transformationNanos));
+        properties.setProperty("examinedMethods", Long.toString(examinedMethods));
+        properties.setProperty("matchedMethods", Long.toString(matchedMethods));
+        properties.setProperty("matcherNanos", Long.toString(matcherNanos));
+        properties.setProperty("heapBytes", Long.toString(heapBytes));
+        properties.setProperty("nonHeapBytes", Long.toString(nonHeapBytes));
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            properties.store(outputStream, StartupMain.class.getName());
+        }
+    }
+
+    /**
+     * Read a file written by the {@link #store(File)} method.
+     * @param file the source
+     * @return the new instance
+     * @throws IOException if the file cannot be read
+     */
+    public static StartupResult load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            properties.load(inputStream);
+        }
+        StartupResult result = new StartupResult();
+        result.startupMillis = Long.parseLong(properties.getProperty("startupMillis"));
+        result.classes = Long.parseLong(properties.getProperty("classes"));
+        result.loadNanos = Long.parseLong(properties.getProperty("loadNanos"));
+        result.transformed = Long.parseLong(properties.getProperty("transformed"));
+        result.transformationNanos = Long.parseLong(properties.getProperty("transformationNanos"));
+        result.examinedMethods = Long.parseLong(properties.getProperty("examinedMethods"));
+        result.matchedMethods = Long.parseLong(properties.getProperty("matchedMethods"));
+        result.matcherNanos = Long.parseLong(properties.getProperty("matcherNanos"));
+        result.heapBytes = Long.parseLong(properties.getProperty("heapBytes"));
+        result.nonHeapBytes = Long.parseLong(properties.getProperty("nonHeapBytes"));
+        return result;
+    }
+
+    /** @return The {@link StartupResult#startupMillis} field */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /** @param startupMillis see the {@link StartupResult#startupMillis} field */
+    public void setStartupMillis(long startupMillis) {
+        this.startupMillis = startupMillis;
+    }
+
+    /** @return The {@link StartupResult#classes} field */
+    public long getClasses() {
+        return classes;
+    }
+
+    /** @param classes see the {@link StartupResult#classes} field */
+    public void setClasses(long classes) {
+        this.classes = classes;
+    }
+
+    /** @return The {@link StartupResult#loadNanos} field */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /** @param loadNanos see the {@link StartupResult#loadNanos} field */
+    public void setLoadNanos(long loadNanos) {
+        this.loadNanos = loadNanos;
+    }
+
+    /** @return The {@link StartupResult#transformed} field */
+    public long getTransformed() {
+        return transformed;
+    }
+
+    /** @param transformed see the {@link StartupResult#transformed} field */
+    public void setTransformed(long transformed) {
+        this.transformed = transformed;
+    }
+
+    /** @return The {@link StartupResult#transformationNanos} field */
+    public long getTransformationNanos() {
+        return transformationNanos;
+    }
+
+    /** @param transformationNanos see the {@link StartupResult#transformationNanos} field */
+    public void setTransformationNanos(long transformationNanos) {
+        this.transformationNanos = transformationNanos;
+    }
+
+    /** @return The {@link StartupResult#examinedMethods} field */
+    public long getExaminedMethods() {
+        return examinedMethods;
+    }
+
+    /** @param examinedMethods see the {@link StartupResult#examinedMethods} field */
+    public void setExaminedMethods(long examinedMethods) {
+        this.examinedMethods = examinedMethods;
+    }
+
+    /** @return The {@link StartupResult#matchedMethods} field */
+    public long getMatchedMethods() {
+        return matchedMethods;
+    }
+
+    /** @param matchedMethods see the {@link StartupResult#matchedMethods} field */
+    public void setMatchedMethods(long matchedMethods) {
+        this.matchedMethods = matchedMethods;
+    }
+
+    /** @return The {@link StartupResult#matcherNanos} field */
+    public long getMatcherNanos() {
+        return matcherNanos;
+    }
+
+    /** @param matcherNanos see the {@link StartupResult#matcherNanos} field */
+    public void setMatcherNanos(long matcherNanos) {
+        this.matcherNanos = matcherNanos;
+    }
+
+    /** @return The {@link StartupResult#heapBytes} field */
+    public long getHeapBytes() {
+        return heapBytes;
+    }
+
+    /** @param heapBytes see the {@link StartupResult#heapBytes} field */
+    public void setHeapBytes(long heapBytes) {
+        this.heapBytes = heapBytes;
+    }
+
+    /** @return The {@link StartupResult#nonHeapBytes} field */
+    public long getNonHeapBytes() {
+        return nonHeapBytes;
+    }
+
+    /** @param nonHeapBytes see the {@link StartupResult#nonHeapBytes} field */
+    public void setNonHeapBytes(long nonHeapBytes) {
+        this.nonHeapBytes = nonHeapBytes;
+    }
+
+}
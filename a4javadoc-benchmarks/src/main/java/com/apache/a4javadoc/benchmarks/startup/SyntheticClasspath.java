@@ -0,0 +1,99 @@
+package com.apache.a4javadoc.benchmarks.startup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.io.FileUtils;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.TypeValidation;
+import net.bytebuddy.implementation.FixedValue;
+
+/**
+ * <p>
+ * Generates a jar with a large number of small classes, which the {@link StartupMain} loads with and without the agent.
+ * The classes are spread over packages of {@link #CLASSES_PER_PACKAGE} classes below the {@link #ROOT_PACKAGE},
+ * each one has a constructor and {@link #METHODS_PER_CLASS} methods with two parameters,
+ * so the {@code MethodsMatcher} examines a comparable number of methods as in an application of the same size.
+ *
+ * <p>
+ * The generation takes a while, so an existing jar of the same size is reused.
+ * @author Kyrylo Semenko
+ */
+public class SyntheticClasspath {
+
+    /** The package of the generated classes */
+    public static final String ROOT_PACKAGE = "com.example.synthetic";
+
+    /** Number of classes of a generated package */
+    static final int CLASSES_PER_PACKAGE = 500;
+
+    /** Number of methods of a generated class */
+    static final int METHODS_PER_CLASS = 5;
+
+    /** Number of generated classes */
+    private final int classes;
+
+    /**
+     * @param classes see the {@link #classes} field
+     */
+    public SyntheticClasspath(int classes) {
+        this.classes = classes;
+    }
+
+    /**
+     * Find or generate the jar in the directory.
+     * @param directory the directory of the jar
+     * @return the jar with the {@link #classes} number of classes
+     * @throws IOException if the jar cannot be written
+     */
+    public File getJar(File directory) throws IOException {
+        File jar = new File(directory, "synthetic-" + classes + ".jar");
+        if (jar.isFile()) {
+            return jar;
+        }
+        FileUtils.forceMkdir(directory);
+        File temporaryJar = new File(directory, jar.getName() + ".tmp");
+        ByteBuddy byteBuddy = new ByteBuddy(ClassFileVersion.JAVA_V7).with(TypeValidation.DISABLED);
+        try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(temporaryJar))) {
+            for (int i = 0; i < classes; i++) {
+                String className = className(i);
+                jarOutputStream.putNextEntry(new JarEntry(className.replace('.', '/') + ".class"));
+                jarOutputStream.write(generate(byteBuddy, className));
+                jarOutputStream.closeEntry();
+            }
+        }
+        FileUtils.moveFile(temporaryJar, jar);
+        return jar;
+    }
+
+    /**
+     * @param index the class number
+     * @return for example {@code com.example.synthetic.p3.Class1500}
+     */
+    public static String className(int index) {
+        return ROOT_PACKAGE + ".p" + (index / CLASSES_PER_PACKAGE) + ".Class" + index;
+    }
+
+    /**
+     * @param byteBuddy the class generator
+     * @param className the name of the class
+     * @return the class file
+     */
+    private static byte[] generate(ByteBuddy byteBuddy, String className) {
+        DynamicType.Builder<Object> builder = byteBuddy.subclass(Object.class).name(className);
+        for (int i = 0; i < METHODS_PER_CLASS; i++) {
+            builder = builder.defineMethod("method" + i, String.class, Visibility.PUBLIC)
+                    .withParameters(String.class, long.class)
+                    .intercept(FixedValue.value("value" + i));
+        }
+        return builder.make().getBytes();
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.apache.a4javadoc.javaagent.api;
+
+/**
+ * Reads values of serializable fields of an object in a single call.<br>
+ * Plugins generate implementations of this interface at runtime, one per class of recorded objects.
+ * The generated classes are defined in the class loaders of the recorded classes,
+ * so the interface has to be loaded by the javaagent class loader, which is visible
+ * for application class loaders as well as for plugins.
+ * @author Kyrylo Semenko
+ */
+public interface FieldValuesReader {
+
+    /**
+     * Read field values of the source object.
+     * @param sourceObject the data source
+     * @param values the buffer for the values, the order of values is defined by the implementation
+     */
+    public void read(Object sourceObject, Object[] values);
+
+}
@@ -9,7 +9,11 @@ import org.pf4j.ExtensionPoint;
  * It contains these methods:<br>
  * 1. {@link #recordBefore(StateBeforeInvocation)}<br>
  * 2. {@link #recordAfter(StateAfterInvocation)}<br>
- * The interface extends {@link ExtensionPoint}.
+ * The interface extends {@link ExtensionPoint}.<br>
+ * The methods are called by the application thread during the intercepted invocation. The arguments,
+ * the return value and the {@link Throwable} of the states are live objects of the application, a recorder
+ * that uses them after the call must copy them. Recorders called by a queue are marked
+ * by the {@link QueuedMethodStateRecorder} interface.
  * @author Kyrylo Semenko
  */
 public interface MethodStateRecorder extends ExtensionPoint {
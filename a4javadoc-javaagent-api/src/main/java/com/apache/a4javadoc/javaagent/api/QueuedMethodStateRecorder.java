@@ -0,0 +1,15 @@
+package com.apache.a4javadoc.javaagent.api;
+
+/**
+ * A marker of {@link MethodStateRecorder}s, that accept the states from a queue.<br>
+ * When the javaagent is configured with a queue, it calls such a recorder by its own thread after the intercepted
+ * method continued. The arguments, the return value and the {@link Throwable} of the states are the live objects
+ * of the application at that time, other application threads can change them concurrently.
+ * So the recorder must not depend on the calling thread, must not change the states and must read only
+ * the parts it can use in such a case, for example ids, names, dates and stack traces.<br>
+ * Other recorders are always called by the application thread during the intercepted invocation.
+ * @author Kyrylo Semenko
+ */
+public interface QueuedMethodStateRecorder extends MethodStateRecorder {
+
+}
@@ -12,7 +12,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.agent.namefilter.NameFilterService;
+import com.apache.a4javadoc.javaagent.api.FieldValuesReader;
 import com.apache.a4javadoc.javaagent.parameter.ParameterService;
+import com.apache.a4javadoc.plugin.AgentPluginManager;
 
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.agent.builder.AgentBuilder.Default;
@@ -55,27 +58,46 @@ public class Agent {
     static final String JAVAAGENT_ARGS_PREFIX = "-javaagent:";
     
     /**
-     * Create a new {@link Agent} instance and call {@link #doPremain(String, Instrumentation, Default)}
+     * Create a new {@link Agent} instance and call {@link #doPremain(String, Instrumentation, Default, StartupPhases)}
      * @param args does not used
      * @param instrumentation see the {@link Instrumentation} javaDoc
      */
     public static void premain(String args, Instrumentation instrumentation) {
+        StartupPhases startupPhases = new StartupPhases();
         RuntimeMXBean runtimeMxBean = ManagementFactory.getRuntimeMXBean();
         List<String> jvmArguments = runtimeMxBean.getInputArguments();
         logger.info("JVM arguments: {}", jvmArguments);
         Agent agent = new Agent();
         ParameterService.getInstance().loadParameters(args, agent.findJavaagentDir(jvmArguments));
+        startupPhases.finished("parameters");
         AgentBuilder.Default agentBuilderDefault = new AgentBuilder.Default();
-        agent.doPremain(args, instrumentation, agentBuilderDefault);
+        agent.doPremain(args, instrumentation, agentBuilderDefault, startupPhases);
     }
 
     /**
-     * Uses {@link AgentBuilder} for creation of {@link Transformer} and install it to the {@link Instrumentation}.
+     * Call the {@link #doPremain(String, Instrumentation, Default, StartupPhases)} method with new {@link StartupPhases}.
      * @param args does not used
      * @param instrumentation see the {@link Instrumentation} javaDoc
      * @param agentBuilderDefault an empty {@link AgentBuilder}
      */
     void doPremain(String args, Instrumentation instrumentation, Default agentBuilderDefault) {
+        doPremain(args, instrumentation, agentBuilderDefault, new StartupPhases());
+    }
+
+    /**
+     * Uses {@link AgentBuilder} for creation of {@link Transformer} and install it to the {@link Instrumentation}.<br>
+     * The {@link FieldValuesReader}s generated by plugins are defined in packages of the recorded classes,
+     * so they are excluded. Otherwise a plugin reading an object would intercept and record its own reads.<br>
+     * The transformations are counted by the {@link TransformationStatistics}.<br>
+     * The singletons used by the matchers and the interceptors are created by the {@link #initSingletons(StartupPhases)}
+     * method before the installation, so class loading threads and the first intercepted calls
+     * neither race for their creation nor wait for the plugins. The duration of each phase is logged.
+     * @param args does not used
+     * @param instrumentation see the {@link Instrumentation} javaDoc
+     * @param agentBuilderDefault an empty {@link AgentBuilder}
+     * @param startupPhases the measured phases
+     */
+    void doPremain(String args, Instrumentation instrumentation, Default agentBuilderDefault, StartupPhases startupPhases) {
         logger.info("Javaagent classpath root: {}", (new File("")).getAbsolutePath());
         logger.info("Premain args: {}", args);
         
@@ -83,6 +105,9 @@ public class Agent {
         List<String> jvmArguments = runtimeMxBean.getInputArguments();
         
         initPluginsDirectory(jvmArguments);
+        startupPhases.finished("plugins directory");
+        
+        initSingletons(startupPhases);
         
         final AsmVisitorWrapper methodsVisitor = Advice
                 .to(MethodInterceptor.class)
@@ -91,18 +116,34 @@ public class Agent {
         final AsmVisitorWrapper constructorsVisitor = Advice
                 .to(ConstructorInterceptor.class)
                 .on(MethodsMatcher.getInstance().and(ElementMatchers.isConstructor().or(ElementMatchers.isTypeInitializer())));
+        startupPhases.finished("advice");
         
         agentBuilderDefault
 //            .with(AgentBuilder.Listener.WithErrorsOnly.StreamWriting.toSystemError())
-            .type(ElementMatchers.any())
+            .with(TransformationStatistics.getInstance())
+            .type(ElementMatchers.not(ElementMatchers.isSubTypeOf(FieldValuesReader.class)))
             .transform(new AgentBuilder.Transformer() {
                 public Builder<?> transform(Builder<?> builder, TypeDescription typeDescription, ClassLoader classLoader, JavaModule module) {
                     return builder.visit(methodsVisitor).visit(constructorsVisitor);
                 }
             })
             .installOn(instrumentation);
+        startupPhases.finished("installation");
         
-        logger.info("Premain finished");
+        logger.info("Premain finished in {}", startupPhases);
+    }
+
+    /**
+     * Create the singletons in the order of their dependencies, the {@link ParameterService} has to be loaded.
+     * @param startupPhases the measured phases
+     */
+    void initSingletons(StartupPhases startupPhases) {
+        NameFilterService.getInstance();
+        MethodsMatcher.getInstance();
+        TransformationStatistics.getInstance();
+        startupPhases.finished("matchers");
+        AgentPluginManager.getInstance();
+        startupPhases.finished("plugins");
     }
 
     /**
@@ -9,8 +9,8 @@ import org.slf4j.LoggerFactory;
 
 import com.apache.a4javadoc.javaagent.api.StateAfterInvocation;
 import com.apache.a4javadoc.javaagent.api.StateBeforeInvocation;
-import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
 import com.apache.a4javadoc.plugin.AgentPluginManager;
+import com.apache.a4javadoc.plugin.GuardedRecorder;
 
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.asm.Advice.Return;
@@ -26,12 +26,12 @@ import net.bytebuddy.implementation.bytecode.assign.Assigner.Typing;
 public class MethodInterceptor {
     
     /** Public because it used in a generated code */
-    public static Logger logger = LoggerFactory.getLogger(MethodInterceptor.class); // NOSONAR
+    public static final Logger logger = LoggerFactory.getLogger(MethodInterceptor.class); // NOSONAR
     
     static final String SHOULD_NOT_BE_INSTANTIATED = " should not be instantiated";
     
     /** Each method invocation has its own identifier. It starts from 1 when an instrumented application launched. It is public because it used in a code generation. */
-    public static AtomicLong methodInvocationCounter = new AtomicLong(0L); // NOSONAR
+    public static final AtomicLong methodInvocationCounter = new AtomicLong(0L); // NOSONAR
     
     /**
      * The constructor should newer be invoked. It throws an {@link IllegalStateException}.
@@ -75,7 +75,7 @@ public class MethodInterceptor {
                     + ", allArguments: " + toString(allArguments));
         }
         
-        List<MethodStateRecorder> methodStateRecorders = AgentPluginManager.getInstance().getMethodStateRecorders();
+        List<GuardedRecorder> methodStateRecorders = AgentPluginManager.getInstance().getMethodStateRecorders();
         
         StateBeforeInvocation stateBeforeInvocation = new StateBeforeInvocation(
                 methodInvocationId,
@@ -89,7 +89,7 @@ public class MethodInterceptor {
                 methodComplexName,
                 allArguments);
         
-        for (MethodStateRecorder methodStateRecorder : methodStateRecorders) {
+        for (GuardedRecorder methodStateRecorder : methodStateRecorders) {
             methodStateRecorder.recordBefore(stateBeforeInvocation);
         }        
         return methodInvocationId;
@@ -120,7 +120,7 @@ public class MethodInterceptor {
                 + ", allArguments: " + toString(allArguments)
               );
         }
-        List<MethodStateRecorder> methodStateRecorders = AgentPluginManager.getInstance().getMethodStateRecorders();
+        List<GuardedRecorder> methodStateRecorders = AgentPluginManager.getInstance().getMethodStateRecorders();
         
         StateAfterInvocation stateAfterInvocation = new StateAfterInvocation(
                 methodInvocationId,
@@ -131,7 +131,7 @@ public class MethodInterceptor {
                 allArguments
                 );
         
-        for (MethodStateRecorder methodStateRecorder : methodStateRecorders) {
+        for (GuardedRecorder methodStateRecorder : methodStateRecorders) {
             methodStateRecorder.recordAfter(stateAfterInvocation);
         }
     }
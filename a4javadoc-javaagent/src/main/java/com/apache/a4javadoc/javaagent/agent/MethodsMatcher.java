@@ -21,17 +21,24 @@ public class MethodsMatcher<T extends MethodDescription> extends ElementMatcher.
 
     private static final Logger logger = LoggerFactory.getLogger(MethodsMatcher.class);
     
-    private static MethodsMatcher<? super MethodDescription> instance;
+    private static volatile MethodsMatcher<? super MethodDescription> instance;
     
     /**
      * The static factory.
      * @return a singleton instance
      */
     public static MethodsMatcher<? super MethodDescription> getInstance() {
-        if (instance == null) {
-            instance = new MethodsMatcher<>();
+        MethodsMatcher<? super MethodDescription> result = instance;
+        if (result == null) {
+            synchronized (MethodsMatcher.class) {
+                result = instance;
+                if (result == null) {
+                    result = new MethodsMatcher<>();
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
     
     /** An empty constructor with a log message */
@@ -44,6 +51,7 @@ public class MethodsMatcher<T extends MethodDescription> extends ElementMatcher.
      */
     @Override
     public boolean matches(T target) {
+        long start = System.nanoTime();
         StringBuilder stringBuilder = new StringBuilder()
             .append(target.getDeclaringType().getTypeName())
             .append(".")
@@ -59,6 +67,7 @@ public class MethodsMatcher<T extends MethodDescription> extends ElementMatcher.
         stringBuilder.append(")");
         
         boolean matches = NameFilterService.getInstance().matches(stringBuilder.toString());
+        TransformationStatistics.getInstance().methodMatched(System.nanoTime() - start, matches);
         
         if (logger.isTraceEnabled() && matches) {
             logger.trace("The method will be intercepted and instrumented '{}'", stringBuilder.toString());
@@ -0,0 +1,40 @@
+package com.apache.a4javadoc.javaagent.agent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the durations of the consecutive phases of the {@link Agent#premain(String, java.lang.instrument.Instrumentation)}
+ * method, see the {@link #finished(String)} and the {@link #toString()} methods. Used by a single thread.
+ * @author Kyrylo Semenko
+ */
+class StartupPhases {
+
+    /** The start of the first phase */
+    private final long start = System.nanoTime();
+
+    /** The start of the current phase */
+    private long phaseStart = start;
+
+    /** The finished phases with their durations */
+    private final StringBuilder phases = new StringBuilder();
+
+    /**
+     * Finish the current phase and start the next one.
+     * @param phase the name of the finished phase
+     */
+    void finished(String phase) {
+        long now = System.nanoTime();
+        if (phases.length() > 0) {
+            phases.append(", ");
+        }
+        phases.append(phase).append(' ').append(TimeUnit.NANOSECONDS.toMillis(now - phaseStart)).append(" ms");
+        phaseStart = now;
+    }
+
+    /** @return for example <i>12 ms (parameters 1 ms, plugins 10 ms, installation 1 ms)</i> */
+    @Override
+    public String toString() {
+        return TimeUnit.NANOSECONDS.toMillis(phaseStart - start) + " ms (" + phases + ")";
+    }
+
+}
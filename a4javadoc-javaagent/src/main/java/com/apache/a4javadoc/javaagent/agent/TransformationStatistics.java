@@ -0,0 +1,170 @@
+package com.apache.a4javadoc.javaagent.agent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Singleton. Thread-safe counters of the class transformation by the {@link Agent}. As an {@link AgentBuilder.Listener}
+ * it measures the time from the discovery to the completion of each class, which contains the type matching,
+ * the {@link MethodsMatcher} calls and the bytecode generation. The {@link MethodsMatcher} time is counted
+ * separately by the {@link #methodMatched(long, boolean)} method.
+ * @author Kyrylo Semenko
+ */
+public class TransformationStatistics extends AgentBuilder.Listener.Adapter {
+
+    /** Number of classes passed to the transformer */
+    private final AtomicLong discovered = new AtomicLong();
+
+    /** Number of transformed classes */
+    private final AtomicLong transformed = new AtomicLong();
+
+    /** Number of classes ignored by the type matchers */
+    private final AtomicLong ignored = new AtomicLong();
+
+    /** Number of failed transformations */
+    private final AtomicLong errors = new AtomicLong();
+
+    /** Nanoseconds from the discovery to the completion of classes */
+    private final AtomicLong transformationNanos = new AtomicLong();
+
+    /** Number of methods and constructors examined by the {@link MethodsMatcher} */
+    private final AtomicLong examinedMethods = new AtomicLong();
+
+    /** Number of methods and constructors accepted by the {@link MethodsMatcher} */
+    private final AtomicLong matchedMethods = new AtomicLong();
+
+    /** Nanoseconds spent in the {@link MethodsMatcher} */
+    private final AtomicLong matcherNanos = new AtomicLong();
+
+    /**
+     * The start of the outermost transformation of the thread and the depth of nested transformations,
+     * a class can be loaded and transformed during the transformation of another class
+     */
+    private final ThreadLocal<long[]> threadTransformation = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    /**
+     * The static factory.
+     * @return a singleton instance
+     */
+    public static TransformationStatistics getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /** The private empty constructor */
+    private TransformationStatistics() {
+        // empty
+    }
+
+    /**
+     * Count a method examined by the {@link MethodsMatcher}.
+     * @param nanos time of the matching
+     * @param matches the result of the matching
+     */
+    public void methodMatched(long nanos, boolean matches) {
+        examinedMethods.incrementAndGet();
+        matcherNanos.addAndGet(nanos);
+        if (matches) {
+            matchedMethods.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onDiscovery(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+        discovered.incrementAndGet();
+        long[] transformation = threadTransformation.get();
+        if (transformation[1]++ == 0) {
+            transformation[0] = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void onTransformation(TypeDescription typeDescription, ClassLoader classLoader, JavaModule module,
+            boolean loaded, DynamicType dynamicType) {
+        transformed.incrementAndGet();
+    }
+
+    @Override
+    public void onIgnored(TypeDescription typeDescription, ClassLoader classLoader, JavaModule module,
+            boolean loaded) {
+        ignored.incrementAndGet();
+    }
+
+    @Override
+    public void onError(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded,
+            Throwable throwable) {
+        errors.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+        long[] transformation = threadTransformation.get();
+        if (--transformation[1] == 0) {
+            transformationNanos.addAndGet(System.nanoTime() - transformation[0]);
+        }
+    }
+
+    /** @return The {@link TransformationStatistics#discovered} field value */
+    public long getDiscovered() {
+        return discovered.get();
+    }
+
+    /** @return The {@link TransformationStatistics#transformed} field value */
+    public long getTransformed() {
+        return transformed.get();
+    }
+
+    /** @return The {@link TransformationStatistics#ignored} field value */
+    public long getIgnored() {
+        return ignored.get();
+    }
+
+    /** @return The {@link TransformationStatistics#errors} field value */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /** @return The {@link TransformationStatistics#transformationNanos} field value */
+    public long getTransformationNanos() {
+        return transformationNanos.get();
+    }
+
+    /** @return The {@link TransformationStatistics#examinedMethods} field value */
+    public long getExaminedMethods() {
+        return examinedMethods.get();
+    }
+
+    /** @return The {@link TransformationStatistics#matchedMethods} field value */
+    public long getMatchedMethods() {
+        return matchedMethods.get();
+    }
+
+    /** @return The {@link TransformationStatistics#matcherNanos} field value */
+    public long getMatcherNanos() {
+        return matcherNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "discovered: " + getDiscovered()
+                + ", transformed: " + getTransformed()
+                + ", ignored: " + getIgnored()
+                + ", errors: " + getErrors()
+                + ", transformation: " + getTransformationNanos() / 1000000 + " ms"
+                + ", methods matched: " + getMatchedMethods() + " / " + getExaminedMethods()
+                + ", matcher: " + getMatcherNanos() / 1000000 + " ms";
+    }
+
+    private static class InstanceHolder {
+        private static final TransformationStatistics INSTANCE = new TransformationStatistics();
+    }
+
+}
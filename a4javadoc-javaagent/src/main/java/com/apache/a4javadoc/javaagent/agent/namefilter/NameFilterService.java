@@ -14,7 +14,9 @@ import com.apache.a4javadoc.javaagent.agent.Agent;
 import com.apache.a4javadoc.javaagent.parameter.ParameterService;
 
 /**
- * Singleton. Parser for {@link System} parameters. Stateful object contains {@link #includeNames} and {@link #excludeNames} to be instrumented.
+ * Singleton. Parser for {@link System} parameters. Stateful object contains {@link #includeNames} and {@link #excludeNames} to be instrumented.<br>
+ * The names are read once by the constructor into final fields, so the {@link #matches(String)} method
+ * called on class loading threads reads them without synchronization.
  * @author Kyrylo Semenko
  */
 public class NameFilterService {
@@ -55,74 +57,49 @@ public class NameFilterService {
     private static final String RULE_SEPARATOR = "|";
     
     /** Strings obtained from {@link #PROPERTY_INCLUDE_NAMES} */
-    Set<String> includeNames = null;
+    final Set<String> includeNames;
     
     /** Strings obtained from {@link #PROPERTY_EXCLUDE_NAMES} */
-    Set<String> excludeNames = null;
+    final Set<String> excludeNames;
     
-    private static NameFilterService instance;
+    private static volatile NameFilterService instance;
     
     /**
-     * The static faktory 
+     * The static faktory. The {@link ParameterService} has to be loaded before the first call.
      * @return a {@link NameFilterService} single instance
      * 
      */
     public static NameFilterService getInstance() {
-        if (instance == null) {
-            instance = new NameFilterService();
+        NameFilterService result = instance;
+        if (result == null) {
+            synchronized (NameFilterService.class) {
+                result = instance;
+                if (result == null) {
+                    result = new NameFilterService();
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
     
-    /** The private empty constructor */
+    /** The private constructor reads the {@link #includeNames} and the {@link #excludeNames} from the {@link ParameterService} */
     private NameFilterService() {
-        // empty
+        includeNames = readNames(PROPERTY_INCLUDE_NAMES);
+        excludeNames = readNames(PROPERTY_EXCLUDE_NAMES);
     }
 
     /**
-     * If the {@link #includeNames} is null, fill it out.
-     * @return {@link #includeNames}
-     */
-    private Set<String> getIncludeNames() {
-        if (includeNames == null) {
-            prepareIncludes();
-        }
-        return includeNames;
-    }
-    
-    /**
-     * If the {@link #excludeNames} is null, fill it out.
-     * @return {@link #excludeNames}
+     * @param propertyName the {@link #PROPERTY_INCLUDE_NAMES} or the {@link #PROPERTY_EXCLUDE_NAMES}
+     * @return the names separated by the {@link #RULE_SEPARATOR} or an empty set if the property is not defined
      */
-    private Set<String> getExcludeNames() {
-        if (excludeNames == null) {
-            prepareExcludes();
-        }
-        return excludeNames;
-    }
-    
-    /** If the {@link #includeNames} is null, fill it out. Else do nothing. */
-    private void prepareIncludes() {
-        String includeNamesString = ParameterService.getInstance().getProperty(PROPERTY_INCLUDE_NAMES);
-        logger.info("Property {}: '{}'", PROPERTY_INCLUDE_NAMES, includeNamesString);
-        
-        if (includeNamesString != null) {
-            includeNames = new HashSet<>(Arrays.asList(includeNamesString.split(Pattern.quote(RULE_SEPARATOR))));
-        } else {
-            includeNames = Collections.emptySet();
-        }
-    }
-
-    /** If the {@link #excludeNames} is null, fill it out. Else do nothing. */
-    private void prepareExcludes() {
-        String excludeNamesString = ParameterService.getInstance().getProperty(PROPERTY_EXCLUDE_NAMES);
-        logger.info("Property {}: '{}'", PROPERTY_EXCLUDE_NAMES, excludeNamesString);
-        excludeNames = new HashSet<>();
-        if (excludeNamesString != null) {
-            excludeNames = new HashSet<>(Arrays.asList(excludeNamesString.split(Pattern.quote(RULE_SEPARATOR))));
-        } else {
-            excludeNames = Collections.emptySet();
+    private static Set<String> readNames(String propertyName) {
+        String names = ParameterService.getInstance().getProperty(propertyName);
+        logger.info("Property {}: '{}'", propertyName, names);
+        if (names == null) {
+            return Collections.emptySet();
         }
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(names.split(Pattern.quote(RULE_SEPARATOR)))));
     }
 
     /**
@@ -133,7 +110,7 @@ public class NameFilterService {
      */
     public boolean matches(String name) {
         boolean include = false;
-        for (String includeName : getIncludeNames()) {
+        for (String includeName : includeNames) {
             if (FilenameUtils.wildcardMatch(name, includeName)) {
                 include = true;
                 break;
@@ -142,7 +119,7 @@ public class NameFilterService {
         if (!include) {
             return false;
         }
-        for (String excludeName : getExcludeNames()) {
+        for (String excludeName : excludeNames) {
             if (FilenameUtils.wildcardMatch(name, excludeName)) {
                 return false;
             }
@@ -13,7 +13,9 @@ import org.slf4j.LoggerFactory;
 import com.apache.a4javadoc.exception.AppRuntimeException;
 
 /**
- * Stateful singleton with that holds application parameters
+ * Stateful singleton with that holds application parameters.<br>
+ * The parameters are loaded by the {@link com.apache.a4javadoc.javaagent.agent.Agent} before the other singletons
+ * are created, the {@link #properties} field is volatile, so the loaded values are visible to all threads.
  * @author Kyrylo Semenko
  */
 public class ParameterService {
@@ -24,18 +26,25 @@ public class ParameterService {
 
     private static final Logger logger = LoggerFactory.getLogger(ParameterService.class);
     
-    private static ParameterService instance;
+    private static volatile ParameterService instance;
 
     /** @return a {@link ParameterService#instance} singleton */
     public static ParameterService getInstance() {
-        if (instance == null) {
-            instance = new ParameterService();
+        ParameterService result = instance;
+        if (result == null) {
+            synchronized (ParameterService.class) {
+                result = instance;
+                if (result == null) {
+                    result = new ParameterService();
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
 
     /** Configuration properties loaded from a file */
-    Properties properties;
+    volatile Properties properties;
     
     /**
      * An empty private constructor
@@ -87,14 +96,15 @@ public class ParameterService {
      * @return the property value. Return <b>null</b> if the property could not be found.
      */
     public String getProperty(String propertyName) {
-        if (properties == null) {
+        Properties loadedProperties = properties;
+        if (loadedProperties == null) {
             logger.error(PROPERTIES_IS_NULL);
             throw new AppRuntimeException(PROPERTIES_IS_NULL);
         }
-        if (!properties.containsKey(propertyName)) {
+        if (!loadedProperties.containsKey(propertyName)) {
             return null;
         }
-        return properties.getProperty(propertyName);
+        return loadedProperties.getProperty(propertyName);
     }
 
 }
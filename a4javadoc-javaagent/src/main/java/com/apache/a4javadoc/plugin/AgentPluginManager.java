@@ -1,5 +1,7 @@
 package com.apache.a4javadoc.plugin;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.pf4j.DefaultPluginManager;
@@ -10,26 +12,45 @@ import org.slf4j.LoggerFactory;
 import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
 
 /** 
- * Stateful singleton creates an instance of a {@link PluginManager}, creates and holds the plugins in a {@link #methodStateRecorders}.
+ * Stateful singleton creates an instance of a {@link PluginManager}, creates and holds the plugins in a {@link #methodStateRecorders}.<br>
+ * The {@link com.apache.a4javadoc.javaagent.agent.Agent} creates the instance in the premain method,
+ * so the plugins are loaded once and before the first intercepted call.<br>
+ * Each plugin is wrapped in a {@link GuardedRecorder} configured by the {@link DispatchSettings}, so a failing or slow
+ * plugin affects neither the application nor the other plugins, and a blocked
+ * {@link com.apache.a4javadoc.javaagent.api.QueuedMethodStateRecorder} does not block them. The queued events
+ * are delivered by a shutdown hook.
  * @author Kyrylo Semenko
  */
 public class AgentPluginManager {
     private static final Logger logger = LoggerFactory.getLogger(AgentPluginManager.class);
     
-    /** Plugins of the module */
-    private List<MethodStateRecorder> methodStateRecorders;
+    /** How long the shutdown hook waits for the queued events of a recorder */
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
     
-    private static AgentPluginManager instance;
+    /** Guarded plugins of the module, volatile because benchmarks replace them by the {@link #setMethodStateRecorders(List)} method */
+    private volatile List<GuardedRecorder> methodStateRecorders;
+    
+    /** Settings of the {@link GuardedRecorder}s */
+    private final DispatchSettings dispatchSettings;
+    
+    private static volatile AgentPluginManager instance;
     
     /**
      * A faktory of the singleton instance of the class
      * @return the singleton
      */
     public static AgentPluginManager getInstance() {
-        if (instance == null) {
-            instance = new AgentPluginManager();
+        AgentPluginManager result = instance;
+        if (result == null) {
+            synchronized (AgentPluginManager.class) {
+                result = instance;
+                if (result == null) {
+                    result = new AgentPluginManager();
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
     
     /** Create an instance of a {@link PluginManager} */
@@ -37,13 +58,59 @@ public class AgentPluginManager {
         final PluginManager pluginManager = new DefaultPluginManager();
         pluginManager.loadPlugins();
         pluginManager.startPlugins();
-        methodStateRecorders = pluginManager.getExtensions(MethodStateRecorder.class);
-        logger.debug("Initialized");
+        dispatchSettings = DispatchSettings.fromSystemProperties();
+        methodStateRecorders = guard(pluginManager.getExtensions(MethodStateRecorder.class));
+        logger.info("Initialized, recorders: {}, dispatch settings: {}", methodStateRecorders.size(), dispatchSettings);
+        if (dispatchSettings.getQueueCapacity() > 0) {
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    close(methodStateRecorders);
+                }
+            }, "a4javadoc-recorders-shutdown"));
+        }
+    }
+
+    /**
+     * @param recorders the plugins
+     * @return an unmodifiable list of the wrapped plugins
+     */
+    private List<GuardedRecorder> guard(List<MethodStateRecorder> recorders) {
+        List<GuardedRecorder> result = new ArrayList<>(recorders.size());
+        for (MethodStateRecorder recorder : recorders) {
+            result.add(new GuardedRecorder(recorder, dispatchSettings));
+        }
+        return Collections.unmodifiableList(result);
     }
 
-    /** @return The {@link AgentPluginManager#methodStateRecorders} field */
-    public List<MethodStateRecorder> getMethodStateRecorders() {
+    /**
+     * Deliver the queued events and stop the consumers.
+     * @param recorders the closed recorders
+     */
+    private static void close(List<GuardedRecorder> recorders) {
+        for (GuardedRecorder recorder : recorders) {
+            recorder.close(CLOSE_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * The element type is the {@link GuardedRecorder} class rather than the interface, so the calls of the
+     * interceptors are monomorphic.
+     * @return The {@link AgentPluginManager#methodStateRecorders} field
+     */
+    public List<GuardedRecorder> getMethodStateRecorders() {
         return methodStateRecorders;
     }
 
+    /**
+     * Replace the loaded plugins, for example by benchmarks, where the recorders are not installed
+     * in a plugins directory. The replaced recorders are closed.
+     * @param methodStateRecorders the plugins, they are wrapped to the {@link AgentPluginManager#methodStateRecorders} field
+     */
+    public void setMethodStateRecorders(List<MethodStateRecorder> methodStateRecorders) {
+        List<GuardedRecorder> replaced = this.methodStateRecorders;
+        this.methodStateRecorders = guard(methodStateRecorders);
+        close(replaced);
+    }
+
 }
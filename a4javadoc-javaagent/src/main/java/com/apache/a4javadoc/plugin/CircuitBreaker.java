@@ -0,0 +1,180 @@
+package com.apache.a4javadoc.plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disables a recorder of a {@link GuardedRecorder} after {@link DispatchSettings#getFailureThreshold()} consecutive
+ * failures or {@link DispatchSettings#getSlowCallThreshold()} consecutive calls above the
+ * {@link DispatchSettings#getLatencyBudgetNanos()}, if the budget is defined.<br>
+ * An {@link State#OPEN} breaker rejects all calls for a backoff time. Then it lets a single trial call through
+ * in the {@link State#HALF_OPEN} state. A successful trial within the budget closes the breaker and resets the backoff,
+ * otherwise the breaker opens again with a doubled backoff up to the {@link DispatchSettings#getMaxBackoffNanos()}.<br>
+ * The methods take the current {@link System#nanoTime()} from the caller, which measures the call anyway.
+ * A closed breaker does not write shared state while the calls succeed in time.
+ * @author Kyrylo Semenko
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /** States of the {@link CircuitBreaker} */
+    public enum State {
+        /** Calls are allowed */
+        CLOSED,
+        /** Calls are rejected until the backoff elapses */
+        OPEN,
+        /** A single trial call is allowed */
+        HALF_OPEN
+    }
+
+    /** The name of the guarded recorder for logging */
+    private final String name;
+
+    /** The thresholds */
+    private final DispatchSettings settings;
+
+    /** The current state */
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /** Number of failures since the last successful call */
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /** Number of slow calls since the last call within the budget */
+    private final AtomicInteger consecutiveSlowCalls = new AtomicInteger();
+
+    /** Number of transitions to the {@link State#OPEN} state */
+    private final AtomicLong trips = new AtomicLong();
+
+    /** The current backoff, written under the lock of the instance */
+    private volatile long backoffNanos;
+
+    /** The end of the current backoff, written before the {@link State#OPEN} state is published */
+    private volatile long openUntilNanos;
+
+    /**
+     * @param name see the {@link #name} field
+     * @param settings see the {@link #settings} field
+     */
+    public CircuitBreaker(String name, DispatchSettings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.backoffNanos = settings.getBackoffNanos();
+    }
+
+    /**
+     * Check whether a call is allowed. When the backoff of an open breaker elapsed, exactly one caller gets
+     * the trial call and has to report its outcome by the {@link #succeeded(long, long)} or {@link #failed(long)} method,
+     * or return it by the {@link #skipped(long)} method if the recorder is not called.
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return 'true' if the recorder can be called
+     */
+    public boolean allows(long nowNanos) {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        return current == State.OPEN && nowNanos - openUntilNanos >= 0
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    /**
+     * Report a call that did not throw.
+     * @param callNanos duration of the call
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public void succeeded(long callNanos, long nowNanos) {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        long latencyBudgetNanos = settings.getLatencyBudgetNanos();
+        boolean slow = latencyBudgetNanos > 0 && callNanos > latencyBudgetNanos;
+        if (state.get() == State.HALF_OPEN) {
+            if (slow) {
+                open(State.HALF_OPEN, nowNanos, "a slow trial call of " + TimeUnit.NANOSECONDS.toMicros(callNanos) + " us");
+            } else {
+                close();
+            }
+        } else if (!slow) {
+            if (consecutiveSlowCalls.get() != 0) {
+                consecutiveSlowCalls.set(0);
+            }
+        } else if (consecutiveSlowCalls.incrementAndGet() >= settings.getSlowCallThreshold()) {
+            open(State.CLOSED, nowNanos, settings.getSlowCallThreshold() + " consecutive calls above the latency budget");
+        }
+    }
+
+    /**
+     * Report a call that threw an exception.
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public void failed(long nowNanos) {
+        if (state.get() == State.HALF_OPEN) {
+            open(State.HALF_OPEN, nowNanos, "a failed trial call");
+        } else if (consecutiveFailures.incrementAndGet() >= settings.getFailureThreshold()) {
+            open(State.CLOSED, nowNanos, settings.getFailureThreshold() + " consecutive failures");
+        }
+    }
+
+    /**
+     * Open the breaker if it is still in the expected state. The backoff doubles after a failed trial.
+     * @param expected the state in which the trip was detected
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @param reason for logging
+     */
+    private synchronized void open(State expected, long nowNanos, String reason) {
+        if (state.get() != expected) {
+            return;
+        }
+        if (expected == State.HALF_OPEN) {
+            backoffNanos = Math.min(backoffNanos * 2, settings.getMaxBackoffNanos());
+        }
+        openUntilNanos = nowNanos + backoffNanos;
+        consecutiveFailures.set(0);
+        consecutiveSlowCalls.set(0);
+        trips.incrementAndGet();
+        state.set(State.OPEN);
+        logger.warn("Recorder {} disabled for {} ms after {}", name, TimeUnit.NANOSECONDS.toMillis(backoffNanos), reason);
+    }
+
+    /**
+     * Return the trial granted by the {@link #allows(long)} method, which could not be performed,
+     * for example because the queue of the recorder is full. The breaker opens again for the current backoff,
+     * which is not doubled, because the recorder has not been called.
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public synchronized void skipped(long nowNanos) {
+        if (state.get() != State.HALF_OPEN) {
+            return;
+        }
+        openUntilNanos = nowNanos + backoffNanos;
+        state.set(State.OPEN);
+    }
+
+    /** Close the breaker after a successful trial and reset the backoff */
+    private synchronized void close() {
+        if (state.get() != State.HALF_OPEN) {
+            return;
+        }
+        backoffNanos = settings.getBackoffNanos();
+        consecutiveSlowCalls.set(0);
+        state.set(State.CLOSED);
+        logger.info("Recorder {} enabled after a successful trial call", name);
+    }
+
+    /** @return the current state */
+    public State getState() {
+        return state.get();
+    }
+
+    /** @return number of transitions to the {@link State#OPEN} state */
+    public long getTrips() {
+        return trips.get();
+    }
+
+}
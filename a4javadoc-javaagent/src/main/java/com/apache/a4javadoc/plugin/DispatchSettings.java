@@ -0,0 +1,138 @@
+package com.apache.a4javadoc.plugin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable settings of the {@link GuardedRecorder}s and their {@link CircuitBreaker}s.
+ * The {@link #fromSystemProperties()} method reads them from {@link System} properties,
+ * for example <i>-Da4javadoc.dispatch.queueCapacity=65536</i>, like the settings of the recorder plugins.
+ * @author Kyrylo Semenko
+ */
+public class DispatchSettings {
+
+    /** See the {@link #queueCapacity} field */
+    static final String QUEUE_CAPACITY_PROPERTY = "a4javadoc.dispatch.queueCapacity";
+
+    /** See the {@link #failureThreshold} field */
+    static final String FAILURE_THRESHOLD_PROPERTY = "a4javadoc.dispatch.failureThreshold";
+
+    /** See the {@link #latencyBudgetNanos} field, the value is in microseconds */
+    static final String LATENCY_BUDGET_PROPERTY = "a4javadoc.dispatch.latencyBudgetMicros";
+
+    /** See the {@link #slowCallThreshold} field */
+    static final String SLOW_CALL_THRESHOLD_PROPERTY = "a4javadoc.dispatch.slowCallThreshold";
+
+    /** See the {@link #backoffNanos} field, the value is in milliseconds */
+    static final String BACKOFF_PROPERTY = "a4javadoc.dispatch.backoffMillis";
+
+    /** See the {@link #maxBackoffNanos} field, the value is in milliseconds */
+    static final String MAX_BACKOFF_PROPERTY = "a4javadoc.dispatch.maxBackoffMillis";
+
+    static final int DEFAULT_QUEUE_CAPACITY = 0;
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    static final long DEFAULT_LATENCY_BUDGET_MICROS = 0;
+
+    static final int DEFAULT_SLOW_CALL_THRESHOLD = 100;
+
+    static final long DEFAULT_BACKOFF_MILLIS = 1000;
+
+    static final long DEFAULT_MAX_BACKOFF_MILLIS = 60000;
+
+    /**
+     * Capacity of the queue of each {@link com.apache.a4javadoc.javaagent.api.QueuedMethodStateRecorder}.
+     * 0 means the recorders are called synchronously by the application threads, it is the default.
+     * Other recorders are called synchronously in any case, because they can depend on the calling thread,
+     * like the log file recorder, and can read the arguments, which the application changes after the call.
+     */
+    private final int queueCapacity;
+
+    /** Number of consecutive failures that open the {@link CircuitBreaker} */
+    private final int failureThreshold;
+
+    /**
+     * A call that takes longer is slow. 0 disables the detection of slow calls, it is the default, because the duration
+     * of a recording depends on the recorder and on the recorded objects, for example the text format of the log
+     * file recorder takes milliseconds.
+     */
+    private final long latencyBudgetNanos;
+
+    /** Number of consecutive slow calls that open the {@link CircuitBreaker} */
+    private final int slowCallThreshold;
+
+    /** How long the {@link CircuitBreaker} stays open after the first trip, it doubles with each failed trial */
+    private final long backoffNanos;
+
+    /** The longest time the {@link CircuitBreaker} stays open */
+    private final long maxBackoffNanos;
+
+    /**
+     * @param queueCapacity see the {@link #queueCapacity} field
+     * @param failureThreshold see the {@link #failureThreshold} field
+     * @param latencyBudgetMicros see the {@link #latencyBudgetNanos} field
+     * @param slowCallThreshold see the {@link #slowCallThreshold} field
+     * @param backoffMillis see the {@link #backoffNanos} field
+     * @param maxBackoffMillis see the {@link #maxBackoffNanos} field
+     */
+    public DispatchSettings(int queueCapacity, int failureThreshold, long latencyBudgetMicros, int slowCallThreshold,
+            long backoffMillis, long maxBackoffMillis) {
+        this.queueCapacity = queueCapacity;
+        this.failureThreshold = failureThreshold;
+        this.latencyBudgetNanos = TimeUnit.MICROSECONDS.toNanos(latencyBudgetMicros);
+        this.slowCallThreshold = slowCallThreshold;
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        this.maxBackoffNanos = Math.max(backoffNanos, TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis));
+    }
+
+    /** @return the settings defined by {@link System} properties or the default values */
+    public static DispatchSettings fromSystemProperties() {
+        return new DispatchSettings(
+                Integer.getInteger(QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY),
+                Integer.getInteger(FAILURE_THRESHOLD_PROPERTY, DEFAULT_FAILURE_THRESHOLD),
+                Long.getLong(LATENCY_BUDGET_PROPERTY, DEFAULT_LATENCY_BUDGET_MICROS),
+                Integer.getInteger(SLOW_CALL_THRESHOLD_PROPERTY, DEFAULT_SLOW_CALL_THRESHOLD),
+                Long.getLong(BACKOFF_PROPERTY, DEFAULT_BACKOFF_MILLIS),
+                Long.getLong(MAX_BACKOFF_PROPERTY, DEFAULT_MAX_BACKOFF_MILLIS));
+    }
+
+    /** @return The {@link DispatchSettings#queueCapacity} field */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /** @return The {@link DispatchSettings#failureThreshold} field */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /** @return The {@link DispatchSettings#latencyBudgetNanos} field */
+    public long getLatencyBudgetNanos() {
+        return latencyBudgetNanos;
+    }
+
+    /** @return The {@link DispatchSettings#slowCallThreshold} field */
+    public int getSlowCallThreshold() {
+        return slowCallThreshold;
+    }
+
+    /** @return The {@link DispatchSettings#backoffNanos} field */
+    public long getBackoffNanos() {
+        return backoffNanos;
+    }
+
+    /** @return The {@link DispatchSettings#maxBackoffNanos} field */
+    public long getMaxBackoffNanos() {
+        return maxBackoffNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "queueCapacity=" + queueCapacity + ", failureThreshold=" + failureThreshold
+                + ", latencyBudgetMicros=" + TimeUnit.NANOSECONDS.toMicros(latencyBudgetNanos)
+                + ", slowCallThreshold=" + slowCallThreshold
+                + ", backoffMillis=" + TimeUnit.NANOSECONDS.toMillis(backoffNanos)
+                + ", maxBackoffMillis=" + TimeUnit.NANOSECONDS.toMillis(maxBackoffNanos);
+    }
+
+}
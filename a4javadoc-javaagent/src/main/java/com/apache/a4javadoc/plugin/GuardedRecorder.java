@@ -0,0 +1,323 @@
+package com.apache.a4javadoc.plugin;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
+import com.apache.a4javadoc.javaagent.api.QueuedMethodStateRecorder;
+import com.apache.a4javadoc.javaagent.api.StateAfterInvocation;
+import com.apache.a4javadoc.javaagent.api.StateBeforeInvocation;
+
+/**
+ * Isolates the application and the other recorders from a {@link MethodStateRecorder} that throws, is slow or blocks.<br>
+ * Exceptions of the recorder are counted and never reach the intercepted method. Each call is measured
+ * and reported to a {@link CircuitBreaker}, which disables the recorder after repeated failures or slow calls.
+ * Events are rejected while the recorder is disabled, but invocations are not split: the end of an invocation
+ * is passed to the recorder if its start was, and rejected if its start was not, so the recorder does not keep
+ * invocations that never end. Queued events can still be dropped individually when the queue is full.<br>
+ * If the recorder is a {@link QueuedMethodStateRecorder} and the {@link DispatchSettings#getQueueCapacity()}
+ * is positive, the events are put to a bounded queue of the recorder and delivered by its own daemon thread,
+ * so a blocked recorder does not block the application threads. Events are dropped when the queue is full.
+ * Otherwise the recorder is called by the application thread, which is required by recorders that depend
+ * on the calling thread or read the arguments of the states.<br>
+ * The counters and the state of the breaker are exposed by the getters and by the {@link #toString()} method.
+ * @author Kyrylo Semenko
+ */
+public class GuardedRecorder implements MethodStateRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuardedRecorder.class);
+
+    /** How long the consumer waits for an event before it checks the {@link #closed} flag */
+    private static final long POLL_MILLIS = 100;
+
+    /** The guarded recorder */
+    private final MethodStateRecorder recorder;
+
+    /** The name of the recorder for logging and the name of the consumer thread */
+    private final String name;
+
+    /** The breaker of the recorder */
+    private final CircuitBreaker circuitBreaker;
+
+    /** Events waiting for the consumer, 'null' if the recorder is called synchronously */
+    private final BlockingQueue<Object> queue;
+
+    /** The thread that delivers the events from the {@link #queue}, 'null' if the recorder is called synchronously */
+    private final Thread consumer;
+
+    /** Number of exceptions thrown by the recorder */
+    private final AtomicLong failures = new AtomicLong();
+
+    /** Number of events rejected by the open {@link #circuitBreaker} and ends of invocations with rejected starts */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /** Invocations of each thread, whose {@link StateBeforeInvocation}s were passed to the recorder or queued */
+    private final ThreadLocal<AcceptedInvocations> acceptedInvocations = new ThreadLocal<AcceptedInvocations>() {
+        @Override
+        protected AcceptedInvocations initialValue() {
+            return new AcceptedInvocations();
+        }
+    };
+
+    /** Number of events dropped because the {@link #queue} was full */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Set by the {@link #close(long)} method, the consumer delivers the queued events and stops */
+    private volatile boolean closed;
+
+    /**
+     * Start the consumer thread if the recorder is a {@link QueuedMethodStateRecorder}
+     * and the {@link DispatchSettings#getQueueCapacity()} is positive.
+     * @param recorder see the {@link #recorder} field
+     * @param settings the queue capacity and the thresholds of the {@link CircuitBreaker}
+     */
+    public GuardedRecorder(MethodStateRecorder recorder, DispatchSettings settings) {
+        this.recorder = recorder;
+        this.name = recorder.getClass().getName();
+        this.circuitBreaker = new CircuitBreaker(name, settings);
+        if (settings.getQueueCapacity() > 0 && recorder instanceof QueuedMethodStateRecorder) {
+            queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+            consumer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    consume();
+                }
+            }, "a4javadoc-recorder-" + recorder.getClass().getSimpleName());
+            consumer.setDaemon(true);
+            consumer.start();
+        } else {
+            if (settings.getQueueCapacity() > 0) {
+                logger.info("Recorder {} is called synchronously, it is not a {}", name,
+                        QueuedMethodStateRecorder.class.getSimpleName());
+            }
+            queue = null;
+            consumer = null;
+        }
+    }
+
+    @Override
+    public void recordBefore(StateBeforeInvocation stateBeforeInvocation) {
+        if (dispatch(stateBeforeInvocation, false)) {
+            acceptedInvocations.get().push(idOf(stateBeforeInvocation.getMethodInvocationId()));
+        }
+    }
+
+    @Override
+    public void recordAfter(StateAfterInvocation stateAfterInvocation) {
+        if (acceptedInvocations.get().remove(idOf(stateAfterInvocation.getMethodInvocationId()))) {
+            dispatch(stateAfterInvocation, true);
+        } else {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param invocationId can be 'null'
+     * @return the invocationId or -1
+     */
+    private static long idOf(Long invocationId) {
+        return invocationId == null ? -1 : invocationId;
+    }
+
+    /**
+     * Reject the event if the recorder is disabled, otherwise put it to the {@link #queue} or deliver it.
+     * If the event is the trial call of the {@link #circuitBreaker} and the queue is full,
+     * the breaker is opened again, so it does not wait for an outcome that never comes.<br>
+     * The end of an accepted invocation is not rejected, but the breaker does not measure it
+     * if the recorder is disabled.
+     * @param event a {@link StateBeforeInvocation} or a {@link StateAfterInvocation}
+     * @param ending 'true' if the event ends an invocation, whose start was accepted
+     * @return 'true' if the event has been delivered or queued
+     */
+    private boolean dispatch(Object event, boolean ending) {
+        long start = System.nanoTime();
+        boolean trial = circuitBreaker.getState() != CircuitBreaker.State.CLOSED;
+        boolean allowed = circuitBreaker.allows(start);
+        if (!allowed && !ending) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        if (queue == null) {
+            deliver(event, start, allowed);
+            return true;
+        }
+        if (queue.offer(event)) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        if (allowed && trial) {
+            circuitBreaker.skipped(start);
+        }
+        return false;
+    }
+
+    /**
+     * Call the recorder, measure the call and report it to the {@link #circuitBreaker}.
+     * @param event a {@link StateBeforeInvocation} or a {@link StateAfterInvocation}
+     * @param start the {@link System#nanoTime()} before the call
+     * @param measured 'false' if the breaker has not allowed the call, so its outcome is not reported
+     */
+    private void deliver(Object event, long start, boolean measured) {
+        try {
+            if (event instanceof StateBeforeInvocation) {
+                recorder.recordBefore((StateBeforeInvocation) event);
+            } else {
+                recorder.recordAfter((StateAfterInvocation) event);
+            }
+        } catch (Exception | LinkageError e) {
+            failed(e, measured);
+            return;
+        }
+        if (measured) {
+            long end = System.nanoTime();
+            circuitBreaker.succeeded(end - start, end);
+        }
+    }
+
+    /**
+     * Count and log the failure and report it to the {@link #circuitBreaker}.
+     * @param e the exception thrown by the recorder
+     * @param measured 'false' if the breaker has not allowed the call, so the failure is not reported
+     */
+    private void failed(Throwable e, boolean measured) {
+        if (failures.incrementAndGet() == 1) {
+            logger.warn("Recorder {} failed, next failures are logged on the debug level", name, e);
+        } else {
+            logger.debug("Recorder {} failed", name, e);
+        }
+        if (measured) {
+            circuitBreaker.failed(System.nanoTime());
+        }
+    }
+
+    /** The loop of the {@link #consumer}. Events queued before the breaker opened are rejected. */
+    private void consume() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Object event = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    continue;
+                }
+                if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                    rejected.incrementAndGet();
+                } else {
+                    deliver(event, System.nanoTime(), true);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop the consumer after it delivers the queued events, wait for it at most the timeout.
+     * The next events are still delivered synchronously or dropped.
+     * @param timeoutMillis the longest wait
+     */
+    public void close(long timeoutMillis) {
+        closed = true;
+        if (consumer == null) {
+            return;
+        }
+        try {
+            consumer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Closed {}", this);
+    }
+
+    /** @return The {@link GuardedRecorder#recorder} field */
+    public MethodStateRecorder getRecorder() {
+        return recorder;
+    }
+
+    /** @return The {@link GuardedRecorder#circuitBreaker} field */
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /** @return the state of the {@link #circuitBreaker} */
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    /** @return number of times the recorder was disabled */
+    public long getTrips() {
+        return circuitBreaker.getTrips();
+    }
+
+    /** @return The {@link GuardedRecorder#failures} field */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /** @return The {@link GuardedRecorder#rejected} field */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /** @return The {@link GuardedRecorder#dropped} field */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** @return number of queued events, 0 if the recorder is called synchronously */
+    public int getQueued() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Ids of the started invocations of a thread, the last one is on the top.
+     * Each thread has its own instance, so it is not synchronized.
+     */
+    private static final class AcceptedInvocations {
+
+        /** The initial capacity of the stack */
+        private static final int INITIAL_CAPACITY = 32;
+
+        /** The invocation ids */
+        private long[] ids = new long[INITIAL_CAPACITY];
+
+        /** Number of invocations on the stack */
+        private int size;
+
+        /**
+         * @param invocationId the started invocation
+         */
+        private void push(long invocationId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = invocationId;
+        }
+
+        /**
+         * Remove the ended invocation and the invocations above it.
+         * @param invocationId the ended invocation
+         * @return 'false' if the stack does not contain the invocation
+         */
+        private boolean remove(long invocationId) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i] == invocationId) {
+                    size = i;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " [state=" + getState() + ", trips=" + getTrips() + ", failures=" + getFailures()
+                + ", rejected=" + getRejected() + ", dropped=" + getDropped() + ", queued=" + getQueued() + "]";
+    }
+
+}
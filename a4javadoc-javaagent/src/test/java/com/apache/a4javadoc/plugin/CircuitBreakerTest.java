@@ -0,0 +1,120 @@
+package com.apache.a4javadoc.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class CircuitBreakerTest {
+
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long FAST = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private static final long SLOW = TimeUnit.MICROSECONDS.toNanos(500);
+
+    private CircuitBreaker circuitBreaker;
+
+    /** 3 failures, 100 us budget, 2 slow calls, 10 ms backoff up to 30 ms */
+    @Before
+    public void setUp() {
+        circuitBreaker = new CircuitBreaker("test", new DispatchSettings(0, 3, 100, 2, 10, 30));
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#failed(long)}
+     */
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        circuitBreaker.failed(0);
+        circuitBreaker.failed(0);
+        circuitBreaker.succeeded(FAST, 0);
+        circuitBreaker.failed(0);
+        circuitBreaker.failed(0);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.failed(0);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getTrips());
+        assertFalse(circuitBreaker.allows(9 * MILLISECOND));
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#succeeded(long, long)}
+     */
+    @Test
+    public void testOpensAfterConsecutiveSlowCalls() {
+        circuitBreaker.succeeded(SLOW, 0);
+        circuitBreaker.succeeded(FAST, 0);
+        circuitBreaker.succeeded(SLOW, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.succeeded(SLOW, 0);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#allows(long)}
+     */
+    @Test
+    public void testHalfOpenAllowsSingleTrial() {
+        open(0);
+        assertTrue(circuitBreaker.allows(10 * MILLISECOND));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allows(10 * MILLISECOND));
+        circuitBreaker.succeeded(FAST, 10 * MILLISECOND);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allows(10 * MILLISECOND));
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#failed(long)} in the {@link CircuitBreaker.State#HALF_OPEN} state
+     */
+    @Test
+    public void testBackoffDoublesUpToMaximum() {
+        open(0);
+        assertTrue(circuitBreaker.allows(10 * MILLISECOND));
+        circuitBreaker.failed(10 * MILLISECOND);
+        assertFalse(circuitBreaker.allows(29 * MILLISECOND));
+        assertTrue(circuitBreaker.allows(30 * MILLISECOND));
+        circuitBreaker.succeeded(SLOW, 30 * MILLISECOND);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allows(59 * MILLISECOND));
+        assertTrue(circuitBreaker.allows(60 * MILLISECOND));
+        circuitBreaker.succeeded(FAST, 60 * MILLISECOND);
+        open(60 * MILLISECOND);
+        assertFalse("The backoff is reset by closing", circuitBreaker.allows(69 * MILLISECOND));
+        assertTrue(circuitBreaker.allows(70 * MILLISECOND));
+        assertEquals(4, circuitBreaker.getTrips());
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#skipped(long)}
+     */
+    @Test
+    public void testSkippedTrialKeepsBackoff() {
+        open(0);
+        assertTrue(circuitBreaker.allows(10 * MILLISECOND));
+        circuitBreaker.skipped(10 * MILLISECOND);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allows(19 * MILLISECOND));
+        assertTrue(circuitBreaker.allows(20 * MILLISECOND));
+        assertEquals(1, circuitBreaker.getTrips());
+    }
+
+    /**
+     * @param nowNanos time of the failures
+     */
+    private void open(long nowNanos) {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.failed(nowNanos);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+}
@@ -0,0 +1,255 @@
+package com.apache.a4javadoc.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
+import com.apache.a4javadoc.javaagent.api.QueuedMethodStateRecorder;
+import com.apache.a4javadoc.javaagent.api.StateAfterInvocation;
+import com.apache.a4javadoc.javaagent.api.StateBeforeInvocation;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class GuardedRecorderTest {
+
+    private static final StateBeforeInvocation BEFORE = new StateBeforeInvocation(1L, new Date(), new StackTraceElement[0],
+            "methodName", "declaringType", "methodDescriptor", "methodSignature", "returnType", "methodComplexName",
+            new Object[0]);
+
+    private static final StateAfterInvocation AFTER = new StateAfterInvocation(1L, new Date(), "methodComplexName", null,
+            null, new Object[0]);
+
+    /**
+     * Exceptions of the recorder do not reach the caller and disable the recorder.
+     * The end of the invocation, whose start disabled the recorder, is still passed to it.
+     */
+    @Test
+    public void testFailingRecorderIsDisabled() {
+        CountingRecorder recorder = new CountingRecorder(true, null);
+        GuardedRecorder guardedRecorder = new GuardedRecorder(recorder, new DispatchSettings(0, 3, 1000000, 100, 60000, 60000));
+        for (int i = 0; i < 5; i++) {
+            guardedRecorder.recordBefore(BEFORE);
+            guardedRecorder.recordAfter(AFTER);
+        }
+        assertEquals(4, recorder.calls.get());
+        assertEquals(4, guardedRecorder.getFailures());
+        assertEquals(6, guardedRecorder.getRejected());
+        assertEquals(CircuitBreaker.State.OPEN, guardedRecorder.getState());
+        assertEquals(1, guardedRecorder.getTrips());
+    }
+
+    /**
+     * A synchronous recorder is called by the application thread.
+     */
+    @Test
+    public void testSynchronousDelivery() {
+        CountingRecorder recorder = new CountingRecorder(false, null);
+        GuardedRecorder guardedRecorder = new GuardedRecorder(recorder, new DispatchSettings(0, 3, 1000000, 100, 1000, 1000));
+        guardedRecorder.recordBefore(BEFORE);
+        guardedRecorder.recordAfter(AFTER);
+        assertEquals(2, recorder.calls.get());
+        assertEquals(Thread.currentThread(), recorder.thread);
+        assertEquals(CircuitBreaker.State.CLOSED, guardedRecorder.getState());
+    }
+
+    /**
+     * A recorder that is not a {@link QueuedMethodStateRecorder} is called by the application thread
+     * even if the queue is configured, because it can read the live arguments.
+     */
+    @Test
+    public void testUnmarkedRecorderIsNotQueued() {
+        CountingRecorder recorder = new CountingRecorder(false, null);
+        GuardedRecorder guardedRecorder = new GuardedRecorder(recorder, new DispatchSettings(2, 3, 1000000, 100, 1000, 1000));
+        guardedRecorder.recordBefore(BEFORE);
+        assertEquals(1, recorder.calls.get());
+        assertEquals(Thread.currentThread(), recorder.thread);
+        assertEquals(0, guardedRecorder.getQueued());
+    }
+
+    /**
+     * A blocked queued recorder does not block the caller, the events above the queue capacity are dropped.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testBlockedRecorderDropsEvents() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        CountingRecorder recorder = new QueuedRecorder(latch);
+        GuardedRecorder guardedRecorder = new GuardedRecorder(recorder, new DispatchSettings(2, 3, 1000000, 100, 1000, 1000));
+        guardedRecorder.recordBefore(BEFORE);
+        while (guardedRecorder.getQueued() != 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 5; i++) {
+            guardedRecorder.recordBefore(before(i + 2));
+        }
+        assertEquals(2, guardedRecorder.getQueued());
+        assertEquals(3, guardedRecorder.getDropped());
+        latch.countDown();
+        guardedRecorder.close(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(3, recorder.calls.get());
+        assertNotSame(Thread.currentThread(), recorder.thread);
+        assertTrue(guardedRecorder.toString().contains("dropped=3"));
+    }
+
+    /**
+     * A trial event dropped by the full queue opens the breaker again, the next trial closes it.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testDroppedTrialOpensBreaker() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        CountingRecorder recorder = new QueuedRecorder(latch);
+        GuardedRecorder guardedRecorder = new GuardedRecorder(recorder, new DispatchSettings(1, 1, 0, 100, 1, 1));
+        guardedRecorder.recordBefore(BEFORE);
+        while (guardedRecorder.getQueued() != 0) {
+            Thread.sleep(1);
+        }
+        guardedRecorder.recordAfter(AFTER);
+        guardedRecorder.getCircuitBreaker().failed(System.nanoTime());
+        Thread.sleep(5);
+        guardedRecorder.recordBefore(BEFORE);
+        assertEquals(1, guardedRecorder.getDropped());
+        assertEquals(CircuitBreaker.State.OPEN, guardedRecorder.getState());
+        assertEquals(1, guardedRecorder.getTrips());
+
+        latch.countDown();
+        while (guardedRecorder.getRejected() != 1) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(5);
+        guardedRecorder.recordBefore(BEFORE);
+        guardedRecorder.close(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(CircuitBreaker.State.CLOSED, guardedRecorder.getState());
+        assertEquals(2, recorder.calls.get());
+        assertEquals(1, guardedRecorder.getRejected());
+    }
+
+    /**
+     * An invocation started before the recorder was disabled is ended even if the recorder is still disabled.
+     */
+    @Test
+    public void testEndOfAcceptedInvocationIsDelivered() {
+        EventRecorder recorder = new EventRecorder();
+        GuardedRecorder guardedRecorder = new GuardedRecorder(recorder, new DispatchSettings(0, 1, 0, 100, 60000, 60000));
+        guardedRecorder.recordBefore(before(1));
+        guardedRecorder.getCircuitBreaker().failed(System.nanoTime());
+        guardedRecorder.recordBefore(before(2));
+        guardedRecorder.recordAfter(after(2));
+        guardedRecorder.recordAfter(after(1));
+        assertEquals(Arrays.asList("before 1", "after 1"), recorder.events);
+        assertEquals(2, guardedRecorder.getRejected());
+        assertEquals(CircuitBreaker.State.OPEN, guardedRecorder.getState());
+    }
+
+    /**
+     * An invocation started while the recorder was disabled is not ended after the recorder is enabled again.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testEndOfRejectedInvocationIsRejected() throws InterruptedException {
+        EventRecorder recorder = new EventRecorder();
+        GuardedRecorder guardedRecorder = new GuardedRecorder(recorder, new DispatchSettings(0, 1, 0, 100, 50, 50));
+        guardedRecorder.recordBefore(before(1));
+        guardedRecorder.getCircuitBreaker().failed(System.nanoTime());
+        guardedRecorder.recordBefore(before(2));
+        Thread.sleep(60);
+        guardedRecorder.recordBefore(before(3));
+        assertEquals(CircuitBreaker.State.CLOSED, guardedRecorder.getState());
+        guardedRecorder.recordAfter(after(3));
+        guardedRecorder.recordAfter(after(2));
+        guardedRecorder.recordAfter(after(1));
+        assertEquals(Arrays.asList("before 1", "before 3", "after 3", "after 1"), recorder.events);
+        assertEquals(2, guardedRecorder.getRejected());
+    }
+
+    /**
+     * @param invocationId see the {@link StateBeforeInvocation#getMethodInvocationId()}
+     * @return a state of the invocation
+     */
+    private static StateBeforeInvocation before(long invocationId) {
+        return new StateBeforeInvocation(invocationId, new Date(), new StackTraceElement[0], "methodName",
+                "declaringType", "methodDescriptor", "methodSignature", "returnType", "methodComplexName", new Object[0]);
+    }
+
+    /**
+     * @param invocationId see the {@link StateAfterInvocation#getMethodInvocationId()}
+     * @return a state of the invocation
+     */
+    private static StateAfterInvocation after(long invocationId) {
+        return new StateAfterInvocation(invocationId, new Date(), "methodComplexName", null, null, new Object[0]);
+    }
+
+    /** Records the kinds and ids of the events */
+    private static class EventRecorder implements MethodStateRecorder {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void recordBefore(StateBeforeInvocation stateBeforeInvocation) {
+            events.add("before " + stateBeforeInvocation.getMethodInvocationId());
+        }
+
+        @Override
+        public void recordAfter(StateAfterInvocation stateAfterInvocation) {
+            events.add("after " + stateAfterInvocation.getMethodInvocationId());
+        }
+    }
+
+    /** A {@link CountingRecorder} accepting the states from the queue */
+    private static class QueuedRecorder extends CountingRecorder implements QueuedMethodStateRecorder {
+        private QueuedRecorder(CountDownLatch latch) {
+            super(false, latch);
+        }
+    }
+
+    /** Counts calls, optionally throws or waits for a latch */
+    private static class CountingRecorder implements MethodStateRecorder {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final boolean failing;
+        private final CountDownLatch latch;
+        private volatile Thread thread;
+
+        private CountingRecorder(boolean failing, CountDownLatch latch) {
+            this.failing = failing;
+            this.latch = latch;
+        }
+
+        @Override
+        public void recordBefore(StateBeforeInvocation stateBeforeInvocation) {
+            record();
+        }
+
+        @Override
+        public void recordAfter(StateAfterInvocation stateAfterInvocation) {
+            record();
+        }
+
+        private void record() {
+            calls.incrementAndGet();
+            thread = Thread.currentThread();
+            if (failing) {
+                throw new AppRuntimeException("test");
+            }
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,265 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.api.FieldValuesReader;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.description.field.FieldDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.StackManipulation;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.assign.TypeCasting;
+import net.bytebuddy.implementation.bytecode.collection.ArrayAccess;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+import net.bytebuddy.implementation.bytecode.member.FieldAccess;
+import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
+import net.bytebuddy.implementation.bytecode.member.MethodReturn;
+import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * <p>
+ * Stateless singleton for generation of {@link FieldValuesReader} classes by ByteBuddy.
+ *
+ * <p>
+ * The generated reader of a class is injected to the class loader and the package of the class if possible,
+ * so it can read package-private fields. Else it is defined in a new child class loader and it can only
+ * call public getters and read public fields of public classes.
+ * @author Kyrylo Semenko
+ */
+public class AccessorGenerator {
+
+    /** The suffix of names of generated classes */
+    private static final String READER_SUFFIX = "$A4jFieldValuesReader";
+
+    /** The package of readers of classes from packages, where classes cannot be defined, for example 'java.util' */
+    private static final String GENERATED_PACKAGE = "com.apache.a4javadoc.javaagent.mapper.generated";
+
+    private AccessorGenerator() {
+        // empty
+    }
+
+    /**
+     * @return the {@link AccessorGenerator} singleton.
+     */
+    public static AccessorGenerator getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Can the reader of the class be defined in the class loader and the package of the class?
+     * @param clazz the class of objects to be read
+     * @return 'true' if the class loader of the clazz sees the same {@link FieldValuesReader} interface
+     */
+    public boolean isInjectable(Class<?> clazz) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader == null || clazz.getName().startsWith("java.") || !ClassInjector.UsingReflection.isAvailable()) {
+            return false;
+        }
+        return seesReaderInterface(classLoader);
+    }
+
+    /**
+     * Select members that the generated class can use.
+     * @param clazz the class of objects to be read
+     * @param fields the {@link ObjectAccessor#getFields()}
+     * @param getters getters of the fields, see the {@link ReflectiveAccessor}
+     * @param injected see the {@link #isInjectable(Class)} method
+     * @return getters, fields or 'null' values for not accessible members, with indexes of fields
+     */
+    public Member[] selectMembers(Class<?> clazz, List<Field> fields, Method[] getters, boolean injected) {
+        Member[] result = new Member[fields.size()];
+        if (!injected && !Modifier.isPublic(clazz.getModifiers())) {
+            return result;
+        }
+        for (int i = 0; i < result.length; i++) {
+            Method getter = getters[i];
+            Field field = fields.get(i);
+            if (getter != null) {
+                if (!Modifier.isStatic(getter.getModifiers()) && getter.getReturnType() != void.class) {
+                    result[i] = getter;
+                }
+            } else if (isFieldAccessible(clazz, field, injected)) {
+                result[i] = field;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param clazz the class of objects to be read
+     * @param field the field of the clazz or its parent
+     * @param injected see the {@link #isInjectable(Class)} method
+     * @return 'true' if the field can be read from the generated class
+     */
+    private boolean isFieldAccessible(Class<?> clazz, Field field, boolean injected) {
+        Class<?> declaringClass = field.getDeclaringClass();
+        if (Modifier.isPublic(field.getModifiers()) && Modifier.isPublic(declaringClass.getModifiers())) {
+            return true;
+        }
+        return injected
+                && !Modifier.isPrivate(field.getModifiers())
+                && declaringClass.getClassLoader() == clazz.getClassLoader()
+                && getPackageName(declaringClass).equals(getPackageName(clazz));
+    }
+
+    /**
+     * Generate, load and instantiate a reader of the members.
+     * @param clazz the class of objects to be read
+     * @param members the {@link #selectMembers(Class, List, Method[], boolean)} result
+     * @param injected see the {@link #isInjectable(Class)} method
+     * @return the new instance of the generated class
+     * @throws AppRuntimeException if the class cannot be generated or loaded
+     */
+    public FieldValuesReader generate(Class<?> clazz, Member[] members, boolean injected) {
+        try {
+            String name;
+            ClassLoader classLoader;
+            ClassLoadingStrategy<ClassLoader> strategy;
+            if (injected) {
+                name = clazz.getName() + READER_SUFFIX;
+                classLoader = clazz.getClassLoader();
+                strategy = ClassLoadingStrategy.Default.INJECTION;
+            } else {
+                name = GENERATED_PACKAGE + "." + clazz.getName().replace('.', '_') + READER_SUFFIX;
+                classLoader = findParentClassLoader(clazz);
+                strategy = ClassLoadingStrategy.Default.WRAPPER;
+            }
+            Class<? extends FieldValuesReader> readerClass = new ByteBuddy(ClassFileVersion.JAVA_V7)
+                .subclass(FieldValuesReader.class)
+                .name(name)
+                .method(ElementMatchers.named("read"))
+                .intercept(new Implementation.Simple(new ReadAppender(clazz, members)))
+                .make()
+                .load(classLoader, strategy)
+                .getLoaded();
+            return readerClass.getConstructor().newInstance();
+        } catch (Exception | LinkageError e) {
+            throw new AppRuntimeException("Cannot generate a reader of " + clazz, e);
+        }
+    }
+
+    /**
+     * @param clazz the class of objects to be read
+     * @return the class loader that sees both the clazz and the {@link FieldValuesReader}
+     */
+    private ClassLoader findParentClassLoader(Class<?> clazz) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader == null) {
+            return FieldValuesReader.class.getClassLoader();
+        }
+        if (seesReaderInterface(classLoader)) {
+            return classLoader;
+        }
+        throw new AppRuntimeException("The " + classLoader + " of " + clazz + " does not see the " + FieldValuesReader.class);
+    }
+
+    /**
+     * @param classLoader the class loader of a recorded class
+     * @return 'true' if the classLoader loads the same {@link FieldValuesReader} interface as this class
+     */
+    private boolean seesReaderInterface(ClassLoader classLoader) {
+        try {
+            return Class.forName(FieldValuesReader.class.getName(), false, classLoader) == FieldValuesReader.class;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param clazz a class
+     * @return the package name or the empty String for the default package
+     */
+    private static String getPackageName(Class<?> clazz) {
+        String name = clazz.getName();
+        int lastDot = name.lastIndexOf('.');
+        return lastDot < 0 ? "" : name.substring(0, lastDot);
+    }
+
+    /**
+     * The body of the {@link FieldValuesReader#read(Object, Object[])} method.
+     * For each not 'null' member it stores the boxed value to the 'values' array:
+     * <pre>values[i] = ((Clazz) sourceObject).getSomething();</pre>
+     * or
+     * <pre>values[i] = ((Clazz) sourceObject).something;</pre>
+     */
+    private static class ReadAppender implements ByteCodeAppender {
+
+        /** The index of the 'sourceObject' parameter */
+        private static final int SOURCE_OBJECT_OFFSET = 1;
+
+        /** The index of the 'values' parameter */
+        private static final int VALUES_OFFSET = 2;
+
+        /** The class of objects to be read */
+        private final Class<?> clazz;
+
+        /** Getters, fields or 'null' values for members to be skipped */
+        private final Member[] members;
+
+        /**
+         * @param clazz see the {@link #clazz} field
+         * @param members see the {@link #members} field
+         */
+        ReadAppender(Class<?> clazz, Member[] members) {
+            this.clazz = clazz;
+            this.members = members;
+        }
+
+        @Override
+        public Size apply(MethodVisitor methodVisitor, Implementation.Context implementationContext,
+                MethodDescription instrumentedMethod) {
+            TypeDescription sourceType = new TypeDescription.ForLoadedType(clazz);
+            List<StackManipulation> stackManipulations = new ArrayList<>();
+            for (int i = 0; i < members.length; i++) {
+                Member member = members[i];
+                if (member == null) {
+                    continue;
+                }
+                StackManipulation read;
+                TypeDescription valueType;
+                if (member instanceof Method) {
+                    MethodDescription getter = new MethodDescription.ForLoadedMethod((Method) member);
+                    read = MethodInvocation.invoke(getter).virtual(sourceType);
+                    valueType = getter.getReturnType().asErasure();
+                } else {
+                    FieldDescription field = new FieldDescription.ForLoadedField((Field) member);
+                    read = FieldAccess.forField(field).read();
+                    valueType = field.getType().asErasure();
+                }
+                stackManipulations.add(MethodVariableAccess.REFERENCE.loadFrom(VALUES_OFFSET));
+                stackManipulations.add(IntegerConstant.forValue(i));
+                stackManipulations.add(MethodVariableAccess.REFERENCE.loadFrom(SOURCE_OBJECT_OFFSET));
+                stackManipulations.add(TypeCasting.to(sourceType));
+                stackManipulations.add(read);
+                stackManipulations.add(Assigner.DEFAULT.assign(valueType.asGenericType(),
+                        TypeDescription.Generic.OBJECT, Assigner.Typing.STATIC));
+                stackManipulations.add(ArrayAccess.REFERENCE.store());
+            }
+            stackManipulations.add(MethodReturn.VOID);
+            StackManipulation.Size size = new StackManipulation.Compound(stackManipulations)
+                .apply(methodVisitor, implementationContext);
+            return new Size(size.getMaximalSize(), instrumentedMethod.getStackSize());
+        }
+    }
+
+    /** Lazy holder of the {@link AccessorGenerator} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final AccessorGenerator INSTANCE = new AccessorGenerator();
+    }
+
+}
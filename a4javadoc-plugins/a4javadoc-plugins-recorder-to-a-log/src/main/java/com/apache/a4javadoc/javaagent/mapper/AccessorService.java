@@ -0,0 +1,135 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.Member;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.apache.a4javadoc.javaagent.api.FieldValuesReader;
+
+/**
+ * Singleton for creation and caching of {@link ObjectAccessor}s.
+ * The accessor of a class is created lazily, when the first object of the class is serialized,
+ * and then it is shared between threads.
+ * @author Kyrylo Semenko
+ */
+public class AccessorService {
+    private static final Logger logger = LoggerFactory.getLogger(AccessorService.class);
+
+    /**
+     * Accessors of the {@link ConfigService#getAccessorType()},
+     * they do not prevent the classes from unloading
+     */
+    private final ClassValue<ObjectAccessor> accessors = new ClassValue<ObjectAccessor>() {
+        @Override
+        protected ObjectAccessor computeValue(Class<?> clazz) {
+            return createAccessor(clazz, ConfigService.getInstance().getAccessorType());
+        }
+    };
+
+    private AccessorService() {
+        // empty
+    }
+
+    /**
+     * @return the {@link AccessorService} singleton.
+     */
+    public static AccessorService getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @param clazz the class of serialized objects
+     * @return the cached {@link ObjectAccessor} of the clazz
+     */
+    public ObjectAccessor getAccessor(Class<?> clazz) {
+        return accessors.get(clazz);
+    }
+
+    /**
+     * Create a new not cached accessor. If the accessor of the accessorType cannot be created,
+     * the {@link GeneratedAccessor} falls back to the {@link MethodHandleAccessor}
+     * and the {@link MethodHandleAccessor} falls back to the {@link ReflectiveAccessor}.
+     * @param clazz the class of objects to be read
+     * @param accessorType the preferred kind of the accessor
+     * @return the new {@link ObjectAccessor}
+     */
+    public ObjectAccessor createAccessor(Class<?> clazz, AccessorType accessorType) {
+        ReflectiveAccessor reflectiveAccessor = new ReflectiveAccessor(clazz);
+        if (accessorType == AccessorType.REFLECTION) {
+            return reflectiveAccessor;
+        }
+        ObjectAccessor fallbackAccessor = createMethodHandleAccessor(reflectiveAccessor);
+        if (accessorType == AccessorType.METHOD_HANDLE) {
+            return fallbackAccessor;
+        }
+        return createGeneratedAccessor(clazz, reflectiveAccessor, fallbackAccessor);
+    }
+
+    /**
+     * @param reflectiveAccessor the source of fields and getters
+     * @return the {@link MethodHandleAccessor} or the reflectiveAccessor if fields cannot be made accessible
+     */
+    private ObjectAccessor createMethodHandleAccessor(ReflectiveAccessor reflectiveAccessor) {
+        try {
+            return new MethodHandleAccessor(reflectiveAccessor);
+        } catch (RuntimeException e) {
+            logger.debug("The reflection will be used. {}", e.getMessage());
+            return reflectiveAccessor;
+        }
+    }
+
+    /**
+     * Generate a reader injected to the class loader of the clazz. If not possible, generate a reader
+     * in a child class loader. If not possible too, return the fallbackAccessor.
+     * @param clazz the class of objects to be read
+     * @param reflectiveAccessor the source of fields and getters
+     * @param fallbackAccessor reads fields not accessible from the generated reader
+     * @return the {@link GeneratedAccessor} or the fallbackAccessor
+     */
+    private ObjectAccessor createGeneratedAccessor(Class<?> clazz, ReflectiveAccessor reflectiveAccessor,
+            ObjectAccessor fallbackAccessor) {
+        AccessorGenerator generator = AccessorGenerator.getInstance();
+        boolean injectable = generator.isInjectable(clazz);
+        for (boolean injected : new boolean[] {true, false}) {
+            if (injected && !injectable) {
+                continue;
+            }
+            Member[] members = generator.selectMembers(clazz, reflectiveAccessor.getFields(),
+                    reflectiveAccessor.getGetters(), injected);
+            int[] fallbackIndexes = findNullIndexes(members);
+            if (fallbackIndexes.length == members.length) {
+                continue;
+            }
+            try {
+                FieldValuesReader reader = generator.generate(clazz, members, injected);
+                return new GeneratedAccessor(reader, fallbackIndexes, fallbackAccessor, reflectiveAccessor);
+            } catch (RuntimeException e) {
+                logger.debug("The reader of {} cannot be generated. {}", clazz, e.getMessage());
+            }
+        }
+        return fallbackAccessor;
+    }
+
+    /**
+     * @param members getters, fields and 'null' values
+     * @return indexes of 'null' values
+     */
+    private static int[] findNullIndexes(Member[] members) {
+        int[] result = new int[members.length];
+        int count = 0;
+        for (int i = 0; i < members.length; i++) {
+            if (members[i] == null) {
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /** Lazy holder of the {@link AccessorService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final AccessorService INSTANCE = new AccessorService();
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+/**
+ * Kinds of {@link ObjectAccessor}s, see the {@link ConfigService#getAccessorType()} method.
+ * @author Kyrylo Semenko
+ */
+public enum AccessorType {
+
+    /** The {@link ReflectiveAccessor}, it calls {@link java.lang.reflect.Method#invoke(Object, Object...)} and {@link java.lang.reflect.Field#get(Object)} */
+    REFLECTION,
+
+    /** The {@link MethodHandleAccessor} */
+    METHOD_HANDLE,
+
+    /** The {@link GeneratedAccessor}, it falls back to other accessors where generation is not possible */
+    GENERATED
+
+}
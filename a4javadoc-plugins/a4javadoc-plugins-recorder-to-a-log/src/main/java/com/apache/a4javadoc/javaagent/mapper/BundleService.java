@@ -5,6 +5,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
 
@@ -16,8 +17,6 @@ import com.apache.a4javadoc.exception.AppRuntimeException;
  */
 public class BundleService {
 
-    private static BundleService instance;
-
     private BundleService() {
         // empty
     }
@@ -26,79 +25,40 @@ public class BundleService {
      * @return the {@link BundleService} singleton.
      */
     public static BundleService getInstance() {
-        if (instance == null) {
-            instance = new BundleService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
      * <p>
-     * If the instance from the first argument is {@link Array}, call the
-     * {@link #addArrayItemsToList(Object, List)} method.
+     * Create an {@link Iterator} over items of the bundle from the argument.
+     * Items are not copied anywhere, they are read from the bundle
+     * one by one during the iteration.
      * 
      * <p>
-     * If the instance from the first argument is {@link Iterable}, call the
-     * {@link #addIterableItemsToList(Iterable, List)} method.
+     * If the bundle is an {@link Array}, iterate its elements,
+     * primitive values are wrapped.
+     * 
      * <p>
+     * If the bundle is an {@link Iterable}, return its {@link Iterable#iterator()}.
      * 
-     * If the instance from the first argument is {@link Map}, call the
-     * {@link #addMapItemsToList(Map, List)} method.
+     * <p>
+     * If the bundle is a {@link Map}, iterate its {@link Map#entrySet()}.
      * 
-     * @param bundle the data source
-     * @param objectList the list for completion of items
+     * @param bundle an {@link Array} or {@link Iterable} or {@link Map}
+     * @return the {@link Iterator} over items of the bundle
      */
-    public void addItemsToList(Object bundle, List<Object> objectList) {
+    @SuppressWarnings("unchecked")
+    public Iterator<Object> iterator(Object bundle) {
         if (bundle.getClass().isArray()) {
-            addArrayItemsToList(bundle, objectList);
+            return new ArrayIterator(bundle);
         } else if (Iterable.class.isAssignableFrom(bundle.getClass())) {
-            addIterableItemsToList((Iterable<?>) bundle, objectList);
+            return ((Iterable<Object>) bundle).iterator();
         } else if (Map.class.isAssignableFrom(bundle.getClass())) {
-            addMapItemsToList((Map<?, ?>) bundle, objectList);
-        }
-    }
-
-    /**
-     * Call the {@link Map#entrySet()} method
-     * and add items to objectList.
-     * 
-     * @param map the source of items
-     * @param objectList the list for completion of items
-     */
-    private void addMapItemsToList(Map<?, ?> map, List<Object> objectList) {
-        for (Object entry : map.entrySet()) {
-            objectList.add(entry);
-        }
-    }
-
-    /**
-     * Call the {@link Iterable#iterator()} method
-     * and add items to objectList.
-     * 
-     * @param iterable the source of items
-     * @param objectList the list for completion of items
-     */
-    private void addIterableItemsToList(Iterable<?> iterable, List<Object> objectList) {
-        Iterator<?> iterator = iterable.iterator();
-        while (iterator.hasNext()) {
-            Object nextObject = iterator.next();
-            objectList.add(nextObject);
-        }
-    }
-
-    /**
-     * Iterate items of the {@link Array} from the first argument
-     * and add items to the list from the second argument.
-     * 
-     * @param arrayObject the source of items
-     * @param objectList the list for completion of items
-     */
-    private void addArrayItemsToList(Object arrayObject, List<Object> objectList) {
-        int length = Array.getLength(arrayObject);
-        for (int i = 0; i < length; i++) {
-            Object arrayElement = Array.get(arrayObject, i);
-            objectList.add(arrayElement);
+            Map<?, ?> map = (Map<?, ?>) bundle;
+            Iterator<?> entriesIterator = map.entrySet().iterator();
+            return (Iterator<Object>) entriesIterator;
         }
+        throw new AppRuntimeException("Expected an Array or Iterable or Map, but found " + bundle.getClass());
     }
 
     /**
@@ -171,4 +131,51 @@ public class BundleService {
         }
     }
 
+    /**
+     * Read-only {@link Iterator} over elements of an {@link Array}
+     * of any component type, see the {@link Array#get(Object, int)} method.
+     */
+    private static class ArrayIterator implements Iterator<Object> {
+        
+        /** The iterated {@link Array} */
+        private final Object array;
+        
+        /** Number of elements of the {@link #array} */
+        private final int length;
+        
+        /** Index of the next returned element */
+        private int index;
+        
+        /**
+         * @param array see the {@link #array} field
+         */
+        ArrayIterator(Object array) {
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < length;
+        }
+
+        @Override
+        public Object next() {
+            if (index >= length) {
+                throw new NoSuchElementException();
+            }
+            return Array.get(array, index++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("The array elements cannot be removed");
+        }
+    }
+
+    /** Lazy holder of the {@link BundleService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final BundleService INSTANCE = new BundleService();
+    }
+
 }
@@ -3,11 +3,14 @@ package com.apache.a4javadoc.javaagent.mapper;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
 
 /**
- * Stateless singleton for working with java {@link Class}es.
+ * Singleton for working with java {@link Class}es.
+ * Common classes of class pairs are cached, see the {@link #findCommonClassType(Class, Class)} method.
  * @author Kyrylo Semenko
  */
 public class ClassService {
@@ -28,7 +31,17 @@ public class ClassService {
         WRAPPER_SET.add(Float.class);
     }
     
-    private static ClassService instance;
+    /**
+     * Found common classes of class pairs. The outer key is the left class, the inner key is the right class.
+     * The {@link ClassValue} does not prevent the left classes from unloading.
+     */
+    private final ClassValue<ConcurrentMap<Class<?>, Class<?>>> commonClasses =
+            new ClassValue<ConcurrentMap<Class<?>, Class<?>>>() {
+        @Override
+        protected ConcurrentMap<Class<?>, Class<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
     
     private ClassService() {
         // empty
@@ -38,14 +51,13 @@ public class ClassService {
      * @return the {@link ClassService} singleton.
      */
     public static ClassService getInstance() {
-        if (instance == null) {
-            instance = new ClassService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
      * Find out the first common class or interface from classes hierarchy.
+     * Results for unrelated classes are cached, so repeated calls for the same pair
+     * do not walk the hierarchies and do not allocate.
      * @param classLeft the first class the common class to look for
      * @param classRight the second class the common class to look for
      * @return common class in sense of the {@link Class#isAssignableFrom(Class)} method
@@ -64,11 +76,16 @@ public class ClassService {
             return classLeft;
         } else if (classRight.isAssignableFrom(classLeft)) {
             return classRight;
-        } else {
+        }
+        ConcurrentMap<Class<?>, Class<?>> leftCommonClasses = commonClasses.get(classLeft);
+        Class<?> result = leftCommonClasses.get(classRight);
+        if (result == null) {
             List<Class<?>> leftClasses = findParents(classLeft);
             List<Class<?>> rightClasses = findParents(classRight);
-            return findCommonClass(leftClasses, rightClasses);
+            result = findCommonClass(leftClasses, rightClasses);
+            leftCommonClasses.putIfAbsent(classRight, result);
         }
+        return result;
     }
 
     /**
@@ -194,4 +211,10 @@ public class ClassService {
         return object.getClass().isPrimitive() || WRAPPER_SET.contains(object.getClass()) ||
                 object.getClass() == String.class;
     }
+
+    /** Lazy holder of the {@link ClassService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final ClassService INSTANCE = new ClassService();
+    }
+
 }
@@ -0,0 +1,108 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+/**
+ * Provides configuration parameters. 
+ * Parameters are volatile, so their changes are visible to all serializing threads.
+ * @author Kyrylo Semenko
+ */
+public class ConfigService {
+
+    /** Maximum plunging depth of {@link ContainerType}, beginning from 1. Default value is 3. */
+    private volatile int maxDepth = 3;
+    
+    /**
+     * Maximum number of elements of an array, {@link Iterable} or {@link java.util.Map}
+     * to be serialized and used for finding out of their common type.
+     * Next elements will be skipped. Default value is {@link Integer#MAX_VALUE}, it means no limit.
+     */
+    private volatile int maxContainerElements = Integer.MAX_VALUE;
+    
+    /**
+     * Maximum nesting level of serialized objects, the root object has level 1.
+     * Deeper objects are replaced with their identifiers only.
+     * Default value is {@link Integer#MAX_VALUE}, it means no limit.
+     */
+    private volatile int maxObjectDepth = Integer.MAX_VALUE;
+    
+    /**
+     * Maximum nesting level of objects copied to a snapshot on an application thread,
+     * the root object has level 1. Deeper objects are not copied. Default value is 10.
+     */
+    private volatile int maxSnapshotDepth = 10;
+    
+    /**
+     * The kind of {@link ObjectAccessor}s used for reading of field values by the {@link GenericSerializer}.
+     * It is applied to classes serialized for the first time. Default value is {@link AccessorType#GENERATED}.
+     */
+    private volatile AccessorType accessorType = AccessorType.GENERATED;
+    
+    /**
+     * The empty constructor.
+     */
+    private ConfigService() {
+        // empty
+    }
+
+    /**
+     * @return the {@link ConfigService} singleton.
+     */
+    public static ConfigService getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /** @return The {@link ConfigService#maxDepth} field */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** @param maxDepth see the {@link ConfigService#maxDepth} field */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /** @return The {@link ConfigService#maxContainerElements} field */
+    public int getMaxContainerElements() {
+        return maxContainerElements;
+    }
+
+    /** @param maxContainerElements see the {@link ConfigService#maxContainerElements} field */
+    public void setMaxContainerElements(int maxContainerElements) {
+        this.maxContainerElements = maxContainerElements;
+    }
+
+    /** @return The {@link ConfigService#maxObjectDepth} field */
+    public int getMaxObjectDepth() {
+        return maxObjectDepth;
+    }
+
+    /** @param maxObjectDepth see the {@link ConfigService#maxObjectDepth} field */
+    public void setMaxObjectDepth(int maxObjectDepth) {
+        this.maxObjectDepth = maxObjectDepth;
+    }
+
+    /** @return The {@link ConfigService#maxSnapshotDepth} field */
+    public int getMaxSnapshotDepth() {
+        return maxSnapshotDepth;
+    }
+
+    /** @param maxSnapshotDepth see the {@link ConfigService#maxSnapshotDepth} field */
+    public void setMaxSnapshotDepth(int maxSnapshotDepth) {
+        this.maxSnapshotDepth = maxSnapshotDepth;
+    }
+
+    /** @return The {@link ConfigService#accessorType} field */
+    public AccessorType getAccessorType() {
+        return accessorType;
+    }
+
+    /** @param accessorType see the {@link ConfigService#accessorType} field */
+    public void setAccessorType(AccessorType accessorType) {
+        this.accessorType = accessorType;
+    }
+
+    /** Lazy holder of the {@link ConfigService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final ConfigService INSTANCE = new ConfigService();
+    }
+
+}
@@ -2,32 +2,75 @@ package com.apache.a4javadoc.javaagent.mapper;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
 
 /**
  * Stateless singleton for working with {@link Constructor}s.
  * @author Kyrylo Semenko
  */
 public class ConstructorService {
+    private static final Logger logger = LoggerFactory.getLogger(ConstructorService.class);
     
-    private static ConstructorService instance;
+    /** The {@link InstantiationPlan#getFoundConstructors()} value of arguments without suitable constructor */
+    private static final Object NOT_FOUND = new Object();
+    
+    /** Resolved {@link InstantiationPlan}s, they do not prevent the classes from unloading */
+    private final ClassValue<InstantiationPlan> instantiationPlans = new ClassValue<InstantiationPlan>() {
+        @Override
+        protected InstantiationPlan computeValue(Class<?> clazz) {
+            return new InstantiationPlan(clazz);
+        }
+    };
+
+    /** The sun.misc.Unsafe instance or 'null' if it is not available */
+    private final Object unsafe;
+
+    /** The sun.misc.Unsafe#allocateInstance(Class) method or 'null' if it is not available */
+    private final Method allocateInstance;
     
     private ConstructorService() {
-        // empty
+        Object foundUnsafe = null;
+        Method foundAllocateInstance = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            foundUnsafe = theUnsafe.get(null);
+            foundAllocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+        } catch (Exception e) {
+            logger.info("Objects without default constructors cannot be instantiated. {}", e.getMessage());
+        }
+        unsafe = foundUnsafe;
+        allocateInstance = foundAllocateInstance;
     }
     
     /**
      * @return the {@link ConstructorService} singleton.
      */
     public static ConstructorService getInstance() {
-        if (instance == null) {
-            instance = new ConstructorService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @param clazz the class of instances
+     * @return the cached {@link InstantiationPlan} of the clazz
+     */
+    public InstantiationPlan getInstantiationPlan(Class<?> clazz) {
+        return instantiationPlans.get(clazz);
     }
 
     /**
-     * Find out {@link Constructor} for invocation.
+     * Find out {@link Constructor} for invocation. The result depends on types of the arguments only,
+     * so it is searched once for each combination of the types. The results are cached in the {@link InstantiationPlan}
+     * of the clazz, or of the field type if the clazz is 'null', so the cache does not prevent the classes from unloading.
      * @param field if clazz parameter does not contains suited constructor, the field is the source of constructors
      * @param clazz if not null, it is the source of constructors
      * @param classForReturning what type the constructor should returns
@@ -36,22 +79,48 @@ public class ConstructorService {
      */
     @SuppressWarnings("unchecked")
     public <T> T findConstructor(Field field, Class<T> clazz, Class<?> classForReturning, List<Object> parameters) {
+        Class<?> owner = clazz != null ? clazz : (field != null ? field.getType() : null);
+        if (owner == null) {
+            return null;
+        }
+        ConstructorKey key = new ConstructorKey(field, clazz, classForReturning, parameters);
+        ConcurrentMap<ConstructorKey, Object> foundConstructors = getInstantiationPlan(owner).getFoundConstructors();
+        Object found = foundConstructors.get(key);
+        if (found == null) {
+            found = searchConstructor(field, clazz, classForReturning, parameters);
+            if (found == null) {
+                found = NOT_FOUND;
+            }
+            foundConstructors.putIfAbsent(key, found);
+        }
+        return found == NOT_FOUND ? null : (T) found;
+    }
+
+    /**
+     * Recursive method. Search the {@link Constructor} in the clazz, field type and enclosing classes of the clazz.
+     * @param field see the {@link #findConstructor(Field, Class, Class, List)} method
+     * @param clazz see the {@link #findConstructor(Field, Class, Class, List)} method
+     * @param classForReturning see the {@link #findConstructor(Field, Class, Class, List)} method
+     * @param parameters see the {@link #findConstructor(Field, Class, Class, List)} method
+     * @return the found {@link Constructor} or 'null'
+     */
+    private Constructor<?> searchConstructor(Field field, Class<?> clazz, Class<?> classForReturning, List<Object> parameters) {
         if (clazz != null) {
             for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
                 if (isConstructorSuit(classForReturning, parameters, constructor)) {
-                    return (T) constructor;
+                    return constructor;
                 }
             }
         }
         if (field != null) {
             for (Constructor<?> constructor : field.getType().getDeclaredConstructors()) {
                 if (isConstructorSuit(classForReturning, parameters, constructor)) {
-                    return (T) constructor;
+                    return constructor;
                 }
             }
         }
         if (clazz != null) {
-            return (T) findConstructor(field, clazz.getEnclosingClass(), classForReturning, parameters);
+            return searchConstructor(field, clazz.getEnclosingClass(), classForReturning, parameters);
         }
         return null;
     }
@@ -73,4 +142,100 @@ public class ConstructorService {
                 && parameterTypes[0] == parameters.get(0).getClass());
     }
 
+    /**
+     * @return 'true' if the {@link #allocateInstance(Class)} method is available in this JVM
+     */
+    public boolean canAllocateInstances() {
+        return allocateInstance != null;
+    }
+
+    /**
+     * Create an instance without calling of its constructors, its fields will have default values.
+     * @param clazz the instance type
+     * @return the new instance
+     * @throws AppRuntimeException if the instance cannot be allocated, see the {@link #canAllocateInstances()} method
+     */
+    public Object allocateInstance(Class<?> clazz) {
+        if (allocateInstance == null) {
+            throw new AppRuntimeException("Cannot allocate an instance of " + clazz + " without its constructor");
+        }
+        try {
+            return allocateInstance.invoke(unsafe, clazz);
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * Create an instance by its default constructor. If the class has no default constructor
+     * or the constructor fails, create the instance by the {@link #allocateInstance(Class)} method.
+     * See the {@link InstantiationPlan#newInstance()} method.
+     * @param clazz the instance type
+     * @return the new instance
+     * @throws AppRuntimeException if the instance cannot be created
+     */
+    public Object newInstance(Class<?> clazz) {
+        return getInstantiationPlan(clazz).newInstance();
+    }
+
+    /**
+     * The key of the {@link InstantiationPlan#getFoundConstructors()} map, it contains types of the
+     * {@link ConstructorService#findConstructor(Field, Class, Class, List)} arguments.
+     */
+    static class ConstructorKey {
+
+        /** The field type or 'null' */
+        private final Class<?> fieldType;
+
+        /** The clazz argument */
+        private final Class<?> clazz;
+
+        /** The classForReturning argument */
+        private final Class<?> classForReturning;
+
+        /** Classes of the parameters, 'null' for 'null' parameters */
+        private final List<Class<?>> parameterClasses;
+
+        /**
+         * @param field see the {@link ConstructorService#findConstructor(Field, Class, Class, List)} method
+         * @param clazz see the {@link #clazz} field
+         * @param classForReturning see the {@link #classForReturning} field
+         * @param parameters see the {@link ConstructorService#findConstructor(Field, Class, Class, List)} method
+         */
+        private ConstructorKey(Field field, Class<?> clazz, Class<?> classForReturning, List<Object> parameters) {
+            this.fieldType = field == null ? null : field.getType();
+            this.clazz = clazz;
+            this.classForReturning = classForReturning;
+            this.parameterClasses = new ArrayList<>(parameters.size());
+            for (Object parameter : parameters) {
+                parameterClasses.add(parameter == null ? null : parameter.getClass());
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            int result = parameterClasses.hashCode();
+            result = 31 * result + (fieldType == null ? 0 : fieldType.hashCode());
+            result = 31 * result + (clazz == null ? 0 : clazz.hashCode());
+            return 31 * result + (classForReturning == null ? 0 : classForReturning.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object otherObject) {
+            if (!(otherObject instanceof ConstructorKey)) {
+                return false;
+            }
+            ConstructorKey other = (ConstructorKey) otherObject;
+            return fieldType == other.fieldType
+                    && clazz == other.clazz
+                    && classForReturning == other.classForReturning
+                    && parameterClasses.equals(other.parameterClasses);
+        }
+    }
+
+    /** Lazy holder of the {@link ConstructorService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final ConstructorService INSTANCE = new ConstructorService();
+    }
+
 }
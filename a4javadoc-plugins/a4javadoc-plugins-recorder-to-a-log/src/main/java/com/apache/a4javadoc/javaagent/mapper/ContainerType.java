@@ -2,130 +2,278 @@ package com.apache.a4javadoc.javaagent.mapper;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * <p>
  * This value object represents an object identifier part, for example
  * {@code "java.util.Arrays$ArrayList<java.lang.String>"} see
  * {@link IdentifierService}.
- * 
+ *
+ * <p>
+ * Instances are immutable and canonical. They are created by the
+ * {@link #of(Class, List, Method, String, String)} methods only, which return the same instance
+ * for the same structure, so instances are compared by identity and their hash codes are computed once.
+ * The canonical instances are held by the {@link ClassValue} of their {@link #keyClass}, so they do not prevent
+ * classes of the serialized objects from unloading.
+ *
  * @author Kyrylo Semenko
  */
-public class ContainerType {
+public final class ContainerType {
+
+    /**
+     * Canonical instances by their {@link #keyClass} and structure, see the {@link Shape} class.
+     * The {@link ClassValue} does not prevent the key classes from unloading.
+     */
+    private static final ClassValue<ConcurrentMap<Shape, ContainerType>> CANONICAL =
+            new ClassValue<ConcurrentMap<Shape, ContainerType>>() {
+        @Override
+        protected ConcurrentMap<Shape, ContainerType> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /** Canonical instances without classes, for example the {@link #EMPTY} instance */
+    private static final ConcurrentMap<Shape, ContainerType> CANONICAL_WITHOUT_CLASS = new ConcurrentHashMap<>();
+
+    /** The {@link ContainerType} without {@link #objectClass}, for example of a 'null' value */
+    public static final ContainerType EMPTY = of(null);
 
     /**
      * {@link Class} of the object represented by this {@link ContainerType}
      */
-    private Class<?> objectClass;
+    private final Class<?> objectClass;
 
     /**
      * Some objects with generic types contains a method, by which it is
      * possible to iterate enclosing items. This method name is used for
      * serialization of the object, but not used for deserialization.
      */
-    private Method disassembleMethod;
+    private final Method disassembleMethod;
 
     /**
      * The factory {@link Method} name is used for instantiation of an object.
      * This {@link Method#getName()} is found out during serialization.
      */
-    private String factory;
+    private final String factory;
 
     /**
      * A method name. This method will be used in serializer for filling out a
      * deserialized object by generic items.
      */
-    private String filling;
+    private final String filling;
+
+    /** Can be empty if the object is not array nor generic. The list is unmodifiable. */
+    private final List<ContainerType> containerTypes;
+
+    /** The hash code computed from the structure */
+    private final int hash;
+
+    /**
+     * The class of the structure loaded by the most specific class loader, the canonical instance is held
+     * as long as this class. Can be 'null' if the structure contains no classes.
+     */
+    private final Class<?> keyClass;
+
+    /**
+     * @param objectClass see the {@link #objectClass} field
+     * @param containerTypes see the {@link #containerTypes} field
+     * @param disassembleMethod see the {@link #disassembleMethod} field
+     * @param factory see the {@link #factory} field
+     * @param filling see the {@link #filling} field
+     */
+    private ContainerType(Class<?> objectClass, List<ContainerType> containerTypes, Method disassembleMethod,
+            String factory, String filling) {
+        this.objectClass = objectClass;
+        this.containerTypes = containerTypes;
+        this.disassembleMethod = disassembleMethod;
+        this.factory = factory;
+        this.filling = filling;
+        this.hash = Objects.hash(objectClass, containerTypes, disassembleMethod, factory, filling);
+        Class<?> mostSpecific = objectClass;
+        for (ContainerType containerType : containerTypes) {
+            Class<?> innerKeyClass = containerType.keyClass;
+            if (innerKeyClass != null && (mostSpecific == null
+                    || isAncestor(mostSpecific.getClassLoader(), innerKeyClass.getClassLoader()))) {
+                mostSpecific = innerKeyClass;
+            }
+        }
+        this.keyClass = mostSpecific;
+    }
+
+    /**
+     * @param ancestor a class loader, 'null' is the bootstrap class loader
+     * @param classLoader a class loader, 'null' is the bootstrap class loader
+     * @return 'true' if the ancestor is a parent of the classLoader, so classes of the classLoader can be unloaded
+     * before classes of the ancestor
+     */
+    private static boolean isAncestor(ClassLoader ancestor, ClassLoader classLoader) {
+        if (classLoader == ancestor) {
+            return false;
+        }
+        ClassLoader parent = classLoader;
+        while (parent != null) {
+            parent = parent.getParent();
+            if (parent == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param objectClass see the {@link #objectClass} field, can be 'null'
+     * @return the canonical {@link ContainerType} without inner {@link ContainerType}s
+     */
+    public static ContainerType of(Class<?> objectClass) {
+        return of(objectClass, Collections.<ContainerType>emptyList(), null, null, null);
+    }
+
+    /**
+     * @param objectClass see the {@link #objectClass} field, can be 'null'
+     * @param containerTypes see the {@link #containerTypes} field
+     * @return the canonical {@link ContainerType}
+     */
+    public static ContainerType of(Class<?> objectClass, List<ContainerType> containerTypes) {
+        return of(objectClass, containerTypes, null, null, null);
+    }
+
+    /**
+     * Find out the canonical {@link ContainerType} or create it if it does not exist yet.
+     *
+     * @param objectClass see the {@link #objectClass} field, can be 'null'
+     * @param containerTypes see the {@link #containerTypes} field, the list is copied
+     * @param disassembleMethod see the {@link #disassembleMethod} field, can be 'null'
+     * @param factory see the {@link #factory} field, can be 'null'
+     * @param filling see the {@link #filling} field, can be 'null'
+     * @return the canonical {@link ContainerType}
+     */
+    public static ContainerType of(Class<?> objectClass, List<ContainerType> containerTypes,
+            Method disassembleMethod, String factory, String filling) {
+        List<ContainerType> copy = containerTypes.isEmpty() ? Collections.<ContainerType>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(containerTypes));
+        ContainerType candidate = new ContainerType(objectClass, copy, disassembleMethod, factory, filling);
+        Shape shape = new Shape(candidate);
+        ConcurrentMap<Shape, ContainerType> canonical = candidate.keyClass == null ? CANONICAL_WITHOUT_CLASS
+                : CANONICAL.get(candidate.keyClass);
+        ContainerType existing = canonical.get(shape);
+        if (existing != null) {
+            return existing;
+        }
+        existing = canonical.putIfAbsent(shape, candidate);
+        return existing == null ? candidate : existing;
+    }
 
     /**
+     * @return for example {@code java.util.HashMap<java.lang.String, java.lang.Integer>}
      * @see java.lang.Object#toString()
      */
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        StringBuilder stringBuilder = new StringBuilder();
+        appendTo(stringBuilder);
+        return stringBuilder.toString();
     }
 
     /**
+     * Recursive method. Append the {@link #toString()} representation.
+     * @param stringBuilder the target
+     */
+    private void appendTo(StringBuilder stringBuilder) {
+        stringBuilder.append(objectClass == null ? "null" : objectClass.getName());
+        if (!containerTypes.isEmpty()) {
+            stringBuilder.append('<');
+            for (int i = 0; i < containerTypes.size(); i++) {
+                if (i > 0) {
+                    stringBuilder.append(", ");
+                }
+                containerTypes.get(i).appendTo(stringBuilder);
+            }
+            stringBuilder.append('>');
+        }
+    }
+
+    /**
+     * @return the hash code computed once from the structure
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this, true);
+        return hash;
     }
 
     /**
+     * Instances are canonical, so equal instances are the same instances.
      * @see java.lang.Object#equals(java.lang.Object)
      */
     @Override
     public boolean equals(Object otherObject) {
-        return EqualsBuilder.reflectionEquals(this, otherObject);
+        return this == otherObject;
     }
 
-    /** Can be empty if the object is not array nor generic */
-    private List<ContainerType> containerTypes;
-
     /** @return The {@link ContainerType#objectClass} field */
     public Class<?> getObjectClass() {
         return objectClass;
     }
 
-    /** @param objectClass see the {@link ContainerType#objectClass} field */
-    public void setObjectClass(Class<?> objectClass) {
-        this.objectClass = objectClass;
-    }
-
     /** @return The {@link ContainerType#disassembleMethod} field */
     public Method getDisassembleMethod() {
         return disassembleMethod;
     }
 
-    /** @param disassembleMethod see the {@link ContainerType#disassembleMethod} field */
-    public void setDisassembleMethod(Method disassembleMethod) {
-        this.disassembleMethod = disassembleMethod;
-    }
-
     /** @return The {@link ContainerType#factory} field */
     public String getFactory() {
         return factory;
     }
 
-    /** @param factory see the {@link ContainerType#factory} field */
-    public void setFactory(String factory) {
-        this.factory = factory;
-    }
-
-    /**
-     * This constructor initializes an empty {@link #containerTypes}.
-     */
-    public ContainerType() {
-        setContainerTypes(new ArrayList<ContainerType>());
-    }
-
     /** @return The {@link ContainerType#containerTypes} field */
     public List<ContainerType> getContainerTypes() {
         return containerTypes;
     }
 
-    /**
-     * @param containerTypes see the {@link ContainerType#containerTypes} field
-     */
-    public void setContainerTypes(List<ContainerType> containerTypes) {
-        this.containerTypes = containerTypes;
-    }
-
     /** @return The {@link ContainerType#filling} field */
     public String getFilling() {
         return filling;
     }
 
-    /** @param filling see the {@link ContainerType#filling} field */
-    public void setFilling(String filling) {
-        this.filling = filling;
+    /**
+     * The key of the {@link ContainerType#CANONICAL} maps. It compares structures of {@link ContainerType}s.
+     * Inner {@link ContainerType}s are canonical already, so they are compared by identity.
+     */
+    private static final class Shape {
+
+        /** The compared {@link ContainerType} */
+        private final ContainerType containerType;
+
+        /**
+         * @param containerType see the {@link #containerType} field
+         */
+        private Shape(ContainerType containerType) {
+            this.containerType = containerType;
+        }
+
+        @Override
+        public int hashCode() {
+            return containerType.hash;
+        }
+
+        @Override
+        public boolean equals(Object otherObject) {
+            if (!(otherObject instanceof Shape)) {
+                return false;
+            }
+            ContainerType other = ((Shape) otherObject).containerType;
+            return containerType.hash == other.hash
+                    && containerType.objectClass == other.objectClass
+                    && containerType.containerTypes.equals(other.containerTypes)
+                    && Objects.equals(containerType.disassembleMethod, other.disassembleMethod)
+                    && Objects.equals(containerType.factory, other.factory)
+                    && Objects.equals(containerType.filling, other.filling);
+        }
     }
 
 }
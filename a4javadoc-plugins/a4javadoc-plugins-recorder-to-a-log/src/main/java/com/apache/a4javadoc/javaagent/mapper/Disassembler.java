@@ -0,0 +1,112 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * Describes how to take apart and assemble again a generic container, that is not
+ * a {@link java.util.Collection} nor a {@link java.util.Map}, for example a Guava table.
+ * The container items are obtained by the {@link #disassembleMethod} and each item is flattened out
+ * to the values of the container type variables by the {@link #itemAccessors},
+ * for example a table cell to its row key, column key and value.
+ * The container is assembled by the {@link #filling} method called with the flattened values.<br>
+ * Disassemblers are found once per class by the {@link MethodService#getDisassembler(Class)} method.
+ * @author Kyrylo Semenko
+ */
+public class Disassembler {
+
+    /** The method without parameters, that returns an {@link Iterable} or {@link java.util.Map} of items */
+    private final Method disassembleMethod;
+
+    /**
+     * Methods of items without parameters, that return the item parts, one per type variable of the container.
+     * Empty if the items are not composite.
+     */
+    private final Method[] itemAccessors;
+
+    /** The static method without parameters, that creates an empty container */
+    private final Method factory;
+
+    /** The method of the container, that adds the item parts */
+    private final Method filling;
+
+    /**
+     * @param disassembleMethod see the {@link #disassembleMethod} field
+     * @param itemAccessors see the {@link #itemAccessors} field
+     * @param factory see the {@link #factory} field
+     * @param filling see the {@link #filling} field
+     */
+    Disassembler(Method disassembleMethod, Method[] itemAccessors, Method factory, Method filling) {
+        this.disassembleMethod = disassembleMethod;
+        this.itemAccessors = itemAccessors;
+        this.factory = factory;
+        this.filling = filling;
+    }
+
+    /**
+     * @param container the data source
+     * @return the items of the container, see the {@link BundleService#iterator(Object)} method
+     */
+    public Iterator<Object> iterator(Object container) {
+        try {
+            return BundleService.getInstance().iterator(disassembleMethod.invoke(container));
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * @param item an item returned by the {@link #iterator(Object)}
+     * @return the item parts, for example a row key, a column key and a value of a table cell
+     */
+    public Object[] flattenOut(Object item) {
+        if (itemAccessors.length == 0) {
+            return new Object[] {item};
+        }
+        try {
+            Object[] result = new Object[itemAccessors.length];
+            for (int i = 0; i < itemAccessors.length; i++) {
+                result[i] = itemAccessors[i].invoke(item);
+            }
+            return result;
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * Add the item parts to the container.
+     * @param container created by the {@link #factory}
+     * @param parts the result of the {@link #flattenOut(Object)} method
+     */
+    public void fill(Object container, Object[] parts) {
+        try {
+            filling.invoke(container, parts);
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /** @return The {@link Disassembler#disassembleMethod} field */
+    public Method getDisassembleMethod() {
+        return disassembleMethod;
+    }
+
+    /** @return The {@link Disassembler#factory} field */
+    public Method getFactory() {
+        return factory;
+    }
+
+    /** @return The {@link Disassembler#filling} field */
+    public Method getFilling() {
+        return filling;
+    }
+
+    /** @return number of the item parts */
+    public int getPartsCount() {
+        return Math.max(1, itemAccessors.length);
+    }
+
+}
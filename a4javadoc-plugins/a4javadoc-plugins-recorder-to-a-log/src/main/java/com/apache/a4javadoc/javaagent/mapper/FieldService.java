@@ -1,10 +1,16 @@
 package com.apache.a4javadoc.javaagent.mapper;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
@@ -15,8 +21,6 @@ import com.apache.a4javadoc.exception.AppRuntimeException;
  */
 public class FieldService {
 
-    private static FieldService instance;
-
     private FieldService() {
         // empty
     }
@@ -25,10 +29,7 @@ public class FieldService {
      * @return the {@link FieldService} singleton.
      */
     public static FieldService getInstance() {
-        if (instance == null) {
-            instance = new FieldService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
@@ -37,8 +38,17 @@ public class FieldService {
      * @return fields from this sourceObjecta and all its parents recursively
      */
     public List<Field> getFields(Object sourceObject) {
+        return getFields(sourceObject.getClass());
+    }
+
+    /**
+     * Get fields of the class from the argument.
+     * @param clazz the fields source
+     * @return fields from this clazz and all its parents recursively
+     */
+    public List<Field> getFields(Class<?> clazz) {
         List<Field> result = new ArrayList<>();
-        for (Class<?> c = sourceObject.getClass(); c != null; c = c.getSuperclass()) {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
             Field[] fields = c.getDeclaredFields();
             for (Field classField : fields) {
                 if (isValidField(classField)) {
@@ -63,6 +73,8 @@ public class FieldService {
     /**
      * Collect types of the identifier or fieldObject or field from arguments.
      * If the fieldObject argument is not null, process it.
+     * Items of the fieldObject are iterated without copying, up to
+     * the {@link ConfigService#getMaxContainerElements()} limit.
      * Else process field argument.
      * @param field the data source
      * @param fieldObject the data source
@@ -82,13 +94,15 @@ public class FieldService {
             }
 
             // Collections and maps
-            List<Object> objectList = new ArrayList<>();
-            BundleService.getInstance().addItemsToList(fieldObject, objectList);
-
             // Iterate objects and find out their types, then choose the most generic
+            Iterator<Object> iterator = BundleService.getInstance().iterator(fieldObject);
+            int maxElements = ConfigService.getInstance().getMaxContainerElements();
             Class<?> clazz = null;
-            for (Object object : objectList) {
-                clazz = ClassService.getInstance().findCommonClassType(object.getClass(), clazz);
+            for (int i = 0; i < maxElements && iterator.hasNext(); i++) {
+                Object object = iterator.next();
+                if (object != null) {
+                    clazz = ClassService.getInstance().findCommonClassType(object.getClass(), clazz);
+                }
             }
             result.add(clazz);
             return result;
@@ -119,4 +133,73 @@ public class FieldService {
         return result;
     }
 
+    /**
+     * Create the {@link ContainerType} of values declared by the field, for example
+     * {@code List<String>} for the {@code List<String> items} field.
+     * Type variables and wildcards are replaced with their bounds.
+     * @param field the source
+     * @return the canonical {@link ContainerType}
+     */
+    public ContainerType createContainerType(Field field) {
+        return createContainerType(field.getGenericType());
+    }
+
+    /**
+     * Recursive method. Create the {@link ContainerType} of the type.
+     * @param type a {@link Class}, {@link ParameterizedType}, {@link GenericArrayType},
+     * {@link WildcardType} or {@link TypeVariable}
+     * @return the canonical {@link ContainerType}
+     */
+    private ContainerType createContainerType(Type type) {
+        if (type instanceof WildcardType) {
+            return createContainerType(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof ParameterizedType) {
+            List<ContainerType> containerTypes = new ArrayList<>();
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                containerTypes.add(createContainerType(argument));
+            }
+            return ContainerType.of((Class<?>) ((ParameterizedType) type).getRawType(), containerTypes);
+        }
+        if (type instanceof GenericArrayType) {
+            ContainerType componentType = createContainerType(((GenericArrayType) type).getGenericComponentType());
+            return ContainerType.of(Array.newInstance(componentType.getObjectClass(), 0).getClass(),
+                    Collections.singletonList(componentType));
+        }
+        if (type instanceof Class && ((Class<?>) type).isArray()) {
+            return ContainerType.of((Class<?>) type,
+                    Collections.singletonList(createContainerType(((Class<?>) type).getComponentType())));
+        }
+        return ContainerType.of(erasure(type));
+    }
+
+    /**
+     * @param type a {@link Class}, {@link ParameterizedType}, {@link GenericArrayType},
+     * {@link WildcardType} or {@link TypeVariable}
+     * @return the {@link Class} of the type without generic parameters
+     */
+    private Class<?> erasure(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(erasure(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return erasure(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            return erasure(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /** Lazy holder of the {@link FieldService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final FieldService INSTANCE = new FieldService();
+    }
+
 }
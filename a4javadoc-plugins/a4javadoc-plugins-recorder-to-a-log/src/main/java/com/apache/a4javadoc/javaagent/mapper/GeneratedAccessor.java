@@ -0,0 +1,110 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+import com.apache.a4javadoc.javaagent.api.FieldValuesReader;
+
+/**
+ * The {@link ObjectAccessor} based on a {@link FieldValuesReader} generated by the {@link AccessorGenerator}.
+ * The generated reader calls getters and reads fields directly, without reflection.
+ * Fields that are not accessible from the generated class, for example private fields
+ * without getters, are read by the fallback accessor.
+ * @author Kyrylo Semenko
+ */
+public class GeneratedAccessor implements ObjectAccessor {
+
+    /** Marks the values not stored by the {@link #reader} before it failed */
+    private static final Object NOT_READ = new Object();
+
+    /** The generated class instance */
+    private final FieldValuesReader reader;
+
+    /** Indexes of fields not read by the {@link #reader} */
+    private final int[] fallbackIndexes;
+
+    /** 'true' for indexes of values stored by the {@link #reader} */
+    private final boolean[] readByReader;
+
+    /** Reads the fields with {@link #fallbackIndexes} and the fields not read if the {@link #reader} fails */
+    private final ObjectAccessor fallbackAccessor;
+
+    /** Reads the field of a failed getter */
+    private final ReflectiveAccessor reflectiveAccessor;
+
+    /**
+     * @param reader see the {@link #reader} field
+     * @param fallbackIndexes see the {@link #fallbackIndexes} field
+     * @param fallbackAccessor see the {@link #fallbackAccessor} field
+     * @param reflectiveAccessor see the {@link #reflectiveAccessor} field
+     */
+    public GeneratedAccessor(FieldValuesReader reader, int[] fallbackIndexes, ObjectAccessor fallbackAccessor,
+            ReflectiveAccessor reflectiveAccessor) {
+        this.reader = reader;
+        this.fallbackIndexes = fallbackIndexes;
+        this.fallbackAccessor = fallbackAccessor;
+        this.reflectiveAccessor = reflectiveAccessor;
+        this.readByReader = new boolean[reflectiveAccessor.getFields().size()];
+        Arrays.fill(readByReader, true);
+        for (int index : fallbackIndexes) {
+            readByReader[index] = false;
+        }
+    }
+
+    @Override
+    public List<Field> getFields() {
+        return fallbackAccessor.getFields();
+    }
+
+    /**
+     * Read values by the {@link #reader}, then the rest by the {@link #fallbackAccessor}.
+     * If a getter throws an exception, the reader stops and only the values it did not store are read again,
+     * so no getter is called twice. The reader stores the values in the order of their indexes,
+     * so the first value it did not store belongs to the failed getter and is read from the field.
+     * The others are read by the {@link #fallbackAccessor}.
+     */
+    @Override
+    public void readValues(Object sourceObject, Object[] values) {
+        Arrays.fill(values, 0, readByReader.length, NOT_READ);
+        try {
+            reader.read(sourceObject, values);
+        } catch (Exception | LinkageError e) {
+            readNotStored(sourceObject, values);
+            return;
+        }
+        for (int index : fallbackIndexes) {
+            values[index] = fallbackAccessor.readValue(sourceObject, index);
+        }
+    }
+
+    /**
+     * Read the values the {@link #reader} did not store before it failed.
+     * @param sourceObject the data source
+     * @param values the values stored by the {@link #reader} and the {@link #NOT_READ} marks
+     */
+    private void readNotStored(Object sourceObject, Object[] values) {
+        boolean failedGetterFound = false;
+        for (int index = 0; index < readByReader.length; index++) {
+            if (values[index] != NOT_READ) {
+                continue;
+            }
+            if (readByReader[index] && !failedGetterFound) {
+                failedGetterFound = true;
+                values[index] = reflectiveAccessor.readField(sourceObject, index);
+            } else {
+                values[index] = fallbackAccessor.readValue(sourceObject, index);
+            }
+        }
+    }
+
+    @Override
+    public Object readValue(Object sourceObject, int index) {
+        return fallbackAccessor.readValue(sourceObject, index);
+    }
+
+    /** @return The {@link GeneratedAccessor#fallbackIndexes} field */
+    int[] getFallbackIndexes() {
+        return fallbackIndexes;
+    }
+}
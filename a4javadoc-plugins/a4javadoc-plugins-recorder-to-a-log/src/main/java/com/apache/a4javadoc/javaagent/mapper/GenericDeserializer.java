@@ -1,160 +1,1025 @@
 package com.apache.a4javadoc.javaagent.mapper;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
-import org.apache.commons.lang3.NotImplementedException;
+import org.apache.commons.lang3.ClassUtils;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
 /**
  * This deserializer can process JSON string created by {@link GenericSerializer}.<br>
- * It can process circular references in JSON, where some object contains itself somewhere in its object graph.<br>
+ * The JSON is read directly from the {@link JsonParser} tokens without building of a tree of nodes,
+ * and the object graph is built iteratively with an explicit stack of {@link ReadFrame}s,
+ * so large trace files and deep graphs can be read with bounded memory.<br>
+ * It can process circular references in JSON, where some object contains itself somewhere in its object graph.
+ * Such references are written as identifiers with the {@link Identifier#getReference()} number,
+ * see the {@link GenericSerializer}.<br>
+ * Subtrees rejected by a {@link SubtreeFilter} are skipped without deserialization.
+ * The filter is passed as the {@link #SUBTREE_FILTER_ATTRIBUTE} attribute of the {@link DeserializationContext},
+ * see the {@link ObjectMapperA4j#readValue(String, SubtreeFilter)} method.
  * @author Kyrylo Semenko
  */
 @SuppressWarnings("serial")
 public class GenericDeserializer extends StdDeserializer<Object> {
-    
+
+    /** The {@link DeserializationContext#getAttribute(Object)} key of a {@link SubtreeFilter} */
+    public static final String SUBTREE_FILTER_ATTRIBUTE = SubtreeFilter.class.getName();
+
     private static final String METHOD_NAME_VALUE_OF = "valueOf";
-    
-    /**
-     * Values of this map contains already deserialized objects. The keys of the map contains generic identifiers,
-     * see the {@link IdentifierService#generateIdentifier(JsonNode, Object)} method.
-     */
-    private transient Map<String, Object> deserializedObjects;
-    
+
+    /** The name of the {@link Enum} field with the name of a constant */
+    private static final String ENUM_NAME_FIELD = "name";
+
+    /** Returned instead of a value, when the value will be completed by a pushed {@link ReadFrame} */
+    private static final Object PENDING = new Object();
+
+    /** Fields of deserialized classes by their names */
+    private static final ClassValue<Map<String, FieldSlot>> FIELD_SLOTS = new ClassValue<Map<String, FieldSlot>>() {
+        @Override
+        protected Map<String, FieldSlot> computeValue(Class<?> type) {
+            Map<String, FieldSlot> result = new HashMap<>();
+            for (Field field : FieldService.getInstance().getFields(type)) {
+                if (!result.containsKey(field.getName())) {
+                    result.put(field.getName(), new FieldSlot(field));
+                }
+            }
+            return result;
+        }
+    };
+
     /** The default constructor */
     public GenericDeserializer() {
-        this(null); 
-        deserializedObjects = new HashMap<>();
-    } 
- 
+        this(null);
+    }
+
     /**
      * Type of values this deserializer handles. In our case it is {@link Object}.
      * @param valueClass
      */
-    public GenericDeserializer(Class<?> valueClass) { 
-        super(valueClass); 
-        deserializedObjects = new HashMap<>();
+    public GenericDeserializer(Class<?> valueClass) {
+        super(valueClass);
     }
- 
+
     @Override
     public Object deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
-        JsonNode rootNode = jsonParser.getCodec().readTree(jsonParser);
-        
-        if (rootNode.isNull()) {
+        Reading reading = new Reading(jsonParser,
+                (SubtreeFilter) deserializationContext.getAttribute(SUBTREE_FILTER_ATTRIBUTE));
+        try {
+            Object value = startValue(objectType(), reading, 1);
+            if (value != PENDING) {
+                return value;
+            }
+            while (true) {
+                ReadFrame frame = reading.stack.peek();
+                if (!frame.next(reading)) {
+                    reading.stack.pop();
+                    Object result = frame.complete(reading);
+                    if (reading.stack.isEmpty()) {
+                        return result;
+                    }
+                    reading.stack.peek().accept(result);
+                }
+            }
+        } catch (AppRuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * Read the value starting at the current token.
+     * @param expectedType the type declared by a field or a container, used for values without identifiers
+     * @param reading the state of the current deserialization
+     * @param depth the nesting level of the value
+     * @return the value or {@link #PENDING} if a {@link ReadFrame} has been pushed for the value
+     * @throws IOException
+     */
+    private Object startValue(ContainerType expectedType, Reading reading, int depth) throws IOException {
+        JsonParser parser = reading.parser;
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
             return null;
         }
-        
-        if (rootNode.get(GenericSerializer.GENERIC_KEY_ID) == null) {
-            throw new AppRuntimeException("Cannot parse the JSON because it has no field with key '"
-                    + GenericSerializer.GENERIC_KEY_ID
-                    + "'. Probably this JSON does not generated by '" + GenericSerializer.class.getName()
-                    + "'. Please use the '" + GenericSerializer.class.getName()
-                    + "' for serialization an object to JSON. JSON: "
-                    + rootNode);
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+            if (token == JsonToken.FIELD_NAME && GenericSerializer.GENERIC_KEY_ID.equals(parser.getCurrentName())) {
+                parser.nextToken();
+                Identifier identifier = IdentifierService.getInstance().readIdentifier(parser);
+                if (parser.nextToken() == JsonToken.END_OBJECT) {
+                    return reading.resolve(identifier.getReference());
+                }
+                parser.nextToken();
+                return startIdentifiedValue(identifier.getContainerType(), reading, depth);
+            }
+            return startObject(expectedType, reading, depth, false);
         }
-        
-        Identifier identifier = IdentifierService.getInstance().createIdentifierFromJsonNode(rootNode.get(GenericSerializer.GENERIC_KEY_ID));
-        if (deserializedObjects.containsKey(identifier)) {
-            return deserializedObjects.get(identifier);
+        if (token == JsonToken.START_ARRAY) {
+            return startArray(expectedType, reading, depth, false);
         }
-        return deserializeObject(rootNode.get(GenericSerializer.GENERIC_VALUE), identifier, null);
+        return readScalar(expectedType.getObjectClass(), parser);
     }
 
     /**
-     * Recursive method. Create a new instance from the currentNode.
-     * @param jsonNode the data source, cannot be 'null'.
-     * @param identifier if exists, this {@link Identifier} has been created by {@link GenericSerializer}. Can be 'null'.
-     * @param parentInstance deserialized enclosing object of the returned object. Can be 'null'.
-     * @return instantiated object of the {@link Identifier#getContainerType()}.{@link ContainerType#getObjectClass()} type.
+     * Read the {@link GenericSerializer#GENERIC_VALUE} of an object with the {@link GenericSerializer#GENERIC_KEY_ID}.
+     * The end of the enclosing object is consumed as well.
+     * @param containerType the type from the {@link Identifier}
+     * @param reading the state of the current deserialization
+     * @param depth the nesting level of the value
+     * @return the value or {@link #PENDING} if a {@link ReadFrame} has been pushed for the value
+     * @throws IOException
      */
-    private Object deserializeObject(JsonNode jsonNode, Identifier identifier, Object parentInstance) {
-        try {
-                if (jsonNode.isNull()) {
-                    return null;
-                }
-                if (identifier == null) {
-                    identifier = IdentifierService.getInstance().generateIdentifier(jsonNode, parentInstance);
-                }
-                final Class<?> objectClass = identifier.getContainerType().getObjectClass();
+    private Object startIdentifiedValue(ContainerType containerType, Reading reading, int depth) throws IOException {
+        JsonParser parser = reading.parser;
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            parser.nextToken();
+            return startObject(containerType, reading, depth, true);
+        }
+        if (token == JsonToken.START_ARRAY) {
+            return startArray(containerType, reading, depth, true);
+        }
+        Object value = token == JsonToken.VALUE_NULL ? null : readScalar(containerType.getObjectClass(), parser);
+        parser.nextToken();
+        return value;
+    }
 
-                if (String.class == objectClass) {
-                    return jsonNode.asText();
-                }
-                if (contanisValueOfMethod(objectClass)) {
-                    Method valueOfMethod = objectClass.getDeclaredMethod(METHOD_NAME_VALUE_OF, String.class);
-                    return valueOfMethod.invoke(null, jsonNode.asText());
+    /**
+     * Instantiate a complex object and push the {@link ObjectReadFrame} for its fields.
+     * @param containerType the type of the object
+     * @param reading the state of the current deserialization
+     * @param depth the nesting level of the object
+     * @param identified 'true' if the object is the value of an identifier
+     * @return the {@link #PENDING}
+     */
+    private Object startObject(ContainerType containerType, Reading reading, int depth, boolean identified) {
+        int number = reading.objectCount++;
+        Class<?> clazz = containerType.getObjectClass();
+        Object instance = null;
+        Class<?> enumClass = null;
+        Map<String, FieldSlot> slots = null;
+        if (clazz == null || clazz == Object.class || clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            instance = new LinkedHashMap<String, Object>();
+        } else if (Enum.class.isAssignableFrom(clazz)) {
+            enumClass = clazz.isEnum() ? clazz : clazz.getSuperclass();
+        } else {
+            instance = instantiate(containerType);
+            slots = FIELD_SLOTS.get(clazz);
+        }
+        ObjectReadFrame frame = new ObjectReadFrame(number, depth, identified, instance, enumClass, slots);
+        if (identified && instance != null) {
+            reading.identifiedObjects.put(number, instance);
+        }
+        reading.stack.push(frame);
+        return PENDING;
+    }
+
+    /**
+     * Push a {@link ReadFrame} for the items of an array, collection, map, map entry
+     * or a generic container written by a {@link Disassembler}.
+     * @param containerType the type of the container
+     * @param reading the state of the current deserialization
+     * @param depth the nesting level of the container
+     * @param identified 'true' if the container is the value of an identifier
+     * @return the {@link #PENDING}
+     */
+    private Object startArray(ContainerType containerType, Reading reading, int depth, boolean identified) {
+        int number = reading.objectCount++;
+        Class<?> clazz = containerType.getObjectClass();
+        ReadFrame frame;
+        if (clazz != null && clazz.isArray()) {
+            ContainerType itemType = itemType(containerType, 0);
+            if (itemType.getObjectClass() == Object.class) {
+                itemType = ContainerType.of(clazz.getComponentType());
+            }
+            frame = new ArrayReadFrame(number, depth, identified, clazz.getComponentType(), itemType);
+        } else if (clazz != null && Map.class.isAssignableFrom(clazz)) {
+            ContainerType entryType = ContainerType.of(Map.Entry.class,
+                    Arrays.asList(itemType(containerType, 0), itemType(containerType, 1)));
+            frame = new MapReadFrame(number, depth, identified, newMap(clazz), entryType);
+        } else if (clazz != null && Map.Entry.class.isAssignableFrom(clazz)) {
+            frame = new EntryReadFrame(number, depth, identified, itemType(containerType, 0), itemType(containerType, 1));
+        } else if (clazz != null && Collection.class.isAssignableFrom(clazz)) {
+            frame = new CollectionReadFrame(number, depth, identified, newCollection(clazz), itemType(containerType, 0));
+        } else if (clazz != null && containerType.getFactory() != null && containerType.getFilling() != null) {
+            Disassembler disassembler = MethodService.getInstance().getDisassembler(clazz);
+            if (disassembler == null || !disassembler.getFilling().getName().equals(containerType.getFilling())) {
+                throw new AppRuntimeException("Cannot fill " + clazz.getName()
+                        + " by the method " + containerType.getFilling());
+            }
+            Object instance = instantiate(containerType);
+            if (identified) {
+                reading.identifiedObjects.put(number, instance);
+            }
+            frame = new DisassembledReadFrame(number, depth, identified, instance, disassembler,
+                    ContainerType.of(Object[].class));
+        } else {
+            frame = new CollectionReadFrame(number, depth, identified, new ArrayList<Object>(), objectType());
+        }
+        reading.stack.push(frame);
+        return PENDING;
+    }
+
+    /**
+     * Skip the value at the current token. Containers of the skipped subtree are counted,
+     * so that the {@link Identifier#getReference()} numbers of subsequent values stay valid.
+     * @param reading the state of the current deserialization
+     * @throws IOException
+     */
+    private static void skipValue(Reading reading) throws IOException {
+        JsonParser parser = reading.parser;
+        int level = 0;
+        JsonToken token = parser.getCurrentToken();
+        while (true) {
+            if (token == JsonToken.START_ARRAY) {
+                reading.objectCount++;
+                level++;
+            } else if (token == JsonToken.START_OBJECT) {
+                token = parser.nextToken();
+                if (token == JsonToken.FIELD_NAME && GenericSerializer.GENERIC_KEY_ID.equals(parser.getCurrentName())) {
+                    parser.nextToken();
+                    parser.skipChildren();
+                } else {
+                    reading.objectCount++;
                 }
-                if (Iterable.class.isAssignableFrom(objectClass)) {
-                    throw new NotImplementedException("todo");
+                level++;
+                if (token == JsonToken.END_OBJECT) {
+                    level--;
                 }
-                return null;
-        //        try {
-        //            Object instance = null;
-        //            Class<?> clazz = null;
-        //            String identifier = defaultIdentifier;
-        //            if (currentNode.has(GenericSerializer.GENERIC_KEY_ID)) {
-        //                identifier = currentNode.get(GenericSerializer.GENERIC_KEY_ID).asText();
-        //                if (deserializedObjects.containsKey(identifier)) {
-        //                    return deserializedObjects.get(identifier);
-        //                }
-        //                String className = IdentifierService.getInstance().findClassName(identifier);
-        //                clazz = Class.forName(className);
-        //                currentNode = currentNode.get(GenericSerializer.GENERIC_VALUE);
-        //            } else {
-        ////                if (containerTypes != null && !containerTypes.isEmpty()) {
-        ////                    // generic or array
-        ////                    for (int i = 0; i < currentNode.size(); i++) {
-        ////                        
-        ////                    }
-        ////                } else {
-        //                    clazz = defaultType;
-        ////                }
-        //            }
-        //            Object result = processPrimitiveOrWrapperOrString(currentNode, clazz);
-        //            if (result != null) {
-        //                return result;
-        //            }
-        //            instance = instantiate(clazz, containerTypes, currentNode, parentInstance, fieldName, identifier);
-        //            if (identifier != null) {
-        //                deserializedObjects.put(identifier, instance);
-        //            }
-        //            
-        //            deserializeSubFields(currentNode, instance, null, identifier);
-        //            return instance;
-        //        } catch (Exception e) {
-        //            throw new AppRuntimeException(e);
-        //        }
+            } else if (token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+                level--;
+            }
+            if (level == 0) {
+                return;
+            }
+            token = parser.nextToken();
+        }
+    }
+
+    /**
+     * Create a scalar value from the current token.
+     * @param clazz the expected type of the value, for example {@link Integer} or int
+     * @param parser the source
+     * @return the value
+     * @throws IOException
+     */
+    private static Object readScalar(Class<?> clazz, JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (clazz == null || clazz.isAssignableFrom(String.class)) {
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parser.getNumberValue();
+            }
+            if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                return parser.getBooleanValue();
+            }
+            return parser.getText();
+        }
+        String text = parser.getText();
+        Class<?> wrapper = ClassUtils.primitiveToWrapper(clazz);
+        if (wrapper == Integer.class) {
+            return Integer.valueOf(text);
+        }
+        if (wrapper == Long.class) {
+            return Long.valueOf(text);
+        }
+        if (wrapper == Boolean.class) {
+            return Boolean.valueOf(text);
+        }
+        if (wrapper == Double.class) {
+            return Double.valueOf(text);
+        }
+        if (wrapper == Float.class) {
+            return Float.valueOf(text);
+        }
+        if (wrapper == Short.class) {
+            return Short.valueOf(text);
+        }
+        if (wrapper == Byte.class) {
+            return Byte.valueOf(text);
+        }
+        if (wrapper == Character.class) {
+            return text.charAt(0);
+        }
+        try {
+            Method valueOfMethod = findValueOfMethod(clazz);
+            if (valueOfMethod != null) {
+                return valueOfMethod.invoke(null, text);
+            }
         } catch (Exception e) {
             throw new AppRuntimeException(e);
         }
+        throw new AppRuntimeException("Cannot convert the '" + text + "' value to the " + clazz.getName() + " type");
     }
 
     /**
      * If the {@link Class#getDeclaredMethods()} contains the {@link #METHOD_NAME_VALUE_OF} {@link Method},
      * this {@link Method} can be used for instantiation of an object of this type. Mostly for the primitive wrappers.
      * @param objectClass methods source
-     * @return 'true' if the argument contains the static {@link Method} with the valueOf name and the one parameter of the {@link String} type
+     * @return the static {@link Method} with the valueOf name and the one parameter of the {@link String} type
+     * or 'null' if the argument does not contain it
      */
-    private boolean contanisValueOfMethod(Class<?> objectClass) {
+    private static Method findValueOfMethod(Class<?> objectClass) {
         for (Method method : objectClass.getDeclaredMethods()) {
             if (Modifier.isStatic(method.getModifiers())
                     && method.getReturnType() == objectClass
                     && method.getParameterTypes().length == 1
                     && method.getParameterTypes()[0] == String.class
                     && method.getName().equals(METHOD_NAME_VALUE_OF)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Create an instance by the {@link ContainerType#getFactory()} method if exists,
+     * else see the {@link InstantiationPlan#newInstance()} method.
+     * @param containerType the type of the instance
+     * @return the new instance
+     */
+    private static Object instantiate(ContainerType containerType) {
+        InstantiationPlan plan = ConstructorService.getInstance().getInstantiationPlan(containerType.getObjectClass());
+        if (containerType.getFactory() == null) {
+            return plan.newInstance();
+        }
+        return plan.newInstanceByFactory(containerType.getFactory());
+    }
+
+    /**
+     * Create a new empty collection by the default constructor.
+     * @param clazz the type of the collection
+     * @return the new collection or a substitute from the java.util package if the type cannot be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Class<?> clazz) {
+        Object collection = newInstanceByConstructor(clazz);
+        return collection == null ? substituteCollection(clazz) : (Collection<Object>) collection;
+    }
+
+    /**
+     * @param clazz the type of a collection, that cannot be instantiated or filled
+     * @return a new empty mutable collection, that implements the main interface of the type
+     */
+    private static Collection<Object> substituteCollection(Class<?> clazz) {
+        if (SortedSet.class.isAssignableFrom(clazz)) {
+            return new TreeSet<>();
+        }
+        if (Set.class.isAssignableFrom(clazz)) {
+            return new LinkedHashSet<>();
+        }
+        if (Queue.class.isAssignableFrom(clazz) && !List.class.isAssignableFrom(clazz)) {
+            return new LinkedList<>();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Create a new empty map by the default constructor.
+     * @param clazz the type of the map
+     * @return the new map or a substitute from the java.util package if the type cannot be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Class<?> clazz) {
+        Object map = newInstanceByConstructor(clazz);
+        return map == null ? substituteMap(clazz) : (Map<Object, Object>) map;
+    }
+
+    /**
+     * @param clazz the type of a container
+     * @return the new instance created by the {@link InstantiationPlan#getConstructor()}
+     * or 'null' if the type has no usable default constructor
+     */
+    private static Object newInstanceByConstructor(Class<?> clazz) {
+        Constructor<?> constructor = ConstructorService.getInstance().getInstantiationPlan(clazz).getConstructor();
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param clazz the type of a map, that cannot be instantiated or filled
+     * @return a new empty mutable map, that implements the main interface of the type
+     */
+    private static Map<Object, Object> substituteMap(Class<?> clazz) {
+        if (SortedMap.class.isAssignableFrom(clazz)) {
+            return new TreeMap<>();
+        }
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * @param containerType the type of a container
+     * @param index the index in the {@link ContainerType#getContainerTypes()}
+     * @return the type of the container items or the {@link Object} type if it is not known
+     */
+    private static ContainerType itemType(ContainerType containerType, int index) {
+        List<ContainerType> containerTypes = containerType.getContainerTypes();
+        if (containerTypes != null && containerTypes.size() > index && containerTypes.get(index).getObjectClass() != null) {
+            return containerTypes.get(index);
+        }
+        return objectType();
+    }
+
+    /**
+     * @return the {@link ContainerType} of the {@link Object} class, used for values of unknown types
+     */
+    private static ContainerType objectType() {
+        return ContainerType.of(Object.class);
+    }
+
+    /**
+     * The state of a single {@link #deserialize(JsonParser, DeserializationContext)} call.
+     */
+    private static class Reading {
+
+        /** The source of tokens */
+        private final JsonParser parser;
+
+        /** Can be 'null' */
+        private final SubtreeFilter subtreeFilter;
+
+        /** Containers and objects in the reading process */
+        private final Deque<ReadFrame> stack = new ArrayDeque<>();
+
+        /**
+         * Number of started containers and objects. Its sequence is the same as the sequence of numbers
+         * in the {@link GenericSerializer}, see the {@link Identifier#getReference()}.
+         */
+        private int objectCount;
+
+        /**
+         * Complex objects with identifiers by their numbers. Only they can be referenced
+         * from other parts of the graph, other objects are referenced only from their subtrees.
+         */
+        private final Map<Integer, Object> identifiedObjects = new HashMap<>();
+
+        /**
+         * @param parser see the {@link #parser} field
+         * @param subtreeFilter see the {@link #subtreeFilter} field
+         */
+        private Reading(JsonParser parser, SubtreeFilter subtreeFilter) {
+            this.parser = parser;
+            this.subtreeFilter = subtreeFilter;
+        }
+
+        /**
+         * @param field the field of the value or 'null' for items of containers
+         * @param depth the nesting level of the value
+         * @return 'true' if the {@link #subtreeFilter} rejects the value
+         */
+        private boolean isSkipped(Field field, int depth) {
+            return subtreeFilter != null && subtreeFilter.isSkipped(field, depth);
+        }
+
+        /**
+         * @param reference see the {@link Identifier#getReference()}
+         * @return the already read object with the number or 'null' if it is not found,
+         * for example for stubs of truncated subtrees
+         */
+        private Object resolve(Integer reference) {
+            if (reference == null) {
+                return null;
+            }
+            Object object = identifiedObjects.get(reference);
+            if (object != null) {
+                return object;
+            }
+            for (ReadFrame frame : stack) {
+                if (frame.number == reference) {
+                    return frame.getInstance();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A container or complex object in the reading process.
+     */
+    private abstract static class ReadFrame {
+
+        /** The number of the object, see the {@link Reading#objectCount} */
+        protected final int number;
+
+        /** The nesting level of the object */
+        protected final int depth;
+
+        /** If 'true', the end of the enclosing identified object should be consumed at the end */
+        protected final boolean identified;
+
+        /**
+         * @param number see the {@link #number} field
+         * @param depth see the {@link #depth} field
+         * @param identified see the {@link #identified} field
+         */
+        protected ReadFrame(int number, int depth, boolean identified) {
+            this.number = number;
+            this.depth = depth;
+            this.identified = identified;
+        }
+
+        /**
+         * Read the next item of the object. Complete items are passed to the {@link #accept(Object)} method,
+         * for composite items a new frame is pushed.
+         * @param reading the state of the current deserialization
+         * @return 'false' if the end of the object has been reached
+         * @throws IOException
+         */
+        protected abstract boolean next(Reading reading) throws IOException;
+
+        /**
+         * @param value the next item of the object
+         */
+        protected abstract void accept(Object value);
+
+        /**
+         * @param reading the state of the current deserialization
+         * @return the object built from the read items
+         */
+        protected abstract Object complete(Reading reading);
+
+        /** @return the object in the reading process or 'null' if it is not created yet */
+        protected abstract Object getInstance();
+
+        /**
+         * Consume the end of the enclosing identified object.
+         * @param reading the state of the current deserialization
+         * @throws IOException
+         */
+        protected void finish(Reading reading) throws IOException {
+            if (identified) {
+                reading.parser.nextToken();
+            }
+        }
+    }
+
+    /**
+     * Reads fields of a complex object. Objects of unknown types are read to a {@link LinkedHashMap}.
+     */
+    private class ObjectReadFrame extends ReadFrame {
+
+        /** The object to be filled or 'null' for enums */
+        private final Object instance;
+
+        /** The type of the enum constant or 'null' */
+        private final Class<?> enumClass;
+
+        /** Fields of the object type or 'null' for the {@link LinkedHashMap} instances */
+        private final Map<String, FieldSlot> slots;
+
+        /** The first field name is the current token when the frame is created */
+        private boolean started;
+
+        /** The name of the field that is read */
+        private String fieldName;
+
+        /** The field that is read or 'null' */
+        private FieldSlot slot;
+
+        /** The {@link #ENUM_NAME_FIELD} value */
+        private String enumName;
+
+        /**
+         * @param number see the {@link ReadFrame#number} field
+         * @param depth see the {@link ReadFrame#depth} field
+         * @param identified see the {@link ReadFrame#identified} field
+         * @param instance see the {@link #instance} field
+         * @param enumClass see the {@link #enumClass} field
+         * @param slots see the {@link #slots} field
+         */
+        private ObjectReadFrame(int number, int depth, boolean identified, Object instance,
+                Class<?> enumClass, Map<String, FieldSlot> slots) {
+            super(number, depth, identified);
+            this.instance = instance;
+            this.enumClass = enumClass;
+            this.slots = slots;
+        }
+
+        @Override
+        protected boolean next(Reading reading) throws IOException {
+            JsonParser parser = reading.parser;
+            JsonToken token = started ? parser.nextToken() : parser.getCurrentToken();
+            started = true;
+            if (token == JsonToken.END_OBJECT) {
+                finish(reading);
+                return false;
+            }
+            fieldName = parser.getCurrentName();
+            parser.nextToken();
+            ContainerType fieldType;
+            if (enumClass != null) {
+                if (ENUM_NAME_FIELD.equals(fieldName) && parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+                    enumName = parser.getText();
+                } else {
+                    skipValue(reading);
+                }
                 return true;
             }
+            if (slots == null) {
+                fieldType = objectType();
+            } else {
+                slot = slots.get(fieldName);
+                if (slot == null || !slot.writable || reading.isSkipped(slot.field, depth + 1)) {
+                    skipValue(reading);
+                    return true;
+                }
+                fieldType = slot.containerType;
+            }
+            Object value = startValue(fieldType, reading, depth + 1);
+            if (value != PENDING) {
+                accept(value);
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected void accept(Object value) {
+            if (slots == null) {
+                ((Map<String, Object>) instance).put(fieldName, value);
+                return;
+            }
+            if (value == null && slot.field.getType().isPrimitive()) {
+                return;
+            }
+            try {
+                slot.field.set(instance, value);
+            } catch (Exception e) {
+                throw new AppRuntimeException("Cannot set the " + fieldName + " field of "
+                        + instance.getClass().getName() + " to the value of " + value.getClass().getName() + " type", e);
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Override
+        protected Object complete(Reading reading) {
+            if (enumClass == null) {
+                return instance;
+            }
+            Object constant = Enum.valueOf((Class) enumClass, enumName);
+            if (identified) {
+                reading.identifiedObjects.put(number, constant);
+            }
+            return constant;
+        }
+
+        @Override
+        protected Object getInstance() {
+            return instance;
+        }
+    }
+
+    /**
+     * Reads items of a JSON array one by one.
+     */
+    private abstract class ItemsReadFrame extends ReadFrame {
+
+        /** The expected type of items without identifiers */
+        private final ContainerType itemType;
+
+        /**
+         * @param number see the {@link ReadFrame#number} field
+         * @param depth see the {@link ReadFrame#depth} field
+         * @param identified see the {@link ReadFrame#identified} field
+         * @param itemType see the {@link #itemType} field
+         */
+        private ItemsReadFrame(int number, int depth, boolean identified, ContainerType itemType) {
+            super(number, depth, identified);
+            this.itemType = itemType;
+        }
+
+        @Override
+        protected boolean next(Reading reading) throws IOException {
+            if (reading.parser.nextToken() == JsonToken.END_ARRAY) {
+                finish(reading);
+                return false;
+            }
+            if (reading.isSkipped(null, depth + 1)) {
+                skipValue(reading);
+                skipped();
+                return true;
+            }
+            Object value = startValue(itemType, reading, depth + 1);
+            if (value != PENDING) {
+                accept(value);
+            }
+            return true;
+        }
+
+        /** Called instead of the {@link #accept(Object)} method for skipped items */
+        protected void skipped() {
+            // empty
+        }
+    }
+
+    /**
+     * Reads items of an array. The array is created at the end, when its length is known.
+     */
+    private class ArrayReadFrame extends ItemsReadFrame {
+
+        /** The {@link Class#getComponentType()} of the array */
+        private final Class<?> componentType;
+
+        /** The read items */
+        private final List<Object> items = new ArrayList<>();
+
+        /**
+         * @param number see the {@link ReadFrame#number} field
+         * @param depth see the {@link ReadFrame#depth} field
+         * @param identified see the {@link ReadFrame#identified} field
+         * @param componentType see the {@link #componentType} field
+         * @param itemType see the {@link ItemsReadFrame#itemType} field
+         */
+        private ArrayReadFrame(int number, int depth, boolean identified, Class<?> componentType, ContainerType itemType) {
+            super(number, depth, identified, itemType);
+            this.componentType = componentType;
+        }
+
+        @Override
+        protected void accept(Object value) {
+            items.add(value);
+        }
+
+        @Override
+        protected void skipped() {
+            items.add(null);
+        }
+
+        @Override
+        protected Object complete(Reading reading) {
+            Object array = Array.newInstance(componentType, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i) != null) {
+                    Array.set(array, i, items.get(i));
+                }
+            }
+            return array;
+        }
+
+        @Override
+        protected Object getInstance() {
+            return null;
+        }
+    }
+
+    /**
+     * Adds items to a collection.
+     */
+    private class CollectionReadFrame extends ItemsReadFrame {
+
+        /** The collection to be filled */
+        private Collection<Object> collection;
+
+        /**
+         * @param number see the {@link ReadFrame#number} field
+         * @param depth see the {@link ReadFrame#depth} field
+         * @param identified see the {@link ReadFrame#identified} field
+         * @param collection see the {@link #collection} field
+         * @param itemType see the {@link ItemsReadFrame#itemType} field
+         */
+        private CollectionReadFrame(int number, int depth, boolean identified,
+                Collection<Object> collection, ContainerType itemType) {
+            super(number, depth, identified, itemType);
+            this.collection = collection;
+        }
+
+        @Override
+        protected void accept(Object value) {
+            try {
+                collection.add(value);
+            } catch (UnsupportedOperationException e) {
+                Collection<Object> substitute = substituteCollection(collection.getClass());
+                substitute.addAll(collection);
+                substitute.add(value);
+                collection = substitute;
+            }
+        }
+
+        @Override
+        protected Object complete(Reading reading) {
+            return collection;
+        }
+
+        @Override
+        protected Object getInstance() {
+            return collection;
+        }
+    }
+
+    /**
+     * Fills a generic container by parts of its items, see the {@link Disassembler#fill(Object, Object[])} method.
+     * Each item is an array of parts read by an {@link ArrayReadFrame}.
+     */
+    private class DisassembledReadFrame extends ItemsReadFrame {
+
+        /** The container created by the {@link ContainerType#getFactory()} method */
+        private final Object instance;
+
+        /** Fills the {@link #instance} */
+        private final Disassembler disassembler;
+
+        /**
+         * @param number see the {@link ReadFrame#number} field
+         * @param depth see the {@link ReadFrame#depth} field
+         * @param identified see the {@link ReadFrame#identified} field
+         * @param instance see the {@link #instance} field
+         * @param disassembler see the {@link #disassembler} field
+         * @param partsType the {@link Object} array type of items
+         */
+        private DisassembledReadFrame(int number, int depth, boolean identified, Object instance,
+                Disassembler disassembler, ContainerType partsType) {
+            super(number, depth, identified, partsType);
+            this.instance = instance;
+            this.disassembler = disassembler;
+        }
+
+        @Override
+        protected void accept(Object value) {
+            disassembler.fill(instance, (Object[]) value);
+        }
+
+        @Override
+        protected Object complete(Reading reading) {
+            return instance;
+        }
+
+        @Override
+        protected Object getInstance() {
+            return instance;
+        }
+    }
+
+    /**
+     * Puts entries to a map. Entries are read by {@link EntryReadFrame}s.
+     */
+    private class MapReadFrame extends ItemsReadFrame {
+
+        /** The map to be filled */
+        private Map<Object, Object> map;
+
+        /**
+         * @param number see the {@link ReadFrame#number} field
+         * @param depth see the {@link ReadFrame#depth} field
+         * @param identified see the {@link ReadFrame#identified} field
+         * @param map see the {@link #map} field
+         * @param entryType the {@link Map.Entry} type with key and value types
+         */
+        private MapReadFrame(int number, int depth, boolean identified, Map<Object, Object> map, ContainerType entryType) {
+            super(number, depth, identified, entryType);
+            this.map = map;
+        }
+
+        @Override
+        protected void accept(Object value) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) value;
+            try {
+                map.put(entry.getKey(), entry.getValue());
+            } catch (UnsupportedOperationException e) {
+                Map<Object, Object> substitute = substituteMap(map.getClass());
+                substitute.putAll(map);
+                substitute.put(entry.getKey(), entry.getValue());
+                map = substitute;
+            }
+        }
+
+        @Override
+        protected Object complete(Reading reading) {
+            return map;
+        }
+
+        @Override
+        protected Object getInstance() {
+            return map;
+        }
+    }
+
+    /**
+     * Reads a key and a value of a {@link Map.Entry}.
+     */
+    private class EntryReadFrame extends ReadFrame {
+
+        /** The expected type of the key */
+        private final ContainerType keyType;
+
+        /** The expected type of the value */
+        private final ContainerType valueType;
+
+        /** The number of read items */
+        private int index;
+
+        /** The entry key */
+        private Object key;
+
+        /** The entry value */
+        private Object value;
+
+        /**
+         * @param number see the {@link ReadFrame#number} field
+         * @param depth see the {@link ReadFrame#depth} field
+         * @param identified see the {@link ReadFrame#identified} field
+         * @param keyType see the {@link #keyType} field
+         * @param valueType see the {@link #valueType} field
+         */
+        private EntryReadFrame(int number, int depth, boolean identified, ContainerType keyType, ContainerType valueType) {
+            super(number, depth, identified);
+            this.keyType = keyType;
+            this.valueType = valueType;
+        }
+
+        @Override
+        protected boolean next(Reading reading) throws IOException {
+            if (reading.parser.nextToken() == JsonToken.END_ARRAY) {
+                finish(reading);
+                return false;
+            }
+            Object item = startValue(index == 0 ? keyType : valueType, reading, depth + 1);
+            if (item != PENDING) {
+                accept(item);
+            }
+            return true;
+        }
+
+        @Override
+        protected void accept(Object item) {
+            if (index++ == 0) {
+                key = item;
+            } else {
+                value = item;
+            }
+        }
+
+        @Override
+        protected Object complete(Reading reading) {
+            return new AbstractMap.SimpleEntry<>(key, value);
+        }
+
+        @Override
+        protected Object getInstance() {
+            return null;
+        }
+    }
+
+    /**
+     * A field of a deserialized class.
+     */
+    private static class FieldSlot {
+
+        /** The field, accessible if {@link #writable} */
+        private final Field field;
+
+        /** 'false' if the field cannot be set, for example static final fields or fields of closed modules */
+        private final boolean writable;
+
+        /** The declared type of the field values */
+        private final ContainerType containerType;
+
+        /**
+         * @param field see the {@link #field} field
+         */
+        private FieldSlot(Field field) {
+            this.field = field;
+            this.containerType = FieldService.getInstance().createContainerType(field);
+            boolean accessible;
+            try {
+                field.setAccessible(true);
+                accessible = !(Modifier.isStatic(field.getModifiers()) && Modifier.isFinal(field.getModifiers()));
+            } catch (RuntimeException e) {
+                accessible = false;
+            }
+            this.writable = accessible;
         }
-        return false;
     }
 
 }
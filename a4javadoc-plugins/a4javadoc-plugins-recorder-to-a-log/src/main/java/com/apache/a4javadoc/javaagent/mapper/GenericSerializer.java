@@ -3,10 +3,12 @@ package com.apache.a4javadoc.javaagent.mapper;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -21,6 +23,9 @@ import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
 /**
  * The class serializes object graph to JSON. It prevents circular dependencies.<br>
+ * The graph is traversed iteratively with an explicit stack of {@link Frame}s,
+ * so deep graphs, for example long linked lists, do not overflow the thread stack.
+ * The nesting level is limited by the {@link GenericSerializerProvider#getMaxDepth()}.<br>
  * It uses {@link GenericSerializerProvider}.<br>
  * Each object in JSON will have a property with key {@link #GENERIC_KEY_ID}
  * and value
@@ -31,8 +36,6 @@ import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 public class GenericSerializer extends StdSerializer<Object> {
     private static final Logger logger = LoggerFactory.getLogger(GenericSerializer.class);
     
-    private static final String GETTER_PREFIX = "get";
-
     /** The key of a primitive or wrapper value */
     public static final String GENERIC_VALUE = "value";
     
@@ -42,6 +45,9 @@ public class GenericSerializer extends StdSerializer<Object> {
      */
     public static final String GENERIC_KEY_ID = "_a4id";
 
+    /** Reusable {@link Traversal}s of threads, see the {@link #acquireTraversal()} method */
+    private static final ThreadLocal<Traversal> TRAVERSALS = new ThreadLocal<>();
+
     /**
      * Constructs a new object
      */
@@ -57,76 +63,123 @@ public class GenericSerializer extends StdSerializer<Object> {
         super(t);
     }
  
+    /**
+     * The serializer is shared by all threads, the state of each call is held by its own {@link Traversal}.
+     * The {@link Traversal} of a thread is reused by its next calls, see the {@link #acquireTraversal()} method.
+     */
     @Override
     public void serialize(Object sourceObject, JsonGenerator jsonGenerator, SerializerProvider provider) 
       throws IOException {
         logger.trace("The beginning of serialization. Object: '{}'", sourceObject);
-        serializeObject(null, sourceObject, jsonGenerator, (GenericSerializerProvider) provider, 1, sourceObject, true);
+        Traversal traversal = acquireTraversal();
+        traversal.start(jsonGenerator, (GenericSerializerProvider) provider);
+        try {
+            serializeObject(null, sourceObject, traversal, 1, true);
+            while (!traversal.stack.isEmpty()) {
+                Frame frame = traversal.stack.peek();
+                if (!frame.next(traversal)) {
+                    traversal.stack.pop();
+                    traversal.path.remove(frame.sourceObject);
+                }
+            }
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        } finally {
+            traversal.finish();
+        }
+    }
+
+    /**
+     * Identifiers are serialized by nested calls of the
+     * {@link #serialize(Object, JsonGenerator, SerializerProvider)} method,
+     * so the {@link Traversal} of the thread can be in use already.
+     * @return the unused {@link Traversal} of the current thread or a new {@link Traversal}
+     */
+    private static Traversal acquireTraversal() {
+        Traversal traversal = TRAVERSALS.get();
+        if (traversal == null) {
+            traversal = new Traversal();
+            TRAVERSALS.set(traversal);
+            return traversal;
+        }
+        return traversal.inUse ? new Traversal() : traversal;
     }
 
     /**
+     * <p>
      * Depends on a sourceObject type apply one of serialization methods.
-     * This method is called recursively.
+     * 
+     * <p>
+     * Nulls, primitives, wrappers, strings and references to already
+     * serialized objects are written immediately. Arrays, collections, maps,
+     * map entries and complex objects get their header written and a
+     * {@link Frame} pushed to the {@link Traversal#stack}, their items
+     * are serialized later by the {@link Frame#next(Traversal)} method.
+     * So the Java call stack does not grow with the object graph depth.
+     * 
+     * <p>
+     * An object that is an ancestor of itself (a cycle) or that is deeper
+     * than the {@link GenericSerializerProvider#getMaxDepth()} is replaced
+     * with its {@link Identifier}, see the
+     * {@link #writeExiststingObject(Field, JsonGenerator, Identifier)} method.
+     * The {@link Identifier#getReference()} of a cycle or of an already serialized
+     * object is the number of the referenced object.
      * 
      * @param field can be 'null'. If exists, its {@link Field#getName()}
      * will be used as a key in JSON
      * @param sourceObject this object will be serialized to JSON
-     * @param jsonGenerator JSON holder
-     * @param genericSerializerProvider object that contains this serialization
-     * state
-     * @param depth current depth of plunging if the rootObject graph
-     * @param rootObject the original whole object for serialization
-     * @param attachIdentifier if exists, it defines obligation
+     * @param traversal the state of this serialization
+     * @param depth nesting level of the sourceObject, the root object has 1
+     * @param attachIdentifier if 'true', it defines obligation
      * of attaching an identifier of sourmceObject to JSON
      */
-    private void serializeObject(Field field, Object sourceObject, JsonGenerator jsonGenerator,
-            GenericSerializerProvider genericSerializerProvider, int depth, Object rootObject,
-            Boolean attachIdentifier) {
-        try {
-            if (processNull(field, sourceObject, jsonGenerator)) {
-                return;
-            }
-            
-            if (sourceObject instanceof Identifier) {
-                IdentifierService.getInstance().processIdentifier((Identifier) sourceObject, jsonGenerator);
-                return;
-            }
-            
-            Identifier identifier = IdentifierService.getInstance().createIdentifier(sourceObject);
-            if (Boolean.TRUE.equals(attachIdentifier)) {
-                identifier.setRequiresToBeIncludedInJson(attachIdentifier);
-            }
-            
-            if (genericSerializerProvider.getSerializedObjects().contains(sourceObject)) {
-                writeExiststingObject(field, jsonGenerator, identifier);
-                return;
-            }
-            
-            if (processPrimitiveOrWrapperOrString(jsonGenerator, sourceObject, identifier, field)) {
-                return;
-            }
-      
-            if (processArrayOrCollection(field, sourceObject, jsonGenerator, genericSerializerProvider, depth,
-                    rootObject, identifier)) {
-                return;
-            }
-            
-            if (processMap(field, sourceObject, jsonGenerator, genericSerializerProvider, depth, rootObject,
-                    identifier)) {
-                return;
-            }
-            
-            if (processMapEntry(field, sourceObject, jsonGenerator, genericSerializerProvider, depth, rootObject,
-                    identifier)) {
-                return;
-            }
-            
-            processComplexObject(field, sourceObject, jsonGenerator, genericSerializerProvider, depth, rootObject,
-                    identifier);
-            
-        } catch (Exception e) {
-            throw new AppRuntimeException(e);
+    private void serializeObject(Field field, Object sourceObject, Traversal traversal, int depth,
+            boolean attachIdentifier) throws IOException {
+        JsonGenerator jsonGenerator = traversal.jsonGenerator;
+        if (processNull(field, sourceObject, jsonGenerator)) {
+            return;
+        }
+        
+        if (sourceObject instanceof Identifier) {
+            IdentifierService.getInstance().processIdentifier((Identifier) sourceObject, jsonGenerator);
+            return;
         }
+        
+        Identifier identifier = IdentifierService.getInstance().createIdentifier(sourceObject);
+        if (attachIdentifier) {
+            identifier.setRequiresToBeIncludedInJson(attachIdentifier);
+        }
+        
+        Integer serializedNumber = traversal.provider.getSerializedObjects().get(sourceObject);
+        if (serializedNumber != null) {
+            identifier.setReference(serializedNumber);
+            writeExiststingObject(field, jsonGenerator, identifier);
+            return;
+        }
+        
+        if (processPrimitiveOrWrapperOrString(jsonGenerator, sourceObject, identifier, field)) {
+            return;
+        }
+        
+        Integer ancestorNumber = traversal.path.get(sourceObject);
+        if (ancestorNumber != null || depth > traversal.provider.getMaxDepth()) {
+            identifier.setReference(ancestorNumber);
+            writeExiststingObject(field, jsonGenerator, identifier);
+            return;
+        }
+        
+        Frame frame;
+        if (isArrayOrCollection(sourceObject)) {
+            frame = startArrayOrCollection(field, sourceObject, jsonGenerator, depth, identifier);
+        } else if (isMap(sourceObject)) {
+            frame = startMap(field, sourceObject, jsonGenerator, depth, identifier);
+        } else if (sourceObject instanceof Map.Entry<?, ?>) {
+            frame = startMapEntry(field, sourceObject, jsonGenerator, depth, identifier);
+        } else {
+            frame = startComplexObject(field, sourceObject, traversal, depth, identifier);
+        }
+        traversal.stack.push(frame);
+        traversal.path.put(sourceObject, traversal.objectCount++);
     }
 
     /**
@@ -153,74 +206,48 @@ public class GenericSerializer extends StdSerializer<Object> {
     }
     
     /**
-     * Create JSON from instance of complex object graph.
+     * Write the header of a complex object to JSON. Its fields
+     * will be serialized by the returned {@link ObjectFrame}.
+     * Generic containers with a {@link Disassembler} are written as arrays of their items
+     * by the returned {@link DisassembledFrame}.
      * 
      * @param field if not 'null', its {@link Field#getName()} will be used
      * as a key of HSON field
      * @param sourceObject the part of the rootObject to be serialized to JSON
-     * @param jsonGenerator JSON holder
-     * @param genericSerializerProvider serialization state
-     * @param depth plunging depth of the sourceObject within the rootObject
-     * @param rootObject the serialized object graph root
+     * @param traversal serialization state
+     * @param depth nesting level of the sourceObject
      * @param identifier the {@link Identifier} of the sourceObject
+     * @return the frame of the sourceObject
      */
-    private void processComplexObject(Field field, Object sourceObject, JsonGenerator jsonGenerator,
-            GenericSerializerProvider genericSerializerProvider, int depth, Object rootObject, Identifier identifier) {
-        try {
-            //header
-            
-            if (field != null) {
-                debugJsonGenerator(jsonGenerator);
-                jsonGenerator.writeObjectFieldStart(field.getName());
-            } else {
-                jsonGenerator.writeStartObject();
-            }
-            
-            // body
-            
-            if (identifier.isRequiresToBeIncludedInJson()) {
-                jsonGenerator.writeObjectField(GENERIC_KEY_ID, identifier);
-                genericSerializerProvider.getSerializedObjects().add(sourceObject);
-                jsonGenerator.writeObjectFieldStart(GENERIC_VALUE);
-            }
-            if (identifier.getContainerType().getDisassembleMethod() != null) {
-                jsonGenerator.writeStartArray();
-                
-                jsonGenerator.writeEndArray();
-            } else {
-                for (Field innerField : FieldService.getInstance().getFields(sourceObject)) {
-                    Object value = getObject(innerField, sourceObject);
-                    boolean appendIdentifier = value != null &&
-                            !ClassService.getInstance().classesAreTheSame(value.getClass(), innerField.getType());
-                    serializeObject(innerField, value, jsonGenerator, genericSerializerProvider, depth + 1,
-                            rootObject, appendIdentifier);
-                }
-            }
-            
-            // footer
-            
-            if (identifier.isRequiresToBeIncludedInJson()) {
-                jsonGenerator.writeEndObject();
-            }
-            jsonGenerator.writeEndObject();
-        } catch (Exception e) {
-            throw new AppRuntimeException(e);
+    private Frame startComplexObject(Field field, Object sourceObject, Traversal traversal, int depth,
+            Identifier identifier) throws IOException {
+        JsonGenerator jsonGenerator = traversal.jsonGenerator;
+        Disassembler disassembler = null;
+        if (identifier.getContainerType().getDisassembleMethod() != null) {
+            disassembler = MethodService.getInstance().getDisassembler(sourceObject.getClass());
         }
-    }
-
-    /**
-     * Temporary method for debugging purposes.
-     * Will be removed together with the {@link JsonGenerator}.
-     */
-    private void debugJsonGenerator(JsonGenerator jsonGenerator) {
-        try {
-            Field field = jsonGenerator.getClass().getDeclaredField("_outputBuffer");
-            field.setAccessible(true);
-            char[] charBuffer = (char[]) field.get(jsonGenerator);
-            System.out.println(new String(charBuffer));
-        } catch (Exception e) {
-            throw new AppRuntimeException(e);
+        if (disassembler != null) {
+            identifier.setRequiresToBeIncludedInJson(true);
+            jsonStartArrayWithIdentifier(field, jsonGenerator, identifier);
+            traversal.provider.addSerializedObject(sourceObject, traversal.objectCount);
+            return new DisassembledFrame(sourceObject, depth, identifier, disassembler);
+        }
+        if (field != null) {
+            jsonGenerator.writeObjectFieldStart(field.getName());
+        } else {
+            jsonGenerator.writeStartObject();
+        }
+        
+        if (identifier.isRequiresToBeIncludedInJson()) {
+            jsonGenerator.writeObjectField(GENERIC_KEY_ID, identifier);
+            traversal.provider.addSerializedObject(sourceObject, traversal.objectCount);
+            jsonGenerator.writeObjectFieldStart(GENERIC_VALUE);
         }
+        ObjectAccessor accessor = AccessorService.getInstance().getAccessor(sourceObject.getClass());
+        List<Field> fields = accessor.getFields();
+        Object[] values = new Object[fields.size()];
+        accessor.readValues(sourceObject, values);
+        return new ObjectFrame(sourceObject, depth, identifier, fields, values);
     }
 
     /**
@@ -245,52 +272,33 @@ public class GenericSerializer extends StdSerializer<Object> {
     }
 
     /**
-     * If the sourceObject {@link #isArrayOrCollection(Object)}, then serialize
-     * it to JSON and return 'true'.
+     * Write the header of an {@link Array} or a {@link Collection} to JSON.
+     * Its items will be serialized by the returned {@link ItemsFrame}.
      * 
      * @param field if not 'null' it will be used in the
      * {@link #jsonStartArray(Field, JsonGenerator, Identifier)} method
      * @param sourceObject the data source to be serialized to JSON
      * @param jsonGenerator the JSON holder
-     * @param genericSerializerProvider this serialization state
-     * @param depth the plunging depth of the sourceObject
-     * within the rootObject
-     * @param rootObject the root of the sourceObject
+     * @param depth nesting level of the sourceObject
      * @param identifier the {@link Identifier} of the sourceObject
+     * @return the frame of the sourceObject
      */
-    private boolean processArrayOrCollection(Field field, Object sourceObject, JsonGenerator jsonGenerator,
-            GenericSerializerProvider genericSerializerProvider, int depth, Object rootObject, Identifier identifier) {
-        try {
-            if (isArrayOrCollection(sourceObject)) {
-                
-                List<Object> itemList = new ArrayList<>();
-                BundleService.getInstance().addItemsToList(sourceObject, itemList);
-                
-                jsonStartArray(field, jsonGenerator, identifier);
-                
-                Class<?> itemType = identifier.getContainerType().getContainerTypes().get(0).getObjectClass();
-                for (Object nextObject : itemList) {
-                    boolean appendGenericId = nextObject != null &&
-                            !ClassService.getInstance().classesAreTheSame(itemType, nextObject.getClass());
-                    serializeObject(field, nextObject, jsonGenerator, genericSerializerProvider,
-                            depth, rootObject, appendGenericId);
-                }
-                
-                jsonGenerator.writeEndArray();
-                if (identifier.isRequiresToBeIncludedInJson()) {
-                    jsonGenerator.writeEndObject();
-                }
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            throw new AppRuntimeException(e);
+    private Frame startArrayOrCollection(Field field, Object sourceObject, JsonGenerator jsonGenerator, int depth,
+            Identifier identifier) throws IOException {
+        jsonStartArray(field, jsonGenerator, identifier);
+        
+        Iterator<Object> iterator = BundleService.getInstance().iterator(sourceObject);
+        Class<?> itemType = null;
+        if (iterator.hasNext()) {
+            itemType = identifier.getContainerType().getContainerTypes().get(0).getObjectClass();
         }
+        return new ItemsFrame(field, sourceObject, depth, identifier, iterator, itemType);
     }
     
     /**
      * <p>
-     * Create JSON from a {@link Map}.
+     * Write the header of a {@link Map} to JSON. Its entries will be serialized
+     * by the returned {@link ItemsFrame}.
      * 
      * <p>
      * Examples of a single entry:
@@ -311,41 +319,17 @@ public class GenericSerializer extends StdSerializer<Object> {
          
      * </pre>
      */
-    private boolean processMap(Field field, Object fieldObject, JsonGenerator jsonGenerator,
-            GenericSerializerProvider genericSerializerProvider, int depth, Object rootObject, Identifier identifier) {
-        try {
-            if (isMap(fieldObject)) {
-                
-                List<Object> objectList = new ArrayList<>();
-                BundleService.getInstance().addItemsToList(fieldObject, objectList);
-                
-                jsonStartArrayWithoutKey(field, jsonGenerator, identifier);
+    private Frame startMap(Field field, Object fieldObject, JsonGenerator jsonGenerator, int depth,
+            Identifier identifier) throws IOException {
+        jsonStartArrayWithoutKey(field, jsonGenerator, identifier);
 
-                if (!objectList.isEmpty()) {
-                    // for example TreeMap<K,V>
-                    List<Class<?>> componentTypes = FieldService.getInstance().getContainerTypes(field, fieldObject);
-                    for (Object nextObject : objectList) {
-                        ClassService classService = ClassService.getInstance();
-                        boolean appendGenericId = nextObject != null &&
-                                !classService.classesAreTheSame(componentTypes.get(0), nextObject.getClass());
-                        serializeObject(field, nextObject, jsonGenerator, genericSerializerProvider, depth,
-                                rootObject, appendGenericId);
-                    }
-                } else {
-                    serializeObject(null, fieldObject, jsonGenerator, genericSerializerProvider, depth, rootObject,
-                            identifier.isRequiresToBeIncludedInJson());
-                }
-                jsonGenerator.writeEndArray();
-                if (identifier.isRequiresToBeIncludedInJson()) {
-                    jsonGenerator.writeEndObject();
-                }
-                
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            throw new AppRuntimeException(e);
+        Iterator<Object> iterator = BundleService.getInstance().iterator(fieldObject);
+        Class<?> itemType = null;
+        if (iterator.hasNext()) {
+            // for example TreeMap<K,V>
+            itemType = FieldService.getInstance().getContainerTypes(field, fieldObject).get(0);
         }
+        return new ItemsFrame(field, fieldObject, depth, identifier, iterator, itemType);
     }
 
     /**
@@ -412,8 +396,7 @@ public class GenericSerializer extends StdSerializer<Object> {
      */
     private void jsonStartArrayWithIdentifier(Field field, JsonGenerator jsonGenerator, Identifier identifier)
             throws IOException {
-        
-        debugJsonGenerator(jsonGenerator);
+
         if (field != null) {
             jsonGenerator.writeObjectFieldStart(field.getName());
         } else {
@@ -450,51 +433,42 @@ public class GenericSerializer extends StdSerializer<Object> {
     }
     
     /**
-     * <p>
-     * If the sourceObject is {@link Entry}, create JSON from it
-     * and return 'true'. Else do nothing and return 'false'.
-     * 
-     * <p>
      * Call the
      * {@link #jsonStartArrayWithoutKey(Field, JsonGenerator, Identifier)}
-     * method, then serialize {@link Entry#getKey()} and
-     * {@link Entry#getValue()} and finally write the '}' tag.
+     * method. The returned {@link EntryFrame} then serializes
+     * {@link Entry#getKey()} and {@link Entry#getValue()} and finally
+     * writes the closing tags.
      * 
      * @param field will be propagated to the
      * {@link #jsonStartArrayWithoutKey(Field, JsonGenerator, Identifier)}
      * method
      * @param sourceObject the key and value holder
      * @param jsonGenerator the JSON holder
-     * @param genericSerializerProvider the serialization state holder
-     * @param depth plunging depth of the sourceObject within the rootObject
+     * @param depth nesting level of the sourceObject
      * @param identifier the sourceObject state holder
-     * @return 'true' if the sourceObject is {@link Entry} and it is serialized
+     * @return the frame of the sourceObject
      */
-    private boolean processMapEntry(Field field, Object sourceObject, JsonGenerator jsonGenerator,
-            GenericSerializerProvider genericSerializerProvider, int depth, Object rootObject, Identifier identifier) {
-        try {
-            if (sourceObject instanceof Map.Entry<?, ?>) {
-                
-                jsonStartArrayWithoutKey(field, jsonGenerator, identifier);
-                
-                Object key = ((Entry<?, ?>) sourceObject).getKey();
-                serializeObject(null, key, jsonGenerator, genericSerializerProvider, depth,
-                        rootObject, identifier.isRequiresToBeIncludedInJson());
-                
-                Object value = ((Entry<?, ?>) sourceObject).getValue();
-                serializeObject(null, value, jsonGenerator, genericSerializerProvider, depth,
-                        rootObject, identifier.isRequiresToBeIncludedInJson());
-
-                jsonGenerator.writeEndArray();
-                if (identifier.isRequiresToBeIncludedInJson()) {
-                    jsonGenerator.writeEndObject();
-                }
-                
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            throw new AppRuntimeException(e);
+    private Frame startMapEntry(Field field, Object sourceObject, JsonGenerator jsonGenerator, int depth,
+            Identifier identifier) throws IOException {
+        jsonStartArrayWithoutKey(field, jsonGenerator, identifier);
+        return new EntryFrame((Entry<?, ?>) sourceObject, depth, identifier);
+    }
+    
+    /**
+     * Write the closing tags of an array started by the
+     * {@link #jsonStartArray(Field, JsonGenerator, Identifier)} or
+     * {@link #jsonStartArrayWithoutKey(Field, JsonGenerator, Identifier)}
+     * methods.
+     * 
+     * @param jsonGenerator the JSON holder
+     * @param identifier if {@link Identifier#isRequiresToBeIncludedInJson()}
+     * is 'true', the enclosing object will be closed as well
+     * @throws IOException
+     */
+    private void jsonEndArray(JsonGenerator jsonGenerator, Identifier identifier) throws IOException {
+        jsonGenerator.writeEndArray();
+        if (identifier.isRequiresToBeIncludedInJson()) {
+            jsonGenerator.writeEndObject();
         }
     }
     
@@ -563,7 +537,11 @@ public class GenericSerializer extends StdSerializer<Object> {
         if (ClassService.getInstance().isPrimitiveOrWrapperOrString(object)) {
             
             if (identifier.isRequiresToBeIncludedInJson()) {
-                jsonGenerator.writeStartObject();
+                if (field != null && !isFieldArrayOrCollection(field)) {
+                    jsonGenerator.writeObjectFieldStart(field.getName());
+                } else {
+                    jsonGenerator.writeStartObject();
+                }
                 jsonGenerator.writeObjectField(GENERIC_KEY_ID, identifier);
                 jsonGenerator.writeStringField(GENERIC_VALUE, object.toString());
                 jsonGenerator.writeEndObject();
@@ -583,25 +561,291 @@ public class GenericSerializer extends StdSerializer<Object> {
         return false;
     }
 
-    /** Try to obtain field value from getter. If getter not found, set the field accessible and obtain its value from reference. */
-    private Object getObject(Field field, Object sourceObject) {
-        for (Method method : sourceObject.getClass().getMethods()) {
-            if (method.getParameterTypes().length == 0
-                    && method.getName().startsWith(GETTER_PREFIX)
-                    && method.getName().length() == (field.getName().length() + GETTER_PREFIX.length())
-                    && method.getName().toLowerCase().endsWith(field.getName().toLowerCase())) {
-                try {
-                    return method.invoke(sourceObject);
-                } catch (Exception e) {
-                    break;
-                }
+    /**
+     * State of a single {@link #serialize(Object, JsonGenerator, SerializerProvider)} call.
+     * The object graph is traversed by the explicit {@link #stack}
+     * instead of recursive method calls. The instance is reused by the next calls on the same thread,
+     * so the {@link #stack} and the {@link #path} are not allocated per call.
+     */
+    private static class Traversal {
+        
+        /** The JSON holder */
+        private JsonGenerator jsonGenerator;
+        
+        /** The state shared by all serializations of the {@link ObjectMapperA4j#writeValue(java.io.Writer, Object)} call */
+        private GenericSerializerProvider provider;
+        
+        /** Frames of the objects, whose headers are written, but items are not serialized yet */
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        
+        /**
+         * Objects of the {@link #stack}, compared by identity, with their numbers.
+         * Used for detection of circular references.
+         */
+        private final Map<Object, Integer> path = new IdentityHashMap<>();
+        
+        /**
+         * Number of started arrays, collections, maps, map entries and complex objects.
+         * It is the number of the object being started, see the {@link Identifier#getReference()} method.
+         */
+        private int objectCount;
+        
+        /** 'true' between the {@link #start(JsonGenerator, GenericSerializerProvider)} and {@link #finish()} calls */
+        private boolean inUse;
+        
+        /**
+         * Prepare the traversal for a serialization call.
+         * @param jsonGenerator see the {@link #jsonGenerator} field
+         * @param provider see the {@link #provider} field
+         */
+        void start(JsonGenerator jsonGenerator, GenericSerializerProvider provider) {
+            this.jsonGenerator = jsonGenerator;
+            this.provider = provider;
+            this.objectCount = 0;
+            this.inUse = true;
+        }
+        
+        /**
+         * Release references to the serialized objects. The {@link #stack} and the {@link #path}
+         * are empty after a successful serialization, they are cleared after a failed one only.
+         */
+        void finish() {
+            if (!stack.isEmpty()) {
+                stack.clear();
+            }
+            if (!path.isEmpty()) {
+                path.clear();
             }
+            jsonGenerator = null;
+            provider = null;
+            inUse = false;
         }
-        field.setAccessible(true);
-        try {
-            return field.get(sourceObject);
-        } catch (IllegalArgumentException | IllegalAccessException e) {
-            throw new AppRuntimeException(e);
+    }
+    
+    /**
+     * An array, collection, map, map entry or complex object, whose header
+     * is written to JSON and whose items are serialized one by one.
+     */
+    private abstract static class Frame {
+        
+        /** The object of this frame */
+        final Object sourceObject;
+        
+        /** Nesting level of the {@link #sourceObject} */
+        final int depth;
+        
+        /** The {@link Identifier} of the {@link #sourceObject} */
+        final Identifier identifier;
+        
+        /**
+         * @param sourceObject see the {@link #sourceObject} field
+         * @param depth see the {@link #depth} field
+         * @param identifier see the {@link #identifier} field
+         */
+        Frame(Object sourceObject, int depth, Identifier identifier) {
+            this.sourceObject = sourceObject;
+            this.depth = depth;
+            this.identifier = identifier;
+        }
+        
+        /**
+         * Serialize the next item of the {@link #sourceObject}. If the item
+         * is a composite object, its frame is pushed to the {@link Traversal#stack}.
+         * If there are no more items, write the footer.
+         * 
+         * @param traversal the serialization state
+         * @return 'false' if the footer is written and the frame is finished
+         * @throws IOException
+         */
+        abstract boolean next(Traversal traversal) throws IOException;
+    }
+    
+    /**
+     * Items of an {@link Array}, a {@link Collection} or entries of a {@link Map}.
+     * Number of serialized items is limited by the {@link ConfigService#getMaxContainerElements()}.
+     */
+    private class ItemsFrame extends Frame {
+        
+        /** The field of the {@link #sourceObject}, can be 'null' */
+        private final Field field;
+        
+        /** Items source */
+        private final Iterator<Object> iterator;
+        
+        /** The common type of items, items of other types will have their {@link Identifier}s */
+        private final Class<?> itemType;
+        
+        /** Number of items allowed to be serialized yet */
+        private int remaining = ConfigService.getInstance().getMaxContainerElements();
+        
+        /**
+         * @param field see the {@link #field} field
+         * @param sourceObject see the {@link Frame#sourceObject} field
+         * @param depth see the {@link Frame#depth} field
+         * @param identifier see the {@link Frame#identifier} field
+         * @param iterator see the {@link #iterator} field
+         * @param itemType see the {@link #itemType} field
+         */
+        ItemsFrame(Field field, Object sourceObject, int depth, Identifier identifier, Iterator<Object> iterator,
+                Class<?> itemType) {
+            super(sourceObject, depth, identifier);
+            this.field = field;
+            this.iterator = iterator;
+            this.itemType = itemType;
+        }
+
+        @Override
+        boolean next(Traversal traversal) throws IOException {
+            if (remaining > 0 && iterator.hasNext()) {
+                remaining--;
+                Object nextObject = iterator.next();
+                boolean appendGenericId = nextObject != null &&
+                        !ClassService.getInstance().classesAreTheSame(itemType, nextObject.getClass());
+                serializeObject(null, nextObject, traversal, depth + 1, appendGenericId);
+                return true;
+            }
+            jsonEndArray(traversal.jsonGenerator, identifier);
+            return false;
+        }
+    }
+    
+    /**
+     * The {@link Entry#getKey()} and the {@link Entry#getValue()} of a {@link Map} entry.
+     */
+    private class EntryFrame extends Frame {
+        
+        /** 0 - the key is next, 1 - the value is next, 2 - the footer is next */
+        private int step;
+        
+        /**
+         * @param entry see the {@link Frame#sourceObject} field
+         * @param depth see the {@link Frame#depth} field
+         * @param identifier see the {@link Frame#identifier} field
+         */
+        EntryFrame(Entry<?, ?> entry, int depth, Identifier identifier) {
+            super(entry, depth, identifier);
+        }
+
+        @Override
+        boolean next(Traversal traversal) throws IOException {
+            Entry<?, ?> entry = (Entry<?, ?>) sourceObject;
+            boolean attachIdentifier = identifier.isRequiresToBeIncludedInJson();
+            switch (step++) {
+            case 0:
+                serializeObject(null, entry.getKey(), traversal, depth + 1, attachIdentifier);
+                return true;
+            case 1:
+                serializeObject(null, entry.getValue(), traversal, depth + 1, attachIdentifier);
+                return true;
+            default:
+                jsonEndArray(traversal.jsonGenerator, identifier);
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Fields of a complex object, see the {@link FieldService#getFields(Object)} method.
+     * Their values are read by an {@link ObjectAccessor} in one call, when the frame is created.
+     */
+    private class ObjectFrame extends Frame {
+        
+        /** Fields of the {@link #sourceObject} */
+        private final List<Field> fields;
+        
+        /** Values of the {@link #fields} with the same indexes */
+        private final Object[] values;
+        
+        /** Index of the next serialized field */
+        private int index;
+        
+        /**
+         * @param sourceObject see the {@link Frame#sourceObject} field
+         * @param depth see the {@link Frame#depth} field
+         * @param identifier see the {@link Frame#identifier} field
+         * @param fields see the {@link #fields} field
+         * @param values see the {@link #values} field
+         */
+        ObjectFrame(Object sourceObject, int depth, Identifier identifier, List<Field> fields, Object[] values) {
+            super(sourceObject, depth, identifier);
+            this.fields = fields;
+            this.values = values;
+        }
+
+        @Override
+        boolean next(Traversal traversal) throws IOException {
+            if (index < fields.size()) {
+                Field innerField = fields.get(index);
+                Object value = values[index++];
+                boolean appendIdentifier = value != null &&
+                        !ClassService.getInstance().classesAreTheSame(value.getClass(), innerField.getType());
+                serializeObject(innerField, value, traversal, depth + 1, appendIdentifier);
+                return true;
+            }
+            if (identifier.isRequiresToBeIncludedInJson()) {
+                traversal.jsonGenerator.writeEndObject();
+            }
+            traversal.jsonGenerator.writeEndObject();
+            return false;
+        }
+    }
+
+    /**
+     * Items of a generic container, see the {@link MethodService#getDisassembler(Class)} method.
+     * Each item is written as an array of its parts, for example
+     * {@code [rowKey, columnKey, value]} of a Guava table cell. Parts are written with their identifiers.
+     * Number of serialized items is limited by the {@link ConfigService#getMaxContainerElements()}.
+     */
+    private class DisassembledFrame extends Frame {
+        
+        /** Takes apart the {@link #sourceObject} */
+        private final Disassembler disassembler;
+        
+        /** Items source */
+        private final Iterator<Object> iterator;
+        
+        /** Number of items allowed to be serialized yet */
+        private int remaining = ConfigService.getInstance().getMaxContainerElements();
+        
+        /** Parts of the current item or 'null' if the next item is not started yet */
+        private Object[] parts;
+        
+        /** Index of the next serialized part */
+        private int partIndex;
+        
+        /**
+         * @param sourceObject see the {@link Frame#sourceObject} field
+         * @param depth see the {@link Frame#depth} field
+         * @param identifier see the {@link Frame#identifier} field
+         * @param disassembler see the {@link #disassembler} field
+         */
+        DisassembledFrame(Object sourceObject, int depth, Identifier identifier, Disassembler disassembler) {
+            super(sourceObject, depth, identifier);
+            this.disassembler = disassembler;
+            this.iterator = disassembler.iterator(sourceObject);
+        }
+
+        @Override
+        boolean next(Traversal traversal) throws IOException {
+            if (parts != null) {
+                if (partIndex < parts.length) {
+                    serializeObject(null, parts[partIndex++], traversal, depth + 2, true);
+                } else {
+                    traversal.jsonGenerator.writeEndArray();
+                    parts = null;
+                }
+                return true;
+            }
+            if (remaining > 0 && iterator.hasNext()) {
+                remaining--;
+                parts = disassembler.flattenOut(iterator.next());
+                partIndex = 0;
+                traversal.jsonGenerator.writeStartArray();
+                traversal.objectCount++;
+                return true;
+            }
+            jsonEndArray(traversal.jsonGenerator, identifier);
+            return false;
         }
     }
 
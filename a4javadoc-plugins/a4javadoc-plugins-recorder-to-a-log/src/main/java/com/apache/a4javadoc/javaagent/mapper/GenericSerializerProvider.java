@@ -1,7 +1,8 @@
 package com.apache.a4javadoc.javaagent.mapper;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -23,11 +24,19 @@ public class GenericSerializerProvider extends DefaultSerializerProvider {
     /**
      * Used for preventing of circular dependencies.<br>
      * If this set contains some object, then the object will not been serialized again.<br>
-     * Its unique identifier will be serialized instead.
+     * Its unique identifier will be serialized instead.<br>
+     * Values of the map are numbers of the objects, see the {@link Identifier#getReference()} method.<br>
+     * Objects are compared by identity, so their {@link Object#hashCode()} and {@link Object#equals(Object)} methods
+     * are not called, they can recurse through the whole graph, and distinct equal objects are not merged.<br>
+     * The map is empty and immutable until the first object is added by the {@link #addSerializedObject(Object, int)}
+     * method, so serialization of simple values does not allocate it.
      */
-    private transient Set<Object> serializedObjects;
+    private transient Map<Object, Integer> serializedObjects;
     
-    /** How levels of object graph should be serialized */
+    /**
+     * How levels of object graph should be serialized.
+     * Initialized from the {@link ConfigService#getMaxObjectDepth()}.
+     */
     private int maxDepth;
     
     /**
@@ -35,7 +44,8 @@ public class GenericSerializerProvider extends DefaultSerializerProvider {
      */
     public GenericSerializerProvider() {
         super();
-        serializedObjects = new HashSet<>();
+        serializedObjects = Collections.emptyMap();
+        maxDepth = ConfigService.getInstance().getMaxObjectDepth();
     }
     
     /**
@@ -44,13 +54,15 @@ public class GenericSerializerProvider extends DefaultSerializerProvider {
      */
     public GenericSerializerProvider(GenericSerializerProvider genericSerializerProvider) {
         super(genericSerializerProvider);
-        serializedObjects = new HashSet<>();
+        serializedObjects = Collections.emptyMap();
+        maxDepth = ConfigService.getInstance().getMaxObjectDepth();
     }
     
     protected GenericSerializerProvider(SerializerProvider serializerProvider, SerializationConfig serializationConfig,
             SerializerFactory serializerFactory) {
         super(serializerProvider, serializationConfig, serializerFactory);
-        serializedObjects = new HashSet<>();
+        serializedObjects = Collections.emptyMap();
+        maxDepth = ConfigService.getInstance().getMaxObjectDepth();
     }
 
     @Override
@@ -71,12 +83,24 @@ public class GenericSerializerProvider extends DefaultSerializerProvider {
     }
 
     /** @return The {@link GenericSerializerProvider#serializedObjects} field */
-    public Set<Object> getSerializedObjects() {
+    public Map<Object, Integer> getSerializedObjects() {
         return serializedObjects;
     }
 
+    /**
+     * Add the object to the {@link #serializedObjects}, create the map if it is empty.
+     * @param serializedObject the serialized object
+     * @param number see the {@link Identifier#getReference()} method
+     */
+    public void addSerializedObject(Object serializedObject, int number) {
+        if (serializedObjects.isEmpty()) {
+            serializedObjects = new IdentityHashMap<>();
+        }
+        serializedObjects.put(serializedObject, number);
+    }
+
     /** @param serializedObjects see the {@link GenericSerializerProvider#serializedObjects} field */
-    public void setSerializedObjects(Set<Object> serializedObjects) {
+    public void setSerializedObjects(Map<Object, Integer> serializedObjects) {
         this.serializedObjects = serializedObjects;
     }
 
@@ -5,9 +5,6 @@ import java.lang.reflect.ParameterizedType;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
-
 /**
  * <p>
  * This value object contains information about instance of an object,
@@ -109,12 +106,28 @@ public class Identifier {
      */
     private boolean requiresToBeIncludedInJson;
     
+    /**
+     * If not 'null', the {@link Identifier} is a back-reference to an already serialized object.
+     * The value is the number of the referenced object. Arrays, collections, maps, map entries
+     * and complex objects are numbered from 0 in the order of their serialization.
+     * Objects replaced with {@link Identifier}s because of the depth limit have no reference.
+     */
+    private Integer reference;
+    
     /** 
+     * @return for example {@code {"containerType":"java.util.ArrayList<java.lang.String>","reference":2}}
      * @see java.lang.Object#toString()
      */
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+        StringBuilder stringBuilder = new StringBuilder("{\"containerType\":\"")
+                .append(containerType)
+                .append("\",\"requiresToBeIncludedInJson\":")
+                .append(requiresToBeIncludedInJson);
+        if (reference != null) {
+            stringBuilder.append(",\"reference\":").append(reference);
+        }
+        return stringBuilder.append('}').toString();
     }
 
     /** @return The {@link Identifier#containerType} field */
@@ -137,4 +150,14 @@ public class Identifier {
         this.requiresToBeIncludedInJson = requiresToBeIncludedInJson;
     }
 
+    /** @return The {@link Identifier#reference} field */
+    public Integer getReference() {
+        return reference;
+    }
+
+    /** @param reference see the {@link Identifier#reference} field */
+    public void setReference(Integer reference) {
+        this.reference = reference;
+    }
+
 }
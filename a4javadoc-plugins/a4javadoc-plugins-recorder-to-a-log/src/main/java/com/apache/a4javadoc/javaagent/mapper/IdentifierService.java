@@ -5,15 +5,21 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.commons.lang3.ClassUtils;
+
 import com.apache.a4javadoc.exception.AppRuntimeException;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
 /**
@@ -35,22 +41,22 @@ import com.fasterxml.jackson.databind.JsonNode;
 public class IdentifierService {
 
     /**
-     * See the {@link ContainerType#setFilling(String)} field description.
+     * See the {@link ContainerType#getFilling()} field description.
      */
     private static final String FILLING_FIELD_NAME = "filling";
 
     /**
-     * See the {@link ContainerType#setFactory(String)} field description.
+     * See the {@link ContainerType#getFactory()} field description.
      */
     private static final String FACTORY_FIELD_NAME = "factory";
 
     /**
-     * See the {@link ContainerType#setContainerTypes(List)} field description.
+     * See the {@link ContainerType#getContainerTypes()} field description.
      */
     private static final String CONTAINER_TYPES_FIELD_NAME = "containerTypes";
 
     /**
-     * See the {@link ContainerType#setObjectClass(Class)} field description.
+     * See the {@link ContainerType#getObjectClass()} field description.
      */
     private static final String OBJECT_CLASS_FIELD_NAME = "objectClass";
 
@@ -59,7 +65,10 @@ public class IdentifierService {
      */
     private static final String CONTAINER_TYPE_FIELD_NAME = "containerType";
 
-    private static IdentifierService instance;
+    /**
+     * See the {@link Identifier#setReference(Integer)} field description.
+     */
+    private static final String REFERENCE_FIELD_NAME = "reference";
 
     private IdentifierService() {
         // empty
@@ -69,10 +78,7 @@ public class IdentifierService {
      * @return the {@link IdentifierService} singleton.
      */
     public static IdentifierService getInstance() {
-        if (instance == null) {
-            instance = new IdentifierService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
@@ -144,19 +150,14 @@ public class IdentifierService {
      */
     public Identifier createIdentifier(Object value) {
         Identifier identifier = new Identifier();
-
-        ContainerType containerType = new ContainerType();
-        identifier.setContainerType(containerType);
-
-        setContainerTypes(value, containerType, 1);
-
+        identifier.setContainerType(findContainerType(value, 1));
         return identifier;
     }
 
     /**
      * Find out generic types of the value, for example if the value is a map
      * with {@link String} keys and {@link Integer} values, this method will
-     * fill out the {@link ContainerType} by the two inner
+     * return the {@link ContainerType} with the two inner
      * {@link ContainerType}s:
      * <pre>
      * "containerType": {
@@ -175,38 +176,33 @@ public class IdentifierService {
      * </pre>
      * 
      * @param value object instance as a source of the generic types. If the
-     * value is 'null', it will be skipped.
-     * @param containerType this object will be completed by generic types, see
-     * {@link ContainerType#setContainerTypes(List)}.
+     * value is 'null', the {@link ContainerType#EMPTY} is returned.
      * @param depth a plunging depth of this {@link ContainerType}, beginning
      * from 1. Max depth is defined in {@link ConfigService#getMaxDepth()}.
+     * @return the canonical {@link ContainerType} of the value
      */
-    public void setContainerTypes(Object value, ContainerType containerType, int depth) {
+    public ContainerType findContainerType(Object value, int depth) {
         try {
             if (value == null || depth > ConfigService.getInstance().getMaxDepth()) {
-                return;
+                return ContainerType.EMPTY;
             }
             Class<?> clazz = value.getClass();
-            containerType.setObjectClass(value.getClass());
             if (clazz.isArray()) {
-                findGeneralItemsTypeOfArray(value, containerType, depth);
-                return;
+                return ContainerType.of(clazz, findGeneralItemsTypeOfArray(value, depth));
             }
             if (Iterable.class.isAssignableFrom(clazz)) {
-                Iterable<?> iterable = (Iterable<?>) value;
-                findGeneralItemsTypeOfIterable(iterable, containerType, depth);
-                return;
+                return ContainerType.of(clazz, findGeneralItemsTypeOfIterable((Iterable<?>) value, depth));
             }
             if (Map.class.isAssignableFrom(clazz)) {
-                Map<?, ?> map = (Map<?, ?>) value;
-                findGeneralItemsTypeOfMap(map, containerType, depth);
-                return;
+                return ContainerType.of(clazz, findGeneralItemsTypeOfMap((Map<?, ?>) value, depth));
             }
-            if (ParameterizedType.class.isAssignableFrom(clazz.getGenericSuperclass().getClass())) {
-                List<TypeVariable<?>> typeVariables = TypeService.getInstance().collectTypeVariables(clazz);
-                MethodService.getInstance().fillGeneralItemsTypeOfParameterized(value, typeVariables, containerType);
-                return;
+            Disassembler disassembler = MethodService.getInstance().getDisassembler(clazz);
+            if (disassembler != null) {
+                return ContainerType.of(clazz, findGeneralItemsTypeOfDisassembled(value, disassembler, depth),
+                        disassembler.getDisassembleMethod(), disassembler.getFactory().getName(),
+                        disassembler.getFilling().getName());
             }
+            return ContainerType.of(clazz);
         } catch (Exception e) {
             throw new AppRuntimeException(e);
         }
@@ -216,49 +212,81 @@ public class IdentifierService {
      * Find out the most general type of the {@link Array} values.
      * 
      * @param array the container of objects. This method will iterate these
-     * objects and find out theirs general type.
-     * @param containerType This object will be completed by found general type,
-     * se the {@link ContainerType#getContainerTypes()} method.
+     * objects, up to the {@link ConfigService#getMaxContainerElements()} limit,
+     * and find out theirs general type.
      * @param depth plunge depth of this {@link ContainerType}, beginning from 1
+     * @return the found general type in a list or an empty list, see the
+     * {@link ContainerType#getContainerTypes()} method.
      */
-    private void findGeneralItemsTypeOfArray(Object array, ContainerType containerType, int depth) {
-        ContainerType commonContainerType = new ContainerType();
-        for (int i = 0; i < Array.getLength(array); i++) {
+    private List<ContainerType> findGeneralItemsTypeOfArray(Object array, int depth) {
+        ContainerType commonContainerType = ContainerType.EMPTY;
+        int length = Math.min(Array.getLength(array), ConfigService.getInstance().getMaxContainerElements());
+        for (int i = 0; i < length; i++) {
             Object object = Array.get(array, i);
-            ContainerType currentContainerType = new ContainerType();
-
-            setContainerTypes(object, currentContainerType, depth + 1);
-            mergeToCommonContainer(currentContainerType, commonContainerType);
+            commonContainerType = mergeToCommonContainer(findContainerType(object, depth + 1), commonContainerType);
         }
         if (commonContainerType.getObjectClass() != null) {
-            containerType.getContainerTypes().add(commonContainerType);
+            return Collections.singletonList(commonContainerType);
         }
+        return Collections.emptyList();
     }
 
     /**
      * Find out the most general type of the {@link Iterable} values.
      * 
      * @param iterable the container of objects. This method will iterate these
-     * objects and find out theirs general type.
-     * @param containerType This object will be completed by found general type,
-     * se the {@link ContainerType#getContainerTypes()} method.
+     * objects, up to the {@link ConfigService#getMaxContainerElements()} limit,
+     * and find out theirs general type.
      * @param depth Depth of plunge this {@link ContainerType}, beginning from 1
      * If the inner items are generic, return for example
      * {@code <java.util.ArrayList<java.lang.String>>}
+     * @return the found general type in a list or an empty list, see the
+     * {@link ContainerType#getContainerTypes()} method.
      */
-    private void findGeneralItemsTypeOfIterable(Iterable<?> iterable, ContainerType containerType, int depth) {
-        ContainerType commonContainerType = new ContainerType();
+    private List<ContainerType> findGeneralItemsTypeOfIterable(Iterable<?> iterable, int depth) {
+        ContainerType commonContainerType = ContainerType.EMPTY;
         Iterator<?> valuesIterator = iterable.iterator();
-        while (valuesIterator.hasNext()) {
+        int maxElements = ConfigService.getInstance().getMaxContainerElements();
+        for (int i = 0; i < maxElements && valuesIterator.hasNext(); i++) {
             Object object = valuesIterator.next();
-            ContainerType currentContainerType = new ContainerType();
-
-            setContainerTypes(object, currentContainerType, depth + 1);
-            mergeToCommonContainer(currentContainerType, commonContainerType);
+            commonContainerType = mergeToCommonContainer(findContainerType(object, depth + 1), commonContainerType);
         }
         if (commonContainerType.getObjectClass() != null) {
-            containerType.getContainerTypes().add(commonContainerType);
+            return Collections.singletonList(commonContainerType);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Find out the most general types of parts of items of a generic container,
+     * for example row keys, column keys and values of a Guava table.
+     * 
+     * @param container the container of items. This method will iterate the items,
+     * up to the {@link ConfigService#getMaxContainerElements()} limit,
+     * and find out general types of their parts.
+     * @param disassembler see the {@link MethodService#getDisassembler(Class)} method
+     * @param depth Depth of plunge this {@link ContainerType}, beginning from 1
+     * @return general types of the parts, see the {@link ContainerType#getContainerTypes()} method.
+     */
+    private List<ContainerType> findGeneralItemsTypeOfDisassembled(Object container, Disassembler disassembler,
+            int depth) {
+        ContainerType[] commonContainerTypes = new ContainerType[disassembler.getPartsCount()];
+        Arrays.fill(commonContainerTypes, ContainerType.EMPTY);
+        Iterator<Object> itemsIterator = disassembler.iterator(container);
+        int maxElements = ConfigService.getInstance().getMaxContainerElements();
+        for (int i = 0; i < maxElements && itemsIterator.hasNext(); i++) {
+            Object[] parts = disassembler.flattenOut(itemsIterator.next());
+            for (int partIndex = 0; partIndex < parts.length; partIndex++) {
+                commonContainerTypes[partIndex] = mergeToCommonContainer(
+                        findContainerType(parts[partIndex], depth + 1), commonContainerTypes[partIndex]);
+            }
         }
+        for (int i = 0; i < commonContainerTypes.length; i++) {
+            if (commonContainerTypes[i].getObjectClass() == null) {
+                commonContainerTypes[i] = ContainerType.of(Object.class);
+            }
+        }
+        return Arrays.asList(commonContainerTypes);
     }
 
     /**
@@ -266,66 +294,75 @@ public class IdentifierService {
      * Compare two {@link ContainerType#getContainerTypes()} recursively.
      * <p>
      * If the common {@link ContainerType#getContainerTypes()} is empty,
-     * copy all containerTypes from current
-     * {@link ContainerType#getContainerTypes()} to common
+     * take all containerTypes from current
      * {@link ContainerType#getContainerTypes()}.
      * 
      * <p>
      * Find out common class, of current and common
      * {@link ContainerType#getObjectClass()}es by the
-     * {@link ClassService#findCommonClassType(Class, Class)} method
-     * and set it to the common {@link ContainerType#setObjectClass(Class)}.
+     * {@link ClassService#findCommonClassType(Class, Class)} method.
      * 
      * @param currentContainerType will be merged to commonContainerType
-     * @param commonContainerType will be updated by currentContainerType
-     * properties
+     * @param commonContainerType the general type found so far
+     * @return the canonical {@link ContainerType} with properties of both arguments.
+     * The commonContainerType itself, if the currentContainerType does not change it.
      */
-    private void mergeToCommonContainer(ContainerType currentContainerType, ContainerType commonContainerType) {
-        commonContainerType.setObjectClass(ClassService.getInstance()
-                .findCommonClassType(currentContainerType.getObjectClass(), commonContainerType.getObjectClass()));
+    private ContainerType mergeToCommonContainer(ContainerType currentContainerType,
+            ContainerType commonContainerType) {
+        Class<?> objectClass = ClassService.getInstance()
+                .findCommonClassType(currentContainerType.getObjectClass(), commonContainerType.getObjectClass());
+        List<ContainerType> containerTypes;
         if (commonContainerType.getContainerTypes().isEmpty()) {
-            commonContainerType.setContainerTypes(currentContainerType.getContainerTypes());
-            return;
+            containerTypes = currentContainerType.getContainerTypes();
         } else {
-            for (int i = 0; i < currentContainerType.getContainerTypes().size(); i++) {
-                ContainerType nextCurrentContainerType = currentContainerType.getContainerTypes().get(i);
-                ContainerType nextCommonContainerType = commonContainerType.getContainerTypes().get(i);
-                mergeToCommonContainer(nextCurrentContainerType, nextCommonContainerType);
+            List<ContainerType> currentTypes = currentContainerType.getContainerTypes();
+            containerTypes = new ArrayList<>(commonContainerType.getContainerTypes());
+            for (int i = 0; i < currentTypes.size(); i++) {
+                if (i < containerTypes.size()) {
+                    containerTypes.set(i, mergeToCommonContainer(currentTypes.get(i), containerTypes.get(i)));
+                } else {
+                    containerTypes.add(currentTypes.get(i));
+                }
             }
         }
-
+        ContainerType methodsSource = commonContainerType.getObjectClass() == null ? currentContainerType
+                : commonContainerType;
+        if (objectClass == commonContainerType.getObjectClass() && methodsSource == commonContainerType
+                && containerTypes.equals(commonContainerType.getContainerTypes())) {
+            return commonContainerType;
+        }
+        return ContainerType.of(objectClass, containerTypes, methodsSource.getDisassembleMethod(),
+                methodsSource.getFactory(), methodsSource.getFilling());
     }
 
     /**
      * Find out the most general type of the {@link Map} values.
      * 
-     * @param map the objects container. This method will iterate these objects
+     * @param map the objects container. This method will iterate these objects,
+     * up to the {@link ConfigService#getMaxContainerElements()} limit,
      * and find out general types of keys and values of the {@link Map}.
-     * @param containerType This object will be completed by found general
-     * types, se the {@link ContainerType#getContainerTypes()} method.
      * @param depth Depth of plunge this {@link ContainerType}, beginning from 1
      * If the inner items are generic, return find out their
      * {@link ContainerType}s recursively, up to defined depth.
+     * @return general types of keys and values or an empty list, see the
+     * {@link ContainerType#getContainerTypes()} method.
      */
-    private void findGeneralItemsTypeOfMap(Map<?, ?> map, ContainerType containerType, int depth) {
-        ContainerType commonKeyContainerType = new ContainerType();
-        ContainerType commonValueContainerType = new ContainerType();
-        for (Entry<?, ?> entry : map.entrySet()) {
-            Object keyObject = entry.getKey();
-            Object valueObject = entry.getValue();
-
-            ContainerType keyContainerType = new ContainerType();
-            setContainerTypes(keyObject, keyContainerType, depth + 1);
-            mergeToCommonContainer(keyContainerType, commonKeyContainerType);
-
-            ContainerType valueContainerType = new ContainerType();
-            setContainerTypes(valueObject, valueContainerType, depth + 1);
-            mergeToCommonContainer(valueContainerType, commonValueContainerType);
+    private List<ContainerType> findGeneralItemsTypeOfMap(Map<?, ?> map, int depth) {
+        ContainerType commonKeyContainerType = ContainerType.EMPTY;
+        ContainerType commonValueContainerType = ContainerType.EMPTY;
+        Iterator<? extends Entry<?, ?>> entriesIterator = map.entrySet().iterator();
+        int maxElements = ConfigService.getInstance().getMaxContainerElements();
+        for (int i = 0; i < maxElements && entriesIterator.hasNext(); i++) {
+            Entry<?, ?> entry = entriesIterator.next();
+            commonKeyContainerType = mergeToCommonContainer(findContainerType(entry.getKey(), depth + 1),
+                    commonKeyContainerType);
+            commonValueContainerType = mergeToCommonContainer(findContainerType(entry.getValue(), depth + 1),
+                    commonValueContainerType);
         }
         if (commonKeyContainerType.getObjectClass() != null || commonValueContainerType.getObjectClass() != null) {
-            containerType.getContainerTypes().add(commonKeyContainerType);
-            containerType.getContainerTypes().add(commonValueContainerType);
+            return Arrays.asList(commonKeyContainerType, commonValueContainerType);
         }
+        return Collections.emptyList();
     }
 
     /**
@@ -335,6 +372,12 @@ public class IdentifierService {
      * {"containerType":{"objectClass":"com.apache.a4javadoc.javaagent.mapper.WrapperClass","containerTypes":[]}}
      * </pre>
      * 
+     * or for a back-reference
+     * 
+     * <pre>
+     * {"containerType":{"objectClass":"com.apache.a4javadoc.javaagent.mapper.WrapperClass","containerTypes":[]},"reference":0}
+     * </pre>
+     * 
      * @param identifier the JSON source
      * @param jsonGenerator the JSON holder
      * 
@@ -345,6 +388,9 @@ public class IdentifierService {
         jsonGenerator.writeObjectFieldStart(CONTAINER_TYPE_FIELD_NAME);
         processIdentifierContainerType(identifier.getContainerType(), jsonGenerator);
         jsonGenerator.writeEndObject();
+        if (identifier.getReference() != null) {
+            jsonGenerator.writeNumberField(REFERENCE_FIELD_NAME, identifier.getReference());
+        }
         jsonGenerator.writeEndObject();
     }
 
@@ -402,20 +448,79 @@ public class IdentifierService {
      */
     private ContainerType createContainerType(JsonNode jsonNode) {
         try {
-            ContainerType containerType = new ContainerType();
-            containerType.setObjectClass(Class.forName(jsonNode.get(OBJECT_CLASS_FIELD_NAME).asText()));
-
+            Class<?> objectClass = Class.forName(jsonNode.get(OBJECT_CLASS_FIELD_NAME).asText());
+            List<ContainerType> containerTypes = new ArrayList<>();
             Iterator<JsonNode> iterator = jsonNode.get(CONTAINER_TYPES_FIELD_NAME).iterator();
             while (iterator.hasNext()) {
-                containerType.getContainerTypes().add(createContainerType(iterator.next()));
+                containerTypes.add(createContainerType(iterator.next()));
             }
-
-            return containerType;
+            return ContainerType.of(objectClass, containerTypes);
         } catch (Exception e) {
             throw new AppRuntimeException(e);
         }
     }
 
+    /**
+     * Read the {@link Identifier} written by the {@link #processIdentifier(Identifier, JsonGenerator)} method
+     * directly from the {@link JsonParser} tokens.
+     * 
+     * @param jsonParser the source, its current token is the start of the identifier object.
+     * The method consumes the identifier including its end token.
+     * @return {@link Identifier} created from the tokens
+     * @throws IOException
+     */
+    public Identifier readIdentifier(JsonParser jsonParser) throws IOException {
+        Identifier identifier = new Identifier();
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jsonParser.getCurrentName();
+            jsonParser.nextToken();
+            if (CONTAINER_TYPE_FIELD_NAME.equals(fieldName)) {
+                identifier.setContainerType(readContainerType(jsonParser));
+            } else if (REFERENCE_FIELD_NAME.equals(fieldName)) {
+                identifier.setReference(jsonParser.getIntValue());
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+        return identifier;
+    }
+
+    /**
+     * Recursive method. Read the {@link ContainerType} from the {@link JsonParser} tokens.
+     * 
+     * @param jsonParser the source, its current token is the start of the container type object
+     * @return {@link ContainerType} created from the tokens
+     * @throws IOException
+     */
+    private ContainerType readContainerType(JsonParser jsonParser) throws IOException {
+        Class<?> objectClass = null;
+        String factory = null;
+        String filling = null;
+        List<ContainerType> containerTypes = new ArrayList<>();
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jsonParser.getCurrentName();
+            jsonParser.nextToken();
+            if (OBJECT_CLASS_FIELD_NAME.equals(fieldName)) {
+                try {
+                    objectClass = ClassUtils.getClass(jsonParser.getText());
+                } catch (ClassNotFoundException e) {
+                    throw new AppRuntimeException(e);
+                }
+            } else if (FACTORY_FIELD_NAME.equals(fieldName)) {
+                factory = jsonParser.getText();
+            } else if (FILLING_FIELD_NAME.equals(fieldName)) {
+                filling = jsonParser.getText();
+            } else if (CONTAINER_TYPES_FIELD_NAME.equals(fieldName)) {
+                while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+                    containerTypes.add(readContainerType(jsonParser));
+                }
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+        return ContainerType.of(objectClass, containerTypes, null, factory, filling);
+    }
+
     /**
      * Generate the {@link Identifier} from a {@link Field}. This {@link File}
      * name is defined in the {@link JsonNode}
@@ -433,17 +538,14 @@ public class IdentifierService {
         try {
             Field field = parentInstance.getClass().getDeclaredField(jsonNode.asText());
             Identifier identifier = new Identifier();
-            ContainerType containerType = new ContainerType();
-            containerType.setObjectClass(field.getDeclaringClass());
+            List<ContainerType> containerTypes = new ArrayList<>();
             if (field.getDeclaringClass().isArray() || field.getGenericType() instanceof ParameterizedType) {
                 List<Class<?>> classes = FieldService.getInstance().findArrayOrParameterizedTypeClasses(field);
                 for (Class<?> clazz : classes) {
-                    ContainerType nextContainerType = new ContainerType();
-                    nextContainerType.setObjectClass(clazz);
-                    containerType.getContainerTypes().add(nextContainerType);
+                    containerTypes.add(ContainerType.of(clazz));
                 }
             }
-            identifier.setContainerType(containerType);
+            identifier.setContainerType(ContainerType.of(field.getDeclaringClass(), containerTypes));
             return identifier;
         } catch (Exception e) {
             throw new AppRuntimeException(e);
@@ -471,4 +573,9 @@ public class IdentifierService {
         }
     }
 
+    /** Lazy holder of the {@link IdentifierService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final IdentifierService INSTANCE = new IdentifierService();
+    }
+
 }
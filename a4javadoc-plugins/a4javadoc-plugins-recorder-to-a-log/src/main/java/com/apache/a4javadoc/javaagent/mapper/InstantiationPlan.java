@@ -0,0 +1,156 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * The way of creation and filling of instances of a class during deserialization.
+ * The plan is resolved once per class by the {@link ConstructorService#getInstantiationPlan(Class)} method
+ * and then reused for all instances of the class, so the reflection lookups are not repeated per object.
+ * @author Kyrylo Semenko
+ */
+public class InstantiationPlan {
+
+    /** The class of created instances */
+    private final Class<?> objectClass;
+
+    /** The accessible default constructor or 'null' if the class has no usable default constructor */
+    private final Constructor<?> constructor;
+
+    /**
+     * The static method without parameters, which returns an instance of the {@link #objectClass},
+     * or 'null' if the class has no such method, see the {@link MethodService#getDisassembler(Class)}
+     */
+    private final Method factory;
+
+    /**
+     * Results of the {@link ConstructorService#findConstructor(java.lang.reflect.Field, Class, Class, java.util.List)}
+     * method for the class by the types of its arguments
+     */
+    private final ConcurrentMap<ConstructorService.ConstructorKey, Object> foundConstructors = new ConcurrentHashMap<>();
+
+    /**
+     * Resolve the constructor and the factory of the class.
+     * @param objectClass see the {@link #objectClass} field
+     */
+    InstantiationPlan(Class<?> objectClass) {
+        this.objectClass = objectClass;
+        this.constructor = findDefaultConstructor(objectClass);
+        this.factory = findFactory(objectClass);
+    }
+
+    /**
+     * @param objectClass the constructor source
+     * @return the accessible constructor without parameters or 'null'
+     */
+    private static Constructor<?> findDefaultConstructor(Class<?> objectClass) {
+        if (objectClass.isInterface() || Modifier.isAbstract(objectClass.getModifiers()) || objectClass.isArray()) {
+            return null;
+        }
+        try {
+            Constructor<?> defaultConstructor = objectClass.getDeclaredConstructor();
+            if (makeAccessible(defaultConstructor) || Modifier.isPublic(defaultConstructor.getModifiers())) {
+                return defaultConstructor;
+            }
+        } catch (Exception e) {
+            // the class has no default constructor
+        }
+        return null;
+    }
+
+    /**
+     * @param objectClass the methods source
+     * @return the first static method without parameters, which returns the objectClass, or 'null'
+     */
+    private static Method findFactory(Class<?> objectClass) {
+        try {
+            for (Method method : objectClass.getDeclaredMethods()) {
+                if (Modifier.isStatic(method.getModifiers())
+                        && method.getParameterTypes().length == 0
+                        && method.getReturnType().isAssignableFrom(objectClass)
+                        && (makeAccessible(method) || Modifier.isPublic(method.getModifiers()))) {
+                    return method;
+                }
+            }
+        } catch (Exception e) {
+            // the methods of the class are not accessible
+        }
+        return null;
+    }
+
+    /**
+     * @param accessibleObject a constructor or method
+     * @return 'false' if the accessibleObject cannot be made accessible, for example in a closed module
+     */
+    private static boolean makeAccessible(AccessibleObject accessibleObject) {
+        try {
+            accessibleObject.setAccessible(true);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create an instance by the default {@link #constructor}. If the class has no default constructor
+     * or the constructor fails, create the instance without calling of its constructors,
+     * see the {@link ConstructorService#allocateInstance(Class)} method.
+     * @return the new instance
+     * @throws AppRuntimeException if the instance cannot be created
+     */
+    public Object newInstance() {
+        if (constructor != null) {
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                // the instance will be allocated
+            }
+        }
+        return ConstructorService.getInstance().allocateInstance(objectClass);
+    }
+
+    /**
+     * Create an instance by the {@link #factory} method.
+     * @param factoryName the expected factory method name, see the {@link ContainerType#getFactory()}
+     * @return the new instance
+     * @throws AppRuntimeException if the class has no factory with the name or the factory fails
+     */
+    public Object newInstanceByFactory(String factoryName) {
+        if (factory == null || !factory.getName().equals(factoryName)) {
+            throw new AppRuntimeException("Cannot instantiate " + objectClass.getName()
+                    + " by the factory method " + factoryName);
+        }
+        try {
+            return factory.invoke(null);
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /** @return The {@link InstantiationPlan#objectClass} field */
+    public Class<?> getObjectClass() {
+        return objectClass;
+    }
+
+    /** @return The {@link InstantiationPlan#constructor} field */
+    public Constructor<?> getConstructor() {
+        return constructor;
+    }
+
+    /** @return The {@link InstantiationPlan#foundConstructors} field */
+    ConcurrentMap<ConstructorService.ConstructorKey, Object> getFoundConstructors() {
+        return foundConstructors;
+    }
+
+    /** @return The {@link InstantiationPlan#factory} field */
+    public Method getFactory() {
+        return factory;
+    }
+
+}
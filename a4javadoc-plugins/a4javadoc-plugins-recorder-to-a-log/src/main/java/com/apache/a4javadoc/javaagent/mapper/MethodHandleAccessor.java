@@ -0,0 +1,102 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * The {@link ObjectAccessor} based on {@link MethodHandle}s of getters and fields.
+ * It has the same semantics as the {@link ReflectiveAccessor}.
+ * @author Kyrylo Semenko
+ */
+public class MethodHandleAccessor implements ObjectAccessor {
+
+    /** The type of all handles, (Object)Object */
+    private static final MethodType READER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** See the {@link #getFields()} method */
+    private final List<Field> fields;
+
+    /** Handles of getters, or 'null' values for fields without accessible getters */
+    private final MethodHandle[] getters;
+
+    /** Handles of the {@link #fields} */
+    private final MethodHandle[] fieldReaders;
+
+    /**
+     * @param reflectiveAccessor the source of fields and getters
+     * @throws AppRuntimeException if a field cannot be made accessible
+     */
+    public MethodHandleAccessor(ReflectiveAccessor reflectiveAccessor) {
+        this.fields = reflectiveAccessor.getFields();
+        this.getters = new MethodHandle[fields.size()];
+        this.fieldReaders = new MethodHandle[fields.size()];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Method[] reflectiveGetters = reflectiveAccessor.getGetters();
+        for (int i = 0; i < fieldReaders.length; i++) {
+            getters[i] = unreflectGetter(lookup, reflectiveGetters[i]);
+            Field field = fields.get(i);
+            try {
+                field.setAccessible(true);
+                fieldReaders[i] = lookup.unreflectGetter(field).asType(READER_TYPE);
+            } catch (IllegalAccessException | RuntimeException e) {
+                throw new AppRuntimeException("Cannot create a handle of the field " + field, e);
+            }
+        }
+    }
+
+    /**
+     * @param lookup the handles factory
+     * @param getter the getter or 'null'
+     * @return the handle or 'null' if the getter is 'null' or not accessible
+     */
+    private static MethodHandle unreflectGetter(MethodHandles.Lookup lookup, Method getter) {
+        if (getter == null) {
+            return null;
+        }
+        try {
+            getter.setAccessible(true);
+            MethodHandle handle = lookup.unreflect(getter);
+            if (handle.type().parameterCount() == 0) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asType(READER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    @Override
+    public void readValues(Object sourceObject, Object[] values) {
+        for (int i = 0; i < fieldReaders.length; i++) {
+            values[i] = readValue(sourceObject, i);
+        }
+    }
+
+    @Override
+    public Object readValue(Object sourceObject, int index) {
+        MethodHandle getter = getters[index];
+        if (getter != null) {
+            try {
+                return (Object) getter.invokeExact(sourceObject);
+            } catch (Throwable e) {
+                // read the field
+            }
+        }
+        try {
+            return (Object) fieldReaders[index].invokeExact(sourceObject);
+        } catch (Throwable e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+}
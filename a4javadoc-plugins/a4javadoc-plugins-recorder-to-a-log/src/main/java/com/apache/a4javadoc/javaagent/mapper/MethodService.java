@@ -1,189 +1,361 @@
 package com.apache.a4javadoc.javaagent.mapper;
 
-import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
 
 /**
- * Stateless singleton for working with java {@link Method}s.
+ * Singleton for working with java {@link Method}s.
+ * It finds out and caches {@link Disassembler}s of generic containers.
  * 
  * @author Kyrylo Semenko
  */
 public class MethodService {
 
-    private static MethodService instance;
+    /** The {@link #disassemblers} value of classes without {@link Disassembler} */
+    private static final Disassembler NOT_DISASSEMBLABLE = new Disassembler(null, null, null, null);
+
+    /** Orders candidate methods by name and number of parameters, so the discovery is deterministic */
+    private static final Comparator<Method> METHOD_ORDER = new Comparator<Method>() {
+        @Override
+        public int compare(Method left, Method right) {
+            int result = left.getName().compareTo(right.getName());
+            if (result != 0) {
+                return result;
+            }
+            return left.getParameterTypes().length - right.getParameterTypes().length;
+        }
+    };
+
+    /**
+     * Found {@link Disassembler}s, they do not prevent the classes from unloading.
+     * The {@link #NOT_DISASSEMBLABLE} value means the class has no disassembler.
+     */
+    private final ClassValue<Disassembler> disassemblers = new ClassValue<Disassembler>() {
+        @Override
+        protected Disassembler computeValue(Class<?> clazz) {
+            Disassembler disassembler = findDisassembler(clazz);
+            return disassembler == null ? NOT_DISASSEMBLABLE : disassembler;
+        }
+    };
+
+    /** The registry of known containers, see the {@link #registerContainer(String, String, String, String...)} method */
+    private final List<KnownContainer> knownContainers = new CopyOnWriteArrayList<>();
 
     private MethodService() {
-        // empty
+        registerContainer("com.google.common.collect.Table", "cellSet", "put",
+                "getRowKey", "getColumnKey", "getValue");
+        registerContainer("com.google.common.collect.Multimap", "entries", "put",
+                "getKey", "getValue");
     }
 
     /**
      * @return the {@link MethodService} singleton.
      */
     public static MethodService getInstance() {
-        if (instance == null) {
-            instance = new MethodService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
-     * <p>
-     * Find out a {@link Method} without parameters,
-     * with {@link Iterable} or {@link Map} return type and number of returned
-     * types the same as a number of types in the 'typeVariables' argument.
+     * Register a known generic container type. The registered methods are preferred to the methods
+     * found by the analysis of signatures, see the {@link #getDisassembler(Class)} method.
+     * Containers should be registered before the first serialization of their instances.
      * 
-     * @param value the data source
-     * @param typeVariables items described required bounds for returning
-     * by a searched method
-     * @param containerType contains information about generic types included to
-     * the value
+     * @param typeName the name of a class or interface of containers, for example <b>com.google.common.collect.Table</b>.
+     * The type does not need to be loaded.
+     * @param disassembleMethodName the name of the method without parameters, that returns items of the container
+     * @param fillingMethodName the name of the method, that adds item parts to the container
+     * @param itemAccessorNames names of the item methods without parameters, that return the item parts,
+     * for example <b>getKey</b> and <b>getValue</b>. Empty if items are not composite.
      */
-    public void fillGeneralItemsTypeOfParameterized(Object value, List<TypeVariable<?>> typeVariables,
-            ContainerType containerType) {
-        try {
-            for (Method method : value.getClass().getDeclaredMethods()) {
-                if (!Modifier.isStatic(method.getModifiers()) && method.getParameterTypes().length == 0
-                        && void.class != method.getReturnType()
-                        && (Iterable.class.isAssignableFrom(method.getReturnType())
-                                || Map.class.isAssignableFrom(method.getReturnType()))
-                        && canTheMethodToBeDisassembler(value, typeVariables, containerType, method)) {
-
-                    return;
-                }
-            }
-            throw new AppRuntimeException("Cannot set up Identifier of generic type. Value: " + value);
-        } catch (Exception e) {
-            throw new AppRuntimeException(e);
-        }
+    public void registerContainer(String typeName, String disassembleMethodName, String fillingMethodName,
+            String... itemAccessorNames) {
+        knownContainers.add(new KnownContainer(typeName, disassembleMethodName, fillingMethodName, itemAccessorNames));
     }
 
     /**
-     * <p>
-     * Find out if the {@link Method} from arguments can be used for obtaining
-     * an object with {@link Iterable} or {@link Map} return type and number
-     * of returned types the same as a number of types in the 'typeVariables'
-     * argument.
-     * 
-     * <p>
-     * Returned method return items types should not be more general
-     * then the {@link TypeVariable#getBounds()}s of items from the argument.
+     * Find out how to take apart and assemble again the generic container class.
+     * The result is found once per class from method signatures, no method is invoked.
      * 
+     * @param clazz the container class, for example <b>com.google.common.collect.HashBasedTable</b>
+     * @return the cached {@link Disassembler} or 'null' if the class is not a generic container
+     */
+    public Disassembler getDisassembler(Class<?> clazz) {
+        Disassembler disassembler = disassemblers.get(clazz);
+        return disassembler == NOT_DISASSEMBLABLE ? null : disassembler;
+    }
+
+    /**
      * <p>
-     * If the number of items in the 'types' argument is 1,
-     * returned method return type should contain items without generic types.
-     * For example
-     * {@code List<String>} or
-     * {@code int[]}.
+     * Find out the {@link Disassembler} of the class. The {@link #knownContainers} are checked first.
      * 
      * <p>
-     * If the number of items in the 'types' argument is 2,
-     * returned method return type should contain the {@link Map} where keys
-     * and values are not generic, or {@link List}, {@link Set}, {@link Array}
-     * where items is generic and has exactly 2 inner non - generic items,
-     * for example
-     * {@code Map<Integer, String>} or
-     * {@code List<List<String>>} or
-     * {@code Object[][]..}
+     * Else the public method without parameters is searched, that returns an {@link Iterable}
+     * or a {@link Map} of items, whose type arguments are exactly the type parameters of the class.
+     * For example the {@code Set<Table.Cell<R, C, V>> cellSet()} method of a {@code HashBasedTable<R, C, V>}.
+     * Each type argument of items should be returned by an item method without parameters,
+     * for example {@code R getRowKey()}. Methods returning {@link Iterable}s are preferred.
      * 
      * <p>
-     * A similar approach will be applied if a number of items
-     * in the 'types' argument is 3 and more.
+     * The container should have a static factory method without parameters, see the
+     * {@link InstantiationPlan#getFactory()}, and a filling method with parameters of the type
+     * parameters of the class, for example {@code put(R, C, V)}.
      * 
-     * @param value the data source
-     * @param typeVariables items described required bounds for returning
-     * by a searched method
-     * @param containerType contains information about generic types included to
-     * the value
-     * @param method the {@link Method} of the value object to be checked, if it
-     * can be a disassemble method for its items.
-     * @return 'true' if the {@link Method} can be used to iterate items of the
-     * value
+     * @param clazz the container class
+     * @return the found {@link Disassembler} or 'null'
      */
-    public boolean canTheMethodToBeDisassembler(Object value, List<TypeVariable<?>> typeVariables,
-            ContainerType containerType, Method method) {
-
+    private Disassembler findDisassembler(Class<?> clazz) {
+        TypeVariable<?>[] typeParameters = clazz.getTypeParameters();
+        if (typeParameters.length == 0 || clazz.isArray() || Iterable.class.isAssignableFrom(clazz)
+                || Map.class.isAssignableFrom(clazz) || Map.Entry.class.isAssignableFrom(clazz)) {
+            return null;
+        }
+        Method factory = ConstructorService.getInstance().getInstantiationPlan(clazz).getFactory();
+        if (factory == null) {
+            return null;
+        }
         try {
-            ContainerType tempContainerType = new ContainerType();
-            IdentifierService.getInstance().setContainerTypes(method.invoke(value), tempContainerType, 0);
-            List<Class<?>> returnClasses = new ArrayList<>();
-            IdentifierService.getInstance().collectLeafTypes(tempContainerType, returnClasses);
-            boolean boundsMatches = true;
-            if (returnClasses.size() == typeVariables.size()) {
-                for (int i = 0; (boundsMatches && i < typeVariables.size()); i++) {
-                    TypeVariable<?> left = typeVariables.get(i);
-                    Class<?> right = returnClasses.get(i);
-                    if (left.getBounds().length != 1) {
-                        boundsMatches = false;
-                    } else {
-                        if (!((Class<?>) left.getBounds()[0]).isAssignableFrom(right)) {
-                            boundsMatches = false;
+            Disassembler disassembler = findKnownDisassembler(clazz, factory);
+            if (disassembler != null) {
+                return disassembler;
+            }
+            Map<TypeVariable<?>, Type> bindings = TypeService.getInstance().collectBindings(clazz);
+            Method filling = findFillingMethod(clazz, typeParameters, bindings);
+            if (filling == null) {
+                return null;
+            }
+            List<Method> candidates = new ArrayList<>();
+            for (Method method : clazz.getMethods()) {
+                if (!Modifier.isStatic(method.getModifiers()) && !method.isBridge()
+                        && method.getParameterTypes().length == 0
+                        && (Iterable.class.isAssignableFrom(method.getReturnType())
+                                || Map.class.isAssignableFrom(method.getReturnType()))) {
+                    candidates.add(method);
+                }
+            }
+            Collections.sort(candidates, METHOD_ORDER);
+            for (boolean iterables : new boolean[] {true, false}) {
+                for (Method method : candidates) {
+                    if (iterables == Iterable.class.isAssignableFrom(method.getReturnType())) {
+                        Method[] itemAccessors = findItemAccessors(method, typeParameters, bindings);
+                        if (itemAccessors != null) {
+                            return new Disassembler(accessible(method), itemAccessors, factory, accessible(filling));
                         }
                     }
                 }
-            } else {
-                boundsMatches = false;
-            }
-            if (boundsMatches) {
-                containerType.setContainerTypes(tempContainerType.getContainerTypes());
-                containerType.setDisassembleMethod(method);
-                Method factoryMethod = findFactoryMethod(value);
-                containerType.setFactory(factoryMethod.getName());
-                Method fillingMethod = findFillingMethod(value, containerType);
-                containerType.setFilling(fillingMethod.getName());
-                return true;
             }
-            return false;
-        } catch (Exception e) {
-            throw new AppRuntimeException(e);
+        } catch (RuntimeException e) {
+            throw new AppRuntimeException("Cannot analyze methods of " + clazz, e);
+        }
+        return null;
+    }
+
+    /**
+     * The methods of a registered {@link KnownContainer} are taken from the registered type, because
+     * public classes can inherit them from not public classes only as bridge methods with raw types,
+     * for example the {@code cellSet()} method of the {@code HashBasedTable}.
+     * 
+     * @param clazz the container class
+     * @param factory see the {@link Disassembler#getFactory()}
+     * @return the {@link Disassembler} of a registered {@link KnownContainer}
+     * or 'null' if the clazz is not registered or it does not have the registered methods
+     */
+    private Disassembler findKnownDisassembler(Class<?> clazz, Method factory) {
+        for (KnownContainer knownContainer : knownContainers) {
+            Class<?> knownType = findSupertype(clazz, knownContainer.typeName);
+            if (knownType == null) {
+                continue;
+            }
+            Method disassembleMethod = findPublicMethod(knownType, knownContainer.disassembleMethodName, 0);
+            Method filling = findPublicMethod(knownType, knownContainer.fillingMethodName,
+                    knownType.getTypeParameters().length);
+            if (disassembleMethod == null || filling == null) {
+                continue;
+            }
+            Type[] itemTypes = TypeService.getInstance().findTypeArguments(disassembleMethod.getGenericReturnType(),
+                    Iterable.class);
+            Class<?> itemClass = itemTypes == null ? null : erasure(itemTypes[0]);
+            Method[] itemAccessors = new Method[knownContainer.itemAccessorNames.length];
+            for (int i = 0; i < itemAccessors.length; i++) {
+                itemAccessors[i] = itemClass == null ? null
+                        : findPublicMethod(itemClass, knownContainer.itemAccessorNames[i], 0);
+                if (itemAccessors[i] == null) {
+                    return null;
+                }
+            }
+            return new Disassembler(accessible(disassembleMethod), itemAccessors, factory, accessible(filling));
         }
+        return null;
+    }
+
+    /**
+     * @param method the candidate for the {@link Disassembler#getDisassembleMethod()}
+     * @param typeParameters type parameters of the container class
+     * @param bindings see the {@link TypeService#collectBindings(Class)}
+     * @return methods of items, that return parts of the items in the order of the typeParameters,
+     * an empty array if the items are the values of the only type parameter,
+     * or 'null' if the method does not return items of the type parameters
+     */
+    private Method[] findItemAccessors(Method method, TypeVariable<?>[] typeParameters,
+            Map<TypeVariable<?>, Type> bindings) {
+        TypeService typeService = TypeService.getInstance();
+        Type returnType = method.getGenericReturnType();
+        Type[] mapTypes = typeService.findTypeArguments(returnType, Map.class);
+        if (mapTypes != null) {
+            if (typeParameters.length != 2 || !resolvesTo(mapTypes, typeParameters, bindings)) {
+                return null;
+            }
+            return new Method[] {findPublicMethod(Map.Entry.class, "getKey", 0),
+                    findPublicMethod(Map.Entry.class, "getValue", 0)};
+        }
+        Type[] iterableTypes = typeService.findTypeArguments(returnType, Iterable.class);
+        if (iterableTypes == null) {
+            return null;
+        }
+        Type itemType = typeService.resolve(iterableTypes[0], bindings);
+        if (typeParameters.length == 1 && typeParameters[0].equals(itemType)) {
+            return new Method[0];
+        }
+        if (!(itemType instanceof ParameterizedType)
+                || !resolvesTo(((ParameterizedType) itemType).getActualTypeArguments(), typeParameters, bindings)) {
+            return null;
+        }
+        Class<?> itemClass = erasure(itemType);
+        TypeVariable<?>[] itemParameters = itemClass.getTypeParameters();
+        Method[] result = new Method[itemParameters.length];
+        List<Method> itemMethods = new ArrayList<>(Arrays.asList(itemClass.getMethods()));
+        Collections.sort(itemMethods, METHOD_ORDER);
+        for (int i = 0; i < itemParameters.length; i++) {
+            for (Method itemMethod : itemMethods) {
+                if (!Modifier.isStatic(itemMethod.getModifiers()) && itemMethod.getParameterTypes().length == 0
+                        && itemParameters[i].equals(itemMethod.getGenericReturnType())) {
+                    result[i] = itemMethod;
+                    break;
+                }
+            }
+            if (result[i] == null) {
+                return null;
+            }
+        }
+        return result;
     }
 
     /**
      * Find out a method, that will be used in a deserialization for putting
      * elements to a deserialized object. For example the
-     * {@code public java.lang.Object
-     * com.google.common.collect.HashBasedTable.put(java.lang.Object,
-     * java.lang.Object,java.lang.Object)} method is used for putting values to
+     * {@code public V com.google.common.collect.Table.put(R, C, V)} method is used for putting values to
      * a Guava table.
      * 
-     * @param value the expected original object for validation purposes
-     * @param containerType contains argument types of filling method
+     * @param clazz the container class
+     * @param typeParameters type parameters of the container class
+     * @param bindings see the {@link TypeService#collectBindings(Class)}
+     * @return the public method with parameters of the typeParameters or 'null'
      */
-    private Method findFillingMethod(Object value, ContainerType containerType) {
-        try {
-            Method factoryMethod = value.getClass().getMethod(containerType.getFactory());
-            Object factoredInstance = factoryMethod.invoke(value);
-            for (Method method : value.getClass().getDeclaredMethods()) {
-                if (!Modifier.isStatic(method.getModifiers())) {
-                    List<Class<?>> parameterTypes = new ArrayList<>();
-                    IdentifierService.getInstance().collectLeafTypes(containerType, parameterTypes);
-                    if (parametersMatch(parameterTypes.toArray(new Class[0]), method.getParameterTypes())) {
-                        Object sampleReturnedObjects = containerType.getDisassembleMethod().invoke(value);
-                        Object sampleReturnedItem = BundleService.getInstance().getFirstItem(sampleReturnedObjects);
-                        Object[] sampleArgsReturned = BundleService.getInstance().flattenOut(sampleReturnedItem,
-                                parameterTypes);
-                        method.invoke(factoredInstance, sampleArgsReturned);
-                        Object invokedReturnedObjects = containerType.getDisassembleMethod().invoke(factoredInstance);
-                        Object invokedReturnedItem = BundleService.getInstance().getFirstItem(invokedReturnedObjects);
-                        Object[] invokedArgsReturned = BundleService.getInstance().flattenOut(invokedReturnedItem,
-                                parameterTypes);
-                        checkEquality(sampleArgsReturned, invokedArgsReturned);
-                        return method;
-                    }
-                }
+    private Method findFillingMethod(Class<?> clazz, TypeVariable<?>[] typeParameters,
+            Map<TypeVariable<?>, Type> bindings) {
+        List<Method> methods = new ArrayList<>(Arrays.asList(clazz.getMethods()));
+        Collections.sort(methods, METHOD_ORDER);
+        for (Method method : methods) {
+            if (!Modifier.isStatic(method.getModifiers()) && !method.isBridge()
+                    && method.getParameterTypes().length == typeParameters.length
+                    && resolvesTo(method.getGenericParameterTypes(), typeParameters, bindings)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param types some types, for example type arguments of a method return type
+     * @param typeParameters type parameters of a container class
+     * @param bindings see the {@link TypeService#collectBindings(Class)}
+     * @return 'true' if the types are the typeParameters in the same order
+     */
+    private boolean resolvesTo(Type[] types, TypeVariable<?>[] typeParameters, Map<TypeVariable<?>, Type> bindings) {
+        if (types.length != typeParameters.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (!typeParameters[i].equals(TypeService.getInstance().resolve(types[i], bindings))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param clazz the methods source
+     * @param name the method name
+     * @param parametersCount number of the method parameters
+     * @return the public not static method or 'null'
+     */
+    private Method findPublicMethod(Class<?> clazz, String name, int parametersCount) {
+        List<Method> methods = new ArrayList<>(Arrays.asList(clazz.getMethods()));
+        Collections.sort(methods, METHOD_ORDER);
+        for (Method method : methods) {
+            if (method.getName().equals(name) && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()
+                    && method.getParameterTypes().length == parametersCount) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param clazz a class
+     * @param typeName the name of a class or interface
+     * @return the clazz or its supertype with the typeName or 'null' if not found
+     */
+    private Class<?> findSupertype(Class<?> clazz, String typeName) {
+        if (clazz == null || clazz.getName().equals(typeName)) {
+            return clazz;
+        }
+        for (Class<?> implemented : clazz.getInterfaces()) {
+            Class<?> result = findSupertype(implemented, typeName);
+            if (result != null) {
+                return result;
             }
-        } catch (Exception e) {
-            throw new AppRuntimeException(e);
         }
-        throw new AppRuntimeException("Cannot find out the filling method");
+        return findSupertype(clazz.getSuperclass(), typeName);
+    }
+
+    /**
+     * @param type a {@link Class} or {@link ParameterizedType}
+     * @return the class of the type or {@link Object} for other types
+     */
+    private Class<?> erasure(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return Object.class;
+    }
+
+    /**
+     * Public methods declared in not public classes cannot be invoked without this setting.
+     * @param method a public method
+     * @return the method
+     */
+    private Method accessible(Method method) {
+        try {
+            method.setAccessible(true);
+        } catch (RuntimeException e) {
+            // the method of a public class is accessible anyway
+        }
+        return method;
     }
 
     /**
@@ -206,46 +378,41 @@ public class MethodService {
     }
 
     /**
-     * Check out if the methodParameterTypes match to requiredParameterTypes.
-     * They should have the same length and types in bounds of required types.
-     * 
-     * @param methodParameterTypes checked parameter types
-     * @param requiredParameterTypes sample parameter types
-     * @return 'true' if parameters number is the same and method parameter
-     * types are in bounds of requiredParameterTypes
+     * A generic container type registered by the
+     * {@link MethodService#registerContainer(String, String, String, String...)} method.
      */
-    private boolean parametersMatch(Class<?>[] methodParameterTypes, Class<?>[] requiredParameterTypes) {
-        if (methodParameterTypes.length != requiredParameterTypes.length) {
-            return false;
-        }
-        for (int i = 0; i < requiredParameterTypes.length; i++) {
-            if (!requiredParameterTypes[i].isAssignableFrom(methodParameterTypes[i])) {
-                return false;
-            }
+    private static class KnownContainer {
+
+        /** The name of the container class or interface */
+        private final String typeName;
+
+        /** See the {@link Disassembler#getDisassembleMethod()} */
+        private final String disassembleMethodName;
+
+        /** See the {@link Disassembler#getFilling()} */
+        private final String fillingMethodName;
+
+        /** Names of methods, that return parts of items */
+        private final String[] itemAccessorNames;
+
+        /**
+         * @param typeName see the {@link #typeName} field
+         * @param disassembleMethodName see the {@link #disassembleMethodName} field
+         * @param fillingMethodName see the {@link #fillingMethodName} field
+         * @param itemAccessorNames see the {@link #itemAccessorNames} field
+         */
+        private KnownContainer(String typeName, String disassembleMethodName, String fillingMethodName,
+                String[] itemAccessorNames) {
+            this.typeName = typeName;
+            this.disassembleMethodName = disassembleMethodName;
+            this.fillingMethodName = fillingMethodName;
+            this.itemAccessorNames = itemAccessorNames;
         }
-        return true;
     }
 
-    /**
-     * Find out a static method for deserialization, which returns an object of
-     * the value type.
-     * 
-     * @param value serialized object
-     */
-    private Method findFactoryMethod(Object value) {
-        try {
-            for (Method method : value.getClass().getDeclaredMethods()) {
-                if (Modifier.isStatic(method.getModifiers())) {
-                    Class<?>[] parameterTypes = method.getParameterTypes();
-                    if (parameterTypes.length == 0 && method.getReturnType().isAssignableFrom(value.getClass())) {
-                        return method;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            throw new AppRuntimeException(e);
-        }
-        throw new AppRuntimeException("Cannot find out the factory method");
+    /** Lazy holder of the {@link MethodService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final MethodService INSTANCE = new MethodService();
     }
 
 }
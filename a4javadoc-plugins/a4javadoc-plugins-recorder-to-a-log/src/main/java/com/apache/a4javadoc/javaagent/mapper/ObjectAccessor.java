@@ -0,0 +1,34 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Reads values of serializable fields of objects of a single class.
+ * Instances are created and cached by the {@link AccessorService}, they are shared between threads.
+ * @author Kyrylo Semenko
+ */
+public interface ObjectAccessor {
+
+    /**
+     * @return the {@link FieldService#getFields(Class)} of the class, in the order of values
+     */
+    public List<Field> getFields();
+
+    /**
+     * Read values of all {@link #getFields()} in one call.
+     * A value is obtained from a getter if it exists, else from the field.
+     * @param sourceObject the data source
+     * @param values the preallocated buffer, its length is at least the size of {@link #getFields()}
+     */
+    public void readValues(Object sourceObject, Object[] values);
+
+    /**
+     * Read a value of a single field.
+     * @param sourceObject the data source
+     * @param index the index of the field in the {@link #getFields()} list
+     * @return the field value
+     */
+    public Object readValue(Object sourceObject, int index);
+
+}
@@ -1,23 +1,32 @@
 package com.apache.a4javadoc.javaagent.mapper;
 
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.Writer;
+import java.util.Iterator;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 
 /**
- * Proxy for {@link ObjectMapper}. Contains a single instance of {@link #objectMapper}.
+ * Proxy for {@link ObjectMapper}. Contains a single instance of {@link #objectMapper}.<br>
+ * The instance is thread-safe. Each serialization and deserialization call has its own state,
+ * see the {@link GenericSerializerProvider} and the {@link GenericDeserializer}.
  * @author Kyrylo Semenko
  */
 public class ObjectMapperA4j {
     
     /** The single instance of {@link ObjectMapper} */
-    private ObjectMapper objectMapper;
+    private final ObjectMapper objectMapper;
     
-    private static ObjectMapperA4j instance;
+    /** The immutable reader of {@link Object}s without a {@link SubtreeFilter} */
+    private final ObjectReader objectReader;
     
     /** Create an instance of the {@link #objectMapper} and configure it */
     private ObjectMapperA4j() {
@@ -39,6 +48,8 @@ public class ObjectMapperA4j {
         SimpleModule moduleDeserializer = new SimpleModule();
         moduleDeserializer.addDeserializer(Object.class, new GenericDeserializer());
         objectMapper.registerModule(moduleDeserializer);
+        
+        objectReader = objectMapper.readerFor(Object.class);
     }
     
     /**
@@ -46,10 +57,7 @@ public class ObjectMapperA4j {
      * @return the singleton instance
      */
     public static ObjectMapperA4j getInstance() {
-        if (instance == null) {
-            instance = new ObjectMapperA4j();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
     
     /**
@@ -65,6 +73,37 @@ public class ObjectMapperA4j {
         }
     }
     
+    /**
+     * Calls a {@link ObjectMapper#writeValue(JsonGenerator, Object)} method. The generator is flushed,
+     * but not closed, so it can be reused for the next root value.
+     * @param jsonGenerator created by the {@link #createGenerator(OutputStream)} method
+     * @param value see a {@link ObjectMapper#writeValue(JsonGenerator, Object)} method
+     */
+    public void writeValue(JsonGenerator jsonGenerator, Object value) {
+        try {
+            objectMapper.writeValue(jsonGenerator, value);
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+    
+    /**
+     * Create a UTF-8 {@link JsonGenerator} for a sequence of root values written by the
+     * {@link #writeValue(JsonGenerator, Object)} method. The root values are not separated,
+     * so the output of each value is the same as the output of the {@link #writeValue(Writer, Object)} method.
+     * @param outputStream the target of the generator
+     * @return a new {@link JsonGenerator}, it is not thread-safe
+     */
+    public JsonGenerator createGenerator(OutputStream outputStream) {
+        try {
+            JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+            jsonGenerator.setRootValueSeparator(null);
+            return jsonGenerator;
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+    
     /**
      * Calls a {@link ObjectMapper#readValue(String, Class)} method
      * @param content see a {@link ObjectMapper#readValue(String, Class)} method
@@ -92,4 +131,50 @@ public class ObjectMapperA4j {
         }
     }
 
+    /**
+     * Read an object and skip the parts of JSON rejected by the {@link SubtreeFilter}.
+     * @param content JSON created by the {@link GenericSerializer}
+     * @param subtreeFilter can be 'null'
+     * @return a deserialized object
+     */
+    public Object readValue(String content, SubtreeFilter subtreeFilter) {
+        try {
+            return createReader(subtreeFilter).readValue(content);
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * Read a sequence of root objects, for example from a large trace file. The objects are read
+     * one by one during the iteration, so only the current object is held in memory.
+     * The caller is responsible for closing of the reader.
+     * @param reader JSON objects created by the {@link GenericSerializer}
+     * @param subtreeFilter can be 'null'
+     * @return the deserialized objects
+     */
+    public Iterator<Object> readValues(Reader reader, SubtreeFilter subtreeFilter) {
+        try {
+            return createReader(subtreeFilter).readValues(reader);
+        } catch (Exception e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * @param subtreeFilter will be passed to the {@link GenericDeserializer}, can be 'null'
+     * @return the {@link #objectReader} or its copy with the subtreeFilter
+     */
+    private ObjectReader createReader(SubtreeFilter subtreeFilter) {
+        if (subtreeFilter == null) {
+            return objectReader;
+        }
+        return objectReader.withAttribute(GenericDeserializer.SUBTREE_FILTER_ATTRIBUTE, subtreeFilter);
+    }
+
+    /** Lazy holder of the {@link ObjectMapperA4j} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final ObjectMapperA4j INSTANCE = new ObjectMapperA4j();
+    }
+
 }
@@ -10,8 +10,6 @@ import java.util.List;
  */
 public class ParameterService {
     
-    private static ParameterService instance;
-    
     private ParameterService() {
         // empty
     }
@@ -20,10 +18,7 @@ public class ParameterService {
      * @return the {@link ParameterService} singleton.
      */
     public static ParameterService getInstance() {
-        if (instance == null) {
-            instance = new ParameterService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
@@ -57,4 +52,10 @@ public class ParameterService {
         }
         return true;
     }
+
+    /** Lazy holder of the {@link ParameterService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final ParameterService INSTANCE = new ParameterService();
+    }
+
 }
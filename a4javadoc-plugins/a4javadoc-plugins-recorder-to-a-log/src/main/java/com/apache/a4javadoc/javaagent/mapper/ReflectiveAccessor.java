@@ -0,0 +1,102 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * The {@link ObjectAccessor} based on {@link Method#invoke(Object, Object...)} and {@link Field#get(Object)}.
+ * Getters are looked up once per class.
+ * @author Kyrylo Semenko
+ */
+public class ReflectiveAccessor implements ObjectAccessor {
+
+    private static final String GETTER_PREFIX = "get";
+
+    /** See the {@link #getFields()} method */
+    private final List<Field> fields;
+
+    /** Getters of the {@link #fields} with the same indexes, or 'null' values for fields without getters */
+    private final Method[] getters;
+
+    /**
+     * @param clazz the class of objects to be read
+     */
+    public ReflectiveAccessor(Class<?> clazz) {
+        this.fields = Collections.unmodifiableList(FieldService.getInstance().getFields(clazz));
+        this.getters = new Method[fields.size()];
+        Method[] methods = clazz.getMethods();
+        for (int i = 0; i < getters.length; i++) {
+            getters[i] = findGetter(methods, fields.get(i));
+        }
+    }
+
+    /**
+     * Find the first method without parameters, whose name is the field name with the 'get' prefix,
+     * ignoring case.
+     * @param methods the {@link Class#getMethods()} result
+     * @param field the getter property
+     * @return the getter or 'null' if not found
+     */
+    private static Method findGetter(Method[] methods, Field field) {
+        for (Method method : methods) {
+            if (method.getParameterTypes().length == 0
+                    && method.getName().startsWith(GETTER_PREFIX)
+                    && method.getName().length() == (field.getName().length() + GETTER_PREFIX.length())
+                    && method.getName().toLowerCase().endsWith(field.getName().toLowerCase())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    /** @return getters of the {@link #getFields()} with the same indexes, or 'null' values for fields without getters */
+    Method[] getGetters() {
+        return getters;
+    }
+
+    @Override
+    public void readValues(Object sourceObject, Object[] values) {
+        for (int i = 0; i < getters.length; i++) {
+            values[i] = readValue(sourceObject, i);
+        }
+    }
+
+    /** Try to obtain field value from getter. If getter not found or failed, set the field accessible and obtain its value from reference. */
+    @Override
+    public Object readValue(Object sourceObject, int index) {
+        Method getter = getters[index];
+        if (getter != null) {
+            try {
+                return getter.invoke(sourceObject);
+            } catch (Exception e) {
+                // read the field
+            }
+        }
+        return readField(sourceObject, index);
+    }
+
+    /**
+     * Read the field without its getter.
+     * @param sourceObject the data source
+     * @param index the index of the field in the {@link #getFields()} list
+     * @return the field value
+     */
+    Object readField(Object sourceObject, int index) {
+        Field field = fields.get(index);
+        field.setAccessible(true);
+        try {
+            return field.get(sourceObject);
+        } catch (IllegalArgumentException | IllegalAccessException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+}
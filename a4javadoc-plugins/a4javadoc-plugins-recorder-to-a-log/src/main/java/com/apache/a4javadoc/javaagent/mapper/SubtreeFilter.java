@@ -0,0 +1,21 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.lang.reflect.Field;
+
+/**
+ * Decides which parts of JSON the {@link GenericDeserializer} skips, for example large collections
+ * not needed for an analysis of a trace. Skipped subtrees are read token by token without
+ * creating of any objects. Skipped fields keep their default values, skipped items
+ * of collections and entries of maps are omitted and skipped items of arrays keep default values.
+ * @author Kyrylo Semenko
+ */
+public interface SubtreeFilter {
+
+    /**
+     * @param field the field of the value or 'null' for items of arrays and collections and entries of maps
+     * @param depth the nesting level of the value, the root object has level 1
+     * @return 'true' if the value should be skipped
+     */
+    public boolean isSkipped(Field field, int depth);
+
+}
@@ -8,7 +8,9 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.apache.a4javadoc.exception.AppRuntimeException;
 
@@ -19,8 +21,6 @@ import com.apache.a4javadoc.exception.AppRuntimeException;
  */
 public class TypeService {
 
-    private static TypeService instance;
-
     private TypeService() {
         // empty
     }
@@ -29,10 +29,7 @@ public class TypeService {
      * @return the {@link TypeService} singleton.
      */
     public static TypeService getInstance() {
-        if (instance == null) {
-            instance = new TypeService();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
@@ -132,4 +129,101 @@ public class TypeService {
 //        }
 //    }
 
+    /**
+     * Find out the type arguments of the target class as seen from the type, for example
+     * {@code [java.lang.String]} for the {@code ArrayList<String>} type and the {@link Iterable} target.
+     * 
+     * @param type a {@link Class} or {@link ParameterizedType}
+     * @param target a supertype of the type
+     * @return the type arguments, type variables without known values are returned as they are.
+     * Returns 'null' if the type is not a subtype of the target.
+     */
+    public Type[] findTypeArguments(Type type, Class<?> target) {
+        Class<?> rawClass;
+        Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+        if (type instanceof Class) {
+            rawClass = (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            rawClass = (Class<?>) ((ParameterizedType) type).getRawType();
+            bind(rawClass, ((ParameterizedType) type).getActualTypeArguments(), bindings);
+        } else {
+            return null;
+        }
+        if (!target.isAssignableFrom(rawClass)) {
+            return null;
+        }
+        collectBindings(rawClass, bindings);
+        TypeVariable<?>[] typeParameters = target.getTypeParameters();
+        Type[] result = new Type[typeParameters.length];
+        for (int i = 0; i < typeParameters.length; i++) {
+            result[i] = resolve(typeParameters[i], bindings);
+        }
+        return result;
+    }
+
+    /**
+     * Collect values of type variables of all supertypes of the class, for example
+     * {@code AbstractList.E -> ArrayList.E}, {@code List.E -> ArrayList.E} and so on for the {@link ArrayList}.
+     * 
+     * @param clazz the data source
+     * @return type variables of supertypes with their values in terms of the clazz
+     */
+    public Map<TypeVariable<?>, Type> collectBindings(Class<?> clazz) {
+        Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+        collectBindings(clazz, bindings);
+        return bindings;
+    }
+
+    /**
+     * Recursive method. Add type variables of supertypes of the class to the bindings.
+     * 
+     * @param clazz the data source
+     * @param bindings the result
+     */
+    private void collectBindings(Class<?> clazz, Map<TypeVariable<?>, Type> bindings) {
+        List<Type> supertypes = new ArrayList<>();
+        if (clazz.getGenericSuperclass() != null) {
+            supertypes.add(clazz.getGenericSuperclass());
+        }
+        Collections.addAll(supertypes, clazz.getGenericInterfaces());
+        for (Type supertype : supertypes) {
+            if (supertype instanceof ParameterizedType) {
+                Class<?> rawClass = (Class<?>) ((ParameterizedType) supertype).getRawType();
+                bind(rawClass, ((ParameterizedType) supertype).getActualTypeArguments(), bindings);
+                collectBindings(rawClass, bindings);
+            } else if (supertype instanceof Class) {
+                collectBindings((Class<?>) supertype, bindings);
+            }
+        }
+    }
+
+    /**
+     * @param rawClass the declaration of type variables
+     * @param typeArguments values of the type variables
+     * @param bindings the target, the values are resolved by already known bindings
+     */
+    private void bind(Class<?> rawClass, Type[] typeArguments, Map<TypeVariable<?>, Type> bindings) {
+        TypeVariable<?>[] typeParameters = rawClass.getTypeParameters();
+        for (int i = 0; i < typeParameters.length && i < typeArguments.length; i++) {
+            bindings.put(typeParameters[i], resolve(typeArguments[i], bindings));
+        }
+    }
+
+    /**
+     * @param type some type
+     * @param bindings see the {@link #collectBindings(Class)} method
+     * @return the value of the type variable or the type itself
+     */
+    public Type resolve(Type type, Map<TypeVariable<?>, Type> bindings) {
+        if (type instanceof TypeVariable && bindings.containsKey(type)) {
+            return bindings.get(type);
+        }
+        return type;
+    }
+
+    /** Lazy holder of the {@link TypeService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final TypeService INSTANCE = new TypeService();
+    }
+
 }
@@ -0,0 +1,121 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ * Compresses buffers of records of the {@link FileChannelEventSink} to blocks on its writer thread.
+ *
+ * <p>
+ * The data file is a sequence of frames. Each frame has a header of two big-endian ints,
+ * the compressed and the uncompressed length, followed by the zlib data of the block.
+ * Each block is described by a fixed-length entry of the sidecar index file with the
+ * {@link #INDEX_SUFFIX}: the frame offset (long), the frame length, the uncompressed length,
+ * the number of records (ints), the first invocation id and the first timestamp (longs),
+ * see the {@link BlockIndexEntry}.
+ *
+ * <p>
+ * An instance is not thread-safe, it reuses its buffers for all blocks.
+ * @author Kyrylo Semenko
+ */
+final class BlockCompressor {
+
+    /** The suffix of the sidecar index file name */
+    static final String INDEX_SUFFIX = ".idx";
+
+    /** Length of the frame header */
+    static final int FRAME_HEADER_LENGTH = 8;
+
+    /** Length of an index entry */
+    static final int INDEX_ENTRY_LENGTH = 36;
+
+    /** The reused compressor */
+    private final Deflater deflater;
+
+    /** Frames of the blocks written by a single gathering write, indexed by a slot */
+    private final byte[][] frames;
+
+    /** Index entries of the blocks written by a single gathering write */
+    private final ByteBuffer index;
+
+    /** Copy of the compressed records, the {@link Deflater} of Java 7 accepts arrays only */
+    private byte[] input = new byte[0];
+
+    /**
+     * @param level the {@link Deflater} level
+     * @param maxBlocks maximum number of blocks of a single gathering write
+     */
+    BlockCompressor(int level, int maxBlocks) {
+        this.deflater = new Deflater(level);
+        this.frames = new byte[maxBlocks][];
+        this.index = ByteBuffer.allocate(maxBlocks * INDEX_ENTRY_LENGTH);
+    }
+
+    /**
+     * @param dataFile the compressed file
+     * @return the sidecar index file
+     */
+    static Path indexOf(Path dataFile) {
+        return Paths.get(dataFile.toString() + INDEX_SUFFIX);
+    }
+
+    /** Start the next gathering write, the index entries of the previous one are discarded */
+    void clear() {
+        ((Buffer) index).clear();
+    }
+
+    /**
+     * Compress the block and add its index entry.
+     * @param slot the position of the block in the gathering write
+     * @param records the block content, it is consumed
+     * @param offset the position of the frame in the data file
+     * @param recordCount number of the records
+     * @param firstInvocationId the invocation id of the first record
+     * @param firstTimestampMillis the time of the first record
+     * @return the frame
+     */
+    ByteBuffer compress(int slot, ByteBuffer records, long offset, int recordCount, long firstInvocationId,
+            long firstTimestampMillis) {
+        int length = records.remaining();
+        if (input.length < length) {
+            input = new byte[length];
+        }
+        records.get(input, 0, length);
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        byte[] frame = frames[slot];
+        if (frame == null || frame.length < FRAME_HEADER_LENGTH + 64) {
+            frame = new byte[FRAME_HEADER_LENGTH + 64 + length / 4];
+        }
+        int size = FRAME_HEADER_LENGTH;
+        while (!deflater.finished()) {
+            if (size == frame.length) {
+                frame = Arrays.copyOf(frame, frame.length * 2);
+            }
+            size += deflater.deflate(frame, size, frame.length - size);
+        }
+        frames[slot] = frame;
+        ByteBuffer.wrap(frame).putInt(size - FRAME_HEADER_LENGTH).putInt(length);
+        index.putLong(offset).putInt(size).putInt(length).putInt(recordCount)
+                .putLong(firstInvocationId).putLong(firstTimestampMillis);
+        return ByteBuffer.wrap(frame, 0, size);
+    }
+
+    /** @return the index entries of the blocks compressed after the {@link #clear()} call, ready for writing */
+    ByteBuffer getIndex() {
+        ((Buffer) index).flip();
+        return index;
+    }
+
+    /** Release the native resources of the {@link #deflater} */
+    void end() {
+        deflater.end();
+    }
+
+}
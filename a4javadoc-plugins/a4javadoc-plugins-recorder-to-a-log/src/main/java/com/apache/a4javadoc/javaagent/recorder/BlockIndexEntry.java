@@ -0,0 +1,86 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+/**
+ * An entry of the sidecar index of a file compressed by the {@link BlockCompressor}.
+ * It describes a single block, so a reader can find and decompress the block without
+ * decompressing the blocks before it, see the {@link BlockReader}.
+ * @author Kyrylo Semenko
+ */
+public class BlockIndexEntry {
+
+    /** Position of the block frame in the data file */
+    private final long offset;
+
+    /** Length of the block frame including its header */
+    private final int frameLength;
+
+    /** Length of the decompressed records */
+    private final int uncompressedLength;
+
+    /** Number of records in the block */
+    private final int records;
+
+    /** The method invocation id of the first record of the block, -1 if it is unknown */
+    private final long firstInvocationId;
+
+    /** The time of the first record of the block */
+    private final long firstTimestampMillis;
+
+    /**
+     * @param offset see the {@link #offset} field
+     * @param frameLength see the {@link #frameLength} field
+     * @param uncompressedLength see the {@link #uncompressedLength} field
+     * @param records see the {@link #records} field
+     * @param firstInvocationId see the {@link #firstInvocationId} field
+     * @param firstTimestampMillis see the {@link #firstTimestampMillis} field
+     */
+    public BlockIndexEntry(long offset, int frameLength, int uncompressedLength, int records,
+            long firstInvocationId, long firstTimestampMillis) {
+        this.offset = offset;
+        this.frameLength = frameLength;
+        this.uncompressedLength = uncompressedLength;
+        this.records = records;
+        this.firstInvocationId = firstInvocationId;
+        this.firstTimestampMillis = firstTimestampMillis;
+    }
+
+    /** @return The {@link BlockIndexEntry#offset} field */
+    public long getOffset() {
+        return offset;
+    }
+
+    /** @return The {@link BlockIndexEntry#frameLength} field */
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    /** @return The {@link BlockIndexEntry#uncompressedLength} field */
+    public int getUncompressedLength() {
+        return uncompressedLength;
+    }
+
+    /** @return The {@link BlockIndexEntry#records} field */
+    public int getRecords() {
+        return records;
+    }
+
+    /** @return The {@link BlockIndexEntry#firstInvocationId} field */
+    public long getFirstInvocationId() {
+        return firstInvocationId;
+    }
+
+    /** @return The {@link BlockIndexEntry#firstTimestampMillis} field */
+    public long getFirstTimestampMillis() {
+        return firstTimestampMillis;
+    }
+
+    /**
+     * @return for example {@code block at 1024 (512 -> 4096 bytes, 20 records, first id 17, first time 1546300800000)}
+     */
+    @Override
+    public String toString() {
+        return "block at " + offset + " (" + frameLength + " -> " + uncompressedLength + " bytes, " + records
+                + " records, first id " + firstInvocationId + ", first time " + firstTimestampMillis + ")";
+    }
+
+}
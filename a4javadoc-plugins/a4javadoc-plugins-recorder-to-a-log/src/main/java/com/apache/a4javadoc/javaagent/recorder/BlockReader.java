@@ -0,0 +1,141 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * Reads a file written by the {@link FileChannelEventSink} with the {@link Compression#DEFLATE}.
+ * The sidecar index is read by the constructor, so a single block can be found and decompressed
+ * without reading the blocks before it. The format is described by the {@link BlockCompressor}.
+ * @author Kyrylo Semenko
+ */
+public class BlockReader implements Closeable {
+
+    /** The compressed data file */
+    private final FileChannel channel;
+
+    /** Entries of the sidecar index in the order of blocks */
+    private final List<BlockIndexEntry> entries;
+
+    /** The reused decompressor */
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * Open the data file and read its sidecar index. An incomplete last index entry,
+     * for example of a file written at the moment, is ignored.
+     * @param dataFile the compressed file
+     */
+    public BlockReader(Path dataFile) {
+        try {
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(BlockCompressor.indexOf(dataFile)));
+            List<BlockIndexEntry> list = new ArrayList<>();
+            while (index.remaining() >= BlockCompressor.INDEX_ENTRY_LENGTH) {
+                list.add(new BlockIndexEntry(index.getLong(), index.getInt(), index.getInt(), index.getInt(),
+                        index.getLong(), index.getLong()));
+            }
+            entries = Collections.unmodifiableList(list);
+            channel = FileChannel.open(dataFile, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /** @return The {@link BlockReader#entries} field */
+    public List<BlockIndexEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Find the block, where reading of records from the timestamp should start.
+     * Blocks are ordered by the time of their writing, so the first timestamps grow,
+     * only records of concurrent threads can be slightly out of order.
+     * @param timestampMillis the searched time
+     * @return the position of the last block starting before or at the timestamp in the {@link #entries},
+     * 0 if all blocks start later, -1 if there are no blocks
+     */
+    public int findBlock(long timestampMillis) {
+        int low = 0;
+        int high = entries.size() - 1;
+        int found = entries.isEmpty() ? -1 : 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (entries.get(middle).getFirstTimestampMillis() <= timestampMillis) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Read and decompress a single block.
+     * @param entry one of the {@link #entries}
+     * @return the records of the block, each one is terminated by a line separator
+     * @throws AppRuntimeException if the block is truncated or corrupted, its lengths do not match the entry
+     * or the decompressed data are shorter than the uncompressed length
+     */
+    public byte[] readBlock(BlockIndexEntry entry) {
+        try {
+            ByteBuffer frame = ByteBuffer.allocate(entry.getFrameLength());
+            long position = entry.getOffset();
+            while (frame.hasRemaining()) {
+                int read = channel.read(frame, position);
+                if (read < 0) {
+                    throw new EOFException("Incomplete " + entry);
+                }
+                position += read;
+            }
+            ((Buffer) frame).flip();
+            int compressedLength = frame.getInt();
+            int uncompressedLength = frame.getInt();
+            if (compressedLength < 0 || compressedLength > frame.remaining()
+                    || uncompressedLength != entry.getUncompressedLength()) {
+                throw new DataFormatException("Invalid frame header of " + entry);
+            }
+            byte[] result = new byte[uncompressedLength];
+            inflater.reset();
+            inflater.setInput(frame.array(), BlockCompressor.FRAME_HEADER_LENGTH, compressedLength);
+            int size = 0;
+            while (size < result.length && !inflater.finished()) {
+                int inflated = inflater.inflate(result, size, result.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated " + entry);
+                }
+                size += inflated;
+            }
+            if (size != result.length) {
+                throw new DataFormatException("Decompressed " + size + " bytes of " + entry);
+            }
+            return result;
+        } catch (IOException | DataFormatException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+}
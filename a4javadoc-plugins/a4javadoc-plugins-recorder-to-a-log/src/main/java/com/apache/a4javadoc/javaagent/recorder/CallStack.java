@@ -0,0 +1,95 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.util.Arrays;
+
+/**
+ * Invocations of instrumented methods, that have not ended yet on a thread. It provides
+ * the parent invocation id and the duration of an invocation for the {@link JsonLineEvent}s.
+ * Each thread has its own instance, see the {@link #get()} method, so it is not synchronized.
+ * @author Kyrylo Semenko
+ */
+final class CallStack {
+
+    /** Stacks of threads */
+    private static final ThreadLocal<CallStack> STACKS = new ThreadLocal<>();
+
+    /** The initial capacity of the stack */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /** Invocation ids, the last one is on the top */
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    /** The {@link System#nanoTime()} of the invocations */
+    private long[] startNanos = new long[INITIAL_CAPACITY];
+
+    /** Number of invocations on the stack */
+    private int size;
+
+    /** The {@link JsonLineEvent} reused by the thread for records rendered on it */
+    private final JsonLineEvent event = new JsonLineEvent();
+
+    /** Use the {@link #get()} method */
+    private CallStack() {
+    }
+
+    /** @return the stack of the current thread */
+    static CallStack get() {
+        CallStack callStack = STACKS.get();
+        if (callStack == null) {
+            callStack = new CallStack();
+            STACKS.set(callStack);
+        }
+        return callStack;
+    }
+
+    /**
+     * Push the started invocation.
+     * @param invocationId the started invocation
+     * @param nanos the start time
+     * @return the id of the parent invocation or -1 if there is no parent
+     */
+    long push(long invocationId, long nanos) {
+        long parentId = peek();
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            startNanos = Arrays.copyOf(startNanos, size * 2);
+        }
+        ids[size] = invocationId;
+        startNanos[size++] = nanos;
+        return parentId;
+    }
+
+    /**
+     * Remove the ended invocation and the invocations above it, for example invocations that
+     * ended without being recorded. The stack is not changed if it does not contain the invocation.
+     * @param invocationId the ended invocation
+     * @param nanos the end time
+     * @return the duration of the invocation in nanoseconds or -1 if it is unknown
+     */
+    long pop(long invocationId, long nanos) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[i] == invocationId) {
+                size = i;
+                return nanos - startNanos[i];
+            }
+        }
+        return -1;
+    }
+
+    /** @return the id of the invocation on the top or -1 if the stack is empty */
+    long peek() {
+        return size == 0 ? -1 : ids[size - 1];
+    }
+
+    /**
+     * @return the reusable {@link #event} or a new {@link JsonLineEvent} if the reusable one is in use,
+     * for example if a record is rendered during rendering of another record.
+     * It has to be passed back by the {@link JsonLineEvent#release()} method.
+     */
+    JsonLineEvent acquireEvent() {
+        JsonLineEvent result = event.isInUse() ? new JsonLineEvent() : event;
+        result.setInUse(true);
+        return result;
+    }
+
+}
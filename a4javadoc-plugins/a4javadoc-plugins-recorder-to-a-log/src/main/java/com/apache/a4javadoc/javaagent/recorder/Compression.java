@@ -0,0 +1,32 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.util.zip.Deflater;
+
+/**
+ * Compression of files written by the {@link FileChannelEventSink}, see the {@link BlockCompressor}.
+ * @author Kyrylo Semenko
+ */
+public enum Compression {
+
+    /** Plain records, one per line */
+    NONE(0),
+
+    /** Each buffer of records is a block compressed by the {@link Deflater} with the fastest level */
+    DEFLATE(Deflater.BEST_SPEED);
+
+    /** The {@link Deflater} level */
+    private final int level;
+
+    /**
+     * @param level see the {@link #level} field
+     */
+    private Compression(int level) {
+        this.level = level;
+    }
+
+    /** @return The {@link Compression#level} field */
+    public int getLevel() {
+        return level;
+    }
+
+}
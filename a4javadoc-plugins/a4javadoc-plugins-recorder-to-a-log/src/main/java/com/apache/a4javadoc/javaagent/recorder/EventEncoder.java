@@ -0,0 +1,357 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * <p>
+ * Encodes records of the {@link MethodStateToLogFileRecorder} to UTF-8 bytes and passes them
+ * to an {@link EventSink}.
+ *
+ * <p>
+ * Each thread has its own encoder, see the {@link #acquire()} method. The encoder keeps its
+ * {@link RecordBuffer} and its {@link JsonGenerator} between records, so in a steady state
+ * encoding of a record does not allocate any buffers, writers or intermediate {@link String}s.
+ * @author Kyrylo Semenko
+ */
+final class EventEncoder {
+
+    /** Reusable encoders of threads */
+    private static final ThreadLocal<EventEncoder> ENCODERS = new ThreadLocal<>();
+
+    /** The target of the {@link #jsonGenerator}, its content is passed to the {@link EventSink} */
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+
+    /** Writes JSON to the {@link #recordBuffer}, 'null' if it has to be created again after a failure */
+    private JsonGenerator jsonGenerator;
+
+    /** 'true' between the {@link #acquire()} and {@link #release()} calls */
+    private boolean inUse;
+
+    /** The method invocation id of the current event, see the {@link #startEvent(Long, Date)} method */
+    private long invocationId = -1;
+
+    /** The time of the current event */
+    private long timestampMillis;
+
+    /** Use the {@link #acquire()} method */
+    private EventEncoder() {
+    }
+
+    /**
+     * Obtain the encoder of the current thread. If the encoder is in use already,
+     * for example when a sink is recorded by itself, a new encoder is returned.
+     * @return the encoder, it has to be passed back by the {@link #release()} method
+     */
+    static EventEncoder acquire() {
+        EventEncoder encoder = ENCODERS.get();
+        if (encoder == null) {
+            encoder = new EventEncoder();
+            ENCODERS.set(encoder);
+        } else if (encoder.inUse) {
+            encoder = new EventEncoder();
+        }
+        encoder.inUse = true;
+        return encoder;
+    }
+
+    /** Make the encoder available for the next {@link #acquire()} call of the thread */
+    void release() {
+        inUse = false;
+    }
+
+    /**
+     * Set the key of the next records, it is passed to the {@link EventSink}.
+     * @param methodInvocationId the invocation id of the state, can be 'null'
+     * @param date the date of the state, can be 'null'
+     */
+    void startEvent(Long methodInvocationId, Date date) {
+        invocationId = methodInvocationId == null ? -1 : methodInvocationId;
+        timestampMillis = date == null ? System.currentTimeMillis() : date.getTime();
+    }
+
+    /**
+     * Write a record with a text.
+     * @param prefix the UTF-8 encoded beginning of the record
+     * @param text the rest of the record
+     * @param eventSink the target
+     */
+    void writeText(byte[] prefix, String text, EventSink eventSink) {
+        recordBuffer.reset();
+        recordBuffer.write(prefix, 0, prefix.length);
+        recordBuffer.append(text);
+        eventSink.write(recordBuffer.bytes, 0, recordBuffer.size, invocationId, timestampMillis);
+    }
+
+    /**
+     * Write a record with a state rendered to JSON by the {@link ObjectMapperA4j}.
+     * @param prefix the UTF-8 encoded beginning of the record
+     * @param state the {@link com.apache.a4javadoc.javaagent.api.StateBeforeInvocation}
+     * or {@link com.apache.a4javadoc.javaagent.api.StateAfterInvocation}
+     * @param eventSink the target
+     */
+    void writeState(byte[] prefix, Object state, EventSink eventSink) {
+        recordBuffer.reset();
+        recordBuffer.write(prefix, 0, prefix.length);
+        JsonGenerator generator = getGenerator();
+        try {
+            ObjectMapperA4j.getInstance().writeValue(generator, state);
+        } catch (RuntimeException e) {
+            // the generator can be in the middle of a value
+            jsonGenerator = null;
+            throw e;
+        }
+        eventSink.write(recordBuffer.bytes, 0, recordBuffer.size, invocationId, timestampMillis);
+    }
+
+    /**
+     * Write the event as a single JSON object, see the {@link JsonLineEvent} schema.
+     * @param event the data source
+     * @param eventSink the target
+     */
+    void writeJsonLine(JsonLineEvent event, EventSink eventSink) {
+        recordBuffer.reset();
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        JsonGenerator generator = getGenerator();
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("v", JsonLineEvent.VERSION);
+            generator.writeStringField("ev", event.isExit() ? JsonLineEvent.EXIT : JsonLineEvent.ENTER);
+            generator.writeNumberField("id", event.getInvocationId());
+            if (event.getParentId() != -1) {
+                generator.writeNumberField("parentId", event.getParentId());
+            }
+            generator.writeStringField("methodId", event.getMethodId());
+            generator.writeStringField("thread", event.getThread());
+            generator.writeNumberField("t", event.getTimestampMillis());
+            if (event.isExit() && event.getDurationNanos() != -1) {
+                generator.writeNumberField("dur", event.getDurationNanos());
+            }
+            if (event.getStackId() != -1) {
+                generator.writeNumberField("stack", event.getStackId());
+            }
+            generator.writeFieldName("args");
+            objectMapperA4j.writeValue(generator, event.getArguments());
+            if (event.isExit()) {
+                generator.writeFieldName("ret");
+                objectMapperA4j.writeValue(generator, event.getReturnValue());
+                Throwable throwable = event.getThrowable();
+                if (event.getThrowableId() != -1) {
+                    generator.writeObjectFieldStart("thr");
+                    generator.writeNumberField("id", event.getThrowableId());
+                    if (throwable != null && !event.isThrowableReference()) {
+                        generator.writeStringField("type", throwable.getClass().getName());
+                        generator.writeStringField("msg", throwable.getMessage());
+                        if (event.getThrowableStackId() != -1) {
+                            generator.writeNumberField("stack", event.getThrowableStackId());
+                        }
+                    }
+                    generator.writeEndObject();
+                }
+            }
+            generator.writeEndObject();
+            generator.flush();
+        } catch (IOException e) {
+            jsonGenerator = null;
+            throw new AppRuntimeException(e);
+        } catch (RuntimeException e) {
+            jsonGenerator = null;
+            throw e;
+        }
+        eventSink.write(recordBuffer.bytes, 0, recordBuffer.size, event.getInvocationId(), event.getTimestampMillis());
+    }
+
+    /**
+     * Write the {@link JsonLineEvent#FRAME} definition.
+     * @param frameId the frame id
+     * @param frame the defined frame
+     * @param eventSink the target
+     * @return 'false' if the eventSink dropped the definition
+     */
+    boolean writeFrame(long frameId, StackTraceElement frame, EventSink eventSink) {
+        recordBuffer.reset();
+        JsonGenerator generator = getGenerator();
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("v", JsonLineEvent.VERSION);
+            generator.writeStringField("ev", JsonLineEvent.FRAME);
+            generator.writeNumberField("id", frameId);
+            generator.writeStringField("cls", frame.getClassName());
+            generator.writeStringField("method", frame.getMethodName());
+            generator.writeStringField("file", frame.getFileName());
+            generator.writeNumberField("line", frame.getLineNumber());
+            generator.writeEndObject();
+            generator.flush();
+        } catch (IOException e) {
+            jsonGenerator = null;
+            throw new AppRuntimeException(e);
+        }
+        return eventSink.write(recordBuffer.bytes, 0, recordBuffer.size, -1, System.currentTimeMillis());
+    }
+
+    /**
+     * Write the {@link JsonLineEvent#STACK} definition.
+     * @param stackId the stack id
+     * @param frameIds ids of the frames from the top of the stack, they are defined already
+     * @param eventSink the target
+     * @return 'false' if the eventSink dropped the definition
+     */
+    boolean writeStack(long stackId, long[] frameIds, EventSink eventSink) {
+        recordBuffer.reset();
+        JsonGenerator generator = getGenerator();
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("v", JsonLineEvent.VERSION);
+            generator.writeStringField("ev", JsonLineEvent.STACK);
+            generator.writeNumberField("id", stackId);
+            generator.writeArrayFieldStart("frames");
+            for (long frameId : frameIds) {
+                generator.writeNumber(frameId);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+        } catch (IOException e) {
+            jsonGenerator = null;
+            throw new AppRuntimeException(e);
+        }
+        return eventSink.write(recordBuffer.bytes, 0, recordBuffer.size, -1, System.currentTimeMillis());
+    }
+
+    /**
+     * Write the {@link JsonLineEvent#REPEATED} summary.
+     * @param aggregate the counted {@link Throwable}s
+     * @param eventSink the target
+     */
+    void writeRepeated(ExceptionTracker.Aggregate aggregate, EventSink eventSink) {
+        recordBuffer.reset();
+        JsonGenerator generator = getGenerator();
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("v", JsonLineEvent.VERSION);
+            generator.writeStringField("ev", JsonLineEvent.REPEATED);
+            generator.writeNumberField("id", aggregate.getFirstId());
+            generator.writeStringField("type", aggregate.getType());
+            generator.writeStringField("msg", aggregate.getMessage());
+            generator.writeNumberField("count", aggregate.getCount());
+            generator.writeNumberField("from", aggregate.getWindowStartMillis());
+            generator.writeNumberField("to", aggregate.getLastMillis());
+            generator.writeEndObject();
+            generator.flush();
+        } catch (IOException e) {
+            jsonGenerator = null;
+            throw new AppRuntimeException(e);
+        }
+        eventSink.write(recordBuffer.bytes, 0, recordBuffer.size, -1, aggregate.getLastMillis());
+    }
+
+    /** @return the {@link #jsonGenerator}, it is created if it does not exist */
+    private JsonGenerator getGenerator() {
+        if (jsonGenerator == null) {
+            jsonGenerator = ObjectMapperA4j.getInstance().createGenerator(recordBuffer);
+        }
+        return jsonGenerator;
+    }
+
+    /**
+     * @param text for example a constant prefix of records
+     * @return the UTF-8 encoded text
+     */
+    static byte[] encode(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** @return the buffer of the last record, for tests */
+    byte[] getBuffer() {
+        return recordBuffer.bytes;
+    }
+
+    /**
+     * A growable byte array. Unlike the {@link java.io.ByteArrayOutputStream} it is not synchronized,
+     * and its content is accessed directly, without copying.
+     */
+    private static final class RecordBuffer extends OutputStream {
+
+        /** The initial capacity of the {@link #bytes} */
+        private static final int INITIAL_CAPACITY = 4096;
+
+        /** A larger buffer is released after its record, so a single huge record does not hold memory */
+        private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+        /** The content */
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+        /** Number of valid bytes in the {@link #bytes} */
+        private int size;
+
+        /** Start a new record */
+        private void reset() {
+            if (bytes.length > MAX_RETAINED_CAPACITY) {
+                bytes = new byte[INITIAL_CAPACITY];
+            }
+            size = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(size + 1);
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) {
+            ensureCapacity(size + length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        /**
+         * Append the text encoded to UTF-8 without creating a byte array of it.
+         * @param text can be 'null'
+         */
+        private void append(String text) {
+            String value = String.valueOf(text);
+            int length = value.length();
+            ensureCapacity(size + length * 3);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xC0 | (c >> 6));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[size++] = (byte) '?';
+                } else {
+                    bytes[size++] = (byte) (0xE0 | (c >> 12));
+                    bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        /**
+         * @param capacity the required number of bytes
+         */
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+
+}
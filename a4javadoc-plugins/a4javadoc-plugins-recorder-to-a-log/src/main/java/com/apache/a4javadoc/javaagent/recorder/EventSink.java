@@ -0,0 +1,27 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+/**
+ * The target of records encoded by the {@link EventEncoder}, for example a logger or a file.
+ * Implementations are shared by all application threads, so they have to be thread-safe.
+ * @author Kyrylo Semenko
+ */
+public interface EventSink {
+
+    /**
+     * @return 'false' if the records would be discarded, so they need not be encoded at all
+     */
+    boolean isEnabled();
+
+    /**
+     * Write a single record. The buffer is reused by the caller after this method returns,
+     * so the sink must copy the bytes if it needs them later.
+     * @param buffer UTF-8 encoded record without a line separator
+     * @param offset the record start in the buffer
+     * @param length the record length in bytes
+     * @param invocationId the method invocation id of the record or -1 if it is unknown
+     * @param timestampMillis the time of the record
+     * @return 'false' if the record was dropped, for example because the sink is closed or full
+     */
+    boolean write(byte[] buffer, int offset, int length, long invocationId, long timestampMillis);
+
+}
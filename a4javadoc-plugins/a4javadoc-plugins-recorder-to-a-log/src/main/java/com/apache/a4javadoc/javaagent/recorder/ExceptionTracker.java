@@ -0,0 +1,277 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>
+ * Decides how a {@link Throwable} thrown from an instrumented method is recorded, so an exception
+ * propagating through many instrumented frames or thrown repeatedly does not flood the records.
+ * The {@link Throwable} itself is only read, never changed.
+ *
+ * <p>
+ * Each instance gets an id when it is seen for the first time. The same instance thrown from
+ * the enclosing frames is {@link Kind#PROPAGATED} and refers to that id. Instances are held
+ * by weak references, so the tracker does not prevent their collection.
+ *
+ * <p>
+ * A new instance identical to an instance recorded during the current window, that means
+ * of the same class with the same message thrown from the same frame, is {@link Kind#REPEATED}.
+ * It refers to the id of the recorded instance and is counted. The counts are returned
+ * as {@link Aggregate}s by the {@link #drainExpired(long)} method after the window ends.
+ * @author Kyrylo Semenko
+ */
+final class ExceptionTracker {
+
+    /** The default length of an aggregation window */
+    static final long DEFAULT_WINDOW_MILLIS = 60000;
+
+    /** Maximum number of aggregated signatures, all of them are drained if it is exceeded */
+    static final int MAX_AGGREGATES = 10000;
+
+    /** The length of an aggregation window */
+    private final long windowMillis;
+
+    /** Guards the fields below */
+    private final Object lock = new Object();
+
+    /** Ids of seen instances */
+    private final Map<Throwable, Long> instances = new WeakHashMap<>();
+
+    /** Open windows of signatures */
+    private final Map<String, Aggregate> aggregates = new HashMap<>();
+
+    /** Aggregates removed because of the {@link #MAX_AGGREGATES} limit, they are returned by the next drain */
+    private final List<Aggregate> evicted = new ArrayList<>();
+
+    /** The id of the next instance */
+    private long nextId = 1;
+
+    /** The earliest end of a window of the {@link #aggregates}, there is nothing to drain before it */
+    private long nextExpiryMillis = Long.MAX_VALUE;
+
+    /**
+     * @param windowMillis see the {@link #windowMillis} field
+     */
+    ExceptionTracker(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /** How a thrown {@link Throwable} should be recorded */
+    enum Kind {
+        /** The first sighting, record its details */
+        NEW,
+        /** The same instance thrown from an enclosing frame, refer to its id */
+        PROPAGATED,
+        /** An instance identical to a recently recorded one, refer to its id */
+        REPEATED
+    }
+
+    /**
+     * Find out how to record the thrown {@link Throwable}.
+     * @param throwable the thrown instance
+     * @param nowMillis the current time
+     * @return the result
+     */
+    Sighting track(Throwable throwable, long nowMillis) {
+        synchronized (lock) {
+            Long known = instances.get(throwable);
+            if (known != null) {
+                return new Sighting(known, Kind.PROPAGATED);
+            }
+            String signature = signatureOf(throwable);
+            Aggregate aggregate = aggregates.get(signature);
+            if (aggregate != null && nowMillis - aggregate.windowStartMillis < windowMillis) {
+                aggregate.repeated(nowMillis);
+                instances.put(throwable, aggregate.firstId);
+                return new Sighting(aggregate.firstId, Kind.REPEATED);
+            }
+            long id = nextId++;
+            if (aggregate != null && aggregate.count > 0) {
+                evicted.add(aggregate);
+            }
+            if (aggregates.size() >= MAX_AGGREGATES) {
+                evictAll();
+            }
+            aggregates.put(signature, new Aggregate(id, throwable.getClass().getName(), throwable.getMessage(),
+                    nowMillis));
+            nextExpiryMillis = Math.min(nextExpiryMillis, nowMillis + windowMillis);
+            instances.put(throwable, id);
+            return new Sighting(id, Kind.NEW);
+        }
+    }
+
+    /**
+     * Remove the windows ended before the time. The windows are searched only if one of them has ended.
+     * @param nowMillis the current time
+     * @return aggregates of the ended windows with at least one {@link Kind#REPEATED} instance
+     */
+    List<Aggregate> drainExpired(long nowMillis) {
+        synchronized (lock) {
+            if (evicted.isEmpty() && nowMillis < nextExpiryMillis) {
+                return Collections.emptyList();
+            }
+            List<Aggregate> result = new ArrayList<>(evicted);
+            evicted.clear();
+            nextExpiryMillis = Long.MAX_VALUE;
+            Iterator<Aggregate> iterator = aggregates.values().iterator();
+            while (iterator.hasNext()) {
+                Aggregate aggregate = iterator.next();
+                long expiryMillis = aggregate.windowStartMillis + windowMillis;
+                if (nowMillis >= expiryMillis) {
+                    iterator.remove();
+                    if (aggregate.count > 0) {
+                        result.add(aggregate);
+                    }
+                } else {
+                    nextExpiryMillis = Math.min(nextExpiryMillis, expiryMillis);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Remove all windows, for example at the shutdown.
+     * @return aggregates with at least one {@link Kind#REPEATED} instance
+     */
+    List<Aggregate> drainAll() {
+        synchronized (lock) {
+            evictAll();
+            List<Aggregate> result = new ArrayList<>(evicted);
+            evicted.clear();
+            return result;
+        }
+    }
+
+    /** Move all {@link #aggregates} with counted repeats to the {@link #evicted}, called under the {@link #lock} */
+    private void evictAll() {
+        for (Aggregate aggregate : aggregates.values()) {
+            if (aggregate.count > 0) {
+                evicted.add(aggregate);
+            }
+        }
+        aggregates.clear();
+        nextExpiryMillis = Long.MAX_VALUE;
+    }
+
+    /**
+     * @param throwable the source
+     * @return the class, the message and the top frame
+     */
+    private static String signatureOf(Throwable throwable) {
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        return throwable.getClass().getName() + ": " + throwable.getMessage()
+                + (stackTrace.length == 0 ? "" : " at " + stackTrace[0]);
+    }
+
+    /** The result of the {@link ExceptionTracker#track(Throwable, long)} method */
+    static final class Sighting {
+
+        /** The id of the instance or of the identical recorded instance */
+        private final long id;
+
+        /** How to record the instance */
+        private final Kind kind;
+
+        /**
+         * @param id see the {@link #id} field
+         * @param kind see the {@link #kind} field
+         */
+        private Sighting(long id, Kind kind) {
+            this.id = id;
+            this.kind = kind;
+        }
+
+        /** @return The {@link Sighting#id} field */
+        long getId() {
+            return id;
+        }
+
+        /** @return The {@link Sighting#kind} field */
+        Kind getKind() {
+            return kind;
+        }
+    }
+
+    /** {@link Kind#REPEATED} instances of a signature counted during a window */
+    static final class Aggregate {
+
+        /** The id of the recorded instance, that opened the window */
+        private final long firstId;
+
+        /** The class name of the instances */
+        private final String type;
+
+        /** The message of the instances */
+        private final String message;
+
+        /** The start of the window */
+        private final long windowStartMillis;
+
+        /** Number of {@link Kind#REPEATED} instances */
+        private long count;
+
+        /** The time of the last {@link Kind#REPEATED} instance */
+        private long lastMillis;
+
+        /**
+         * @param firstId see the {@link #firstId} field
+         * @param type see the {@link #type} field
+         * @param message see the {@link #message} field
+         * @param windowStartMillis see the {@link #windowStartMillis} field
+         */
+        private Aggregate(long firstId, String type, String message, long windowStartMillis) {
+            this.firstId = firstId;
+            this.type = type;
+            this.message = message;
+            this.windowStartMillis = windowStartMillis;
+            this.lastMillis = windowStartMillis;
+        }
+
+        /**
+         * Count a {@link Kind#REPEATED} instance.
+         * @param nowMillis its time
+         */
+        private void repeated(long nowMillis) {
+            count++;
+            lastMillis = nowMillis;
+        }
+
+        /** @return The {@link Aggregate#firstId} field */
+        long getFirstId() {
+            return firstId;
+        }
+
+        /** @return The {@link Aggregate#type} field */
+        String getType() {
+            return type;
+        }
+
+        /** @return The {@link Aggregate#message} field */
+        String getMessage() {
+            return message;
+        }
+
+        /** @return The {@link Aggregate#windowStartMillis} field */
+        long getWindowStartMillis() {
+            return windowStartMillis;
+        }
+
+        /** @return The {@link Aggregate#count} field */
+        long getCount() {
+            return count;
+        }
+
+        /** @return The {@link Aggregate#lastMillis} field */
+        long getLastMillis() {
+            return lastMillis;
+        }
+    }
+
+}
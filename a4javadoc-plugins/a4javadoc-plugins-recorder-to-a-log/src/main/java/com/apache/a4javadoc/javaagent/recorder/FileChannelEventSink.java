@@ -0,0 +1,573 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * The {@link EventSink} that appends records to a file, one record per line.
+ *
+ * <p>
+ * Application threads only copy records to the current {@link Batch} buffer. A full buffer,
+ * or a partially filled one after the flush interval, is passed to the writer daemon thread.
+ * The thread writes all waiting buffers by a single gathering
+ * {@link FileChannel#write(ByteBuffer[], int, int)} call and forces them to the storage
+ * according to the {@link FsyncPolicy}. With the {@link Compression#DEFLATE} each buffer is compressed
+ * to a block on the writer thread and described in a sidecar index, see the {@link BlockCompressor}.
+ * If all buffers are waiting for the writer,
+ * records are dropped rather than blocking the application, see the {@link SinkStatistics}.
+ * A record larger than a buffer gets its own buffer, such buffers waiting for the writer are limited
+ * by the size of the pool, see the {@link #oversizedBytes} field.
+ *
+ * <p>
+ * The file and the writer thread are created by the first record. Records written
+ * before the {@link #close()} call are written to the file before the call returns.
+ * @author Kyrylo Semenko
+ */
+public class FileChannelEventSink implements EventSink, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FileChannelEventSink.class);
+
+    /** The default capacity of a {@link Batch} buffer in bytes */
+    public static final int DEFAULT_BUFFER_CAPACITY = 256 * 1024;
+
+    /** The default maximum number of {@link Batch} buffers */
+    public static final int DEFAULT_BUFFER_COUNT = 16;
+
+    /** The default flush interval in milliseconds */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+    /** How long the {@link #close()} method waits for the writer thread */
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    /** The record terminator */
+    private static final byte LINE_SEPARATOR = '\n';
+
+    /** Wakes up the writer thread, it contains no records */
+    private static final Batch WAKE_UP = new Batch(ByteBuffer.allocate(0), false);
+
+    /** The target file */
+    private final Path path;
+
+    /** When the written records are forced to the storage */
+    private final FsyncPolicy fsyncPolicy;
+
+    /** The format of the written file */
+    private final Compression compression;
+
+    /** Maximum age of a buffered record and the period of the {@link FsyncPolicy#INTERVAL} policy */
+    private final long flushIntervalNanos;
+
+    /** Capacity of each pooled {@link Batch} buffer */
+    private final int bufferCapacity;
+
+    /** Maximum number of pooled {@link Batch}es */
+    private final int bufferCount;
+
+    /** The counters of written and dropped records */
+    private final SinkStatistics statistics = new SinkStatistics();
+
+    /** Empty pooled {@link Batch}es */
+    private final BlockingQueue<Batch> freeBatches;
+
+    /** {@link Batch}es waiting for the writer thread */
+    private final BlockingQueue<Batch> filledBatches = new LinkedBlockingQueue<>();
+
+    /** Guards the fields below */
+    private final Object lock = new Object();
+
+    /** The {@link Batch} filled by application threads, 'null' if no buffer is taken from the pool */
+    private Batch current;
+
+    /** Number of allocated pooled {@link Batch}es */
+    private int allocatedBatches;
+
+    /**
+     * Bytes of not pooled {@link Batch}es waiting for the writer. A record larger than a buffer
+     * is dropped if it exceeds the {@link #bufferCapacity} * {@link #bufferCount} limit together with them,
+     * but a single waiting record is always accepted.
+     */
+    private long oversizedBytes;
+
+    /** The writer daemon thread, 'null' before the first record */
+    private Thread writerThread;
+
+    /** 'true' after the {@link #close()} call */
+    private boolean closed;
+
+    /**
+     * Constructor with the default buffers and flush interval
+     * @param path see the {@link #path} field
+     * @param fsyncPolicy see the {@link #fsyncPolicy} field
+     * @param compression see the {@link #compression} field
+     */
+    public FileChannelEventSink(Path path, FsyncPolicy fsyncPolicy, Compression compression) {
+        this(path, fsyncPolicy, compression, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_BUFFER_CAPACITY,
+                DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Constructor
+     * @param path see the {@link #path} field
+     * @param fsyncPolicy see the {@link #fsyncPolicy} field
+     * @param compression see the {@link #compression} field
+     * @param flushIntervalMillis see the {@link #flushIntervalNanos} field
+     * @param bufferCapacity see the {@link #bufferCapacity} field
+     * @param bufferCount see the {@link #bufferCount} field
+     */
+    public FileChannelEventSink(Path path, FsyncPolicy fsyncPolicy, Compression compression,
+            long flushIntervalMillis, int bufferCapacity, int bufferCount) {
+        this.path = path;
+        this.fsyncPolicy = fsyncPolicy;
+        this.compression = compression;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.bufferCapacity = bufferCapacity;
+        this.bufferCount = bufferCount;
+        this.freeBatches = new ArrayBlockingQueue<>(bufferCount);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean write(byte[] buffer, int offset, int length, long invocationId, long timestampMillis) {
+        int required = length + 1;
+        synchronized (lock) {
+            if (closed) {
+                statistics.dropped();
+                return false;
+            }
+            if (writerThread == null) {
+                startWriter();
+            }
+            if (current != null && current.buffer.remaining() < required) {
+                filledBatches.add(current);
+                current = null;
+            }
+            if (required > bufferCapacity) {
+                if (oversizedBytes > 0 && oversizedBytes + required > (long) bufferCapacity * bufferCount) {
+                    statistics.dropped();
+                    return false;
+                }
+                oversizedBytes += required;
+                Batch oversized = new Batch(ByteBuffer.allocate(required), false);
+                oversized.add(buffer, offset, length, invocationId, timestampMillis);
+                filledBatches.add(oversized);
+                return true;
+            }
+            if (current == null) {
+                current = takeFreeBatch();
+                if (current == null) {
+                    statistics.dropped();
+                    return false;
+                }
+            }
+            current.add(buffer, offset, length, invocationId, timestampMillis);
+            return true;
+        }
+    }
+
+    /**
+     * Write the buffered records, stop the writer thread and close the file.
+     * The next records are dropped.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (current != null && current.records > 0) {
+                filledBatches.add(current);
+            }
+            current = null;
+            thread = writerThread;
+        }
+        if (thread == null) {
+            return;
+        }
+        filledBatches.add(WAKE_UP);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Sink statistics of {}: {}", path, statistics);
+    }
+
+    /** @return The {@link FileChannelEventSink#statistics} field */
+    public SinkStatistics getStatistics() {
+        return statistics;
+    }
+
+    /** @return The {@link FileChannelEventSink#path} field */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Called under the {@link #lock}.
+     * @return a free pooled {@link Batch} or 'null' if all of them are waiting for the writer
+     */
+    private Batch takeFreeBatch() {
+        Batch batch = freeBatches.poll();
+        if (batch == null && allocatedBatches < bufferCount) {
+            allocatedBatches++;
+            batch = new Batch(ByteBuffer.allocateDirect(bufferCapacity), true);
+        }
+        return batch;
+    }
+
+    /** Called under the {@link #lock} by the first record */
+    private void startWriter() {
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWriter();
+            }
+        }, "a4javadoc-sink-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * The loop of the {@link #writerThread}. It ends after the {@link #close()} call,
+     * when all {@link Batch}es are written.
+     */
+    private void runWriter() {
+        FileChannel channel = null;
+        FileChannel indexChannel = null;
+        BlockCompressor compressor = null;
+        try {
+            channel = open(path);
+            ByteBuffer[] gathered = new ByteBuffer[bufferCount + 1];
+            if (compression != Compression.NONE) {
+                indexChannel = open(BlockCompressor.indexOf(path));
+                compressor = new BlockCompressor(compression.getLevel(), gathered.length);
+            }
+            List<Batch> batches = new ArrayList<>();
+            long lastSyncNanos = System.nanoTime();
+            boolean unsynced = false;
+            while (true) {
+                Batch first = filledBatches.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    first = takeCurrent();
+                }
+                if (first != null) {
+                    batches.add(first);
+                    filledBatches.drainTo(batches, gathered.length - 1);
+                    boolean written = compressor == null ? write(channel, batches, gathered)
+                            : writeBlocks(channel, indexChannel, compressor, batches, gathered);
+                    unsynced |= written && fsyncPolicy == FsyncPolicy.INTERVAL;
+                    recycle(batches);
+                }
+                if (isDone()) {
+                    break;
+                }
+                if (unsynced && System.nanoTime() - lastSyncNanos >= flushIntervalNanos) {
+                    force(channel);
+                    force(indexChannel);
+                    lastSyncNanos = System.nanoTime();
+                    unsynced = false;
+                }
+            }
+            if (unsynced) {
+                force(channel);
+                force(indexChannel);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Writer of " + path + " failed, next records will be dropped", e);
+            synchronized (lock) {
+                closed = true;
+            }
+        } finally {
+            if (compressor != null) {
+                compressor.end();
+            }
+            closeChannel(channel);
+            closeChannel(indexChannel);
+        }
+    }
+
+    /**
+     * @param file the target
+     * @return the channel appending to the file
+     * @throws IOException if the file cannot be opened
+     */
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Write the {@link Batch}es by a single gathering write.
+     * @param channel the target
+     * @param batches the data sources
+     * @param gathered reused array of the written buffers
+     * @return 'true' if something has been written
+     */
+    private boolean write(FileChannel channel, List<Batch> batches, ByteBuffer[] gathered) {
+        int count = 0;
+        long records = 0;
+        long bytes = 0;
+        long oldestNanos = Long.MAX_VALUE;
+        for (Batch batch : batches) {
+            if (batch.records == 0) {
+                continue;
+            }
+            ((Buffer) batch.buffer).flip();
+            gathered[count++] = batch.buffer;
+            records += batch.records;
+            bytes += batch.buffer.remaining();
+            oldestNanos = Math.min(oldestNanos, batch.firstRecordNanos);
+        }
+        if (count == 0) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            writeFully(channel, gathered, count, bytes);
+            if (fsyncPolicy == FsyncPolicy.BATCH) {
+                force(channel);
+            }
+            long end = System.nanoTime();
+            statistics.written(records, bytes, bytes, end - start, end - oldestNanos);
+            return true;
+        } catch (IOException e) {
+            statistics.failed();
+            logger.error("Failed to write " + records + " records to " + path, e);
+            return false;
+        } finally {
+            Arrays.fill(gathered, 0, count, null);
+        }
+    }
+
+    /**
+     * Compress each {@link Batch} to a block, write the blocks by a single gathering write
+     * and then append their entries to the sidecar index.
+     * @param channel the data file
+     * @param indexChannel the sidecar index file
+     * @param compressor the reused {@link BlockCompressor}
+     * @param batches the data sources
+     * @param gathered reused array of the written frames
+     * @return 'true' if something has been written
+     */
+    private boolean writeBlocks(FileChannel channel, FileChannel indexChannel, BlockCompressor compressor,
+            List<Batch> batches, ByteBuffer[] gathered) {
+        int count = 0;
+        long records = 0;
+        long recordBytes = 0;
+        long bytes = 0;
+        long oldestNanos = Long.MAX_VALUE;
+        long start = System.nanoTime();
+        try {
+            long offset = channel.size();
+            compressor.clear();
+            for (Batch batch : batches) {
+                if (batch.records == 0) {
+                    continue;
+                }
+                ((Buffer) batch.buffer).flip();
+                recordBytes += batch.buffer.remaining();
+                ByteBuffer frame = compressor.compress(count, batch.buffer, offset + bytes, batch.records,
+                        batch.firstInvocationId, batch.firstTimestampMillis);
+                gathered[count++] = frame;
+                records += batch.records;
+                bytes += frame.remaining();
+                oldestNanos = Math.min(oldestNanos, batch.firstRecordNanos);
+            }
+            if (count == 0) {
+                return false;
+            }
+            writeFully(channel, gathered, count, bytes);
+            ByteBuffer index = compressor.getIndex();
+            while (index.hasRemaining()) {
+                indexChannel.write(index);
+            }
+            if (fsyncPolicy == FsyncPolicy.BATCH) {
+                force(channel);
+                force(indexChannel);
+            }
+            long end = System.nanoTime();
+            statistics.written(records, recordBytes, bytes, end - start, end - oldestNanos);
+            return true;
+        } catch (IOException e) {
+            statistics.failed();
+            logger.error("Failed to write " + records + " records to " + path, e);
+            return false;
+        } finally {
+            Arrays.fill(gathered, 0, count, null);
+        }
+    }
+
+    /**
+     * @param channel the target
+     * @param gathered the written buffers
+     * @param count number of the written buffers
+     * @param bytes total number of remaining bytes of the buffers
+     * @throws IOException if the write fails
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer[] gathered, int count, long bytes)
+            throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            remaining -= channel.write(gathered, 0, count);
+        }
+    }
+
+    /**
+     * Clear the {@link Batch}es and return the pooled ones to the {@link #freeBatches},
+     * release the {@link #oversizedBytes} of the other ones.
+     * @param batches will be empty
+     */
+    private void recycle(List<Batch> batches) {
+        long released = 0;
+        for (Batch batch : batches) {
+            if (batch.pooled) {
+                batch.clear();
+                freeBatches.offer(batch);
+            } else {
+                released += batch.buffer.capacity();
+            }
+        }
+        batches.clear();
+        if (released > 0) {
+            synchronized (lock) {
+                oversizedBytes -= released;
+            }
+        }
+    }
+
+    /**
+     * A full {@link Batch} can be queued between the timed out poll and this call, it has to be written
+     * before the {@link #current} one, which contains newer records.
+     * @return the oldest queued {@link Batch}, else the partially filled {@link #current} {@link Batch},
+     * or 'null' if it is empty
+     */
+    private Batch takeCurrent() {
+        synchronized (lock) {
+            Batch queued = filledBatches.poll();
+            if (queued != null) {
+                return queued;
+            }
+            if (current == null || current.records == 0) {
+                return null;
+            }
+            Batch batch = current;
+            current = null;
+            return batch;
+        }
+    }
+
+    /** @return 'true' if the sink is closed and all its records are written */
+    private boolean isDone() {
+        synchronized (lock) {
+            return closed && current == null && filledBatches.isEmpty();
+        }
+    }
+
+    /**
+     * @param channel the written file, can be 'null'
+     */
+    private void force(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            statistics.synced();
+        } catch (IOException e) {
+            statistics.failed();
+            logger.error("Failed to force " + path, e);
+        }
+    }
+
+    /**
+     * @param channel can be 'null'
+     */
+    private void closeChannel(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Failed to close " + path, e);
+        }
+    }
+
+    /** A buffer of records and the key of its first record */
+    private static final class Batch {
+
+        /** The records terminated by the {@link #LINE_SEPARATOR} */
+        private final ByteBuffer buffer;
+
+        /** 'false' if the batch is created for a single record larger than the {@link #bufferCapacity} */
+        private final boolean pooled;
+
+        /** Number of records in the {@link #buffer} */
+        private int records;
+
+        /** The {@link System#nanoTime()} of the first record */
+        private long firstRecordNanos;
+
+        /** The invocation id of the first record */
+        private long firstInvocationId;
+
+        /** The timestamp of the first record */
+        private long firstTimestampMillis;
+
+        /**
+         * @param buffer see the {@link #buffer} field
+         * @param pooled see the {@link #pooled} field
+         */
+        private Batch(ByteBuffer buffer, boolean pooled) {
+            this.buffer = buffer;
+            this.pooled = pooled;
+        }
+
+        /**
+         * Append a record and its terminator, the caller checks the capacity.
+         * @param source the record
+         * @param offset the record start
+         * @param length the record length
+         * @param invocationId the record invocation id
+         * @param timestampMillis the record time
+         */
+        private void add(byte[] source, int offset, int length, long invocationId, long timestampMillis) {
+            if (records == 0) {
+                firstRecordNanos = System.nanoTime();
+                firstInvocationId = invocationId;
+                firstTimestampMillis = timestampMillis;
+            }
+            buffer.put(source, offset, length).put(LINE_SEPARATOR);
+            records++;
+        }
+
+        /** Make the batch empty */
+        private void clear() {
+            ((Buffer) buffer).clear();
+            records = 0;
+        }
+    }
+
+}
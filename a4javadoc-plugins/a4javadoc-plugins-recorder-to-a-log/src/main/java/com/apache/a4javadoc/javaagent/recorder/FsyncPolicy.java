@@ -0,0 +1,19 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+/**
+ * When the {@link FileChannelEventSink} forces written records to the storage device,
+ * see the {@link java.nio.channels.FileChannel#force(boolean)} method.
+ * @author Kyrylo Semenko
+ */
+public enum FsyncPolicy {
+
+    /** Never, the operating system decides when the records are stored */
+    NONE,
+
+    /** At most once per the flush interval of the {@link FileChannelEventSink} */
+    INTERVAL,
+
+    /** After each gathering write, the safest and the slowest policy */
+    BATCH
+
+}
@@ -0,0 +1,285 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.util.Date;
+
+import com.apache.a4javadoc.javaagent.api.StateAfterInvocation;
+import com.apache.a4javadoc.javaagent.api.StateBeforeInvocation;
+
+/**
+ * <p>
+ * A single record of the {@link MethodStateToLogFileRecorder#JSON_LINES_FORMAT}. Each record is
+ * a self-contained JSON object on its own line, with the flat top-level fields of the schema
+ * {@link #VERSION}, written by the {@link EventEncoder#writeJsonLine(JsonLineEvent, EventSink)} method:
+ * <ul>
+ * <li>{@code v} the schema version</li>
+ * <li>{@code ev} the {@link #ENTER} or {@link #EXIT}</li>
+ * <li>{@code id} the method invocation id</li>
+ * <li>{@code parentId} the id of the enclosing invocation on the same thread, omitted if there is none</li>
+ * <li>{@code methodId} the method, for example {@code public int java.lang.String.length()}</li>
+ * <li>{@code thread} the name of the invoking thread</li>
+ * <li>{@code t} the time in milliseconds since the epoch</li>
+ * <li>{@code dur} the duration in nanoseconds, only at the exit and only if the enter has been recorded</li>
+ * <li>{@code stack} the id of the invocation stack, only at the enter if the stack has been captured</li>
+ * <li>{@code args} the arguments serialized by the {@link com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j}</li>
+ * <li>{@code ret} the returned value, only at the exit</li>
+ * <li>{@code thr} the thrown {@link Throwable} as {@code {"id": ..., "type": ..., "msg": ..., "stack": ...}},
+ * only at the exit if thrown. If the instance or an identical one has been recorded already,
+ * only its {@code id} is written, see the {@link ExceptionTracker}</li>
+ * </ul>
+ * Stacks are written once by the {@link StackDictionary}, before the first record referring to them:
+ * <ul>
+ * <li>{@code {"v": 2, "ev": "frame", "id": ..., "cls": ..., "method": ..., "file": ..., "line": ...}}</li>
+ * <li>{@code {"v": 2, "ev": "stack", "id": ..., "frames": [...]}} with frame ids from the top of the stack</li>
+ * </ul>
+ * Identical {@link Throwable}s counted during a window are summarized after the window by
+ * {@code {"v": 2, "ev": "repeated", "id": ..., "type": ..., "msg": ..., "count": ..., "from": ..., "to": ...}},
+ * where the {@code id} is the recorded instance and {@code from} and {@code to} are times in milliseconds.
+ * Fields and record kinds are added to the schema without changing the version, a changed meaning
+ * or a removed field increments it.
+ *
+ * <p>
+ * Instances are mutable, so a thread can reuse a single instance for its records.
+ * @author Kyrylo Semenko
+ */
+final class JsonLineEvent {
+
+    /** The schema version, the {@code v} field */
+    static final int VERSION = 2;
+
+    /** The {@code ev} value of a started invocation */
+    static final String ENTER = "enter";
+
+    /** The {@code ev} value of an ended invocation */
+    static final String EXIT = "exit";
+
+    /** The {@code ev} value of a stack frame definition */
+    static final String FRAME = "frame";
+
+    /** The {@code ev} value of a stack definition */
+    static final String STACK = "stack";
+
+    /** The {@code ev} value of a summary of repeated {@link Throwable}s */
+    static final String REPEATED = "repeated";
+
+    /** 'true' for the {@link #EXIT} */
+    private boolean exit;
+
+    /** The {@code id} field */
+    private long invocationId;
+
+    /** The {@code parentId} field, -1 if there is no parent */
+    private long parentId;
+
+    /** The {@code methodId} field */
+    private String methodId;
+
+    /** The {@code thread} field */
+    private String thread;
+
+    /** The {@code t} field */
+    private long timestampMillis;
+
+    /** The {@code dur} field, -1 if unknown */
+    private long durationNanos;
+
+    /** The stack of the started invocation, 'null' at the exit */
+    private StackTraceElement[] stackTrace;
+
+    /** The {@code stack} field, -1 if there is no stack */
+    private long stackId = -1;
+
+    /** The {@code stack} field of the {@code thr} object, -1 if there is no stack */
+    private long throwableStackId = -1;
+
+    /** The {@code args} field */
+    private Object[] arguments;
+
+    /** The {@code ret} field */
+    private Object returnValue;
+
+    /** The {@code thr} field, can be 'null' */
+    private Throwable throwable;
+
+    /** The {@code id} field of the {@code thr} object, -1 if nothing has been thrown */
+    private long throwableId = -1;
+
+    /** 'true' if the {@link #throwableId} refers to a recorded {@link Throwable} */
+    private boolean throwableReference;
+
+    /** 'true' between the {@link CallStack#acquireEvent()} and {@link #release()} calls */
+    private boolean inUse;
+
+    /**
+     * Fill the event with a started invocation.
+     * @param state the data source
+     * @param parent see the {@link #parentId} field
+     * @param threadName see the {@link #thread} field
+     * @return this event
+     */
+    JsonLineEvent enter(StateBeforeInvocation state, long parent, String threadName) {
+        exit = false;
+        stackTrace = state.getStackTrace();
+        fill(state.getMethodInvocationId(), parent, state.getMethodComplexName(), threadName, state.getDate(), -1,
+                state.getAllArguments(), null, null);
+        return this;
+    }
+
+    /**
+     * Fill the event with an ended invocation.
+     * @param state the data source
+     * @param parent see the {@link #parentId} field
+     * @param threadName see the {@link #thread} field
+     * @param duration see the {@link #durationNanos} field
+     * @return this event
+     */
+    JsonLineEvent exit(StateAfterInvocation state, long parent, String threadName, long duration) {
+        exit = true;
+        stackTrace = null;
+        fill(state.getMethodInvocationId(), parent, state.getMethodComplexName(), threadName, state.getDate(),
+                duration, state.getAllArguments(), state.getReturnValue(), state.getThrowable());
+        return this;
+    }
+
+    /**
+     * Set the fields.
+     * @param id see the {@link #invocationId} field, can be 'null'
+     * @param parent see the {@link #parentId} field
+     * @param method see the {@link #methodId} field
+     * @param threadName see the {@link #thread} field
+     * @param date see the {@link #timestampMillis} field, can be 'null'
+     * @param duration see the {@link #durationNanos} field
+     * @param args see the {@link #arguments} field
+     * @param ret see the {@link #returnValue} field
+     * @param thr see the {@link #throwable} field
+     */
+    private void fill(Long id, long parent, String method, String threadName, Date date, long duration,
+            Object[] args, Object ret, Throwable thr) {
+        invocationId = id == null ? -1 : id;
+        parentId = parent;
+        methodId = method;
+        thread = threadName;
+        timestampMillis = date == null ? System.currentTimeMillis() : date.getTime();
+        durationNanos = duration;
+        arguments = args;
+        returnValue = ret;
+        throwable = thr;
+    }
+
+    /** Release references to application objects, so a reused event does not hold them, and make it reusable */
+    void release() {
+        arguments = null;
+        returnValue = null;
+        throwable = null;
+        stackTrace = null;
+        stackId = -1;
+        throwableStackId = -1;
+        throwableId = -1;
+        throwableReference = false;
+        inUse = false;
+    }
+
+    /** @return The {@link JsonLineEvent#inUse} field */
+    boolean isInUse() {
+        return inUse;
+    }
+
+    /** @param inUse see the {@link JsonLineEvent#inUse} field */
+    void setInUse(boolean inUse) {
+        this.inUse = inUse;
+    }
+
+    /** @return 'true' for the {@link #EXIT} */
+    boolean isExit() {
+        return exit;
+    }
+
+    /** @return The {@link JsonLineEvent#invocationId} field */
+    long getInvocationId() {
+        return invocationId;
+    }
+
+    /** @return The {@link JsonLineEvent#parentId} field */
+    long getParentId() {
+        return parentId;
+    }
+
+    /** @return The {@link JsonLineEvent#methodId} field */
+    String getMethodId() {
+        return methodId;
+    }
+
+    /** @return The {@link JsonLineEvent#thread} field */
+    String getThread() {
+        return thread;
+    }
+
+    /** @return The {@link JsonLineEvent#timestampMillis} field */
+    long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /** @return The {@link JsonLineEvent#durationNanos} field */
+    long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /** @return The {@link JsonLineEvent#stackTrace} field */
+    StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    /** @return The {@link JsonLineEvent#stackId} field */
+    long getStackId() {
+        return stackId;
+    }
+
+    /** @param stackId see the {@link JsonLineEvent#stackId} field */
+    void setStackId(long stackId) {
+        this.stackId = stackId;
+    }
+
+    /** @return The {@link JsonLineEvent#throwableStackId} field */
+    long getThrowableStackId() {
+        return throwableStackId;
+    }
+
+    /** @param throwableStackId see the {@link JsonLineEvent#throwableStackId} field */
+    void setThrowableStackId(long throwableStackId) {
+        this.throwableStackId = throwableStackId;
+    }
+
+    /**
+     * @param id see the {@link #throwableId} field
+     * @param reference see the {@link #throwableReference} field
+     */
+    void setThrowable(long id, boolean reference) {
+        this.throwableId = id;
+        this.throwableReference = reference;
+    }
+
+    /** @return The {@link JsonLineEvent#throwableId} field */
+    long getThrowableId() {
+        return throwableId;
+    }
+
+    /** @return The {@link JsonLineEvent#throwableReference} field */
+    boolean isThrowableReference() {
+        return throwableReference;
+    }
+
+    /** @return The {@link JsonLineEvent#arguments} field */
+    Object[] getArguments() {
+        return arguments;
+    }
+
+    /** @return The {@link JsonLineEvent#returnValue} field */
+    Object getReturnValue() {
+        return returnValue;
+    }
+
+    /** @return The {@link JsonLineEvent#throwable} field */
+    Throwable getThrowable() {
+        return throwable;
+    }
+
+}
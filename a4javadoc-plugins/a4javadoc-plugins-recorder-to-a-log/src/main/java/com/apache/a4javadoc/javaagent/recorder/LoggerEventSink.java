@@ -0,0 +1,36 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+
+/**
+ * The {@link EventSink} that passes each record to a {@link Logger} with the INFO level.
+ * The {@link Logger} API accepts {@link String}s only, so a single {@link String}
+ * is decoded from the record bytes.
+ * @author Kyrylo Semenko
+ */
+public class LoggerEventSink implements EventSink {
+
+    /** The target of records */
+    private final Logger logger;
+
+    /**
+     * @param logger see the {@link #logger} field
+     */
+    public LoggerEventSink(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return logger.isInfoEnabled();
+    }
+
+    @Override
+    public boolean write(byte[] buffer, int offset, int length, long invocationId, long timestampMillis) {
+        logger.info(new String(buffer, offset, length, StandardCharsets.UTF_8));
+        return true;
+    }
+
+}
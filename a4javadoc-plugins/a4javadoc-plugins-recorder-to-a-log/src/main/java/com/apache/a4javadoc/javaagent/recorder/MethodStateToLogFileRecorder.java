@@ -1,15 +1,20 @@
 package com.apache.a4javadoc.javaagent.recorder;
 
-import java.io.StringWriter;
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.file.Paths;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.ClassUtils;
 import org.pf4j.Extension;
@@ -20,57 +25,532 @@ import com.apache.a4javadoc.exception.AppRuntimeException;
 import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
 import com.apache.a4javadoc.javaagent.api.StateAfterInvocation;
 import com.apache.a4javadoc.javaagent.api.StateBeforeInvocation;
-import com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j;
+import com.apache.a4javadoc.javaagent.snapshot.CaptureStatistics;
+import com.apache.a4javadoc.javaagent.snapshot.Snapshot;
+import com.apache.a4javadoc.javaagent.snapshot.SnapshotHandler;
+import com.apache.a4javadoc.javaagent.snapshot.SnapshotRenderer;
+import com.apache.a4javadoc.javaagent.snapshot.SnapshotService;
 
 /**
+ * <p>
  * Implementation of {@link MethodStateRecorder} methods. Saves recorded data to an application logger.
+ *
+ * <p>
+ * By default the states are rendered to JSON on application threads. If the
+ * {@link #CAPTURE_MODE_PROPERTY} system property is {@link #SNAPSHOT_CAPTURE_MODE},
+ * the states are copied to {@link Snapshot}s on application threads and rendered
+ * by the {@link SnapshotRenderer} threads, see the {@link CaptureStatistics}.
+ *
+ * <p>
+ * Records are encoded by reusable per-thread {@link EventEncoder}s and written
+ * to an {@link EventSink}. By default it is the {@link FileChannelEventSink} with the file,
+ * the {@link FsyncPolicy} and the {@link Compression} defined by the {@link #FILE_PROPERTY},
+ * {@link #FSYNC_PROPERTY} and {@link #COMPRESSION_PROPERTY} system properties.
+ * The {@link #SINK_PROPERTY} system property {@link #LOGGER_SINK} selects the application logger instead.
+ *
+ * <p>
+ * By default each invocation is recorded as free-form lines with the method name and the state
+ * rendered to JSON. If the {@link #FORMAT_PROPERTY} system property is {@link #JSON_LINES_FORMAT},
+ * each event is recorded as a single JSON object on its own line, see the {@link JsonLineEvent} schema.
+ *
+ * <p>
+ * Thrown {@link Throwable}s are never changed. The {@link ExceptionTracker} records the details
+ * of each instance once, the enclosing frames refer to it by its id and identical instances
+ * thrown during the {@link #EXCEPTION_WINDOW_PROPERTY} window are counted, see the {@link #THROWN_AGAIN} records.
  * @author Kyrylo Semenko
  */
 @Extension
 public class MethodStateToLogFileRecorder implements MethodStateRecorder {
     
-    private static final String STATE_BEFORE =  "State  before: ";
-    private static final String METHOD_STARTS = "Method starts: ";
-    private static final String STATE_AFTER =   "State   after: ";
-    private static final String METHOD_ENDED =  "Method  ended: ";
+    private static final byte[] STATE_BEFORE =  EventEncoder.encode("State  before: ");
+    private static final byte[] METHOD_STARTS = EventEncoder.encode("Method starts: ");
+    private static final byte[] STATE_AFTER =   EventEncoder.encode("State   after: ");
+    private static final byte[] METHOD_ENDED =  EventEncoder.encode("Method  ended: ");
+    private static final byte[] METHOD_THREW =  EventEncoder.encode("Method  threw: ");
+    private static final byte[] THROWN_AGAIN =  EventEncoder.encode("Thrown  again: ");
     private static final int MAX_NUMBER_OF_STACK_TRACE_ELEMENTS = 25;
     static final String REMOVED_BECAUSE_THE_OBJECT_CONTAINED_A_CIRCULAR_DEPENDENCY = "Removed because the object contained a circular dependency.";
     private static final int MAX_DEPTH_OF_DIVING_INTO_OBJECT = 50;
     private static final Logger logger = LoggerFactory.getLogger(MethodStateToLogFileRecorder.class);
     
-    /** Constructor */
+    /** The system property with a capture mode, for example {@link #SNAPSHOT_CAPTURE_MODE} */
+    static final String CAPTURE_MODE_PROPERTY = "a4javadoc.recorder.captureMode";
+    
+    /** The capture mode with rendering of {@link Snapshot}s on the {@link SnapshotRenderer} threads */
+    static final String SNAPSHOT_CAPTURE_MODE = "snapshot";
+    
+    /** The system property with a sink, for example {@link #LOGGER_SINK}, the file sink is used by default */
+    static final String SINK_PROPERTY = "a4javadoc.recorder.sink";
+    
+    /** The sink passing records to the application logger, see the {@link LoggerEventSink} */
+    static final String LOGGER_SINK = "logger";
+    
+    /** The system property with a path of the file written by the {@link FileChannelEventSink} */
+    static final String FILE_PROPERTY = "a4javadoc.recorder.file";
+    
+    /** The default value of the {@link #FILE_PROPERTY} */
+    static final String DEFAULT_FILE = "a4javadoc-records.log";
+    
+    /** The system property with a {@link FsyncPolicy} name, the {@link FsyncPolicy#INTERVAL} by default */
+    static final String FSYNC_PROPERTY = "a4javadoc.recorder.fsync";
+    
+    /** The system property with a {@link Compression} name, the {@link Compression#NONE} by default */
+    static final String COMPRESSION_PROPERTY = "a4javadoc.recorder.compression";
+    
+    /** The system property with a format of records, for example {@link #JSON_LINES_FORMAT} */
+    static final String FORMAT_PROPERTY = "a4javadoc.recorder.format";
+    
+    /** The format with a single {@link JsonLineEvent} per line */
+    static final String JSON_LINES_FORMAT = "jsonl";
+    
+    /** The system property with the length of the {@link ExceptionTracker} window in milliseconds */
+    static final String EXCEPTION_WINDOW_PROPERTY = "a4javadoc.recorder.exceptionWindowMillis";
+    
+    /** Maximum number of snapshots waiting for rendering */
+    private static final int RENDERER_QUEUE_CAPACITY = 10000;
+    
+    /** How long to wait for rendering of queued snapshots at the JVM shutdown */
+    private static final long RENDERER_SHUTDOWN_SECONDS = 5;
+    
+    /** Renderer of snapshots in the {@link #SNAPSHOT_CAPTURE_MODE}, else 'null' */
+    private final SnapshotRenderer snapshotRenderer;
+    
+    /** The target of encoded records */
+    private final EventSink eventSink;
+    
+    /** 'true' in the {@link #JSON_LINES_FORMAT} */
+    private final boolean jsonLines;
+    
+    /** Stacks written to the {@link #eventSink} in the {@link #JSON_LINES_FORMAT} */
+    private final StackDictionary stackDictionary = new StackDictionary();
+    
+    /** Decides, how the thrown {@link Throwable}s are recorded */
+    private final ExceptionTracker exceptionTracker = new ExceptionTracker(
+            Long.getLong(EXCEPTION_WINDOW_PROPERTY, ExceptionTracker.DEFAULT_WINDOW_MILLIS));
+    
+    /** Logs a {@link StateBeforeInvocation} restored from a {@link Snapshot} */
+    private final SnapshotHandler stateBeforeHandler = new SnapshotHandler() {
+        @Override
+        public void handle(Object restored) {
+            StateBeforeInvocation stateBeforeInvocation = (StateBeforeInvocation) restored;
+            logState(METHOD_STARTS, STATE_BEFORE, stateBeforeInvocation.getMethodComplexName(),
+                stateBeforeInvocation.getMethodInvocationId(), stateBeforeInvocation.getDate(), stateBeforeInvocation,
+                null);
+        }
+    };
+    
+    /**
+     * Constructor, the capture mode is defined by the {@link #CAPTURE_MODE_PROPERTY} system property,
+     * the format by the {@link #FORMAT_PROPERTY} and the sink by the {@link #SINK_PROPERTY} system property
+     */
     public MethodStateToLogFileRecorder() {
-        logger.info("Recorder constructed");
+        this(System.getProperty(CAPTURE_MODE_PROPERTY), System.getProperty(FORMAT_PROPERTY), createSink());
+    }
+    
+    /**
+     * Constructor
+     * @param captureMode {@link #SNAPSHOT_CAPTURE_MODE} or 'null' for rendering on application threads
+     */
+    MethodStateToLogFileRecorder(String captureMode) {
+        this(captureMode, new LoggerEventSink(logger));
+    }
+    
+    /**
+     * Constructor
+     * @param captureMode {@link #SNAPSHOT_CAPTURE_MODE} or 'null' for rendering on application threads
+     * @param eventSink see the {@link #eventSink} field
+     */
+    MethodStateToLogFileRecorder(String captureMode, EventSink eventSink) {
+        this(captureMode, null, eventSink);
+    }
+    
+    /**
+     * Constructor
+     * @param captureMode {@link #SNAPSHOT_CAPTURE_MODE} or 'null' for rendering on application threads
+     * @param format {@link #JSON_LINES_FORMAT} or 'null' for free-form lines
+     * @param eventSink see the {@link #eventSink} field
+     */
+    MethodStateToLogFileRecorder(String captureMode, String format, EventSink eventSink) {
+        this.eventSink = eventSink;
+        this.jsonLines = JSON_LINES_FORMAT.equals(format);
+        if (SNAPSHOT_CAPTURE_MODE.equals(captureMode)) {
+            snapshotRenderer = new SnapshotRenderer(Runtime.getRuntime().availableProcessors(),
+                    RENDERER_QUEUE_CAPACITY, new CaptureStatistics());
+        } else {
+            snapshotRenderer = null;
+        }
+        if (snapshotRenderer != null || eventSink instanceof Closeable) {
+            Runtime.getRuntime().addShutdownHook(new Thread("a4javadoc-recorder-shutdown") {
+                @Override
+                public void run() {
+                    shutdown();
+                }
+            });
+        }
+        logger.info("Recorder constructed, capture mode: {}, format: {}, sink: {}",
+                snapshotRenderer != null ? SNAPSHOT_CAPTURE_MODE : "direct", jsonLines ? JSON_LINES_FORMAT : "text",
+                eventSink.getClass().getSimpleName());
+    }
+    
+    /**
+     * @return the {@link EventSink} defined by the {@link #SINK_PROPERTY}, {@link #FILE_PROPERTY},
+     * {@link #FSYNC_PROPERTY} and {@link #COMPRESSION_PROPERTY} system properties
+     */
+    static EventSink createSink() {
+        if (LOGGER_SINK.equals(System.getProperty(SINK_PROPERTY))) {
+            return new LoggerEventSink(logger);
+        }
+        String fsyncPolicy = System.getProperty(FSYNC_PROPERTY, FsyncPolicy.INTERVAL.name());
+        String compression = System.getProperty(COMPRESSION_PROPERTY, Compression.NONE.name());
+        return new FileChannelEventSink(Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)),
+                FsyncPolicy.valueOf(fsyncPolicy.toUpperCase(Locale.ROOT)),
+                Compression.valueOf(compression.toUpperCase(Locale.ROOT)));
+    }
+    
+    /**
+     * Render the queued snapshots and then close the {@link #eventSink}, so the rendered records are written.
+     */
+    void shutdown() {
+        if (snapshotRenderer != null) {
+            snapshotRenderer.shutdown(RENDERER_SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+            logger.info("Capture statistics: {}", snapshotRenderer.getStatistics());
+        }
+        writeRepeated(exceptionTracker.drainAll());
+        if (eventSink instanceof Closeable) {
+            try {
+                ((Closeable) eventSink).close();
+            } catch (IOException e) {
+                logger.error("Failed to close the sink", e);
+            }
+        }
     }
     
     @Override
     public void recordBefore(StateBeforeInvocation stateBeforeInvocation) {
         StackTraceElement[] truncated = truncateStackTrace(stateBeforeInvocation.getStackTrace());
         stateBeforeInvocation.setStackTrace(truncated);
-        removeCircularObjects(stateBeforeInvocation.getAllArguments());
-        logger.info("{}{}", METHOD_STARTS, stateBeforeInvocation.getMethodComplexName());
-        StringWriter stringWriter = new StringWriter().append(STATE_BEFORE);
-        ObjectMapperA4j.getInstance().writeValue(stringWriter, stateBeforeInvocation);
-        if (logger.isInfoEnabled()) {
-            logger.info(stringWriter.toString());
+        if (jsonLines) {
+            recordEnter(stateBeforeInvocation);
+            return;
+        }
+        if (snapshotRenderer != null) {
+            captureSnapshot(stateBeforeInvocation, stateBeforeHandler);
+            return;
         }
+        removeCircularObjects(stateBeforeInvocation.getAllArguments());
+        logState(METHOD_STARTS, STATE_BEFORE, stateBeforeInvocation.getMethodComplexName(),
+                stateBeforeInvocation.getMethodInvocationId(), stateBeforeInvocation.getDate(), stateBeforeInvocation,
+                null);
     }
 
     @Override
     public void recordAfter(StateAfterInvocation stateAfterInvocation) {
-        logger.info("{}{}", METHOD_ENDED, stateAfterInvocation.getMethodComplexName());
-        if (stateAfterInvocation.getThrowable() != null) {
-            logger.error("Throwable after method invocation: " + stateAfterInvocation.getThrowable().getMessage(), stateAfterInvocation.getThrowable());
-            StackTraceElement[] stackTraceElements = stateAfterInvocation.getThrowable().getStackTrace();
-            StackTraceElement[] truncated = truncateStackTrace(stackTraceElements);
-            stateAfterInvocation.getThrowable().setStackTrace(truncated);
+        ExceptionTracker.Sighting sighting = track(stateAfterInvocation.getThrowable());
+        if (jsonLines) {
+            recordExit(stateAfterInvocation, sighting);
+            return;
+        }
+        if (snapshotRenderer != null) {
+            captureSnapshot(capturedState(stateAfterInvocation, sighting), new StateAfterHandler(sighting));
+            return;
         }
         removeCircularObjects(stateAfterInvocation.getAllArguments());
-        StringWriter stringWriter = new StringWriter().append(STATE_AFTER);
-        ObjectMapperA4j.getInstance().writeValue(stringWriter, stateAfterInvocation);
-        if (logger.isInfoEnabled()) {
-            logger.info(stringWriter.toString());
+        logStateAfter(stateAfterInvocation, sighting);
+    }
+    
+    /**
+     * Track the thrown {@link Throwable} and write the aggregates of ended windows.
+     * @param throwable can be 'null'
+     * @return 'null' if nothing has been thrown
+     */
+    private ExceptionTracker.Sighting track(Throwable throwable) {
+        if (throwable == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        ExceptionTracker.Sighting sighting = exceptionTracker.track(throwable, now);
+        writeRepeated(exceptionTracker.drainExpired(now));
+        return sighting;
+    }
+    
+    /**
+     * @param stateAfterInvocation the recorded state
+     * @param sighting the result of the {@link #track(Throwable)} method
+     * @return the state to capture, without the {@link Throwable} if it is recorded already
+     */
+    private static StateAfterInvocation capturedState(StateAfterInvocation stateAfterInvocation,
+            ExceptionTracker.Sighting sighting) {
+        if (sighting == null) {
+            return stateAfterInvocation;
         }
+        if (sighting.getKind() != ExceptionTracker.Kind.NEW) {
+            return withoutThrowable(stateAfterInvocation);
+        }
+        // fills the stack trace field of the throwable, so the stack trace is captured as well
+        stateAfterInvocation.getThrowable().getStackTrace();
+        return stateAfterInvocation;
+    }
+    
+    /**
+     * @param stateAfterInvocation the source
+     * @return a copy of the state without its {@link Throwable}
+     */
+    private static StateAfterInvocation withoutThrowable(StateAfterInvocation stateAfterInvocation) {
+        return new StateAfterInvocation(idOf(stateAfterInvocation.getMethodInvocationId()),
+                stateAfterInvocation.getDate(), stateAfterInvocation.getMethodComplexName(),
+                stateAfterInvocation.getReturnValue(), null, stateAfterInvocation.getAllArguments());
+    }
+    
+    /**
+     * Write the ended invocation as free-form lines. The {@link Throwable} is not rendered
+     * with the state, it is described by a {@link #METHOD_THREW} record and the application logger
+     * logs it once.
+     * @param stateAfterInvocation the data source, its {@link Throwable} can be missing if it is recorded already
+     * @param sighting the result of the {@link #track(Throwable)} method
+     */
+    private void logStateAfter(StateAfterInvocation stateAfterInvocation, ExceptionTracker.Sighting sighting) {
+        if (sighting == null) {
+            logState(METHOD_ENDED, STATE_AFTER, stateAfterInvocation.getMethodComplexName(),
+                    stateAfterInvocation.getMethodInvocationId(), stateAfterInvocation.getDate(), stateAfterInvocation,
+                    null);
+            return;
+        }
+        Throwable throwable = stateAfterInvocation.getThrowable();
+        String thrown;
+        if (sighting.getKind() == ExceptionTracker.Kind.NEW) {
+            logger.error("Throwable #" + sighting.getId() + " after method invocation: " + throwable.getMessage(),
+                    throwable);
+            thrown = "#" + sighting.getId() + " " + throwable;
+        } else {
+            thrown = "#" + sighting.getId() + " " + sighting.getKind().name().toLowerCase(Locale.ROOT);
+        }
+        logState(METHOD_ENDED, STATE_AFTER, stateAfterInvocation.getMethodComplexName(),
+                stateAfterInvocation.getMethodInvocationId(), stateAfterInvocation.getDate(),
+                throwable == null ? stateAfterInvocation : withoutThrowable(stateAfterInvocation), thrown);
+    }
+    
+    /**
+     * Write the counts of repeated {@link Throwable}s.
+     * @param aggregates the result of the {@link ExceptionTracker#drainExpired(long)} method
+     */
+    private void writeRepeated(List<ExceptionTracker.Aggregate> aggregates) {
+        if (aggregates.isEmpty() || !eventSink.isEnabled()) {
+            return;
+        }
+        EventEncoder encoder = EventEncoder.acquire();
+        try {
+            for (ExceptionTracker.Aggregate aggregate : aggregates) {
+                if (jsonLines) {
+                    encoder.writeRepeated(aggregate, eventSink);
+                } else {
+                    encoder.startEvent(aggregate.getFirstId(), new Date(aggregate.getLastMillis()));
+                    encoder.writeText(THROWN_AGAIN, "#" + aggregate.getFirstId() + " " + aggregate.getType() + ": "
+                            + aggregate.getMessage() + ", " + aggregate.getCount() + " times between "
+                            + new Date(aggregate.getWindowStartMillis()) + " and " + new Date(aggregate.getLastMillis()),
+                            eventSink);
+                }
+            }
+        } finally {
+            encoder.release();
+        }
+    }
+    
+    /**
+     * Record the started invocation in the {@link #JSON_LINES_FORMAT}. The parent invocation
+     * is found out on the application thread, even if the record is rendered by the {@link #snapshotRenderer}.
+     * @param stateBeforeInvocation the data source
+     */
+    private void recordEnter(StateBeforeInvocation stateBeforeInvocation) {
+        CallStack callStack = CallStack.get();
+        long parentId = callStack.push(idOf(stateBeforeInvocation.getMethodInvocationId()), System.nanoTime());
+        String thread = Thread.currentThread().getName();
+        if (snapshotRenderer != null) {
+            captureSnapshot(stateBeforeInvocation, new JsonLineHandler(parentId, thread, -1, null));
+            return;
+        }
+        writeJsonLine(callStack.acquireEvent().enter(stateBeforeInvocation, parentId, thread));
+    }
+    
+    /**
+     * Record the ended invocation in the {@link #JSON_LINES_FORMAT}. Unlike the free-form lines,
+     * the arguments are not changed.
+     * @param stateAfterInvocation the data source
+     * @param sighting the result of the {@link #track(Throwable)} method
+     */
+    private void recordExit(StateAfterInvocation stateAfterInvocation, ExceptionTracker.Sighting sighting) {
+        CallStack callStack = CallStack.get();
+        long durationNanos = callStack.pop(idOf(stateAfterInvocation.getMethodInvocationId()), System.nanoTime());
+        long parentId = callStack.peek();
+        String thread = Thread.currentThread().getName();
+        if (snapshotRenderer != null) {
+            captureSnapshot(capturedState(stateAfterInvocation, sighting),
+                    new JsonLineHandler(parentId, thread, durationNanos, sighting));
+            return;
+        }
+        JsonLineEvent event = callStack.acquireEvent().exit(stateAfterInvocation, parentId, thread, durationNanos);
+        writeJsonLine(thrown(event, sighting));
+    }
+    
+    /**
+     * @param invocationId can be 'null'
+     * @return the invocationId or -1
+     */
+    private static long idOf(Long invocationId) {
+        return invocationId == null ? -1 : invocationId;
+    }
+    
+    /**
+     * @param event the exit event
+     * @param sighting the result of the {@link #track(Throwable)} method
+     * @return the event with the {@link Throwable} id
+     */
+    private static JsonLineEvent thrown(JsonLineEvent event, ExceptionTracker.Sighting sighting) {
+        if (sighting != null) {
+            event.setThrowable(sighting.getId(), sighting.getKind() != ExceptionTracker.Kind.NEW);
+        }
+        return event;
+    }
+    
+    /**
+     * Write the event to the {@link #eventSink} and release it. Its stacks are replaced by ids
+     * of the {@link #stackDictionary}, the stack of a {@link Throwable} is read by the
+     * {@link Throwable#getStackTrace()} method, that returns a copy, so the {@link Throwable} is not changed.
+     * @param event obtained from the {@link CallStack#acquireEvent()}
+     */
+    private void writeJsonLine(JsonLineEvent event) {
+        EventEncoder encoder = EventEncoder.acquire();
+        try {
+            if (eventSink.isEnabled()) {
+                event.setStackId(stackDictionary.intern(event.getStackTrace(), MAX_NUMBER_OF_STACK_TRACE_ELEMENTS,
+                        encoder, eventSink));
+                if (event.getThrowable() != null && !event.isThrowableReference()) {
+                    event.setThrowableStackId(stackDictionary.intern(event.getThrowable().getStackTrace(),
+                            MAX_NUMBER_OF_STACK_TRACE_ELEMENTS, encoder, eventSink));
+                }
+                encoder.writeJsonLine(event, eventSink);
+            }
+        } finally {
+            event.release();
+            encoder.release();
+        }
+    }
+    
+    /**
+     * Copy the state to a {@link Snapshot} and pass it to the {@link #snapshotRenderer}.
+     * The time spent on the application thread is counted in the {@link CaptureStatistics}.
+     * @param state the {@link StateBeforeInvocation} or {@link StateAfterInvocation}
+     * @param handler renders the restored state
+     */
+    private void captureSnapshot(Object state, SnapshotHandler handler) {
+        long start = System.nanoTime();
+        CaptureStatistics statistics = snapshotRenderer.getStatistics();
+        try {
+            Snapshot snapshot = SnapshotService.getInstance().capture(state);
+            snapshotRenderer.submit(snapshot, handler);
+            statistics.captured(System.nanoTime() - start, snapshot.getData().length);
+        } catch (Exception e) {
+            statistics.captureFailed();
+            logger.error("Snapshot capture failed", e);
+        }
+    }
+    
+    /**
+     * Write the method name record and the state record rendered to JSON to the {@link #eventSink}.
+     * Nothing is rendered if the sink is disabled.
+     * @param methodPrefix the beginning of the method name record
+     * @param statePrefix the beginning of the state record
+     * @param methodName for example {@link StateBeforeInvocation#getMethodComplexName()}
+     * @param invocationId for example {@link StateBeforeInvocation#getMethodInvocationId()}
+     * @param date for example {@link StateBeforeInvocation#getDate()}
+     * @param state the {@link StateBeforeInvocation} or {@link StateAfterInvocation}
+     * @param thrown the {@link #METHOD_THREW} record or 'null'
+     */
+    private void logState(byte[] methodPrefix, byte[] statePrefix, String methodName, Long invocationId, Date date,
+            Object state, String thrown) {
+        if (!eventSink.isEnabled()) {
+            return;
+        }
+        EventEncoder encoder = EventEncoder.acquire();
+        try {
+            encoder.startEvent(invocationId, date);
+            encoder.writeText(methodPrefix, methodName, eventSink);
+            encoder.writeState(statePrefix, state, eventSink);
+            if (thrown != null) {
+                encoder.writeText(METHOD_THREW, thrown, eventSink);
+            }
+        } finally {
+            encoder.release();
+        }
+    }
+    
+    /**
+     * Renders a state restored from a {@link Snapshot} in the {@link #JSON_LINES_FORMAT}.
+     * It holds the parts of the {@link JsonLineEvent}, that are known on the application thread only.
+     */
+    private class JsonLineHandler implements SnapshotHandler {
+        
+        /** See the {@link JsonLineEvent#getParentId()} */
+        private final long parentId;
+        
+        /** See the {@link JsonLineEvent#getThread()} */
+        private final String thread;
+        
+        /** See the {@link JsonLineEvent#getDurationNanos()} */
+        private final long durationNanos;
+        
+        /** The {@link Throwable} tracked on the application thread, 'null' if nothing has been thrown */
+        private final ExceptionTracker.Sighting sighting;
+        
+        /**
+         * @param parentId see the {@link #parentId} field
+         * @param thread see the {@link #thread} field
+         * @param durationNanos see the {@link #durationNanos} field
+         * @param sighting see the {@link #sighting} field
+         */
+        JsonLineHandler(long parentId, String thread, long durationNanos, ExceptionTracker.Sighting sighting) {
+            this.parentId = parentId;
+            this.thread = thread;
+            this.durationNanos = durationNanos;
+            this.sighting = sighting;
+        }
+        
+        @Override
+        public void handle(Object restored) {
+            JsonLineEvent event = CallStack.get().acquireEvent();
+            if (restored instanceof StateBeforeInvocation) {
+                event.enter((StateBeforeInvocation) restored, parentId, thread);
+            } else {
+                thrown(event.exit((StateAfterInvocation) restored, parentId, thread, durationNanos), sighting);
+            }
+            writeJsonLine(event);
+        }
+    }
+    
+    /**
+     * Logs a {@link StateAfterInvocation} restored from a {@link Snapshot}. The {@link Throwable}
+     * is tracked on the application thread, because its identity is lost by the restoring.
+     */
+    private class StateAfterHandler implements SnapshotHandler {
+        
+        /** The tracked {@link Throwable}, 'null' if nothing has been thrown */
+        private final ExceptionTracker.Sighting sighting;
+        
+        /**
+         * @param sighting see the {@link #sighting} field
+         */
+        StateAfterHandler(ExceptionTracker.Sighting sighting) {
+            this.sighting = sighting;
+        }
+        
+        @Override
+        public void handle(Object restored) {
+            logStateAfter((StateAfterInvocation) restored, sighting);
+        }
+    }
+    
+    /** @return The {@link MethodStateToLogFileRecorder#snapshotRenderer} field */
+    SnapshotRenderer getSnapshotRenderer() {
+        return snapshotRenderer;
     }
     
     /** Truncate to {@link #MAX_NUMBER_OF_STACK_TRACE_ELEMENTS} */
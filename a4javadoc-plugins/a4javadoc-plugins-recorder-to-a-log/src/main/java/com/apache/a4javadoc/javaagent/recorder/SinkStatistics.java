@@ -0,0 +1,164 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe counters of the {@link FileChannelEventSink}. Records are counted when they are written
+ * to the file, the latency of a record is the time between its buffering and the end of its write.
+ * @author Kyrylo Semenko
+ */
+public class SinkStatistics {
+
+    /** The creation time for computation of throughput */
+    private final long startNanos = System.nanoTime();
+
+    /** Number of written records */
+    private final AtomicLong records = new AtomicLong();
+
+    /** Size of the written records, including line separators */
+    private final AtomicLong recordBytes = new AtomicLong();
+
+    /** Number of written bytes, it is less than the {@link #recordBytes} if the file is compressed */
+    private final AtomicLong bytes = new AtomicLong();
+
+    /** Number of gathering writes */
+    private final AtomicLong writes = new AtomicLong();
+
+    /** Nanoseconds spent by writing and forcing */
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    /** The longest write including force */
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+
+    /** The longest time between buffering of the first record of a buffer and the end of its write */
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /** Number of {@link java.nio.channels.FileChannel#force(boolean)} calls */
+    private final AtomicLong syncs = new AtomicLong();
+
+    /** Number of records dropped because no buffer was free or the sink was closed */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Number of failed writes */
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Count a gathering write.
+     * @param recordCount number of written records
+     * @param recordByteCount size of the written records
+     * @param byteCount number of written bytes
+     * @param nanos duration of the write
+     * @param latencyNanos age of the oldest written record
+     */
+    void written(long recordCount, long recordByteCount, long byteCount, long nanos, long latencyNanos) {
+        records.addAndGet(recordCount);
+        recordBytes.addAndGet(recordByteCount);
+        bytes.addAndGet(byteCount);
+        writes.incrementAndGet();
+        writeNanos.addAndGet(nanos);
+        updateMax(maxWriteNanos, nanos);
+        updateMax(maxLatencyNanos, latencyNanos);
+    }
+
+    /** Count a force call */
+    void synced() {
+        syncs.incrementAndGet();
+    }
+
+    /** Count a dropped record */
+    void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    /** Count a failed write */
+    void failed() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * @param max the maximum
+     * @param value the candidate
+     */
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /** @return The {@link SinkStatistics#records} field value */
+    public long getRecords() {
+        return records.get();
+    }
+
+    /** @return The {@link SinkStatistics#recordBytes} field value */
+    public long getRecordBytes() {
+        return recordBytes.get();
+    }
+
+    /** @return The {@link SinkStatistics#bytes} field value */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /** @return The {@link SinkStatistics#writes} field value */
+    public long getWrites() {
+        return writes.get();
+    }
+
+    /** @return The {@link SinkStatistics#writeNanos} field value */
+    public long getWriteNanos() {
+        return writeNanos.get();
+    }
+
+    /** @return The {@link SinkStatistics#maxWriteNanos} field value */
+    public long getMaxWriteNanos() {
+        return maxWriteNanos.get();
+    }
+
+    /** @return The {@link SinkStatistics#maxLatencyNanos} field value */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    /** @return The {@link SinkStatistics#syncs} field value */
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    /** @return The {@link SinkStatistics#dropped} field value */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** @return The {@link SinkStatistics#failures} field value */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /** @return written records per second since the creation of the statistics */
+    public long getRecordsPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : getRecords() * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * @return for example
+     * <pre>records: 100000 (52000 records/s, 31 MB written as 4 MB), writes: 40 (avg 900000 ns, max 2100000 ns), max latency: 11000000 ns, syncs: 4, dropped: 0, failures: 0</pre>
+     */
+    @Override
+    public String toString() {
+        long writeCount = getWrites();
+        return "records: " + getRecords()
+                + " (" + getRecordsPerSecond() + " records/s, " + (getRecordBytes() >> 20) + " MB written as "
+                + (getBytes() >> 20) + " MB)"
+                + ", writes: " + writeCount
+                + " (avg " + (writeCount == 0 ? 0 : getWriteNanos() / writeCount) + " ns"
+                + ", max " + getMaxWriteNanos() + " ns)"
+                + ", max latency: " + getMaxLatencyNanos() + " ns"
+                + ", syncs: " + getSyncs()
+                + ", dropped: " + getDropped()
+                + ", failures: " + getFailures();
+    }
+}
@@ -0,0 +1,152 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Interns stack frames and whole stacks of the {@link MethodStateToLogFileRecorder#JSON_LINES_FORMAT}.
+ * A stack seen for the first time is written to the {@link EventSink} as {@link JsonLineEvent#FRAME} records
+ * of its new frames followed by a {@link JsonLineEvent#STACK} record, next events refer to it by its id only.
+ *
+ * <p>
+ * Known ids are looked up without locking. A new stack is registered under a lock and published
+ * only after its definition records have been accepted by the {@link EventSink}, so a record referring
+ * to an id never precedes the definition of the id in the stream. If the sink drops a definition,
+ * for example because its buffers are full, the stack is not published and its event refers to no stack,
+ * the stack is defined again by its next occurrence.
+ *
+ * <p>
+ * Ids are never reused. When the {@link #MAX_STACKS} limit is reached, the dictionary is cleared
+ * and the stacks are defined again with new ids, so the memory does not grow with distinct stacks.
+ * @author Kyrylo Semenko
+ */
+final class StackDictionary {
+
+    /** Maximum number of interned stacks before the dictionary is cleared */
+    static final int MAX_STACKS = 100000;
+
+    /** Ids of defined frames */
+    private final ConcurrentMap<StackTraceElement, Long> frames = new ConcurrentHashMap<>();
+
+    /** Ids of defined stacks */
+    private final ConcurrentMap<StackKey, Long> stacks = new ConcurrentHashMap<>();
+
+    /** Guards the {@link #nextId} and definitions of new stacks */
+    private final Object lock = new Object();
+
+    /** The id of the next frame or stack, frames and stacks share a sequence */
+    private long nextId = 1;
+
+    /**
+     * Find out the id of the stack, define it first if it is new.
+     * @param elements the stack, it is not changed, can be 'null'
+     * @param length number of the elements from the top of the stack to intern
+     * @param encoder writes the definitions
+     * @param eventSink the target of the definitions
+     * @return the stack id or -1 if the stack is empty or the eventSink dropped its definition
+     */
+    long intern(StackTraceElement[] elements, int length, EventEncoder encoder, EventSink eventSink) {
+        int count = elements == null ? 0 : Math.min(length, elements.length);
+        if (count == 0) {
+            return -1;
+        }
+        StackKey key = new StackKey(elements, count);
+        Long stackId = stacks.get(key);
+        if (stackId != null) {
+            return stackId;
+        }
+        synchronized (lock) {
+            stackId = stacks.get(key);
+            if (stackId != null) {
+                return stackId;
+            }
+            if (stacks.size() >= MAX_STACKS) {
+                stacks.clear();
+                frames.clear();
+            }
+            long[] frameIds = new long[count];
+            boolean defined = true;
+            for (int i = 0; i < count; i++) {
+                Long frameId = frames.get(elements[i]);
+                if (frameId == null) {
+                    frameId = nextId++;
+                    if (encoder.writeFrame(frameId, elements[i], eventSink)) {
+                        frames.put(elements[i], frameId);
+                    } else {
+                        defined = false;
+                    }
+                }
+                frameIds[i] = frameId;
+            }
+            if (!defined) {
+                return -1;
+            }
+            stackId = nextId++;
+            if (!encoder.writeStack(stackId, frameIds, eventSink)) {
+                return -1;
+            }
+            stacks.put(new StackKey(Arrays.copyOf(elements, count), count), stackId);
+            return stackId;
+        }
+    }
+
+    /** @return number of interned stacks */
+    int size() {
+        return stacks.size();
+    }
+
+    /** A key of the {@link #stacks}, compares the first {@link #length} frames */
+    private static final class StackKey {
+
+        /** The frames, a stored key owns its copy */
+        private final StackTraceElement[] elements;
+
+        /** Number of the compared {@link #elements} */
+        private final int length;
+
+        /** The cached hash code */
+        private final int hash;
+
+        /**
+         * @param elements see the {@link #elements} field
+         * @param length see the {@link #length} field
+         */
+        private StackKey(StackTraceElement[] elements, int length) {
+            this.elements = elements;
+            this.length = length;
+            int result = 1;
+            for (int i = 0; i < length; i++) {
+                result = 31 * result + elements[i].hashCode();
+            }
+            this.hash = result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof StackKey)) {
+                return false;
+            }
+            StackKey other = (StackKey) object;
+            if (hash != other.hash || length != other.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (!elements[i].equals(other.elements[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
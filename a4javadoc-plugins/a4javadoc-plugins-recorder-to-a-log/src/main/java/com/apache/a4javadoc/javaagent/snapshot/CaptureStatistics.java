@@ -0,0 +1,138 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe counters of the two-phase capture. The time spent on application threads
+ * by capturing of {@link Snapshot}s is counted separately from the time spent
+ * on {@link SnapshotRenderer} threads.
+ * @author Kyrylo Semenko
+ */
+public class CaptureStatistics {
+
+    /** Number of captured {@link Snapshot}s */
+    private final AtomicLong captured = new AtomicLong();
+
+    /** Nanoseconds spent on application threads by capturing and submitting of snapshots */
+    private final AtomicLong captureNanos = new AtomicLong();
+
+    /** Total size of the {@link Snapshot#getData()} */
+    private final AtomicLong capturedBytes = new AtomicLong();
+
+    /** Number of failed captures */
+    private final AtomicLong captureFailures = new AtomicLong();
+
+    /** Number of rendered snapshots */
+    private final AtomicLong rendered = new AtomicLong();
+
+    /** Nanoseconds spent on renderer threads by restoring and rendering of snapshots */
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    /** Number of failed renderings */
+    private final AtomicLong renderFailures = new AtomicLong();
+
+    /** Number of snapshots dropped because the renderer queue was full */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Count a captured snapshot.
+     * @param nanos time spent on the application thread
+     * @param bytes size of the snapshot data
+     */
+    public void captured(long nanos, int bytes) {
+        captured.incrementAndGet();
+        captureNanos.addAndGet(nanos);
+        capturedBytes.addAndGet(bytes);
+    }
+
+    /** Count a failed capture */
+    public void captureFailed() {
+        captureFailures.incrementAndGet();
+    }
+
+    /**
+     * Count a rendered snapshot.
+     * @param nanos time spent on the renderer thread
+     * @return the number of rendered snapshots
+     */
+    public long rendered(long nanos) {
+        renderNanos.addAndGet(nanos);
+        return rendered.incrementAndGet();
+    }
+
+    /** Count a failed rendering */
+    public void renderFailed() {
+        renderFailures.incrementAndGet();
+    }
+
+    /** Count a dropped snapshot */
+    public void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    /** @return The {@link CaptureStatistics#captured} field value */
+    public long getCaptured() {
+        return captured.get();
+    }
+
+    /** @return The {@link CaptureStatistics#captureNanos} field value */
+    public long getCaptureNanos() {
+        return captureNanos.get();
+    }
+
+    /** @return The {@link CaptureStatistics#capturedBytes} field value */
+    public long getCapturedBytes() {
+        return capturedBytes.get();
+    }
+
+    /** @return The {@link CaptureStatistics#captureFailures} field value */
+    public long getCaptureFailures() {
+        return captureFailures.get();
+    }
+
+    /** @return The {@link CaptureStatistics#rendered} field value */
+    public long getRendered() {
+        return rendered.get();
+    }
+
+    /** @return The {@link CaptureStatistics#renderNanos} field value */
+    public long getRenderNanos() {
+        return renderNanos.get();
+    }
+
+    /** @return The {@link CaptureStatistics#renderFailures} field value */
+    public long getRenderFailures() {
+        return renderFailures.get();
+    }
+
+    /** @return The {@link CaptureStatistics#dropped} field value */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return for example
+     * <pre>captured: 1000 (application threads avg 2100 ns, avg 310 bytes), rendered: 998 (renderer threads avg 48000 ns), dropped: 2, failures: 0 / 0</pre>
+     */
+    @Override
+    public String toString() {
+        long capturedCount = getCaptured();
+        long renderedCount = getRendered();
+        return "captured: " + capturedCount
+                + " (application threads avg " + average(getCaptureNanos(), capturedCount) + " ns"
+                + ", avg " + average(getCapturedBytes(), capturedCount) + " bytes)"
+                + ", rendered: " + renderedCount
+                + " (renderer threads avg " + average(getRenderNanos(), renderedCount) + " ns)"
+                + ", dropped: " + getDropped()
+                + ", failures: " + getCaptureFailures() + " / " + getRenderFailures();
+    }
+
+    /**
+     * @param total the sum
+     * @param count number of summands
+     * @return the average or 0 if the count is 0
+     */
+    private static long average(long total, long count) {
+        return count == 0 ? 0 : total / count;
+    }
+}
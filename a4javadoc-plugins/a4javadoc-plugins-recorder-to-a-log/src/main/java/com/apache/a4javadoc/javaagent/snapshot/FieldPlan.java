@@ -0,0 +1,40 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+import java.lang.reflect.Field;
+
+/**
+ * Accessible fields of a class and their kinds, prepared once per class
+ * by the {@link FieldPlanService}. The same plan is used for writing and reading
+ * of an object in a {@link Snapshot}, so the fields order is the same.
+ * @author Kyrylo Semenko
+ */
+public class FieldPlan {
+
+    /** The kind of a field of a reference type. Its value is written with a {@link SnapshotTag}. */
+    public static final byte REFERENCE_KIND = -1;
+
+    /** Fields to be copied, they are accessible */
+    private final Field[] fields;
+
+    /** Primitive {@link SnapshotTag}s of the {@link #fields} or the {@link #REFERENCE_KIND} */
+    private final byte[] kinds;
+
+    /**
+     * @param fields see the {@link #fields} field
+     * @param kinds see the {@link #kinds} field
+     */
+    public FieldPlan(Field[] fields, byte[] kinds) {
+        this.fields = fields;
+        this.kinds = kinds;
+    }
+
+    /** @return The {@link FieldPlan#fields} field */
+    public Field[] getFields() {
+        return fields;
+    }
+
+    /** @return The {@link FieldPlan#kinds} field */
+    public byte[] getKinds() {
+        return kinds;
+    }
+}
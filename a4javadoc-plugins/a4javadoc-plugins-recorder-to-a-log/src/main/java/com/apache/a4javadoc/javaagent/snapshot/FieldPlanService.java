@@ -0,0 +1,76 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.apache.a4javadoc.javaagent.mapper.FieldService;
+
+/**
+ * Singleton for creation and caching of {@link FieldPlan}s.
+ * The plan of a class is created once and then it is shared between threads.
+ * @author Kyrylo Semenko
+ */
+public class FieldPlanService {
+    private static final Logger logger = LoggerFactory.getLogger(FieldPlanService.class);
+
+    /** Plans of classes, they do not prevent the classes from unloading */
+    private final ClassValue<FieldPlan> plans = new ClassValue<FieldPlan>() {
+        @Override
+        protected FieldPlan computeValue(Class<?> clazz) {
+            return createPlan(clazz);
+        }
+    };
+
+    private FieldPlanService() {
+        // empty
+    }
+
+    /**
+     * @return the {@link FieldPlanService} singleton.
+     */
+    public static FieldPlanService getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @param clazz the class of a copied object
+     * @return the cached {@link FieldPlan} of the clazz
+     */
+    public FieldPlan getPlan(Class<?> clazz) {
+        return plans.get(clazz);
+    }
+
+    /**
+     * Collect the {@link FieldService#getFields(Class)} and make them accessible.
+     * Fields that cannot be made accessible are skipped.
+     * @param clazz the fields source
+     * @return a new {@link FieldPlan}
+     */
+    FieldPlan createPlan(Class<?> clazz) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : FieldService.getInstance().getFields(clazz)) {
+            try {
+                field.setAccessible(true);
+                fields.add(field);
+            } catch (RuntimeException e) {
+                logger.debug("The field {} will not be copied to snapshots. {}", field, e.getMessage());
+            }
+        }
+        byte[] kinds = new byte[fields.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            Byte kind = SnapshotTag.ofPrimitive(fields.get(i).getType());
+            kinds[i] = kind != null ? kind : FieldPlan.REFERENCE_KIND;
+        }
+        return new FieldPlan(fields.toArray(new Field[fields.size()]), kinds);
+    }
+
+    /** Lazy holder of the {@link FieldPlanService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final FieldPlanService INSTANCE = new FieldPlanService();
+    }
+
+}
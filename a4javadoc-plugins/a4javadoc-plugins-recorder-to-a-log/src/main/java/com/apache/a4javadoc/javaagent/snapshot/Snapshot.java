@@ -0,0 +1,34 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+/**
+ * A copy of an object graph state, see the {@link SnapshotService#capture(Object)} method.
+ * The snapshot is detached from the copied objects, they can be changed after the capture.
+ * @author Kyrylo Semenko
+ */
+public class Snapshot {
+
+    /** Values of the copied objects, each value begins with a {@link SnapshotTag} */
+    private final byte[] data;
+
+    /** Classes of the copied objects and immutable values, for example {@link String}s */
+    private final Object[] references;
+
+    /**
+     * @param data see the {@link #data} field
+     * @param references see the {@link #references} field
+     */
+    public Snapshot(byte[] data, Object[] references) {
+        this.data = data;
+        this.references = references;
+    }
+
+    /** @return The {@link Snapshot#data} field */
+    public byte[] getData() {
+        return data;
+    }
+
+    /** @return The {@link Snapshot#references} field */
+    public Object[] getReferences() {
+        return references;
+    }
+}
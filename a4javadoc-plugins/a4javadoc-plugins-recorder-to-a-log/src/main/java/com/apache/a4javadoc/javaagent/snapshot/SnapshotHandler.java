@@ -0,0 +1,15 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+/**
+ * Renders an object graph restored from a {@link Snapshot}, for example to JSON.
+ * It is called on a {@link SnapshotRenderer} thread.
+ * @author Kyrylo Semenko
+ */
+public interface SnapshotHandler {
+
+    /**
+     * @param restored the result of the {@link SnapshotService#restore(Snapshot)} method
+     */
+    public void handle(Object restored);
+
+}
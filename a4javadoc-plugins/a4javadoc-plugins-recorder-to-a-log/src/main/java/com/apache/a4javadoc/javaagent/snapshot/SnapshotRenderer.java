@@ -0,0 +1,130 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Pool of daemon threads, that restore {@link Snapshot}s and pass them
+ * to {@link SnapshotHandler}s.
+ *
+ * <p>
+ * The {@link #submit(Snapshot, SnapshotHandler)} method never blocks an application thread.
+ * If the queue is full, the snapshot is dropped and counted
+ * in the {@link CaptureStatistics#getDropped()}. The drop does not allocate, unlike the default
+ * {@link ThreadPoolExecutor.AbortPolicy}, which creates an exception with a stack trace
+ * on the application thread.
+ *
+ * @author Kyrylo Semenko
+ */
+public class SnapshotRenderer {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotRenderer.class);
+
+    /** The {@link CaptureStatistics} are logged after each this number of rendered snapshots */
+    private static final long STATISTICS_LOG_INTERVAL = 10000;
+
+    /** Renderer threads */
+    private final ThreadPoolExecutor executor;
+
+    /** The counters of captured and rendered snapshots */
+    private final CaptureStatistics statistics;
+
+    /**
+     * @param threads number of renderer threads, for example {@link Runtime#availableProcessors()}
+     * @param queueCapacity maximum number of snapshots waiting for rendering
+     * @param statistics see the {@link #statistics} field
+     */
+    public SnapshotRenderer(int threads, int queueCapacity, CaptureStatistics statistics) {
+        this.statistics = statistics;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new RendererThreadFactory(), new DropPolicy());
+    }
+
+    /**
+     * Queue the snapshot for rendering.
+     * @param snapshot the data source
+     * @param handler will be called with the restored object graph on a renderer thread
+     */
+    public void submit(final Snapshot snapshot, final SnapshotHandler handler) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                render(snapshot, handler);
+            }
+        });
+    }
+
+    /**
+     * Restore the snapshot, pass it to the handler and measure the time.
+     * @param snapshot the data source
+     * @param handler the renderer
+     */
+    private void render(Snapshot snapshot, SnapshotHandler handler) {
+        long start = System.nanoTime();
+        try {
+            handler.handle(SnapshotService.getInstance().restore(snapshot));
+            long renderedCount = statistics.rendered(System.nanoTime() - start);
+            if (renderedCount % STATISTICS_LOG_INTERVAL == 0) {
+                logger.info("Capture statistics: {}", statistics);
+            }
+        } catch (Exception e) {
+            statistics.renderFailed();
+            logger.error("Snapshot rendering failed", e);
+        }
+    }
+
+    /**
+     * Render the queued snapshots and stop the threads.
+     * @param timeout how long to wait for the queued snapshots
+     * @param unit the timeout unit
+     * @return 'true' if all snapshots have been rendered
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** @return The {@link SnapshotRenderer#statistics} field */
+    public CaptureStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Counts the snapshots rejected by a full queue or by a shut down executor as dropped.
+     */
+    private class DropPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+            statistics.dropped();
+        }
+    }
+
+    /**
+     * Creates daemon threads named <i>a4javadoc-renderer-N</i>.
+     */
+    private static class RendererThreadFactory implements ThreadFactory {
+
+        /** The number of the last created thread */
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "a4javadoc-renderer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,681 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.mapper.ConfigService;
+import com.apache.a4javadoc.javaagent.mapper.ConstructorService;
+
+/**
+ * <p>
+ * Stateless singleton for copying of object graphs to {@link Snapshot}s
+ * and for restoring of detached copies of the graphs from them.
+ *
+ * <p>
+ * The {@link #capture(Object)} method is intended for application threads,
+ * it only reads fields by the cached {@link FieldPlan}s and writes their
+ * values to a byte array. Strings, enums and other immutable objects
+ * are not copied, they are referenced. The depth is limited by the
+ * {@link ConfigService#getMaxSnapshotDepth()}, the number of items
+ * of arrays, collections and maps by the {@link ConfigService#getMaxContainerElements()}.
+ *
+ * <p>
+ * The {@link #restore(Snapshot)} method creates new instances of the copied classes
+ * without calling their constructors. Collections and maps are created by their default
+ * constructors, if it is not possible, by {@link java.util.ArrayList}, {@link LinkedHashSet}
+ * or {@link LinkedHashMap}. The restored graph can be rendered by the
+ * {@link com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j} on another thread.
+ *
+ * @author Kyrylo Semenko
+ */
+public class SnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+
+    /** Initial size of a snapshot data buffer */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** Size of a reserved place for a number of items */
+    private static final int INT_SIZE = 4;
+
+    private SnapshotService() {
+        // empty
+    }
+
+    /**
+     * @return the {@link SnapshotService} singleton.
+     */
+    public static SnapshotService getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Copy the state of the object graph to a new {@link Snapshot}.
+     * @param rootObject the graph root, can be 'null'
+     * @return the detached copy of the graph
+     */
+    public Snapshot capture(Object rootObject) {
+        ConfigService configService = ConfigService.getInstance();
+        Capture capture = new Capture(configService.getMaxSnapshotDepth(), configService.getMaxContainerElements());
+        capture.writeValue(rootObject, 1);
+        return capture.toSnapshot();
+    }
+
+    /**
+     * Create a new object graph from the {@link Snapshot}.
+     * @param snapshot the data source
+     * @return the copy of the captured root object
+     */
+    public Object restore(Snapshot snapshot) {
+        return new Restore(snapshot).readValue();
+    }
+
+    /**
+     * @param value an object to be copied
+     * @return 'true' if the value is immutable and it can be referenced instead of copying
+     */
+    private static boolean isConstant(Object value) {
+        return value instanceof String
+                || value instanceof Enum
+                || value instanceof Class
+                || value instanceof BigInteger
+                || value instanceof BigDecimal;
+    }
+
+    /**
+     * Create an instance without calling of its constructors. If it is not possible,
+     * call the default constructor.
+     * @param clazz the instance type
+     * @return the new instance or 'null' if it cannot be created
+     */
+    private Object newInstance(Class<?> clazz) {
+        try {
+            ConstructorService constructorService = ConstructorService.getInstance();
+            if (constructorService.canAllocateInstances()) {
+                return constructorService.allocateInstance(clazz);
+            }
+            return constructorService.getInstantiationPlan(clazz).newInstance();
+        } catch (Exception e) {
+            logger.debug("The instance of {} cannot be restored. {}", clazz, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Create a {@link Collection} of the same type as the captured one. If it is not possible,
+     * create a {@link LinkedHashSet} for sets and an {@link ArrayList} for other collections.
+     * @param clazz the captured collection type
+     * @param items the captured items
+     * @return the new filled collection
+     */
+    @SuppressWarnings("unchecked")
+    private Collection<Object> newCollection(Class<?> clazz, List<Object> items) {
+        try {
+            Constructor<?> constructor = ConstructorService.getInstance().getInstantiationPlan(clazz).getConstructor();
+            Collection<Object> collection = (Collection<Object>) constructor.newInstance();
+            collection.addAll(items);
+            return collection;
+        } catch (Exception e) {
+            logger.trace("The collection of {} will be restored as a substitute. {}", clazz, e.getMessage());
+            if (Set.class.isAssignableFrom(clazz)) {
+                return new LinkedHashSet<>(items);
+            }
+            return new ArrayList<>(items);
+        }
+    }
+
+    /**
+     * Create a {@link Map} of the same type as the captured one. If it is not possible,
+     * create a {@link LinkedHashMap}.
+     * @param clazz the captured map type
+     * @param keysAndValues the captured keys and values one after another
+     * @return the new filled map
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> newMap(Class<?> clazz, List<Object> keysAndValues) {
+        try {
+            Constructor<?> constructor = ConstructorService.getInstance().getInstantiationPlan(clazz).getConstructor();
+            Map<Object, Object> map = (Map<Object, Object>) constructor.newInstance();
+            fillMap(map, keysAndValues);
+            return map;
+        } catch (Exception e) {
+            logger.trace("The map of {} will be restored as a substitute. {}", clazz, e.getMessage());
+            Map<Object, Object> map = new LinkedHashMap<>();
+            fillMap(map, keysAndValues);
+            return map;
+        }
+    }
+
+    /**
+     * @param map the target
+     * @param keysAndValues the keys and values one after another
+     */
+    private void fillMap(Map<Object, Object> map, List<Object> keysAndValues) {
+        for (int i = 0; i < keysAndValues.size(); i += 2) {
+            map.put(keysAndValues.get(i), keysAndValues.get(i + 1));
+        }
+    }
+
+    /**
+     * Move the buffer position forward after a bulk operation on its view.
+     * The {@link Buffer} cast keeps the code compatible with older runtimes.
+     * @param buffer the buffer
+     * @param length number of bytes to be skipped
+     */
+    private static void skip(ByteBuffer buffer, int length) {
+        Buffer plainBuffer = buffer;
+        plainBuffer.position(plainBuffer.position() + length);
+    }
+
+    /**
+     * State of a single {@link SnapshotService#capture(Object)} call.
+     */
+    private static class Capture {
+
+        /** See the {@link ConfigService#getMaxSnapshotDepth()} */
+        private final int maxDepth;
+
+        /** See the {@link ConfigService#getMaxContainerElements()} */
+        private final int maxElements;
+
+        /** The snapshot data */
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+        /** The future {@link Snapshot#getReferences()} */
+        private final List<Object> references = new ArrayList<>();
+
+        /** Indexes of the {@link #references} */
+        private final Map<Object, Integer> referenceIndexes = new IdentityHashMap<>();
+
+        /** Sequence numbers of already written arrays, collections, maps and objects */
+        private final Map<Object, Integer> written = new IdentityHashMap<>();
+
+        /**
+         * @param maxDepth see the {@link #maxDepth} field
+         * @param maxElements see the {@link #maxElements} field
+         */
+        Capture(int maxDepth, int maxElements) {
+            this.maxDepth = maxDepth;
+            this.maxElements = maxElements;
+        }
+
+        /** @return a new {@link Snapshot} from the written data */
+        Snapshot toSnapshot() {
+            return new Snapshot(Arrays.copyOf(buffer.array(), buffer.position()), references.toArray());
+        }
+
+        /**
+         * Write the value with its {@link SnapshotTag}.
+         * @param value the copied value, can be 'null'
+         * @param depth nesting level of the value
+         */
+        void writeValue(Object value, int depth) {
+            if (value == null) {
+                ensureCapacity(1).put(SnapshotTag.NULL);
+            } else if (value instanceof Boolean) {
+                ensureCapacity(2).put(SnapshotTag.BOOLEAN).put((byte) (((Boolean) value) ? 1 : 0));
+            } else if (value instanceof Byte) {
+                ensureCapacity(2).put(SnapshotTag.BYTE).put((Byte) value);
+            } else if (value instanceof Character) {
+                ensureCapacity(3).put(SnapshotTag.CHAR).putChar((Character) value);
+            } else if (value instanceof Short) {
+                ensureCapacity(3).put(SnapshotTag.SHORT).putShort((Short) value);
+            } else if (value instanceof Integer) {
+                ensureCapacity(5).put(SnapshotTag.INT).putInt((Integer) value);
+            } else if (value instanceof Long) {
+                ensureCapacity(9).put(SnapshotTag.LONG).putLong((Long) value);
+            } else if (value instanceof Float) {
+                ensureCapacity(5).put(SnapshotTag.FLOAT).putFloat((Float) value);
+            } else if (value instanceof Double) {
+                ensureCapacity(9).put(SnapshotTag.DOUBLE).putDouble((Double) value);
+            } else if (isConstant(value)) {
+                ensureCapacity(5).put(SnapshotTag.CONSTANT).putInt(referenceIndex(value));
+            } else {
+                writeComposite(value, depth);
+            }
+        }
+
+        /**
+         * Write an array, a collection, a map or a complex object. If the object is already written,
+         * write its sequence number only.
+         * @param value the copied value
+         * @param depth nesting level of the value
+         */
+        private void writeComposite(Object value, int depth) {
+            Integer sequenceNumber = written.get(value);
+            if (sequenceNumber != null) {
+                ensureCapacity(5).put(SnapshotTag.REFERENCE).putInt(sequenceNumber);
+                return;
+            }
+            if (depth > maxDepth) {
+                ensureCapacity(1).put(SnapshotTag.TRUNCATED);
+                return;
+            }
+            written.put(value, written.size());
+            Class<?> clazz = value.getClass();
+            if (clazz.isArray()) {
+                writeArray(value, depth);
+            } else if (value instanceof Collection) {
+                ensureCapacity(5).put(SnapshotTag.COLLECTION).putInt(referenceIndex(clazz));
+                int countPosition = reserveInt();
+                int count = 0;
+                for (Object item : (Collection<?>) value) {
+                    if (count >= maxElements) {
+                        break;
+                    }
+                    writeValue(item, depth + 1);
+                    count++;
+                }
+                buffer.putInt(countPosition, count);
+            } else if (value instanceof Map) {
+                ensureCapacity(5).put(SnapshotTag.MAP).putInt(referenceIndex(clazz));
+                int countPosition = reserveInt();
+                int count = 0;
+                for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (count >= maxElements) {
+                        break;
+                    }
+                    writeValue(entry.getKey(), depth + 1);
+                    writeValue(entry.getValue(), depth + 1);
+                    count++;
+                }
+                buffer.putInt(countPosition, count);
+            } else {
+                writeObject(value, clazz, depth);
+            }
+        }
+
+        /**
+         * Write fields of a complex object by its {@link FieldPlan}.
+         * Primitive fields are written without tags.
+         * @param value the copied object
+         * @param clazz the class of the value
+         * @param depth nesting level of the value
+         */
+        private void writeObject(Object value, Class<?> clazz, int depth) {
+            ensureCapacity(5).put(SnapshotTag.OBJECT).putInt(referenceIndex(clazz));
+            FieldPlan plan = FieldPlanService.getInstance().getPlan(clazz);
+            Field[] fields = plan.getFields();
+            byte[] kinds = plan.getKinds();
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    Field field = fields[i];
+                    switch (kinds[i]) {
+                    case SnapshotTag.BOOLEAN:
+                        ensureCapacity(1).put((byte) (field.getBoolean(value) ? 1 : 0));
+                        break;
+                    case SnapshotTag.BYTE:
+                        ensureCapacity(1).put(field.getByte(value));
+                        break;
+                    case SnapshotTag.CHAR:
+                        ensureCapacity(2).putChar(field.getChar(value));
+                        break;
+                    case SnapshotTag.SHORT:
+                        ensureCapacity(2).putShort(field.getShort(value));
+                        break;
+                    case SnapshotTag.INT:
+                        ensureCapacity(4).putInt(field.getInt(value));
+                        break;
+                    case SnapshotTag.LONG:
+                        ensureCapacity(8).putLong(field.getLong(value));
+                        break;
+                    case SnapshotTag.FLOAT:
+                        ensureCapacity(4).putFloat(field.getFloat(value));
+                        break;
+                    case SnapshotTag.DOUBLE:
+                        ensureCapacity(8).putDouble(field.getDouble(value));
+                        break;
+                    default:
+                        writeValue(field.get(value), depth + 1);
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new AppRuntimeException(e);
+            }
+        }
+
+        /**
+         * Write the array items. Items of primitive arrays are written without tags.
+         * @param array the copied array
+         * @param depth nesting level of the array
+         */
+        private void writeArray(Object array, int depth) {
+            Class<?> clazz = array.getClass();
+            int count = Math.min(Array.getLength(array), maxElements);
+            ensureCapacity(9).put(SnapshotTag.ARRAY).putInt(referenceIndex(clazz)).putInt(count);
+            Byte kind = SnapshotTag.ofPrimitive(clazz.getComponentType());
+            if (kind == null) {
+                Object[] items = (Object[]) array;
+                for (int i = 0; i < count; i++) {
+                    writeValue(items[i], depth + 1);
+                }
+                return;
+            }
+            switch (kind) {
+            case SnapshotTag.BOOLEAN:
+                ensureCapacity(count);
+                for (int i = 0; i < count; i++) {
+                    buffer.put((byte) (((boolean[]) array)[i] ? 1 : 0));
+                }
+                break;
+            case SnapshotTag.BYTE:
+                ensureCapacity(count).put((byte[]) array, 0, count);
+                break;
+            case SnapshotTag.CHAR:
+                ensureCapacity(count * 2).asCharBuffer().put((char[]) array, 0, count);
+                skip(buffer, count * 2);
+                break;
+            case SnapshotTag.SHORT:
+                ensureCapacity(count * 2).asShortBuffer().put((short[]) array, 0, count);
+                skip(buffer, count * 2);
+                break;
+            case SnapshotTag.INT:
+                ensureCapacity(count * 4).asIntBuffer().put((int[]) array, 0, count);
+                skip(buffer, count * 4);
+                break;
+            case SnapshotTag.LONG:
+                ensureCapacity(count * 8).asLongBuffer().put((long[]) array, 0, count);
+                skip(buffer, count * 8);
+                break;
+            case SnapshotTag.FLOAT:
+                ensureCapacity(count * 4).asFloatBuffer().put((float[]) array, 0, count);
+                skip(buffer, count * 4);
+                break;
+            default:
+                ensureCapacity(count * 8).asDoubleBuffer().put((double[]) array, 0, count);
+                skip(buffer, count * 8);
+            }
+        }
+
+        /**
+         * @param value a class or an immutable object
+         * @return index of the value in the {@link #references}
+         */
+        private int referenceIndex(Object value) {
+            Integer index = referenceIndexes.get(value);
+            if (index == null) {
+                index = references.size();
+                references.add(value);
+                referenceIndexes.put(value, index);
+            }
+            return index;
+        }
+
+        /**
+         * Skip the place for a number of items, that is not known yet.
+         * @return position of the reserved place
+         */
+        private int reserveInt() {
+            int position = buffer.position();
+            ensureCapacity(INT_SIZE).putInt(0);
+            return position;
+        }
+
+        /**
+         * Grow the {@link #buffer} if it has not enough space.
+         * @param length number of bytes to be written
+         * @return the {@link #buffer}
+         */
+        private ByteBuffer ensureCapacity(int length) {
+            if (buffer.remaining() < length) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + length);
+                ByteBuffer larger = ByteBuffer.allocate(capacity);
+                ((Buffer) buffer).flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * State of a single {@link SnapshotService#restore(Snapshot)} call.
+     */
+    private class Restore {
+
+        /** The snapshot data */
+        private final ByteBuffer buffer;
+
+        /** See the {@link Snapshot#getReferences()} */
+        private final Object[] references;
+
+        /** Restored arrays, collections, maps and objects in order of their sequence numbers */
+        private final List<Object> restored = new ArrayList<>();
+
+        /**
+         * @param snapshot the data source
+         */
+        Restore(Snapshot snapshot) {
+            this.buffer = ByteBuffer.wrap(snapshot.getData());
+            this.references = snapshot.getReferences();
+        }
+
+        /**
+         * Read a value written by the {@link Capture#writeValue(Object, int)} method.
+         * @return the restored value
+         */
+        Object readValue() {
+            byte tag = buffer.get();
+            switch (tag) {
+            case SnapshotTag.NULL:
+            case SnapshotTag.TRUNCATED:
+                return null;
+            case SnapshotTag.BOOLEAN:
+                return buffer.get() != 0;
+            case SnapshotTag.BYTE:
+                return buffer.get();
+            case SnapshotTag.CHAR:
+                return buffer.getChar();
+            case SnapshotTag.SHORT:
+                return buffer.getShort();
+            case SnapshotTag.INT:
+                return buffer.getInt();
+            case SnapshotTag.LONG:
+                return buffer.getLong();
+            case SnapshotTag.FLOAT:
+                return buffer.getFloat();
+            case SnapshotTag.DOUBLE:
+                return buffer.getDouble();
+            case SnapshotTag.CONSTANT:
+                return references[buffer.getInt()];
+            case SnapshotTag.REFERENCE:
+                return restored.get(buffer.getInt());
+            case SnapshotTag.ARRAY:
+                return readArray();
+            case SnapshotTag.COLLECTION:
+                return readCollection();
+            case SnapshotTag.MAP:
+                return readMap();
+            case SnapshotTag.OBJECT:
+                return readObject();
+            default:
+                throw new AppRuntimeException("Unknown snapshot tag " + tag + " at position " + (buffer.position() - 1));
+            }
+        }
+
+        /**
+         * Read a complex object written by the {@link Capture#writeObject(Object, Class, int)} method.
+         * If the object cannot be instantiated, its fields are read and skipped.
+         * @return the restored object or 'null'
+         */
+        private Object readObject() {
+            Class<?> clazz = (Class<?>) references[buffer.getInt()];
+            Object object = newInstance(clazz);
+            restored.add(object);
+            FieldPlan plan = FieldPlanService.getInstance().getPlan(clazz);
+            Field[] fields = plan.getFields();
+            byte[] kinds = plan.getKinds();
+            for (int i = 0; i < fields.length; i++) {
+                Object value;
+                switch (kinds[i]) {
+                case SnapshotTag.BOOLEAN:
+                    value = buffer.get() != 0;
+                    break;
+                case SnapshotTag.BYTE:
+                    value = buffer.get();
+                    break;
+                case SnapshotTag.CHAR:
+                    value = buffer.getChar();
+                    break;
+                case SnapshotTag.SHORT:
+                    value = buffer.getShort();
+                    break;
+                case SnapshotTag.INT:
+                    value = buffer.getInt();
+                    break;
+                case SnapshotTag.LONG:
+                    value = buffer.getLong();
+                    break;
+                case SnapshotTag.FLOAT:
+                    value = buffer.getFloat();
+                    break;
+                case SnapshotTag.DOUBLE:
+                    value = buffer.getDouble();
+                    break;
+                default:
+                    value = readValue();
+                }
+                if (object != null) {
+                    setField(fields[i], object, value);
+                }
+            }
+            return object;
+        }
+
+        /**
+         * Set the field value. A value of a not compatible type is skipped,
+         * for example a substitute of a collection.
+         * @param field the target field
+         * @param object the field owner
+         * @param value the restored value
+         */
+        private void setField(Field field, Object object, Object value) {
+            try {
+                field.set(object, value);
+            } catch (IllegalArgumentException e) {
+                logger.trace("The value {} is not assignable to {}", value, field);
+            } catch (IllegalAccessException e) {
+                throw new AppRuntimeException(e);
+            }
+        }
+
+        /**
+         * Read an array written by the {@link Capture#writeArray(Object, int)} method.
+         * @return the restored array
+         */
+        private Object readArray() {
+            Class<?> clazz = (Class<?>) references[buffer.getInt()];
+            int count = buffer.getInt();
+            Class<?> componentType = clazz.getComponentType();
+            Object array = Array.newInstance(componentType, count);
+            restored.add(array);
+            Byte kind = SnapshotTag.ofPrimitive(componentType);
+            if (kind == null) {
+                Object[] items = (Object[]) array;
+                for (int i = 0; i < count; i++) {
+                    Object item = readValue();
+                    if (item == null || componentType.isInstance(item)) {
+                        items[i] = item;
+                    }
+                }
+                return array;
+            }
+            switch (kind) {
+            case SnapshotTag.BOOLEAN:
+                for (int i = 0; i < count; i++) {
+                    ((boolean[]) array)[i] = buffer.get() != 0;
+                }
+                break;
+            case SnapshotTag.BYTE:
+                buffer.get((byte[]) array);
+                break;
+            case SnapshotTag.CHAR:
+                buffer.asCharBuffer().get((char[]) array);
+                skip(buffer, count * 2);
+                break;
+            case SnapshotTag.SHORT:
+                buffer.asShortBuffer().get((short[]) array);
+                skip(buffer, count * 2);
+                break;
+            case SnapshotTag.INT:
+                buffer.asIntBuffer().get((int[]) array);
+                skip(buffer, count * 4);
+                break;
+            case SnapshotTag.LONG:
+                buffer.asLongBuffer().get((long[]) array);
+                skip(buffer, count * 8);
+                break;
+            case SnapshotTag.FLOAT:
+                buffer.asFloatBuffer().get((float[]) array);
+                skip(buffer, count * 4);
+                break;
+            default:
+                buffer.asDoubleBuffer().get((double[]) array);
+                skip(buffer, count * 8);
+            }
+            return array;
+        }
+
+        /**
+         * Read a collection. The collection is created after its items,
+         * so an item referencing the collection itself is restored as 'null'.
+         * @return the restored collection
+         */
+        private Object readCollection() {
+            Class<?> clazz = (Class<?>) references[buffer.getInt()];
+            int count = buffer.getInt();
+            int sequenceNumber = restored.size();
+            restored.add(null);
+            List<Object> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(readValue());
+            }
+            Collection<Object> collection = newCollection(clazz, items);
+            restored.set(sequenceNumber, collection);
+            return collection;
+        }
+
+        /**
+         * Read a map. The map is created after its keys and values,
+         * so a key or value referencing the map itself is restored as 'null'.
+         * @return the restored map
+         */
+        private Object readMap() {
+            Class<?> clazz = (Class<?>) references[buffer.getInt()];
+            int count = buffer.getInt();
+            int sequenceNumber = restored.size();
+            restored.add(null);
+            List<Object> keysAndValues = new ArrayList<>(count * 2);
+            for (int i = 0; i < count * 2; i++) {
+                keysAndValues.add(readValue());
+            }
+            Map<Object, Object> map = newMap(clazz, keysAndValues);
+            restored.set(sequenceNumber, map);
+            return map;
+        }
+    }
+
+    /** Lazy holder of the {@link SnapshotService} singleton, its class initialization is thread-safe */
+    private static class InstanceHolder {
+        private static final SnapshotService INSTANCE = new SnapshotService();
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+/**
+ * Tags of values in the {@link Snapshot#getData()}. Each value starts with
+ * one of these tags, followed by its content.
+ * @author Kyrylo Semenko
+ */
+public final class SnapshotTag {
+
+    /** The 'null' value, without content */
+    public static final byte NULL = 0;
+
+    /** A boolean, one byte 0 or 1 */
+    public static final byte BOOLEAN = 1;
+
+    /** A byte */
+    public static final byte BYTE = 2;
+
+    /** A char, two bytes */
+    public static final byte CHAR = 3;
+
+    /** A short, two bytes */
+    public static final byte SHORT = 4;
+
+    /** An int, four bytes */
+    public static final byte INT = 5;
+
+    /** A long, eight bytes */
+    public static final byte LONG = 6;
+
+    /** A float, four bytes */
+    public static final byte FLOAT = 7;
+
+    /** A double, eight bytes */
+    public static final byte DOUBLE = 8;
+
+    /** An immutable object, index of the object in the {@link Snapshot#getReferences()} */
+    public static final byte CONSTANT = 9;
+
+    /** An array: its class index, number of items and the items */
+    public static final byte ARRAY = 10;
+
+    /** A {@link java.util.Collection}: its class index, number of items and the items */
+    public static final byte COLLECTION = 11;
+
+    /** A {@link java.util.Map}: its class index, number of entries and the keys and values */
+    public static final byte MAP = 12;
+
+    /** A complex object: its class index and values of fields from the {@link FieldPlan} */
+    public static final byte OBJECT = 13;
+
+    /** An array, collection, map or object written before, its sequence number in the snapshot */
+    public static final byte REFERENCE = 14;
+
+    /** An object deeper than the {@link com.apache.a4javadoc.javaagent.mapper.ConfigService#getMaxSnapshotDepth()} */
+    public static final byte TRUNCATED = 15;
+
+    /** The constants holder */
+    private SnapshotTag() {
+        // empty
+    }
+
+    /**
+     * @param clazz a type of a field or an array component
+     * @return the tag of the primitive type or 'null' if the clazz is not primitive
+     */
+    public static Byte ofPrimitive(Class<?> clazz) {
+        if (!clazz.isPrimitive()) {
+            return null;
+        }
+        if (clazz == boolean.class) {
+            return BOOLEAN;
+        } else if (clazz == byte.class) {
+            return BYTE;
+        } else if (clazz == char.class) {
+            return CHAR;
+        } else if (clazz == short.class) {
+            return SHORT;
+        } else if (clazz == int.class) {
+            return INT;
+        } else if (clazz == long.class) {
+            return LONG;
+        } else if (clazz == float.class) {
+            return FLOAT;
+        } else if (clazz == double.class) {
+            return DOUBLE;
+        }
+        return null;
+    }
+}
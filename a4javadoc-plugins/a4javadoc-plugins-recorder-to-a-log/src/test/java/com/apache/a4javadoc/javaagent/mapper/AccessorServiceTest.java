@@ -0,0 +1,163 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class AccessorServiceTest {
+
+    /**
+     * The generated reader calls getters and reads the public field, the private field without getter
+     * is read by the fallback accessor.
+     */
+    @Test
+    public void testGeneratedAccessor() {
+        ObjectAccessor accessor = AccessorService.getInstance().createAccessor(WrapperClass.class, AccessorType.GENERATED);
+        assertTrue(accessor instanceof GeneratedAccessor);
+
+        List<String> fieldNames = names(accessor);
+        int booleanValueIndex = fieldNames.indexOf("booleanValue");
+        assertArrayEquals(new int[] {booleanValueIndex}, ((GeneratedAccessor) accessor).getFallbackIndexes());
+
+        WrapperClass parent = new WrapperClass();
+        WrapperClass wrapperClass = new WrapperClass();
+        wrapperClass.setId(7);
+        wrapperClass.setParent(parent);
+        wrapperClass.setBooleanValue(true);
+        wrapperClass.nullWithoutGetterAndSetter = Arrays.asList("a");
+
+        Object[] values = new Object[fieldNames.size()];
+        accessor.readValues(wrapperClass, values);
+        assertEquals(Long.valueOf(7), values[fieldNames.indexOf("id")]);
+        assertSame(parent, values[fieldNames.indexOf("parent")]);
+        assertEquals(Boolean.TRUE, values[booleanValueIndex]);
+        assertSame(wrapperClass.nullWithoutGetterAndSetter, values[fieldNames.indexOf("nullWithoutGetterAndSetter")]);
+    }
+
+    /**
+     * All kinds of accessors read the same values.
+     */
+    @Test
+    public void testAccessorsAreEquivalent() {
+        Container container = new Container();
+        container.setString("text");
+        container.setIntField(5);
+        container.setObjectField(new WrapperClass());
+
+        AccessorService accessorService = AccessorService.getInstance();
+        ObjectAccessor reflectiveAccessor = accessorService.createAccessor(Container.class, AccessorType.REFLECTION);
+        Object[] expected = new Object[reflectiveAccessor.getFields().size()];
+        reflectiveAccessor.readValues(container, expected);
+
+        for (AccessorType accessorType : Arrays.asList(AccessorType.METHOD_HANDLE, AccessorType.GENERATED)) {
+            ObjectAccessor accessor = accessorService.createAccessor(Container.class, accessorType);
+            assertEquals(reflectiveAccessor.getFields(), accessor.getFields());
+            Object[] values = new Object[expected.length];
+            accessor.readValues(container, values);
+            assertArrayEquals(accessorType.name(), expected, values);
+        }
+    }
+
+    /**
+     * If a getter throws an exception, the field value is used.
+     */
+    @Test
+    public void testFailingGetter() {
+        for (AccessorType accessorType : AccessorType.values()) {
+            ObjectAccessor accessor = AccessorService.getInstance().createAccessor(FailingGetter.class, accessorType);
+            Object[] values = new Object[2];
+            accessor.readValues(new FailingGetter(), values);
+            assertEquals(accessorType.name(), "failing", values[names(accessor).indexOf("failing")]);
+            assertEquals(accessorType.name(), "fromGetter", values[names(accessor).indexOf("working")]);
+        }
+    }
+
+    /**
+     * If a getter of the generated reader throws an exception, no getter is called twice.
+     */
+    @Test
+    public void testFailingGetterIsNotCalledTwice() {
+        ObjectAccessor accessor = AccessorService.getInstance().createAccessor(CountingGetters.class, AccessorType.GENERATED);
+        assertTrue(accessor instanceof GeneratedAccessor);
+        CountingGetters.calls.clear();
+        Object[] values = new Object[3];
+        accessor.readValues(new CountingGetters(), values);
+        assertEquals(Arrays.asList("getBefore", "getFailing", "getAfter"), CountingGetters.calls);
+        assertEquals("fromGetter", values[names(accessor).indexOf("before")]);
+        assertEquals("failing", values[names(accessor).indexOf("failing")]);
+        assertEquals("fromGetter", values[names(accessor).indexOf("after")]);
+    }
+
+    /**
+     * The accessor is created once per class.
+     */
+    @Test
+    public void testAccessorIsCached() {
+        AccessorService accessorService = AccessorService.getInstance();
+        assertSame(accessorService.getAccessor(WrapperClass.class), accessorService.getAccessor(WrapperClass.class));
+    }
+
+    private static List<String> names(ObjectAccessor accessor) {
+        String[] result = new String[accessor.getFields().size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = accessor.getFields().get(i).getName();
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * The class with getters around a getter that throws an exception, the getters record their calls.
+     */
+    public static class CountingGetters {
+        private static final List<String> calls = new ArrayList<>();
+        private String before = "before";
+        private String failing = "failing";
+        private String after = "after";
+
+        /** @return a value different from the field value */
+        public String getBefore() {
+            calls.add("getBefore");
+            return "fromGetter";
+        }
+
+        /** @return never */
+        public String getFailing() {
+            calls.add("getFailing");
+            throw new IllegalStateException(failing);
+        }
+
+        /** @return a value different from the field value */
+        public String getAfter() {
+            calls.add("getAfter");
+            return "fromGetter";
+        }
+    }
+
+    /**
+     * The class with a getter that throws an exception.
+     */
+    public static class FailingGetter {
+        private String failing = "failing";
+        private String working = "working";
+
+        /** @return never */
+        public String getFailing() {
+            throw new IllegalStateException(failing);
+        }
+
+        /** @return a value different from the field value */
+        public String getWorking() {
+            return "fromGetter";
+        }
+    }
+}
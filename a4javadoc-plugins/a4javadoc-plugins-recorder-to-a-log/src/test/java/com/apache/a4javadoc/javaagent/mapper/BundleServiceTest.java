@@ -0,0 +1,72 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/** 
+ * Tests of the {@link BundleService#iterator(Object)} method.
+ * @author Kyrylo Semenko
+ */
+public class BundleServiceTest {
+
+    /**
+     * Elements of a primitive array should be wrapped and returned in the same order.
+     */
+    @Test
+    public void testIteratorOfPrimitiveArray() {
+        Iterator<Object> iterator = BundleService.getInstance().iterator(new int[] {3, 1, 2});
+        assertEquals(3, iterator.next());
+        assertEquals(1, iterator.next());
+        assertEquals(2, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    /**
+     * The {@link NoSuchElementException} is expected after the last element of an array.
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void testIteratorOfEmptyArray() {
+        Iterator<Object> iterator = BundleService.getInstance().iterator(new String[0]);
+        assertFalse(iterator.hasNext());
+        iterator.next();
+    }
+
+    /**
+     * Elements of an {@link Iterable} should be returned as is.
+     */
+    @Test
+    public void testIteratorOfIterable() {
+        Iterator<Object> iterator = BundleService.getInstance().iterator(Arrays.asList("a", null, "b"));
+        assertEquals("a", iterator.next());
+        assertEquals(null, iterator.next());
+        assertEquals("b", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    /**
+     * A {@link Map} should be iterated by its entries.
+     */
+    @Test
+    public void testIteratorOfMap() {
+        Map<Integer, String> map = new TreeMap<>();
+        map.put(1, "one");
+        map.put(2, "two");
+        Iterator<Object> iterator = BundleService.getInstance().iterator(map);
+        Object first = iterator.next();
+        assertTrue(first instanceof Entry);
+        assertEquals(1, ((Entry<?, ?>) first).getKey());
+        assertEquals("two", ((Entry<?, ?>) iterator.next()).getValue());
+        assertFalse(iterator.hasNext());
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class ClassServiceTest {
+
+    /**
+     * Common classes of related, unrelated and missing classes.
+     */
+    @Test
+    public void testFindCommonClassType() {
+        ClassService classService = ClassService.getInstance();
+        assertNull(classService.findCommonClassType(null, null));
+        assertSame(Integer.class, classService.findCommonClassType(null, Integer.class));
+        assertSame(Number.class, classService.findCommonClassType(Number.class, Integer.class));
+        assertSame(Number.class, classService.findCommonClassType(Integer.class, Long.class));
+        assertSame(AbstractList.class, classService.findCommonClassType(ArrayList.class, LinkedList.class));
+        assertSame(Object.class, classService.findCommonClassType(String.class, Integer.class));
+    }
+
+    /**
+     * Cached results are the same as the first results in both orders of arguments.
+     */
+    @Test
+    public void testCachedCommonClassType() {
+        ClassService classService = ClassService.getInstance();
+        for (int i = 0; i < 3; i++) {
+            assertSame(Number.class, classService.findCommonClassType(Double.class, Short.class));
+            assertSame(Number.class, classService.findCommonClassType(Short.class, Double.class));
+        }
+        List<Object> instances = Arrays.<Object>asList(1, 2L, 3.0, 4.0f);
+        assertEquals(Number.class, classService.findCommonClass(instances));
+    }
+
+}
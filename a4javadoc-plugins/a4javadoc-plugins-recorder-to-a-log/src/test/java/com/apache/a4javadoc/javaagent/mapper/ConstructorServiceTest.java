@@ -0,0 +1,97 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class ConstructorServiceTest {
+
+    /**
+     * The plan is resolved once per class.
+     */
+    @Test
+    public void testInstantiationPlanIsCached() {
+        ConstructorService constructorService = ConstructorService.getInstance();
+        InstantiationPlan plan = constructorService.getInstantiationPlan(WrapperClass.class);
+        assertSame(plan, constructorService.getInstantiationPlan(WrapperClass.class));
+        assertNotNull(plan.getConstructor());
+        assertNull(plan.getFactory());
+    }
+
+    /**
+     * The class without default constructor is instantiated without calling of its constructors.
+     */
+    @Test
+    public void testNewInstanceWithoutDefaultConstructor() {
+        InstantiationPlan plan = ConstructorService.getInstance().getInstantiationPlan(WithoutDefaultConstructor.class);
+        assertNull(plan.getConstructor());
+        WithoutDefaultConstructor instance = (WithoutDefaultConstructor) plan.newInstance();
+        assertNull(instance.name);
+    }
+
+    /**
+     * The factory method is found and invoked by its name.
+     */
+    @Test
+    public void testNewInstanceByFactory() {
+        InstantiationPlan plan = ConstructorService.getInstance().getInstantiationPlan(WithFactory.class);
+        assertEquals("create", plan.getFactory().getName());
+        assertEquals("factored", ((WithFactory) plan.newInstanceByFactory("create")).name);
+    }
+
+    /**
+     * The same constructor is returned for parameters of the same types, missing constructors are remembered too.
+     */
+    @Test
+    public void testFindConstructorIsCached() {
+        ConstructorService constructorService = ConstructorService.getInstance();
+        Object constructor = constructorService.findConstructor(null, WithoutDefaultConstructor.class,
+                WithoutDefaultConstructor.class, Arrays.<Object>asList("first"));
+        assertTrue(constructor instanceof Constructor);
+        assertSame(constructor, constructorService.findConstructor(null, WithoutDefaultConstructor.class,
+                WithoutDefaultConstructor.class, Arrays.<Object>asList("second")));
+        assertNull(constructorService.findConstructor(null, WithoutDefaultConstructor.class,
+                WithoutDefaultConstructor.class, Collections.<Object>singletonList(1)));
+        assertNull(constructorService.findConstructor(null, WithoutDefaultConstructor.class,
+                WithoutDefaultConstructor.class, Collections.<Object>singletonList(2)));
+        assertEquals("The results are kept by the plan of the class", 2,
+                constructorService.getInstantiationPlan(WithoutDefaultConstructor.class).getFoundConstructors().size());
+    }
+
+    /**
+     * The class with a constructor with a parameter only.
+     */
+    public static class WithoutDefaultConstructor {
+        private String name;
+
+        /** @param name the {@link #name} value */
+        public WithoutDefaultConstructor(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * The class with a factory method.
+     */
+    public static class WithFactory {
+        private String name;
+
+        /** @return a new instance */
+        public static WithFactory create() {
+            WithFactory result = new WithFactory();
+            result.name = "factored";
+            return result;
+        }
+    }
+}
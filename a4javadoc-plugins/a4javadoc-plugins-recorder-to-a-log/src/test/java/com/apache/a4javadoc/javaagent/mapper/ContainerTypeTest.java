@@ -0,0 +1,98 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class ContainerTypeTest {
+
+    /**
+     * The same structures are represented by the same instance.
+     */
+    @Test
+    public void testCanonicalInstances() {
+        ContainerType first = ContainerType.of(HashMap.class,
+                Arrays.asList(ContainerType.of(String.class), ContainerType.of(Integer.class)));
+        List<ContainerType> containerTypes = new ArrayList<>();
+        containerTypes.add(ContainerType.of(String.class));
+        containerTypes.add(ContainerType.of(Integer.class));
+        ContainerType second = ContainerType.of(HashMap.class, containerTypes);
+        assertSame(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotSame(first, ContainerType.of(HashMap.class,
+                Arrays.asList(ContainerType.of(Integer.class), ContainerType.of(String.class))));
+        assertSame(ContainerType.EMPTY, ContainerType.of(null));
+    }
+
+    /**
+     * Changes of the source list do not affect the created instance.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        List<ContainerType> containerTypes = new ArrayList<>();
+        containerTypes.add(ContainerType.of(String.class));
+        ContainerType containerType = ContainerType.of(ArrayList.class, containerTypes);
+        containerTypes.add(ContainerType.of(Integer.class));
+        assertEquals(1, containerType.getContainerTypes().size());
+        containerType.getContainerTypes().clear();
+    }
+
+    /**
+     * Identifiers of the same values share the canonical {@link ContainerType}.
+     */
+    @Test
+    public void testIdentifiersShareContainerTypes() {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("one", 1);
+        IdentifierService identifierService = IdentifierService.getInstance();
+        ContainerType containerType = identifierService.createIdentifier(map).getContainerType();
+        assertSame(containerType, identifierService.createIdentifier(new HashMap<>(map)).getContainerType());
+        assertEquals("java.util.HashMap<java.lang.String, java.lang.Integer>", containerType.toString());
+    }
+
+    /**
+     * A canonical instance does not prevent its inner classes from unloading,
+     * even if its own class is loaded by the bootstrap class loader.
+     * @throws Exception in case of failure
+     */
+    @Test
+    public void testClassesCanBeUnloaded() throws Exception {
+        WeakReference<ClassLoader> classLoader = createContainerTypeOfUnloadableClass();
+        for (int i = 0; i < 100 && classLoader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(classLoader.get());
+    }
+
+    /**
+     * @return the reference to the class loader of the inner class of the created {@link ContainerType}
+     * @throws Exception in case of failure
+     */
+    private static WeakReference<ClassLoader> createContainerTypeOfUnloadableClass() throws Exception {
+        URL location = ValueNode.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {location}, null);
+        Class<?> valueNodeClass = classLoader.loadClass(ValueNode.class.getName());
+        ContainerType containerType = ContainerType.of(ArrayList.class,
+                Arrays.asList(ContainerType.of(valueNodeClass)));
+        assertSame(containerType, ContainerType.of(ArrayList.class, Arrays.asList(ContainerType.of(valueNodeClass))));
+        classLoader.close();
+        return new WeakReference<ClassLoader>(classLoader);
+    }
+
+}
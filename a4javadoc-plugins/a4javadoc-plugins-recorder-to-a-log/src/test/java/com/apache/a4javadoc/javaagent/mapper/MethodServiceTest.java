@@ -0,0 +1,139 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringWriter;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class MethodServiceTest {
+
+    /**
+     * The Guava table is a registered known container.
+     */
+    @Test
+    public void testKnownContainer() {
+        Disassembler disassembler = MethodService.getInstance().getDisassembler(HashBasedTable.class);
+        assertNotNull(disassembler);
+        assertEquals("cellSet", disassembler.getDisassembleMethod().getName());
+        assertEquals("create", disassembler.getFactory().getName());
+        assertEquals("put", disassembler.getFilling().getName());
+        assertEquals(3, disassembler.getPartsCount());
+        assertSame(disassembler, MethodService.getInstance().getDisassembler(HashBasedTable.class));
+    }
+
+    /**
+     * The disassembler of a not registered container is found from signatures without invoking of its methods.
+     */
+    @Test
+    public void testDisassemblerFromSignatures() {
+        PairBag.invocations = 0;
+        Disassembler disassembler = MethodService.getInstance().getDisassembler(PairBag.class);
+        assertNotNull(disassembler);
+        assertEquals("pairs", disassembler.getDisassembleMethod().getName());
+        assertEquals("create", disassembler.getFactory().getName());
+        assertEquals("add", disassembler.getFilling().getName());
+        assertEquals(2, disassembler.getPartsCount());
+        assertEquals(0, PairBag.invocations);
+    }
+
+    /**
+     * Classes without an items method or a factory have no disassembler.
+     */
+    @Test
+    public void testNotDisassemblable() {
+        MethodService methodService = MethodService.getInstance();
+        assertNull(methodService.getDisassembler(WrapperClass.class));
+        assertNull(methodService.getDisassembler(SimpleEntry.class));
+        assertNull(methodService.getDisassembler(ArrayList.class));
+    }
+
+    /**
+     * Serialization and deserialization of a container found from signatures.
+     */
+    @Test
+    public void testPairBagRoundTrip() {
+        PairBag<String, Integer> bag = PairBag.create();
+        bag.add("one", 1);
+        bag.add("two", 2);
+        Container container = new Container();
+        container.setObjectField(bag);
+
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, container);
+
+        Container deserialized = (Container) objectMapperA4j.readValue(stringWriter.toString());
+        assertEquals(bag.pairs(), ((PairBag<?, ?>) deserialized.getObjectField()).pairs());
+    }
+
+    /**
+     * Serialization and deserialization of a Guava table.
+     */
+    @Test
+    public void testTableRoundTrip() {
+        Table<String, String, Integer> table = HashBasedTable.create();
+        table.put("a0", "b0", 0);
+        table.put("a0", "b1", 1);
+        table.put("a1", "b0", 1);
+        Container container = new Container();
+        container.setObjectField(table);
+
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, container);
+
+        Container deserialized = (Container) objectMapperA4j.readValue(stringWriter.toString());
+        assertEquals(table, deserialized.getObjectField());
+    }
+
+    /**
+     * A generic container, that is neither {@link Iterable} nor {@link java.util.Map}.
+     * @param <K> keys type
+     * @param <V> values type
+     */
+    public static class PairBag<K, V> {
+
+        /** Number of calls of the {@link #pairs()} method */
+        static int invocations;
+
+        private final List<Entry<K, V>> pairs = new ArrayList<>();
+
+        /**
+         * @return an empty bag
+         */
+        public static <K, V> PairBag<K, V> create() {
+            return new PairBag<>();
+        }
+
+        /**
+         * @param key the pair key
+         * @param value the pair value
+         */
+        public void add(K key, V value) {
+            pairs.add(new SimpleEntry<>(key, value));
+        }
+
+        /**
+         * @return the added pairs
+         */
+        public List<Entry<K, V>> pairs() {
+            invocations++;
+            return pairs;
+        }
+    }
+
+}
@@ -1,15 +1,28 @@
 package com.apache.a4javadoc.javaagent.mapper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.builder.CompareToBuilder;
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -176,7 +189,22 @@ public class ObjectMapperA4jTest {
         
         assertEquals(container.getString(), ((Container) object).getString());
     }
-    
+
+    /** Test of a string in a field of the {@link Object} type, it is written with its type */
+    @Test
+    public void testStringInObjectField() {
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        Container container = new Container();
+        container.setObjectField("The string");
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, container);
+        String json = stringWriter.toString();
+
+        Container deserialized = (Container) objectMapperA4j.readValue(json);
+
+        assertEquals(container.getObjectField(), deserialized.getObjectField());
+    }
+
     /** Test of var args serialization and deserialization, see {@link VarArgsClass#callMethod(String, int...)} */
     @Test
     public void TestVarArgs() {
@@ -356,4 +384,291 @@ public class ObjectMapperA4jTest {
         assertEquals(list.get(2), deserialized.get(2));
     }
     
+    /** Test of serialization of an empty {@link Map} */
+    @Test
+    public void TestEmptyMap() {
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, new TreeMap<Integer, String>());
+        String json = stringWriter.toString();
+        System.out.println(json);
+        
+        assertTrue(json.endsWith("\"value\":[]}"));
+    }
+    
+    /**
+     * Only {@link ConfigService#getMaxContainerElements()} elements of a {@link List}
+     * should be serialized and used for finding out of the common type of elements.
+     */
+    @Test
+    public void TestMaxContainerElements() {
+        List<Object> list = Arrays.asList((Object) "first", "second", 3);
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        ConfigService.getInstance().setMaxContainerElements(2);
+        try {
+            objectMapperA4j.writeValue(stringWriter, list);
+        } finally {
+            ConfigService.getInstance().setMaxContainerElements(Integer.MAX_VALUE);
+        }
+        String json = stringWriter.toString();
+        System.out.println(json);
+        
+        assertTrue(json.contains("\"value\":[\"first\",\"second\"]"));
+        assertTrue(json.contains("{\"objectClass\":\"java.lang.String\",\"containerTypes\":[]}"));
+    }
+    
+    /**
+     * A linked chain of 100 000 objects is deeper than the thread stack would allow
+     * for a recursive serialization.
+     */
+    @Test
+    public void TestDeepLinkedObjects() {
+        WrapperClass root = createChain(100000);
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, root);
+        String json = stringWriter.toString();
+        
+        assertTrue(json.contains("\"id\":\"99999\",\"parent\":null"));
+        assertTrue(json.endsWith("\"booleanValue\":\"false\",\"nullWithoutGetterAndSetter\":null}}"));
+    }
+    
+    /**
+     * A deep chain with value based {@link Object#hashCode()} methods is serialized without calling them,
+     * they would recurse through the whole chain.
+     */
+    @Test
+    public void TestDeepValueBasedObjects() {
+        ValueNode root = new ValueNode();
+        ValueNode last = root;
+        for (int i = 1; i < 20000; i++) {
+            ValueNode next = new ValueNode();
+            next.setId(i);
+            last.setParent(next);
+            last = next;
+        }
+        StringWriter stringWriter = new StringWriter();
+        ObjectMapperA4j.getInstance().writeValue(stringWriter, root);
+
+        assertTrue(stringWriter.toString().contains("\"id\":\"19999\",\"parent\":null"));
+    }
+
+    /**
+     * Distinct objects, which are equal, are not merged into a single reference.
+     */
+    @Test
+    public void TestEqualObjectsAreNotMerged() {
+        ValueNode first = new ValueNode();
+        ValueNode second = new ValueNode();
+        List<Object> list = Arrays.<Object>asList(first, second, first, new Container());
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, list);
+
+        List<?> deserialized = (List<?>) objectMapperA4j.readValue(stringWriter.toString());
+        assertEquals(4, deserialized.size());
+        assertNotSame(deserialized.get(0), deserialized.get(1));
+        assertSame(deserialized.get(0), deserialized.get(2));
+    }
+
+    /**
+     * Objects deeper than the {@link ConfigService#getMaxObjectDepth()} are replaced with their identifiers.
+     */
+    @Test
+    public void TestMaxObjectDepth() {
+        WrapperClass root = createChain(5);
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        ConfigService.getInstance().setMaxObjectDepth(3);
+        try {
+            objectMapperA4j.writeValue(stringWriter, root);
+        } finally {
+            ConfigService.getInstance().setMaxObjectDepth(Integer.MAX_VALUE);
+        }
+        String json = stringWriter.toString();
+        System.out.println(json);
+        
+        assertTrue(json.contains("\"id\":\"2\",\"parent\":{\"_a4id\":{\"containerType\":"
+                + "{\"objectClass\":\"com.apache.a4javadoc.javaagent.mapper.WrapperClass\",\"containerTypes\":[]}}}"));
+        assertFalse(json.contains("\"id\":\"3\""));
+    }
+    
+    /**
+     * A nested object referencing itself is written once, the reference is replaced with its identifier.
+     */
+    @Test
+    public void TestCircularNestedObject() {
+        WrapperClass root = createChain(2);
+        root.getParent().setParent(root.getParent());
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, root);
+        String json = stringWriter.toString();
+        System.out.println(json);
+        
+        assertTrue(json.contains("\"id\":\"1\",\"parent\":{\"_a4id\":"));
+    }
+    
+    /**
+     * A linked chain of 100 000 objects is deserialized without a recursion.
+     */
+    @Test
+    public void TestDeserializeDeepLinkedObjects() {
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, createChain(100000));
+        
+        WrapperClass deserialized = (WrapperClass) objectMapperA4j.readValue(stringWriter.toString());
+        int length = 1;
+        while (deserialized.getParent() != null) {
+            deserialized = deserialized.getParent();
+            length++;
+        }
+        assertEquals(100000, length);
+        assertEquals(99999, deserialized.getId());
+    }
+    
+    /**
+     * The references to the nested object and to the already serialized object are restored as the same instances.
+     */
+    @Test
+    public void TestDeserializeReferences() {
+        WrapperClass root = createChain(2);
+        root.getParent().setParent(root.getParent());
+        Container container = new Container();
+        container.setObjectField(container);
+        List<Object> list = Arrays.<Object>asList(root, container, container);
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, list);
+        
+        List<?> deserialized = (List<?>) objectMapperA4j.readValue(stringWriter.toString());
+        WrapperClass nested = ((WrapperClass) deserialized.get(0)).getParent();
+        assertSame(nested, nested.getParent());
+        assertSame(deserialized.get(1), deserialized.get(2));
+        assertSame(deserialized.get(1), ((Container) deserialized.get(1)).getObjectField());
+    }
+    
+    /**
+     * Skipped subtrees keep default values, the references after them are restored.
+     */
+    @Test
+    public void TestSkippedSubtree() {
+        Container first = new Container();
+        first.setString("first");
+        first.setObjectField(Arrays.asList(new Container(), new WrapperClass()));
+        Container second = new Container();
+        second.setString("second");
+        List<Object> list = Arrays.<Object>asList(first, second, new WrapperClass(), second);
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, list);
+        
+        SubtreeFilter subtreeFilter = new SubtreeFilter() {
+            @Override
+            public boolean isSkipped(Field field, int depth) {
+                return field != null && field.getName().equals("objectField");
+            }
+        };
+        List<?> deserialized = (List<?>) objectMapperA4j.readValue(stringWriter.toString(), subtreeFilter);
+        assertEquals("first", ((Container) deserialized.get(0)).getString());
+        assertNull(((Container) deserialized.get(0)).getObjectField());
+        assertEquals("second", ((Container) deserialized.get(1)).getString());
+        assertSame(deserialized.get(1), deserialized.get(3));
+    }
+    
+    /**
+     * A sequence of root objects is read one by one.
+     */
+    @Test
+    public void TestReadValues() {
+        ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        StringWriter stringWriter = new StringWriter();
+        objectMapperA4j.writeValue(stringWriter, createChain(2));
+        stringWriter.write("\n");
+        objectMapperA4j.writeValue(stringWriter, "text");
+        
+        Iterator<Object> iterator = objectMapperA4j.readValues(new StringReader(stringWriter.toString()), null);
+        assertEquals(1, ((WrapperClass) iterator.next()).getParent().getId());
+        assertEquals("text", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+    
+    /**
+     * Many threads serialize and deserialize their own object graphs with the shared {@link ObjectMapperA4j}
+     * at the same time. Each result should be the same as the result of a single thread.
+     */
+    @Test
+    public void TestConcurrentSerialization() throws Exception {
+        final ObjectMapperA4j objectMapperA4j = ObjectMapperA4j.getInstance();
+        int threadsCount = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        final String[] expected = new String[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            StringWriter stringWriter = new StringWriter();
+            objectMapperA4j.writeValue(stringWriter, createConcurrentGraph(i));
+            expected[i] = stringWriter.toString();
+        }
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadsCount);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < threadsCount; i++) {
+                final int index = i;
+                futures.add(executorService.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        startLatch.await();
+                        for (int iteration = 0; iteration < 200; iteration++) {
+                            StringWriter stringWriter = new StringWriter();
+                            objectMapperA4j.writeValue(stringWriter, createConcurrentGraph(index));
+                            assertEquals(expected[index], stringWriter.toString());
+                            List<?> deserialized = (List<?>) objectMapperA4j.readValue(stringWriter.toString());
+                            assertSame(deserialized.get(1), deserialized.get(2));
+                            assertEquals(index, ((WrapperClass) deserialized.get(0)).getId());
+                        }
+                        return index;
+                    }
+                }));
+            }
+            startLatch.countDown();
+            for (int i = 0; i < threadsCount; i++) {
+                assertEquals(Integer.valueOf(i), futures.get(i).get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+    
+    /**
+     * @param index the thread index
+     * @return a list with a chain, a map and a container referenced twice
+     */
+    private List<Object> createConcurrentGraph(int index) {
+        WrapperClass chain = createChain(10 + index);
+        chain.setId(index);
+        Container container = new Container();
+        container.setObjectField(container);
+        container.setString("thread " + index);
+        Map<String, Object> map = new TreeMap<>();
+        map.put("index", index);
+        map.put("chain", chain.getParent());
+        return Arrays.<Object>asList(chain, container, container, map);
+    }
+    
+    /**
+     * @param length number of linked objects
+     * @return the first object of a chain linked by the {@link WrapperClass#getParent()} references
+     */
+    private WrapperClass createChain(int length) {
+        WrapperClass root = new WrapperClass();
+        WrapperClass last = root;
+        for (int i = 1; i < length; i++) {
+            WrapperClass next = new WrapperClass();
+            next.setId(i);
+            last.setParent(next);
+            last = next;
+        }
+        return root;
+    }
 }
@@ -0,0 +1,46 @@
+package com.apache.a4javadoc.javaagent.mapper;
+
+import java.util.Objects;
+
+/** A linked node with value based {@link #hashCode()} and {@link #equals(Object)} including its parent. For test purposes. */
+public class ValueNode {
+    /** Primitive long for tests purposes */
+    private long id;
+
+    /** The next node of a chain */
+    private ValueNode parent;
+
+    /** @return The {@link ValueNode#id} field */
+    public long getId() {
+        return id;
+    }
+
+    /** @param id see the {@link ValueNode#id} field */
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    /** @return The {@link ValueNode#parent} field */
+    public ValueNode getParent() {
+        return parent;
+    }
+
+    /** @param parent see the {@link ValueNode#parent} field */
+    public void setParent(ValueNode parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, parent);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ValueNode)) {
+            return false;
+        }
+        ValueNode other = (ValueNode) object;
+        return id == other.id && Objects.equals(parent, other.parent);
+    }
+}
@@ -0,0 +1,90 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.apache.a4javadoc.javaagent.mapper.Container;
+import com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class EventEncoderTest {
+
+    /**
+     * Records are the same as the output of the {@link ObjectMapperA4j#writeValue(java.io.Writer, Object)}
+     * method and the buffer of the thread is reused.
+     */
+    @Test
+    public void testReusedBuffer() {
+        RecordingSink sink = new RecordingSink();
+        byte[] prefix = EventEncoder.encode("State: ");
+        EventEncoder encoder = EventEncoder.acquire();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Container container = new Container();
+                container.setString("value " + i);
+                StringWriter expected = new StringWriter().append("State: ");
+                ObjectMapperA4j.getInstance().writeValue(expected, container);
+                encoder.writeState(prefix, container, sink);
+                assertEquals(expected.toString(), sink.records.get(i));
+            }
+            encoder.writeText(prefix, "čau 😀", sink);
+            assertEquals("State: čau 😀", sink.records.get(3));
+            assertEquals(1, sink.buffers.size());
+            assertSame(encoder.getBuffer(), sink.buffers.get(0));
+        } finally {
+            encoder.release();
+        }
+        assertSame(encoder, EventEncoder.acquire());
+        encoder.release();
+    }
+
+    /**
+     * A nested acquisition on the same thread obtains its own encoder.
+     */
+    @Test
+    public void testNestedAcquire() {
+        EventEncoder outer = EventEncoder.acquire();
+        try {
+            EventEncoder inner = EventEncoder.acquire();
+            assertNotSame(outer, inner);
+            inner.release();
+        } finally {
+            outer.release();
+        }
+    }
+
+    /** Collects records and distinct buffers passed to the {@link #write(byte[], int, int, long, long)} method */
+    private static class RecordingSink implements EventSink {
+
+        /** The decoded records */
+        private final List<String> records = new ArrayList<>();
+
+        /** Distinct buffers */
+        private final List<byte[]> buffers = new ArrayList<>();
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean write(byte[] buffer, int offset, int length, long invocationId, long timestampMillis) {
+            records.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            if (buffers.isEmpty() || buffers.get(buffers.size() - 1) != buffer) {
+                buffers.add(buffer);
+            }
+            return true;
+        }
+    }
+
+}
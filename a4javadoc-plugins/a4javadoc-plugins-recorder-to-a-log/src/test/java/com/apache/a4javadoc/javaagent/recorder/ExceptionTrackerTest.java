@@ -0,0 +1,64 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class ExceptionTrackerTest {
+
+    /**
+     * The same instance is {@link ExceptionTracker.Kind#PROPAGATED}, an identical one
+     * is {@link ExceptionTracker.Kind#REPEATED} and counted until the window ends.
+     */
+    @Test
+    public void testAggregation() {
+        ExceptionTracker exceptionTracker = new ExceptionTracker(1000);
+        IllegalStateException first = newException("failed");
+        ExceptionTracker.Sighting sighting = exceptionTracker.track(first, 10000);
+        assertEquals(ExceptionTracker.Kind.NEW, sighting.getKind());
+        long id = sighting.getId();
+        
+        ExceptionTracker.Sighting propagated = exceptionTracker.track(first, 10001);
+        assertEquals(ExceptionTracker.Kind.PROPAGATED, propagated.getKind());
+        assertEquals(id, propagated.getId());
+        
+        for (int i = 0; i < 3; i++) {
+            ExceptionTracker.Sighting repeated = exceptionTracker.track(newException("failed"), 10100 + i);
+            assertEquals(ExceptionTracker.Kind.REPEATED, repeated.getKind());
+            assertEquals(id, repeated.getId());
+        }
+        ExceptionTracker.Sighting other = exceptionTracker.track(newException("other"), 10200);
+        assertEquals(ExceptionTracker.Kind.NEW, other.getKind());
+        assertNotEquals(id, other.getId());
+        
+        assertTrue(exceptionTracker.drainExpired(10500).isEmpty());
+        List<ExceptionTracker.Aggregate> aggregates = exceptionTracker.drainExpired(11000);
+        assertEquals(1, aggregates.size());
+        ExceptionTracker.Aggregate aggregate = aggregates.get(0);
+        assertEquals(id, aggregate.getFirstId());
+        assertEquals(IllegalStateException.class.getName(), aggregate.getType());
+        assertEquals("failed", aggregate.getMessage());
+        assertEquals(3, aggregate.getCount());
+        assertEquals(10000, aggregate.getWindowStartMillis());
+        assertEquals(10102, aggregate.getLastMillis());
+        
+        assertEquals(ExceptionTracker.Kind.NEW, exceptionTracker.track(newException("failed"), 11000).getKind());
+        assertTrue(exceptionTracker.drainAll().isEmpty());
+    }
+
+    /**
+     * @param message the exception message
+     * @return an exception created at the same line, so instances with the same message are identical
+     */
+    private static IllegalStateException newException(String message) {
+        return new IllegalStateException(message);
+    }
+
+}
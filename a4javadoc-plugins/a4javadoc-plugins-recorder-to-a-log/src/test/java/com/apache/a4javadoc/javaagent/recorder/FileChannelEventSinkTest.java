@@ -0,0 +1,249 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class FileChannelEventSinkTest {
+
+    /** Number of threads writing to the sink */
+    private static final int THREADS = 4;
+
+    /** Number of records of each thread */
+    private static final int RECORDS = 5000;
+
+    /** The target of the tested sinks */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * All records of concurrent threads are written as whole lines, records of a thread keep their order.
+     * Small buffers force many gathering writes.
+     * @throws Exception in case of failure
+     */
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        File file = temporaryFolder.newFile();
+        final FileChannelEventSink sink = new FileChannelEventSink(file.toPath(), FsyncPolicy.NONE, Compression.NONE,
+                5, 4096, 64);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < RECORDS; i++) {
+                        byte[] record = ("thread " + thread + " record " + i).getBytes(StandardCharsets.UTF_8);
+                        sink.write(record, 0, record.length, i, i);
+                        if (i % 500 == 0) {
+                            Thread.sleep(1);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+        sink.close();
+
+        SinkStatistics statistics = sink.getStatistics();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(THREADS * RECORDS - statistics.getDropped(), lines.size());
+        assertEquals(lines.size(), statistics.getRecords());
+        assertEquals(file.length(), statistics.getBytes());
+        assertTrue(statistics.getWrites() > 1);
+        int[] nextRecords = new int[THREADS];
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            int thread = Integer.parseInt(parts[1]);
+            int record = Integer.parseInt(parts[3]);
+            assertTrue(line, record >= nextRecords[thread]);
+            nextRecords[thread] = record + 1;
+        }
+    }
+
+    /**
+     * Records larger than a buffer keep their order, each write is forced with the {@link FsyncPolicy#BATCH}
+     * and records written after the close call are dropped.
+     * @throws Exception in case of failure
+     */
+    @Test
+    public void testOversizedRecordsAndBatchPolicy() throws Exception {
+        File file = temporaryFolder.newFile();
+        FileChannelEventSink sink = new FileChannelEventSink(file.toPath(), FsyncPolicy.BATCH, Compression.NONE,
+                5, 16, 2);
+        char[] large = new char[100];
+        Arrays.fill(large, 'x');
+        List<String> expected = Arrays.asList("first", new String(large), "last");
+        for (String record : expected) {
+            byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+            sink.write(bytes, 0, bytes.length, -1, 0);
+        }
+        sink.close();
+        sink.write(new byte[] {'a'}, 0, 1, -1, 0);
+
+        assertEquals(expected, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        SinkStatistics statistics = sink.getStatistics();
+        assertEquals(3, statistics.getRecords());
+        assertEquals(1, statistics.getDropped());
+        assertEquals(statistics.getWrites(), statistics.getSyncs());
+        assertEquals(0, statistics.getFailures());
+    }
+
+    /**
+     * Records larger than a buffer waiting for a slow writer are limited by the pool size,
+     * the rest of them is dropped rather than queued without a limit.
+     * @throws Exception in case of failure
+     */
+    @Test
+    public void testOversizedRecordsAreLimited() throws Exception {
+        File file = temporaryFolder.newFile();
+        FileChannelEventSink sink = new FileChannelEventSink(file.toPath(), FsyncPolicy.BATCH, Compression.NONE,
+                5, 16, 4);
+        char[] large = new char[40];
+        Arrays.fill(large, 'x');
+        int accepted = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            byte[] bytes = (i + " " + new String(large)).getBytes(StandardCharsets.UTF_8);
+            if (sink.write(bytes, 0, bytes.length, i, i)) {
+                accepted++;
+            }
+        }
+        sink.close();
+
+        SinkStatistics statistics = sink.getStatistics();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertTrue(statistics.getDropped() > 0);
+        assertEquals(RECORDS - statistics.getDropped(), accepted);
+        assertEquals(accepted, lines.size());
+        int next = 0;
+        for (String line : lines) {
+            int record = Integer.parseInt(line.split(" ")[0]);
+            assertTrue(line, record >= next);
+            next = record + 1;
+        }
+    }
+
+    /**
+     * With the {@link Compression#DEFLATE} each buffer is a block described by the sidecar index,
+     * the blocks can be read one by one and found by a timestamp.
+     * @throws Exception in case of failure
+     */
+    @Test
+    public void testDeflateBlocks() throws Exception {
+        File file = temporaryFolder.newFile();
+        FileChannelEventSink sink = new FileChannelEventSink(file.toPath(), FsyncPolicy.NONE, Compression.DEFLATE,
+                5, 2048, 32);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String record = "{\"id\":" + i + ",\"method\":\"java.lang.String.valueOf(int)\"}";
+            expected.append(record).append('\n');
+            byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+            sink.write(bytes, 0, bytes.length, i, 1000L + i);
+            if (i % 100 == 0) {
+                Thread.sleep(10);
+            }
+        }
+        sink.close();
+
+        SinkStatistics statistics = sink.getStatistics();
+        assertEquals(0, statistics.getDropped());
+        assertEquals(file.length(), statistics.getBytes());
+        assertTrue(statistics.getBytes() * 3 < statistics.getRecordBytes());
+        try (BlockReader blockReader = new BlockReader(file.toPath())) {
+            List<BlockIndexEntry> entries = blockReader.getEntries();
+            assertTrue(entries.size() > 1);
+            StringBuilder actual = new StringBuilder();
+            long records = 0;
+            for (BlockIndexEntry entry : entries) {
+                String block = new String(blockReader.readBlock(entry), StandardCharsets.UTF_8);
+                assertTrue(block.startsWith("{\"id\":" + entry.getFirstInvocationId() + ","));
+                actual.append(block);
+                records += entry.getRecords();
+            }
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(1000, records);
+
+            BlockIndexEntry last = entries.get(entries.size() - 1);
+            assertEquals(entries.size() - 1, blockReader.findBlock(last.getFirstTimestampMillis()));
+            int found = blockReader.findBlock(1500);
+            assertTrue(entries.get(found).getFirstTimestampMillis() <= 1500);
+            assertEquals(0, blockReader.findBlock(0));
+        }
+    }
+
+    /**
+     * A truncated frame or a frame with a length other than in its index entry is reported
+     * rather than returned partially or read forever.
+     * @throws Exception in case of failure
+     */
+    @Test
+    public void testCorruptedBlocks() throws Exception {
+        File file = temporaryFolder.newFile();
+        FileChannelEventSink sink = new FileChannelEventSink(file.toPath(), FsyncPolicy.NONE, Compression.DEFLATE,
+                5, 256, 32);
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = ("{\"id\":" + i + "}").getBytes(StandardCharsets.UTF_8);
+            sink.write(bytes, 0, bytes.length, i, i);
+        }
+        sink.close();
+
+        try (BlockReader blockReader = new BlockReader(file.toPath())) {
+            List<BlockIndexEntry> entries = blockReader.getEntries();
+            assertTrue(entries.size() > 2);
+            BlockIndexEntry truncated = entries.get(0);
+            BlockIndexEntry longer = entries.get(1);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                int compressedLength = truncated.getFrameLength() - BlockCompressor.FRAME_HEADER_LENGTH;
+                channel.write((ByteBuffer) ByteBuffer.allocate(4).putInt(0, compressedLength / 2),
+                        truncated.getOffset());
+                channel.write((ByteBuffer) ByteBuffer.allocate(4).putInt(0, longer.getUncompressedLength() + 1),
+                        longer.getOffset() + 4);
+            }
+            assertCorrupted(blockReader, truncated);
+            assertCorrupted(blockReader, longer);
+            assertTrue(new String(blockReader.readBlock(entries.get(2)), StandardCharsets.UTF_8).startsWith("{\"id\":"));
+        }
+    }
+
+    /**
+     * @param blockReader the reader of the corrupted file
+     * @param entry the corrupted block
+     */
+    private static void assertCorrupted(BlockReader blockReader, BlockIndexEntry entry) {
+        try {
+            blockReader.readBlock(entry);
+            fail("Corrupted " + entry + " is read");
+        } catch (AppRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(entry.toString()));
+        }
+    }
+
+}
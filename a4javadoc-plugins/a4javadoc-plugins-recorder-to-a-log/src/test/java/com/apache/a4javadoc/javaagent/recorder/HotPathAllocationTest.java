@@ -0,0 +1,258 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.apache.a4javadoc.exception.AppRuntimeException;
+import com.apache.a4javadoc.javaagent.agent.ConstructorInterceptor;
+import com.apache.a4javadoc.javaagent.agent.MethodInterceptor;
+import com.apache.a4javadoc.javaagent.api.MethodStateRecorder;
+import com.apache.a4javadoc.plugin.AgentPluginManager;
+import com.apache.a4javadoc.plugin.GuardedRecorder;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * <p>
+ * Allocation regression tests of the {@link MethodStateToLogFileRecorder} hot path. Each test calls
+ * a method of the {@link Service} woven with the {@link MethodInterceptor} and the {@link ConstructorInterceptor}
+ * the same way as the {@link com.apache.a4javadoc.javaagent.agent.Agent} does, in a tight loop on a new thread,
+ * and fails if the calling thread allocates more than the limit of the capture mode per call.
+ * So the limits cover the interceptors, the {@link GuardedRecorder} and the recorder together.
+ * Work moved to background threads, for example the rendering of snapshots, is not counted,
+ * because it does not slow down the application thread.
+ *
+ * <p>
+ * The limits have a headroom of about five percent above the values measured on Java 8 and on Java 17,
+ * which are used for the newer versions, so they catch a reintroduced per-call allocation of an array
+ * or a string rather than the noise of a single object. If an optimization lowers the allocation,
+ * lower the limit with it. On Java 9 and newer the build opens the java.lang package to the mapper,
+ * which reads the fields of the recorded stack trace elements.
+ * @author Kyrylo Semenko
+ */
+public class HotPathAllocationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotPathAllocationTest.class);
+
+    /** Calls before the measurement, so the JIT compiles the path and removes non-escaping allocations */
+    private static final int WARMUP_CALLS = 50000;
+
+    /** Measured calls */
+    private static final int MEASURED_CALLS = 50000;
+
+    /**
+     * Frames added to the stack of the measuring thread, the recorded stack has a typical depth
+     * of a service call in a web application
+     */
+    private static final int STACK_TRACE_DEPTH = 16;
+
+    /** 'true' on Java 8, newer versions allocate more per a stack frame and a reflective access */
+    private static final boolean JAVA_8 = System.getProperty("java.specification.version").startsWith("1.");
+
+    /** The limit of the text format rendered on the application thread */
+    static final long MAX_TEXT_BYTES_PER_CALL = JAVA_8 ? 29500 : 36500;
+
+    /** The limit of the {@link MethodStateToLogFileRecorder#JSON_LINES_FORMAT} */
+    static final long MAX_JSON_LINES_BYTES_PER_CALL = JAVA_8 ? 6800 : 7250;
+
+    /** The limit of the {@link MethodStateToLogFileRecorder#SNAPSHOT_CAPTURE_MODE} */
+    static final long MAX_SNAPSHOT_BYTES_PER_CALL = JAVA_8 ? 7600 : 9100;
+
+    /**
+     * The default capture mode renders the text records on the application thread
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testTextCaptureMode() throws InterruptedException {
+        assertBytesPerCall("text", new MethodStateToLogFileRecorder(null, null, new DiscardingSink()),
+                MAX_TEXT_BYTES_PER_CALL);
+    }
+
+    /**
+     * The {@link MethodStateToLogFileRecorder#JSON_LINES_FORMAT} encodes reused events on the application thread
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testJsonLinesCaptureMode() throws InterruptedException {
+        assertBytesPerCall(MethodStateToLogFileRecorder.JSON_LINES_FORMAT, new MethodStateToLogFileRecorder(null,
+                MethodStateToLogFileRecorder.JSON_LINES_FORMAT, new DiscardingSink()), MAX_JSON_LINES_BYTES_PER_CALL);
+    }
+
+    /**
+     * The {@link MethodStateToLogFileRecorder#SNAPSHOT_CAPTURE_MODE} copies the states on the application thread
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testSnapshotCaptureMode() throws InterruptedException {
+        assertBytesPerCall(MethodStateToLogFileRecorder.SNAPSHOT_CAPTURE_MODE, new MethodStateToLogFileRecorder(
+                MethodStateToLogFileRecorder.SNAPSHOT_CAPTURE_MODE, new DiscardingSink()), MAX_SNAPSHOT_BYTES_PER_CALL);
+    }
+
+    /**
+     * Measure bytes allocated per a call of an instrumented method with an argument of primitive fields,
+     * which produces the enter and exit records. The recorder must not fail, otherwise its circuit breaker
+     * would reject the records and the measurement would be meaningless.
+     * @param captureMode the name of the capture mode for the report
+     * @param recorder the tested recorder, it is shut down at the end
+     * @param maxBytesPerCall the limit
+     * @throws InterruptedException if the test is interrupted
+     */
+    private static void assertBytesPerCall(String captureMode, MethodStateToLogFileRecorder recorder,
+            long maxBytesPerCall) throws InterruptedException {
+        ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMxBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocationMxBean = (com.sun.management.ThreadMXBean) threadMxBean;
+        assumeTrue(allocationMxBean.isThreadAllocatedMemorySupported());
+        allocationMxBean.setThreadAllocatedMemoryEnabled(true);
+
+        AgentPluginManager.getInstance().setMethodStateRecorders(
+                Collections.<MethodStateRecorder>singletonList(recorder));
+        try {
+            final Endpoint service = weave();
+            final long[] result = new long[1];
+            final RuntimeException[] failure = new RuntimeException[1];
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        result[0] = callAtDepth(service, allocationMxBean, STACK_TRACE_DEPTH);
+                    } catch (RuntimeException e) {
+                        failure[0] = e;
+                    }
+                }
+            }, "hot-path-" + captureMode);
+            thread.start();
+            thread.join();
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            long bytesPerCall = result[0];
+            GuardedRecorder guardedRecorder = AgentPluginManager.getInstance().getMethodStateRecorders().get(0);
+            logger.info("Capture mode '{}' allocates {} bytes per call, the limit is {}, {}", captureMode,
+                    bytesPerCall, maxBytesPerCall, guardedRecorder);
+            assertEquals(guardedRecorder.toString(), 0, guardedRecorder.getFailures());
+            assertEquals(guardedRecorder.toString(), 0, guardedRecorder.getRejected());
+            assertTrue("Capture mode '" + captureMode + "' allocates " + bytesPerCall
+                    + " bytes per call, the limit is " + maxBytesPerCall, bytesPerCall <= maxBytesPerCall);
+        } finally {
+            AgentPluginManager.getInstance().setMethodStateRecorders(Collections.<MethodStateRecorder>emptyList());
+            recorder.shutdown();
+        }
+    }
+
+    /**
+     * Call the instrumented method from the depth of the stack, so the recorded stack does not depend
+     * on the test runner, and measure the allocation of the current thread.
+     * @param service the instrumented method
+     * @param allocationMxBean the measure
+     * @param depth number of frames to add to the stack before the calls
+     * @return bytes allocated per a measured call
+     */
+    private static long callAtDepth(Endpoint service, com.sun.management.ThreadMXBean allocationMxBean, int depth) {
+        if (depth > 0) {
+            return callAtDepth(service, allocationMxBean, depth - 1);
+        }
+        Item item = new Item(42, 7L);
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            service.method(item);
+        }
+        long threadId = Thread.currentThread().getId();
+        long start = allocationMxBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            service.method(item);
+        }
+        return (allocationMxBean.getThreadAllocatedBytes(threadId) - start) / MEASURED_CALLS;
+    }
+
+    /**
+     * Weave the interceptors into a copy of the {@link Service} class, see the
+     * {@link com.apache.a4javadoc.javaagent.agent.Agent}.
+     * @return an instance of the instrumented {@link Service}
+     */
+    private static Endpoint weave() {
+        Class<? extends Service> type = new ByteBuddy()
+                .redefine(Service.class)
+                .visit(Advice.to(MethodInterceptor.class).on(ElementMatchers.isMethod()))
+                .visit(Advice.to(ConstructorInterceptor.class).on(ElementMatchers.isConstructor()))
+                .make()
+                .load(HotPathAllocationTest.class.getClassLoader(), ClassLoadingStrategy.Default.CHILD_FIRST)
+                .getLoaded();
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AppRuntimeException(e);
+        }
+    }
+
+    /**
+     * The recorded method. The instrumented copy of the {@link Service} is loaded by another class loader,
+     * so it is called through this interface.
+     */
+    public interface Endpoint {
+
+        /**
+         * @param item the argument
+         * @return a constant
+         */
+        String method(Item item);
+    }
+
+    /** The {@link Endpoint} woven with the interceptors */
+    public static class Service implements Endpoint {
+
+        @Override
+        public String method(Item item) {
+            return "result";
+        }
+    }
+
+    /**
+     * The argument of the recorded method. It has primitive fields only, because the text capture mode
+     * inspects fields of arguments by reflection, which newer Java versions deny for the JDK classes.
+     */
+    public static class Item {
+
+        /** Quantity */
+        private final int quantity;
+
+        /** Price */
+        private final long price;
+
+        /**
+         * @param quantity see the {@link #quantity} field
+         * @param price see the {@link #price} field
+         */
+        public Item(int quantity, long price) {
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    /** Accepts and discards all records, so the sink does not contribute to the measured allocation */
+    private static class DiscardingSink implements EventSink {
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean write(byte[] buffer, int offset, int length, long invocationId, long timestampMillis) {
+            // discarded
+            return true;
+        }
+    }
+
+}
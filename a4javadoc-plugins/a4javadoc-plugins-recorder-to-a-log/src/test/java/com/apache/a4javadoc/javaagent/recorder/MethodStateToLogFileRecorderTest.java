@@ -1,10 +1,27 @@
 package com.apache.a4javadoc.javaagent.recorder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
+import com.apache.a4javadoc.javaagent.api.StateAfterInvocation;
+import com.apache.a4javadoc.javaagent.api.StateBeforeInvocation;
 import com.apache.a4javadoc.javaagent.mapper.WrapperClass;
+import com.apache.a4javadoc.javaagent.snapshot.CaptureStatistics;
+import com.apache.a4javadoc.javaagent.snapshot.SnapshotRenderer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /** 
  * @author Kyrylo Semenko
@@ -30,5 +47,195 @@ public class MethodStateToLogFileRecorderTest {
         assertEquals(MethodStateToLogFileRecorder.REMOVED_BECAUSE_THE_OBJECT_CONTAINED_A_CIRCULAR_DEPENDENCY, allArguments[0]);
         assertEquals("string", allArguments[1]);
     }
+    
+    /**
+     * In the {@link MethodStateToLogFileRecorder#SNAPSHOT_CAPTURE_MODE} the states are rendered
+     * on renderer threads and the arguments are not changed.
+     */
+    @Test
+    public void testSnapshotCaptureMode() {
+        WrapperClass child = new WrapperClass();
+        child.setParent(child);
+        Object[] allArguments = new Object[] {child, "string"};
+        StateBeforeInvocation stateBeforeInvocation = new StateBeforeInvocation(1L, new Date(),
+                new StackTraceElement[0], "method", "Type", "()V", "()", "void", "void Type.method()", allArguments);
+        StateAfterInvocation stateAfterInvocation = new StateAfterInvocation(1L, new Date(), "void Type.method()",
+                null, null, allArguments);
+        
+        MethodStateToLogFileRecorder methodStateToLogFileRecorder =
+                new MethodStateToLogFileRecorder(MethodStateToLogFileRecorder.SNAPSHOT_CAPTURE_MODE);
+        methodStateToLogFileRecorder.recordBefore(stateBeforeInvocation);
+        methodStateToLogFileRecorder.recordAfter(stateAfterInvocation);
+        SnapshotRenderer snapshotRenderer = methodStateToLogFileRecorder.getSnapshotRenderer();
+        assertTrue(snapshotRenderer.shutdown(10, TimeUnit.SECONDS));
+        
+        CaptureStatistics statistics = snapshotRenderer.getStatistics();
+        assertEquals(2, statistics.getCaptured());
+        assertEquals(2, statistics.getRendered());
+        assertEquals(0, statistics.getCaptureFailures() + statistics.getRenderFailures() + statistics.getDropped());
+        assertSame(child, allArguments[0]);
+    }
+
+    /**
+     * In the {@link MethodStateToLogFileRecorder#JSON_LINES_FORMAT} each event is a single self-contained line,
+     * a nested invocation refers to its parent and the {@link Throwable} is not changed.
+     * @throws IOException if a line is not a JSON object
+     */
+    @Test
+    public void testJsonLinesFormat() throws IOException {
+        List<String> lines = new ArrayList<>();
+        MethodStateToLogFileRecorder methodStateToLogFileRecorder = new MethodStateToLogFileRecorder(null,
+                MethodStateToLogFileRecorder.JSON_LINES_FORMAT, new CollectingSink(lines));
+        IllegalStateException exception = new IllegalStateException("failed");
+        StackTraceElement[] stackTrace = exception.getStackTrace();
+        Object[] arguments = new Object[] {"text"};
+        methodStateToLogFileRecorder.recordBefore(new StateBeforeInvocation(1L, new Date(1000),
+                new StackTraceElement[0], "outer", "Type", "()V", "()", "void", "void Type.outer()", new Object[0]));
+        methodStateToLogFileRecorder.recordBefore(new StateBeforeInvocation(2L, new Date(2000),
+                new StackTraceElement[0], "inner", "Type", "(Ljava/lang/String;)I", "(java.lang.String)", "int",
+                "int Type.inner(java.lang.String)", arguments));
+        methodStateToLogFileRecorder.recordAfter(new StateAfterInvocation(2L, new Date(3000),
+                "int Type.inner(java.lang.String)", 5, null, arguments));
+        methodStateToLogFileRecorder.recordAfter(new StateAfterInvocation(1L, new Date(4000),
+                "void Type.outer()", null, exception, new Object[0]));
+        
+        // the stack of the throwable is defined before the last event
+        assertTrue(lines.size() > 4);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode outerEnter = objectMapper.readTree(lines.get(0));
+        assertEquals(JsonLineEvent.VERSION, outerEnter.get("v").asInt());
+        assertEquals(JsonLineEvent.ENTER, outerEnter.get("ev").asText());
+        assertEquals(1, outerEnter.get("id").asLong());
+        assertFalse(outerEnter.has("parentId"));
+        assertFalse(outerEnter.has("dur"));
+        assertEquals("void Type.outer()", outerEnter.get("methodId").asText());
+        assertEquals(Thread.currentThread().getName(), outerEnter.get("thread").asText());
+        assertEquals(1000, outerEnter.get("t").asLong());
+        
+        JsonNode innerEnter = objectMapper.readTree(lines.get(1));
+        assertEquals(1, innerEnter.get("parentId").asLong());
+        assertTrue(innerEnter.get("args").toString().contains("text"));
+        
+        JsonNode innerExit = objectMapper.readTree(lines.get(2));
+        assertEquals(JsonLineEvent.EXIT, innerExit.get("ev").asText());
+        assertEquals(2, innerExit.get("id").asLong());
+        assertEquals(1, innerExit.get("parentId").asLong());
+        assertTrue(innerExit.get("dur").asLong() >= 0);
+        assertTrue(innerExit.get("ret").toString().contains("5"));
+        assertFalse(innerExit.has("thr"));
+        
+        JsonNode outerExit = objectMapper.readTree(lines.get(lines.size() - 1));
+        assertFalse(outerExit.has("parentId"));
+        assertEquals(IllegalStateException.class.getName(), outerExit.get("thr").get("type").asText());
+        assertEquals("failed", outerExit.get("thr").get("msg").asText());
+        JsonNode stack = objectMapper.readTree(lines.get(lines.size() - 2));
+        assertEquals(JsonLineEvent.STACK, stack.get("ev").asText());
+        assertEquals(stack.get("id").asLong(), outerExit.get("thr").get("stack").asLong());
+        assertEquals(Math.min(stackTrace.length, 25), stack.get("frames").size());
+        assertEquals(stackTrace.length, exception.getStackTrace().length);
+        assertSame(arguments[0], "text");
+    }
+    
+    /**
+     * A stack is defined once in the {@link MethodStateToLogFileRecorder#JSON_LINES_FORMAT},
+     * next events refer to it by its id and a partially equal stack defines its new frames only.
+     * @throws IOException if a line is not a JSON object
+     */
+    @Test
+    public void testJsonLinesStacks() throws IOException {
+        List<String> lines = new ArrayList<>();
+        MethodStateToLogFileRecorder methodStateToLogFileRecorder = new MethodStateToLogFileRecorder(null,
+                MethodStateToLogFileRecorder.JSON_LINES_FORMAT, new CollectingSink(lines));
+        StackTraceElement caller = new StackTraceElement("Type", "caller", "Type.java", 10);
+        StackTraceElement method = new StackTraceElement("Type", "method", "Type.java", 20);
+        StackTraceElement other = new StackTraceElement("Type", "other", "Type.java", 30);
+        methodStateToLogFileRecorder.recordBefore(new StateBeforeInvocation(1L, new Date(),
+                new StackTraceElement[] {method, caller}, "method", "Type", "()V", "()", "void",
+                "void Type.method()", new Object[0]));
+        methodStateToLogFileRecorder.recordBefore(new StateBeforeInvocation(2L, new Date(),
+                new StackTraceElement[] {method, caller}, "method", "Type", "()V", "()", "void",
+                "void Type.method()", new Object[0]));
+        methodStateToLogFileRecorder.recordBefore(new StateBeforeInvocation(3L, new Date(),
+                new StackTraceElement[] {other, caller}, "other", "Type", "()V", "()", "void",
+                "void Type.other()", new Object[0]));
+        
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> kinds = new ArrayList<>();
+        for (String line : lines) {
+            kinds.add(objectMapper.readTree(line).get("ev").asText());
+        }
+        assertEquals(Arrays.asList(JsonLineEvent.FRAME, JsonLineEvent.FRAME, JsonLineEvent.STACK,
+                JsonLineEvent.ENTER, JsonLineEvent.ENTER, JsonLineEvent.FRAME, JsonLineEvent.STACK,
+                JsonLineEvent.ENTER), kinds);
+        JsonNode methodFrame = objectMapper.readTree(lines.get(0));
+        assertEquals("method", methodFrame.get("method").asText());
+        assertEquals(20, methodFrame.get("line").asInt());
+        JsonNode callerFrame = objectMapper.readTree(lines.get(1));
+        JsonNode firstStack = objectMapper.readTree(lines.get(2));
+        assertEquals(methodFrame.get("id"), firstStack.get("frames").get(0));
+        assertEquals(callerFrame.get("id"), firstStack.get("frames").get(1));
+        assertEquals(firstStack.get("id"), objectMapper.readTree(lines.get(3)).get("stack"));
+        assertEquals(firstStack.get("id"), objectMapper.readTree(lines.get(4)).get("stack"));
+        JsonNode secondStack = objectMapper.readTree(lines.get(6));
+        assertEquals(callerFrame.get("id"), secondStack.get("frames").get(1));
+        assertEquals(secondStack.get("id"), objectMapper.readTree(lines.get(7)).get("stack"));
+    }
+    
+    /**
+     * A {@link Throwable} propagating through instrumented frames is described once and referred to
+     * by the enclosing frames, its stack trace is not changed.
+     */
+    @Test
+    public void testPropagatedThrowable() {
+        List<String> lines = new ArrayList<>();
+        MethodStateToLogFileRecorder methodStateToLogFileRecorder = new MethodStateToLogFileRecorder(null,
+                new CollectingSink(lines));
+        IllegalStateException exception = new IllegalStateException("failed");
+        StackTraceElement[] stackTrace = new StackTraceElement[40];
+        for (int i = 0; i < stackTrace.length; i++) {
+            stackTrace[i] = new StackTraceElement("Type", "method" + i, "Type.java", i);
+        }
+        exception.setStackTrace(stackTrace);
+        for (long id = 3; id > 0; id--) {
+            methodStateToLogFileRecorder.recordAfter(new StateAfterInvocation(id, new Date(), "void Type.method()",
+                    null, exception, new Object[0]));
+        }
+        
+        List<String> thrown = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("Method  threw: ")) {
+                thrown.add(line.substring("Method  threw: ".length()));
+            }
+            assertFalse(line.contains("method39"));
+        }
+        assertEquals(Arrays.asList("#1 java.lang.IllegalStateException: failed", "#1 propagated", "#1 propagated"),
+                thrown);
+        assertEquals(Arrays.asList(stackTrace), Arrays.asList(exception.getStackTrace()));
+    }
+    
+    /** Collects decoded records */
+    private static class CollectingSink implements EventSink {
+        
+        /** The target */
+        private final List<String> lines;
+        
+        /**
+         * @param lines see the {@link #lines} field
+         */
+        CollectingSink(List<String> lines) {
+            this.lines = lines;
+        }
+        
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+        
+        @Override
+        public boolean write(byte[] buffer, int offset, int length, long invocationId, long timestampMillis) {
+            lines.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            return true;
+        }
+    }
 
 }
@@ -0,0 +1,102 @@
+package com.apache.a4javadoc.javaagent.recorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class StackDictionaryTest {
+
+    private static final StackTraceElement[] STACK = {
+            new StackTraceElement("com.example.Callee", "call", "Callee.java", 10),
+            new StackTraceElement("com.example.Caller", "run", "Caller.java", 20)};
+
+    /**
+     * A stack is not published while the sink drops its definitions, it is defined again by its next occurrence.
+     */
+    @Test
+    public void testDroppedDefinitionIsWrittenAgain() {
+        StackDictionary stackDictionary = new StackDictionary();
+        SwitchableSink sink = new SwitchableSink();
+        EventEncoder encoder = EventEncoder.acquire();
+        try {
+            sink.accepting = false;
+            assertEquals(-1, stackDictionary.intern(STACK, STACK.length, encoder, sink));
+            assertEquals(0, stackDictionary.size());
+            assertTrue(sink.records.isEmpty());
+
+            sink.accepting = true;
+            long stackId = stackDictionary.intern(STACK, STACK.length, encoder, sink);
+            assertTrue(stackId > 0);
+            assertEquals(1, stackDictionary.size());
+            assertEquals(3, sink.records.size());
+            assertTrue(sink.records.get(0).contains("\"ev\":\"" + JsonLineEvent.FRAME + "\""));
+            assertTrue(sink.records.get(1).contains("\"ev\":\"" + JsonLineEvent.FRAME + "\""));
+            assertTrue(sink.records.get(2).contains("\"ev\":\"" + JsonLineEvent.STACK + "\",\"id\":" + stackId + ","));
+
+            assertEquals(stackId, stackDictionary.intern(STACK, STACK.length, encoder, sink));
+            assertEquals(3, sink.records.size());
+        } finally {
+            encoder.release();
+        }
+    }
+
+    /**
+     * Frames accepted by the sink are reused when only the definition of their stack was dropped.
+     */
+    @Test
+    public void testDroppedStackReusesAcceptedFrames() {
+        StackDictionary stackDictionary = new StackDictionary();
+        SwitchableSink sink = new SwitchableSink();
+        EventEncoder encoder = EventEncoder.acquire();
+        try {
+            sink.acceptedRecords = 2;
+            assertEquals(-1, stackDictionary.intern(STACK, STACK.length, encoder, sink));
+            assertEquals(0, stackDictionary.size());
+            assertEquals(2, sink.records.size());
+
+            sink.acceptedRecords = Integer.MAX_VALUE;
+            long stackId = stackDictionary.intern(STACK, STACK.length, encoder, sink);
+            assertTrue(stackId > 0);
+            assertEquals(3, sink.records.size());
+            assertTrue(sink.records.get(2).contains("\"ev\":\"" + JsonLineEvent.STACK + "\""));
+        } finally {
+            encoder.release();
+        }
+    }
+
+    /** Collects accepted records, drops the records if it is not accepting */
+    private static class SwitchableSink implements EventSink {
+
+        /** The decoded accepted records */
+        private final List<String> records = new ArrayList<>();
+
+        /** 'false' if all records are dropped */
+        private boolean accepting = true;
+
+        /** Maximum number of accepted records */
+        private int acceptedRecords = Integer.MAX_VALUE;
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean write(byte[] buffer, int offset, int length, long invocationId, long timestampMillis) {
+            if (!accepting || records.size() >= acceptedRecords) {
+                return false;
+            }
+            records.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            return true;
+        }
+    }
+
+}
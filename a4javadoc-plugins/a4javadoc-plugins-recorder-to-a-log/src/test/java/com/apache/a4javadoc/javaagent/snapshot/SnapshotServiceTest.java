@@ -0,0 +1,138 @@
+package com.apache.a4javadoc.javaagent.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.apache.a4javadoc.javaagent.mapper.ConfigService;
+import com.apache.a4javadoc.javaagent.mapper.Container;
+import com.apache.a4javadoc.javaagent.mapper.ObjectMapperA4j;
+import com.apache.a4javadoc.javaagent.mapper.WrapperClass;
+
+/**
+ * @author Kyrylo Semenko
+ */
+public class SnapshotServiceTest {
+
+    /**
+     * The restored graph is rendered to the same JSON as the original one.
+     */
+    @Test
+    public void testRestoredGraphHasTheSameJson() {
+        Container container = new Container();
+        container.setString("text");
+        container.setIntField(5);
+        container.setListOfStrings(new ArrayList<>(Arrays.asList("first", "second")));
+        WrapperClass wrapperClass = new WrapperClass();
+        wrapperClass.setId(7);
+        container.setObjectField(wrapperClass);
+        
+        SnapshotService snapshotService = SnapshotService.getInstance();
+        Object restored = snapshotService.restore(snapshotService.capture(container));
+        
+        assertNotSame(container, restored);
+        assertEquals(toJson(container), toJson(restored));
+    }
+
+    /**
+     * Changes of the original objects after the capture do not affect the snapshot.
+     */
+    @Test
+    public void testSnapshotIsDetached() {
+        WrapperClass wrapperClass = new WrapperClass();
+        wrapperClass.setId(1);
+        List<String> list = new ArrayList<>(Arrays.asList("a"));
+        wrapperClass.nullWithoutGetterAndSetter = list;
+        
+        Snapshot snapshot = SnapshotService.getInstance().capture(wrapperClass);
+        wrapperClass.setId(2);
+        list.add("b");
+        
+        WrapperClass restored = (WrapperClass) SnapshotService.getInstance().restore(snapshot);
+        assertEquals(1, restored.getId());
+        assertEquals(Arrays.asList("a"), restored.nullWithoutGetterAndSetter);
+    }
+
+    /**
+     * Circular references are restored as references to the same restored object.
+     */
+    @Test
+    public void testCircularReference() {
+        WrapperClass wrapperClass = new WrapperClass();
+        wrapperClass.setParent(wrapperClass);
+        
+        SnapshotService snapshotService = SnapshotService.getInstance();
+        WrapperClass restored = (WrapperClass) snapshotService.restore(snapshotService.capture(wrapperClass));
+        
+        assertSame(restored, restored.getParent());
+    }
+
+    /**
+     * Objects deeper than the {@link ConfigService#getMaxSnapshotDepth()} are not copied.
+     */
+    @Test
+    public void testMaxSnapshotDepth() {
+        WrapperClass first = new WrapperClass();
+        WrapperClass second = new WrapperClass();
+        WrapperClass third = new WrapperClass();
+        first.setParent(second);
+        second.setParent(third);
+        
+        SnapshotService snapshotService = SnapshotService.getInstance();
+        ConfigService.getInstance().setMaxSnapshotDepth(2);
+        Snapshot snapshot;
+        try {
+            snapshot = snapshotService.capture(first);
+        } finally {
+            ConfigService.getInstance().setMaxSnapshotDepth(10);
+        }
+        
+        WrapperClass restored = (WrapperClass) snapshotService.restore(snapshot);
+        assertTrue(restored.getParent() != null);
+        assertNull(restored.getParent().getParent());
+    }
+
+    /**
+     * Primitive arrays, boxed values and maps are restored.
+     */
+    @Test
+    public void testArraysAndMaps() {
+        Map<String, Integer> map = new TreeMap<>();
+        map.put("one", 1);
+        map.put("two", 2);
+        Object[] original = {new int[] {1, 2, 3}, new double[] {0.5}, 'c', 10L, map, null};
+        
+        SnapshotService snapshotService = SnapshotService.getInstance();
+        Object[] restored = (Object[]) snapshotService.restore(snapshotService.capture(original));
+        
+        assertArrayEquals(new int[] {1, 2, 3}, (int[]) restored[0]);
+        assertArrayEquals(new double[] {0.5}, (double[]) restored[1], 0);
+        assertEquals('c', restored[2]);
+        assertEquals(10L, restored[3]);
+        assertEquals(TreeMap.class, restored[4].getClass());
+        assertEquals(map, restored[4]);
+        assertNull(restored[5]);
+    }
+
+    /**
+     * @param object the source
+     * @return JSON from the {@link ObjectMapperA4j}
+     */
+    private String toJson(Object object) {
+        StringWriter stringWriter = new StringWriter();
+        ObjectMapperA4j.getInstance().writeValue(stringWriter, object);
+        return stringWriter.toString();
+    }
+}